@@ -27,10 +27,18 @@ android {
             )
         }
     }
+    buildFeatures {
+        // BuildConfig.DEBUG: herramientas solo para debugging (trazas de sensores)
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Los tests JVM del modelo pasan por android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -41,6 +49,7 @@ dependencies {
     implementation(libs.constraintlayout)
     implementation("com.google.android.gms:play-services-maps:18.1.0")
     implementation("com.google.android.gms:play-services-location:21.0.1")
+    implementation("androidx.lifecycle:lifecycle-process:2.8.7")
     
     // CameraX
     val cameraxVersion = "1.3.4"
@@ -0,0 +1,144 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compara en el dispositivo el backend de segmentos con el SQLite:
+ * inserción en lotes del tamaño del group commit y conteos por tipo y rango
+ * (índice temporal en memoria frente al índice (type, ts) de SQLite).
+ * Los resultados se escriben en logcat con la etiqueta "HabitEventBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class HabitEventBackendBenchmark {
+
+    private static final int EVENTS = 20_000;
+    private static final int QUERIES = 1_000;
+    private static final String DB_NAME = "habit_events_benchmark.db";
+
+    private Context context;
+    private File segmentsDir;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        segmentsDir = new File(context.getCacheDir(), "habit_events_benchmark");
+        deleteRecursively(segmentsDir);
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(segmentsDir);
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void insertAndQueryThroughput() throws IOException {
+        List<HabitEvent> events = generate();
+
+        HabitEventSegments segments = new HabitEventSegments(segmentsDir);
+        segments.open();
+        long segmentsInsertMs = insert(segments, events);
+
+        HabitEventSqliteBackend sqlite = new HabitEventSqliteBackend(context, DB_NAME);
+        sqlite.open();
+        long sqliteInsertMs = insert(sqlite, events);
+
+        // Camino actual: todo el historial en memoria con el índice temporal
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        for (int page = 0, pages = segments.loadRecent(buffer::add); page < pages; page++) {
+            segments.readHistoryPage(page, buffer::add);
+        }
+        assertEquals(EVENTS, buffer.size());
+        HabitEventTimeIndex.View index = new HabitEventTimeIndex(buffer).view(buffer.columns());
+
+        long[][] ranges = randomRanges();
+        HabitEvent.HabitType[] types = HabitEvent.HabitType.values();
+
+        long start = System.nanoTime();
+        long memoryTotal = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            memoryTotal += index.countBetween(types[i % types.length], ranges[i][0], ranges[i][1]);
+        }
+        long memoryQueryUs = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        long sqliteTotal = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            sqliteTotal += sqlite.countByTypeBetween(types[i % types.length], ranges[i][0], ranges[i][1]);
+        }
+        long sqliteQueryUs = (System.nanoTime() - start) / 1000;
+        assertEquals(memoryTotal, sqliteTotal);
+
+        segments.close();
+        sqlite.close();
+
+        android.util.Log.i("HabitEventBenchmark", "Inserción de " + EVENTS + " eventos en lotes de "
+                + HabitEventWriter.CommitPolicy.DEFAULT.maxBatchSize + ": segmentos " + segmentsInsertMs
+                + " ms, SQLite " + sqliteInsertMs + " ms");
+        android.util.Log.i("HabitEventBenchmark", QUERIES + " conteos por tipo y rango: memoria "
+                + memoryQueryUs + " µs, SQLite " + sqliteQueryUs + " µs");
+    }
+
+    private static long insert(HabitEventBackend backend, List<HabitEvent> events) throws IOException {
+        int batchSize = HabitEventWriter.CommitPolicy.DEFAULT.maxBatchSize;
+        long start = System.nanoTime();
+        for (int i = 0; i < events.size(); i += batchSize) {
+            backend.appendAll(events.subList(i, Math.min(events.size(), i + batchSize)));
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static List<HabitEvent> generate() {
+        Random random = new Random(42);
+        HabitEvent.HabitType[] types = HabitEvent.HabitType.values();
+        long now = System.currentTimeMillis();
+        List<HabitEvent> events = new ArrayList<>(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            HabitEvent.HabitType type = types[random.nextInt(types.length)];
+            String note = type == HabitEvent.HabitType.WALK
+                    ? "Caminar completado (" + random.nextInt(2000) + " m)"
+                    : type.name() + " ✅ Completado";
+            events.add(new HabitEvent(40.4 + random.nextDouble() * 0.1, -3.7 + random.nextDouble() * 0.1,
+                    note, type, now - (EVENTS - i) * 60_000L));
+        }
+        return events;
+    }
+
+    private static long[][] randomRanges() {
+        Random random = new Random(7);
+        long now = System.currentTimeMillis();
+        long span = EVENTS * 60_000L;
+        long[][] ranges = new long[QUERIES][2];
+        for (int i = 0; i < QUERIES; i++) {
+            long from = now - span + (long) (random.nextDouble() * span);
+            ranges[i][0] = from;
+            ranges[i][1] = from + (long) (random.nextDouble() * span / 10);
+        }
+        return ranges;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
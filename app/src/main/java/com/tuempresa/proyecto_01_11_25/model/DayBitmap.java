@@ -0,0 +1,361 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Conjunto de días (días desde 1970-01-01) comprimido al estilo Roaring.
+ *
+ * Los días se reparten en contenedores de 1024 (unos 2,8 años), ordenados por
+ * clave = día / 1024. Cada contenedor es:
+ * <pre>
+ * bitmap  16 long (128 bytes), un bit por día     mientras se modifica
+ * runs    pares (inicio, largo - 1) en un char[]  si ocupa menos (runOptimize)
+ * </pre>
+ * Un hábito cumplido casi todos los días son pocas rachas largas, así que años
+ * de historial quedan en unas decenas de bytes. Las consultas trabajan con
+ * palabras de 64 días (bitCount, numberOfTrailingZeros...), no día a día.
+ *
+ * No es thread-safe.
+ */
+public class DayBitmap {
+
+    private static final int CONTAINER_SHIFT = 10;
+    private static final int CONTAINER_DAYS = 1 << CONTAINER_SHIFT;
+    private static final int CONTAINER_MASK = CONTAINER_DAYS - 1;
+    private static final int WORDS = CONTAINER_DAYS / 64;
+
+    /** Un contenedor: bits != null (bitmap) o runs != null (rachas) */
+    private static class Container {
+        long[] bits;
+        char[] runs;      // [inicio0, largo0 - 1, inicio1, largo1 - 1...] en días del contenedor
+        int cardinality;
+
+        /** Palabra w (días w*64 .. w*64+63 del contenedor) sin importar la representación */
+        long word(int w) {
+            if (bits != null) return bits[w];
+            long word = 0;
+            int wordStart = w << 6;
+            int wordEnd = wordStart + 63;
+            for (int i = 0; i < runs.length; i += 2) {
+                int start = runs[i];
+                int end = start + runs[i + 1];
+                if (end < wordStart) continue;
+                if (start > wordEnd) break;
+                int from = Math.max(start, wordStart) - wordStart;
+                int to = Math.min(end, wordEnd) - wordStart;
+                word |= rangeMask(from, to);
+            }
+            return word;
+        }
+
+        long[] toBits() {
+            if (bits == null) {
+                long[] b = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) b[w] = word(w);
+                bits = b;
+                runs = null;
+            }
+            return bits;
+        }
+
+        /** Pasa a rachas si así ocupa menos que el bitmap */
+        void runOptimize() {
+            if (bits == null) return;
+            int runCount = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = bits[w];
+                // Cada inicio de racha es un 1 cuyo bit anterior (en este día o en la palabra previa) es 0
+                long previous = (word << 1) | (w > 0 ? bits[w - 1] >>> 63 : 0);
+                runCount += Long.bitCount(word & ~previous);
+            }
+            if (runCount * 2 * 2 >= WORDS * 8) return;
+
+            char[] r = new char[runCount * 2];
+            int n = 0;
+            int day = nextSet(bits, 0);
+            while (day >= 0) {
+                int end = nextClear(bits, day);
+                r[n++] = (char) day;
+                r[n++] = (char) (end - day - 1);
+                day = end < CONTAINER_DAYS ? nextSet(bits, end) : -1;
+            }
+            runs = r;
+            bits = null;
+        }
+
+        int sizeInBytes() {
+            return bits != null ? WORDS * 8 : runs.length * 2;
+        }
+    }
+
+    private int[] keys = new int[0];
+    private Container[] containers = new Container[0];
+    private int size = 0;
+
+    public boolean contains(int day) {
+        int i = indexOf(day >> CONTAINER_SHIFT);
+        if (i < 0) return false;
+        int offset = day & CONTAINER_MASK;
+        return (containers[i].word(offset >>> 6) & (1L << offset)) != 0;
+    }
+
+    public void add(int day) {
+        set(day, true);
+    }
+
+    public void remove(int day) {
+        set(day, false);
+    }
+
+    public void set(int day, boolean present) {
+        int key = day >> CONTAINER_SHIFT;
+        int i = indexOf(key);
+        if (i < 0) {
+            if (!present) return;
+            i = -i - 1;
+            keys = insert(keys, i, key);
+            Container created = new Container();
+            created.bits = new long[WORDS];
+            containers = insert(containers, i, created);
+            size++;
+        }
+        Container c = containers[i];
+        long[] bits = c.toBits();
+        int offset = day & CONTAINER_MASK;
+        long mask = 1L << offset;
+        boolean was = (bits[offset >>> 6] & mask) != 0;
+        if (was == present) return;
+        if (present) {
+            bits[offset >>> 6] |= mask;
+            c.cardinality++;
+        } else {
+            bits[offset >>> 6] &= ~mask;
+            if (--c.cardinality == 0) removeContainer(i);
+        }
+    }
+
+    /**
+     * Días presentes en [fromDay, toDay)
+     */
+    public int cardinality(int fromDay, int toDay) {
+        if (fromDay >= toDay) return 0;
+        int total = 0;
+        int last = toDay - 1;
+        int start = firstContainerAtOrAfter(fromDay >> CONTAINER_SHIFT);
+        for (int i = start; i < size && keys[i] <= last >> CONTAINER_SHIFT; i++) {
+            Container c = containers[i];
+            int base = keys[i] << CONTAINER_SHIFT;
+            int from = Math.max(fromDay, base) - base;
+            int to = Math.min(last, base + CONTAINER_MASK) - base;
+            if (from == 0 && to == CONTAINER_MASK) {
+                total += c.cardinality;
+                continue;
+            }
+            for (int w = from >>> 6; w <= to >>> 6; w++) {
+                int lo = Math.max(from - (w << 6), 0);
+                int hi = Math.min(to - (w << 6), 63);
+                total += Long.bitCount(c.word(w) & rangeMask(lo, hi));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Fracción de días presentes en [fromDay, toDay), entre 0 y 1
+     */
+    public double completionRate(int fromDay, int toDay) {
+        if (fromDay >= toDay) return 0;
+        return (double) cardinality(fromDay, toDay) / (toDay - fromDay);
+    }
+
+    /**
+     * Días consecutivos presentes que terminan en day (0 si day no está)
+     */
+    public int runEndingAt(int day) {
+        if (!contains(day)) return 0;
+        return day - previousAbsent(day);
+    }
+
+    /**
+     * Racha más larga dentro de [fromDay, toDay)
+     */
+    public int longestRun(int fromDay, int toDay) {
+        int longest = 0;
+        int day = nextPresent(fromDay, toDay);
+        while (day >= 0) {
+            int end = Math.min(nextAbsent(day), toDay);
+            longest = Math.max(longest, end - day);
+            if (end >= toDay) break;
+            day = nextPresent(end, toDay);
+        }
+        return longest;
+    }
+
+    /** Primer día presente en [fromDay, toDay), o -1 */
+    private int nextPresent(int fromDay, int toDay) {
+        for (int i = firstContainerAtOrAfter(fromDay >> CONTAINER_SHIFT); i < size; i++) {
+            int base = keys[i] << CONTAINER_SHIFT;
+            if (base >= toDay) return -1;
+            Container c = containers[i];
+            int offset = Math.max(fromDay, base) - base;
+            for (int w = offset >>> 6; w < WORDS; w++) {
+                long word = c.word(w);
+                if (w == offset >>> 6) word &= -1L << (offset & 63);
+                if (word != 0) {
+                    int day = base + (w << 6) + Long.numberOfTrailingZeros(word);
+                    return day < toDay ? day : -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Primer día ausente a partir de day (inclusive) */
+    private int nextAbsent(int day) {
+        while (true) {
+            int i = indexOf(day >> CONTAINER_SHIFT);
+            if (i < 0) return day;
+            Container c = containers[i];
+            int base = keys[i] << CONTAINER_SHIFT;
+            int offset = day - base;
+            for (int w = offset >>> 6; w < WORDS; w++) {
+                long word = ~c.word(w);
+                if (w == offset >>> 6) word &= -1L << (offset & 63);
+                if (word != 0) return base + (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            day = base + CONTAINER_DAYS; // Contenedor lleno hasta el final: seguir en el siguiente
+        }
+    }
+
+    /** Último día ausente en o antes de day */
+    private int previousAbsent(int day) {
+        while (true) {
+            int i = indexOf(day >> CONTAINER_SHIFT);
+            if (i < 0) return day;
+            Container c = containers[i];
+            int base = keys[i] << CONTAINER_SHIFT;
+            int offset = day - base;
+            for (int w = offset >>> 6; w >= 0; w--) {
+                long word = ~c.word(w);
+                if (w == offset >>> 6) word &= -1L >>> (63 - (offset & 63));
+                if (word != 0) return base + (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            day = base - 1;
+        }
+    }
+
+    /** Comprime los contenedores que ocupan menos como rachas; llamar antes de guardar */
+    public void runOptimize() {
+        for (int i = 0; i < size; i++) containers[i].runOptimize();
+    }
+
+    /** Memoria aproximada de los contenedores, en bytes */
+    public int sizeInBytes() {
+        int bytes = size * 8;
+        for (int i = 0; i < size; i++) bytes += containers[i].sizeInBytes();
+        return bytes;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        runOptimize();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            out.writeInt(keys[i]);
+            if (c.runs != null) {
+                out.writeShort(c.runs.length / 2);
+                for (char v : c.runs) out.writeChar(v);
+            } else {
+                out.writeShort(-1);
+                for (long word : c.bits) out.writeLong(word);
+            }
+        }
+    }
+
+    public static DayBitmap read(DataInputStream in) throws IOException {
+        DayBitmap bitmap = new DayBitmap();
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Bitmap inválido");
+        bitmap.keys = new int[count];
+        bitmap.containers = new Container[count];
+        for (int i = 0; i < count; i++) {
+            bitmap.keys[i] = in.readInt();
+            if (i > 0 && bitmap.keys[i] <= bitmap.keys[i - 1]) throw new IOException("Bitmap desordenado");
+            Container c = new Container();
+            int runCount = in.readShort();
+            if (runCount < 0) {
+                c.bits = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    c.bits[w] = in.readLong();
+                    c.cardinality += Long.bitCount(c.bits[w]);
+                }
+            } else {
+                c.runs = new char[runCount * 2];
+                for (int r = 0; r < c.runs.length; r++) c.runs[r] = in.readChar();
+                for (int r = 0; r < c.runs.length; r += 2) {
+                    if (c.runs[r] + c.runs[r + 1] >= CONTAINER_DAYS) throw new IOException("Racha inválida");
+                    c.cardinality += c.runs[r + 1] + 1;
+                }
+            }
+            bitmap.containers[i] = c;
+        }
+        bitmap.size = count;
+        return bitmap;
+    }
+
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private int firstContainerAtOrAfter(int key) {
+        int i = indexOf(key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private void removeContainer(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private int[] insert(int[] array, int at, int value) {
+        int[] result = size < array.length ? array : Arrays.copyOf(array, Math.max(4, size * 2));
+        System.arraycopy(array, at, result, at + 1, size - at);
+        result[at] = value;
+        return result;
+    }
+
+    private Container[] insert(Container[] array, int at, Container value) {
+        Container[] result = size < array.length ? array : Arrays.copyOf(array, Math.max(4, size * 2));
+        System.arraycopy(array, at, result, at + 1, size - at);
+        result[at] = value;
+        return result;
+    }
+
+    /** Bits from..to (inclusive) de una palabra */
+    private static long rangeMask(int from, int to) {
+        return (-1L >>> (63 - to)) & (-1L << from);
+    }
+
+    private static int nextSet(long[] bits, int from) {
+        for (int w = from >>> 6; w < WORDS; w++) {
+            long word = bits[w];
+            if (w == from >>> 6) word &= -1L << (from & 63);
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+        return -1;
+    }
+
+    private static int nextClear(long[] bits, int from) {
+        for (int w = from >>> 6; w < WORDS; w++) {
+            long word = ~bits[w];
+            if (w == from >>> 6) word &= -1L << (from & 63);
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+        return CONTAINER_DAYS;
+    }
+}
@@ -0,0 +1,255 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo append-only de datos asociados a eventos por su timestamp (recorridos,
+ * métricas de ejercicio): [int longitud][int crc][long timestamp][bytes].
+ *
+ * Al abrirlo se indexa la posición de cada registro y un final a medias se
+ * trunca, igual que HabitEventLog; leer uno es un solo acceso al archivo.
+ * Siguen la retención de los eventos crudos: prune() reescribe el archivo sin
+ * los registros de eventos expirados (y sin los reemplazados) y clear() lo borra.
+ */
+final class EventRecordFile {
+
+    /** Recibe cada registro guardado */
+    interface RecordVisitor {
+        void onRecord(long eventTimestamp, byte[] bytes) throws IOException;
+    }
+
+    interface Task {
+        void run() throws IOException;
+    }
+
+    // Un solo hilo para todos los archivos: cada uno escribe en el orden pedido
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "EventRecordFile");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File file;
+    private final int maxRecordBytes;
+    private final String tag;
+    private final Map<Long, Long> offsets = new HashMap<>(); // timestamp → posición del registro
+    private final CRC32 crc = new CRC32();
+    private boolean loaded = false;
+
+    EventRecordFile(File file, int maxRecordBytes, String tag) {
+        this.file = file;
+        this.maxRecordBytes = maxRecordBytes;
+        this.tag = tag;
+    }
+
+    /** Ejecuta en el hilo de escritura; los errores solo se registran */
+    void runAsync(String action, Task task) {
+        io.execute(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                android.util.Log.e(tag, "Error al " + action, e);
+            }
+        });
+    }
+
+    /**
+     * Agrega el registro del evento y lo fuerza al disco. Si el evento ya tenía
+     * uno, el nuevo lo reemplaza (el anterior queda como espacio muerto).
+     */
+    synchronized void put(long eventTimestamp, byte[] bytes) throws IOException {
+        ensureLoaded();
+        if (bytes.length > maxRecordBytes) throw new IOException("Registro demasiado grande: " + bytes.length);
+        crc.reset();
+        crc.update(longBytes(eventTimestamp));
+        crc.update(bytes);
+        long offset = file.length();
+        try (FileOutputStream fileOut = new FileOutputStream(file, true);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeInt(8 + bytes.length);
+            out.writeInt((int) crc.getValue());
+            out.writeLong(eventTimestamp);
+            out.write(bytes);
+            out.flush();
+            fileOut.getChannel().force(false);
+        }
+        offsets.put(eventTimestamp, offset);
+    }
+
+    /**
+     * @return los bytes del registro del evento, o null si no tiene
+     */
+    synchronized byte[] get(long eventTimestamp) throws IOException {
+        ensureLoaded();
+        Long offset = offsets.get(eventTimestamp);
+        if (offset == null) return null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            int length = raf.readInt();
+            raf.readInt(); // CRC, ya verificado al cargar
+            raf.readLong();
+            byte[] bytes = new byte[length - 8];
+            raf.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Recorre todos los registros vigentes en orden de archivo, con una sola apertura
+     */
+    synchronized void forEach(RecordVisitor visitor) throws IOException {
+        ensureLoaded();
+        if (offsets.isEmpty()) return;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (long offset : sortedOffsets()) {
+                raf.seek(offset);
+                int length = raf.readInt();
+                raf.readInt();
+                long timestamp = raf.readLong();
+                byte[] bytes = new byte[length - 8];
+                raf.readFully(bytes);
+                visitor.onRecord(timestamp, bytes);
+            }
+        }
+    }
+
+    /**
+     * Quita los registros de eventos anteriores a cutoff. Copia los demás a un
+     * archivo nuevo que reemplaza al actual (así también se recupera el espacio
+     * de los reemplazados); si no hay nada que quitar no toca el disco.
+     *
+     * @return registros quitados
+     */
+    synchronized int prune(long cutoff) throws IOException {
+        ensureLoaded();
+        int expired = 0;
+        for (long timestamp : offsets.keySet()) {
+            if (timestamp < cutoff) expired++;
+        }
+        if (expired == 0) return 0;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        Map<Long, Long> kept = new HashMap<>();
+        try (RandomAccessFile in = new RandomAccessFile(file, "r");
+             FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            long position = 0;
+            for (long offset : sortedOffsets()) {
+                in.seek(offset);
+                int length = in.readInt();
+                int recordCrc = in.readInt();
+                long timestamp = in.readLong();
+                if (timestamp < cutoff) continue;
+                byte[] bytes = new byte[length - 8];
+                in.readFully(bytes);
+                out.writeInt(length);
+                out.writeInt(recordCrc);
+                out.writeLong(timestamp);
+                out.write(bytes);
+                kept.put(timestamp, position);
+                position += 8 + length;
+            }
+            out.flush();
+            fileOut.getChannel().force(false);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("No se pudo reemplazar " + file);
+        }
+        offsets.clear();
+        offsets.putAll(kept);
+        android.util.Log.d(tag, "Retención: " + expired + " registros eliminados");
+        return expired;
+    }
+
+    /**
+     * Borra todos los registros
+     */
+    synchronized void clear() throws IOException {
+        offsets.clear();
+        loaded = true;
+        if (file.exists() && !file.delete()) throw new IOException("No se pudo borrar " + file);
+    }
+
+    synchronized boolean contains(long eventTimestamp) throws IOException {
+        ensureLoaded();
+        return offsets.containsKey(eventTimestamp);
+    }
+
+    synchronized int size() throws IOException {
+        ensureLoaded();
+        return offsets.size();
+    }
+
+    /** Posiciones de los registros vigentes, en orden de archivo */
+    private long[] sortedOffsets() {
+        long[] sorted = new long[offsets.size()];
+        int n = 0;
+        for (long offset : offsets.values()) sorted[n++] = offset;
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Indexa el archivo verificando cada registro; trunca un final incompleto o corrupto
+     */
+    private void ensureLoaded() throws IOException {
+        if (loaded) return;
+        loaded = true;
+        offsets.clear();
+        if (!file.exists()) return;
+
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length = in.readInt();
+                if (length < 8 || length > 8 + maxRecordBytes) break;
+                int expectedCrc = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) break;
+                long timestamp = 0;
+                for (int i = 0; i < 8; i++) timestamp = (timestamp << 8) | (payload[i] & 0xff);
+                offsets.put(timestamp, valid);
+                valid += 8 + length;
+            }
+        } catch (EOFException end) {
+            // Fin del archivo (o registro a medias)
+        }
+
+        long fileLength = file.length();
+        if (valid < fileLength) {
+            android.util.Log.w(tag, "Truncando " + file.getName() + " en " + valid
+                    + " de " + fileLength + " bytes (registro incompleto o corrupto)");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] b = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            b[i] = (byte) value;
+            value >>>= 8;
+        }
+        return b;
+    }
+}
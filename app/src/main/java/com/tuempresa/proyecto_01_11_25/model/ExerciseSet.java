@@ -0,0 +1,62 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Una serie de ejercicio terminada: repeticiones, cadencia e intensidad.
+ * Se guarda en HabitExerciseStore junto al evento EXERCISE (la nota del evento
+ * es fija, así el diccionario de notas no crece con cada serie).
+ */
+public class ExerciseSet {
+
+    static final int BYTES = 16;
+
+    private final int reps;
+    private final double repsPerMinute;
+    private final double intensity;
+    private final long durationMs;
+
+    public ExerciseSet(int reps, double repsPerMinute, double intensity, long durationMs) {
+        this.reps = reps;
+        this.repsPerMinute = repsPerMinute;
+        this.intensity = intensity;
+        this.durationMs = durationMs;
+    }
+
+    public int getReps() {
+        return reps;
+    }
+
+    /** Cadencia media, repeticiones por minuto */
+    public double getRepsPerMinute() {
+        return repsPerMinute;
+    }
+
+    /** Aceleración RMS sin gravedad, m/s² */
+    public double getIntensity() {
+        return intensity;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /** [int reps][float cadencia][float intensidad][int duración ms] */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(BYTES)
+                .putInt(reps)
+                .putFloat((float) repsPerMinute)
+                .putFloat((float) intensity)
+                .putInt((int) Math.min(Integer.MAX_VALUE, durationMs))
+                .array();
+    }
+
+    /**
+     * @throws IllegalArgumentException si el registro no tiene el tamaño esperado
+     */
+    public static ExerciseSet fromBytes(byte[] bytes) {
+        if (bytes.length != BYTES) throw new IllegalArgumentException("Serie inválida: " + bytes.length + " bytes");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new ExerciseSet(buffer.getInt(), buffer.getFloat(), buffer.getFloat(), buffer.getInt());
+    }
+}
@@ -9,25 +9,39 @@ public class Habit {
         EXERCISE,   // acelerómetro
         WALK,       // distancia
         DEMO,       // botón
-        READ        // cámara + ML Kit
+        READ,       // cámara + ML Kit
+        CUSTOM      // creado por el usuario, se marca a mano
     }
 
     private String title;
     private String goal;
+    private String period;
     private String category;
     private HabitType type;
     private boolean completed;
 
     public Habit(String title, String goal, String category, HabitType type) {
+        this(title, goal, "diario", category, type);
+    }
+
+    public Habit(String title, String goal, String period, String category, HabitType type) {
         this.title = title;
         this.goal = goal;
+        this.period = period;
         this.category = category;
         this.type = type;
         this.completed = false;
     }
 
+    /** Copia con el mismo estado (el repositorio entrega copias, no sus instancias) */
+    public Habit(Habit other) {
+        this(other.title, other.goal, other.period, other.category, other.type);
+        this.completed = other.completed;
+    }
+
     public String getTitle() { return title; }
     public String getGoal() { return goal; }
+    public String getPeriod() { return period; }
     public String getCategory() { return category; }
     public HabitType getType() { return type; }
     public boolean isCompleted() { return completed; }
@@ -36,7 +50,7 @@ public class Habit {
     /** 4 hábitos por defecto al abrir la app */
     public static List<Habit> defaultHabits() {
         List<Habit> list = new ArrayList<>();
-        list.add(new Habit("Ejercicio", "Goal: movimiento detectado", "salud", HabitType.EXERCISE));
+        list.add(new Habit("Ejercicio", "Goal: una serie de 8 repeticiones", "salud", HabitType.EXERCISE));
         list.add(new Habit("Caminar", "Goal: 150 metros", "salud", HabitType.WALK));
         list.add(new Habit("Leer", "Goal: detectar página de libro", "educación", HabitType.READ));
         list.add(new Habit("Demo", "Goal: tocar para completar", "general", HabitType.DEMO));
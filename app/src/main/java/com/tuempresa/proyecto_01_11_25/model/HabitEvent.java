@@ -8,13 +8,24 @@ public class HabitEvent {
     private final String note;
     private final HabitType type;
     private final long timestamp;
+    private final int meters; // Distancia recorrida (caminatas), 0 si no aplica
 
     public HabitEvent(double lat, double lng, String note, HabitType type) {
+        this(lat, lng, note, type, System.currentTimeMillis());
+    }
+
+    /** Reconstruye un evento persistido conservando su timestamp original */
+    public HabitEvent(double lat, double lng, String note, HabitType type, long timestamp) {
+        this(lat, lng, note, type, timestamp, 0);
+    }
+
+    public HabitEvent(double lat, double lng, String note, HabitType type, long timestamp, int meters) {
         this.lat = lat;
         this.lng = lng;
         this.note = note;
         this.type = type;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
+        this.meters = meters;
     }
 
     public double getLat() { return lat; }
@@ -22,4 +33,5 @@ public class HabitEvent {
     public String getNote() { return note; }
     public HabitType getType() { return type; }
     public long getTimestamp() { return timestamp; }
+    public int getMeters() { return meters; }
 }
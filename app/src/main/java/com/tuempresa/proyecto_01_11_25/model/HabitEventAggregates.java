@@ -0,0 +1,159 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Estadísticas materializadas por día (local) y tipo: cuántos eventos y cuántos
+ * metros (HabitEvent.getMeters() de las caminatas). Agregar un evento es O(1)
+ * y una consulta por rango de días no depende del tamaño del historial.
+ *
+ * Sobrevive a la retención: cuando se borran los eventos crudos antiguos
+ * sus conteos diarios se conservan aquí para siempre.
+ *
+ * Un hilo puede agregar mientras otros consultan (los métodos son synchronized
+ * y cada uno dura O(días consultados)).
+ */
+public class HabitEventAggregates {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int TYPE_COUNT = HabitEvent.HabitType.values().length;
+
+    /** Recibe cada celda día × tipo con datos */
+    interface EntryVisitor {
+        void onEntry(int epochDay, int typeOrdinal, int count, long meters);
+    }
+
+    private static class Day {
+        final int[] counts = new int[TYPE_COUNT];
+        final long[] meters = new long[TYPE_COUNT];
+    }
+
+    private final Map<Integer, Day> days = new HashMap<>();
+
+    /** Día local (días desde 1970-01-01) al que pertenece el timestamp */
+    public static int epochDay(long timestamp) {
+        long local = timestamp + TimeZone.getDefault().getOffset(timestamp);
+        return (int) Math.floorDiv(local, DAY_MS);
+    }
+
+    public void add(HabitEvent e) {
+        add(e.getTimestamp(), e.getType().ordinal(), e.getMeters());
+    }
+
+    public void add(long timestamp, int typeOrdinal, int meters) {
+        addCounts(epochDay(timestamp), typeOrdinal, 1, meters);
+    }
+
+    synchronized void addCounts(int epochDay, int typeOrdinal, int count, long meters) {
+        Day day = days.get(epochDay);
+        if (day == null) {
+            day = new Day();
+            days.put(epochDay, day);
+        }
+        day.counts[typeOrdinal] += count;
+        day.meters[typeOrdinal] += meters;
+    }
+
+    public void addAll(HabitEventAggregates other) {
+        other.forEach(this::addCounts);
+    }
+
+    synchronized void forEach(EntryVisitor visitor) {
+        for (Map.Entry<Integer, Day> entry : days.entrySet()) {
+            Day day = entry.getValue();
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                if (day.counts[t] != 0 || day.meters[t] != 0) {
+                    visitor.onEntry(entry.getKey(), t, day.counts[t], day.meters[t]);
+                }
+            }
+        }
+    }
+
+    public synchronized int count(int epochDay, HabitEvent.HabitType type) {
+        Day day = days.get(epochDay);
+        return day != null ? day.counts[type.ordinal()] : 0;
+    }
+
+    /**
+     * Eventos del tipo en los días [fromDay, toDay)
+     */
+    public synchronized int countBetween(HabitEvent.HabitType type, int fromDay, int toDay) {
+        int t = type.ordinal();
+        int total = 0;
+        if ((long) toDay - fromDay > days.size()) {
+            for (Map.Entry<Integer, Day> entry : days.entrySet()) {
+                int d = entry.getKey();
+                if (d >= fromDay && d < toDay) total += entry.getValue().counts[t];
+            }
+        } else {
+            for (int d = fromDay; d < toDay; d++) {
+                Day day = days.get(d);
+                if (day != null) total += day.counts[t];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Metros registrados por eventos del tipo en los días [fromDay, toDay)
+     */
+    public synchronized long metersBetween(HabitEvent.HabitType type, int fromDay, int toDay) {
+        int t = type.ordinal();
+        long total = 0;
+        for (int d = fromDay; d < toDay; d++) {
+            Day day = days.get(d);
+            if (day != null) total += day.meters[t];
+        }
+        return total;
+    }
+
+    /**
+     * Conteo de cada día en [fromDay, toDay), listo para un gráfico
+     */
+    public synchronized int[] dailyCounts(HabitEvent.HabitType type, int fromDay, int toDay) {
+        int[] result = new int[Math.max(0, toDay - fromDay)];
+        for (int i = 0; i < result.length; i++) {
+            Day day = days.get(fromDay + i);
+            if (day != null) result[i] = day.counts[type.ordinal()];
+        }
+        return result;
+    }
+
+    public HabitEventAggregates copy() {
+        HabitEventAggregates copy = new HabitEventAggregates();
+        copy.addAll(this);
+        return copy;
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(days.size());
+        out.writeByte(TYPE_COUNT);
+        for (Map.Entry<Integer, Day> entry : days.entrySet()) {
+            out.writeInt(entry.getKey());
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                out.writeInt(entry.getValue().counts[t]);
+                out.writeLong(entry.getValue().meters[t]);
+            }
+        }
+    }
+
+    public static HabitEventAggregates read(DataInputStream in) throws IOException {
+        HabitEventAggregates aggregates = new HabitEventAggregates();
+        int count = in.readInt();
+        int types = in.readByte();
+        for (int i = 0; i < count; i++) {
+            int day = in.readInt();
+            for (int t = 0; t < types; t++) {
+                int value = in.readInt();
+                long meters = in.readLong();
+                if (t < TYPE_COUNT) aggregates.addCounts(day, t, value, meters);
+            }
+        }
+        return aggregates;
+    }
+}
@@ -0,0 +1,120 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor de persistencia de HabitEventStore. El store mantiene en memoria los
+ * eventos recientes y sus índices; el backend guarda el historial completo.
+ *
+ * Solo el hilo escritor (HabitEventWriter) escribe, compacta o limpia;
+ * loadRecent() se llama al iniciar, antes de crear el escritor, y
+ * readHistoryPage() puede llamarse desde cualquier hilo de trabajo.
+ */
+public interface HabitEventBackend {
+
+    /** Eventos por página de historial */
+    int PAGE_EVENTS = 1024;
+
+    /**
+     * Política de retención: los eventos crudos más antiguos que rawRetentionMs se
+     * eliminan y solo se conservan sus conteos diarios (que no expiran nunca).
+     */
+    class RetentionPolicy {
+        public static final RetentionPolicy DEFAULT = new RetentionPolicy(TimeUnit.DAYS.toMillis(90));
+        public static final RetentionPolicy KEEP_ALL = new RetentionPolicy(Long.MAX_VALUE);
+
+        public final long rawRetentionMs;
+
+        public RetentionPolicy(long rawRetentionMs) {
+            if (rawRetentionMs <= 0) throw new IllegalArgumentException("rawRetentionMs debe ser > 0");
+            this.rawRetentionMs = rawRetentionMs;
+        }
+    }
+
+    void open() throws IOException;
+
+    /**
+     * Escribe un lote de forma durable (group commit).
+     *
+     * @return true si conviene compactar pronto
+     */
+    boolean appendAll(List<HabitEvent> batch) throws IOException;
+
+    /**
+     * Aplica la retención y reorganiza el almacenamiento. Puede tardar: solo desde el hilo escritor.
+     */
+    void compact(RetentionPolicy retention, long now) throws IOException;
+
+    /**
+     * Estadísticas diarias de todo lo guardado, incluidos los eventos ya
+     * eliminados por la retención. Se mantienen al escribir: no recorre el historial.
+     */
+    HabitEventAggregates loadAggregates();
+
+    /**
+     * Decodifica los eventos más recientes (los que el store mantiene en memoria)
+     *
+     * @return número de páginas de historial más antiguo que quedan en disco
+     */
+    int loadRecent(HabitEventLog.Visitor visitor) throws IOException;
+
+    /**
+     * Decodifica una página de historial (0 = la más antigua) de las contadas por loadRecent()
+     *
+     * @return número de eventos leídos
+     */
+    int readHistoryPage(int page, HabitEventLog.Visitor visitor) throws IOException;
+
+    /**
+     * Borra todos los eventos y agregados
+     */
+    void clear() throws IOException;
+
+    void close() throws IOException;
+
+    /**
+     * Importa un log del formato anterior (un solo archivo HabitEventLog).
+     * El archivo se renombra antes de empezar: si la importación se interrumpe, el
+     * siguiente intento vacía el backend y la repite desde el principio. Solo en
+     * ese caso se vacía; una importación nueva se agrega a lo que ya hay.
+     */
+    default void importLegacyLog(File legacy) throws IOException {
+        File importing = new File(legacy.getPath() + ".importing");
+        boolean interrupted = importing.exists();
+        if (legacy.exists()) {
+            if (interrupted) {
+                // Quedó a medias una importación anterior: se descarta ese log nuevo
+                legacy.delete();
+            } else if (!legacy.renameTo(importing)) {
+                throw new IOException("No se pudo renombrar " + legacy);
+            }
+        }
+        if (!importing.exists()) return;
+
+        if (interrupted) clear();
+        List<HabitEvent> chunk = new ArrayList<>(PAGE_EVENTS);
+        IOException[] failure = new IOException[1];
+        try (HabitEventLog source = new HabitEventLog(importing)) {
+            source.replay((timestamp, typeOrdinal, lat, lng, note, meters) -> {
+                chunk.add(new HabitEvent(lat, lng, note, HabitEventBuffer.typeOf((byte) typeOrdinal), timestamp, meters));
+                if (chunk.size() == PAGE_EVENTS && failure[0] == null) {
+                    try {
+                        appendAll(chunk);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                    chunk.clear();
+                }
+            });
+        }
+        if (failure[0] != null) throw failure[0];
+        appendAll(chunk);
+        if (!importing.delete()) {
+            android.util.Log.w("HabitEventBackend", "No se pudo borrar " + importing);
+        }
+    }
+}
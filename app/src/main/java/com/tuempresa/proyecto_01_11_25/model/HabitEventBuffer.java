@@ -0,0 +1,111 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.util.Arrays;
+
+/**
+ * Almacenamiento columnar (struct-of-arrays) de eventos.
+ * Cada evento ocupa ~33 bytes en arrays primitivos en lugar de un objeto
+ * HabitEvent con su String, así 100k eventos caben en unos 3 MB.
+ *
+ * Las columnas se dividen en bloques de CHUNK_SIZE que nunca se reubican: crecer
+ * solo copia el directorio de bloques, no los datos. Solo se agregan elementos al
+ * final y las posiciones menores a size() nunca cambian, por eso columns() puede
+ * entregar una vista inmutable en O(1) que comparte los bloques con el buffer.
+ *
+ * Un solo hilo escribe; las vistas se pueden leer desde cualquier hilo una vez
+ * publicadas (p.ej. a través de un campo volatile).
+ */
+public class HabitEventBuffer {
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final HabitEvent.HabitType[] TYPES = HabitEvent.HabitType.values();
+
+    private final NoteDictionary notes = new NoteDictionary();
+    private double[][] lats = new double[4][];
+    private double[][] lngs = new double[4][];
+    private long[][] timestamps = new long[4][];
+    private byte[][] types = new byte[4][];
+    private int[][] noteIds = new int[4][];
+    private int[][] meters = new int[4][];
+    private int size = 0;
+
+    public void add(HabitEvent e) {
+        add(e.getTimestamp(), e.getType().ordinal(), e.getLat(), e.getLng(), e.getNote(), e.getMeters());
+    }
+
+    public void add(long timestamp, int typeOrdinal, double lat, double lng, String note, int meters) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int i = size & CHUNK_MASK;
+        if (i == 0) addChunk(chunk);
+        lats[chunk][i] = lat;
+        lngs[chunk][i] = lng;
+        timestamps[chunk][i] = timestamp;
+        types[chunk][i] = (byte) typeOrdinal;
+        noteIds[chunk][i] = notes.intern(note);
+        this.meters[chunk][i] = meters;
+        size++;
+    }
+
+    public int size() { return size; }
+
+    public double getLat(int i) { return lats[i >>> CHUNK_SHIFT][i & CHUNK_MASK]; }
+    public double getLng(int i) { return lngs[i >>> CHUNK_SHIFT][i & CHUNK_MASK]; }
+    public long getTimestamp(int i) { return timestamps[i >>> CHUNK_SHIFT][i & CHUNK_MASK]; }
+    public HabitEvent.HabitType getType(int i) { return TYPES[types[i >>> CHUNK_SHIFT][i & CHUNK_MASK]]; }
+    public int getNoteId(int i) { return noteIds[i >>> CHUNK_SHIFT][i & CHUNK_MASK]; }
+    public String getNote(int i) { return notes.get(getNoteId(i)); }
+    public int getMeters(int i) { return meters[i >>> CHUNK_SHIFT][i & CHUNK_MASK]; }
+
+    /**
+     * Materializa un HabitEvent (solo para consumidores que necesitan el objeto)
+     */
+    public HabitEvent get(int i) {
+        return new HabitEvent(getLat(i), getLng(i), getNote(i), getType(i), getTimestamp(i), getMeters(i));
+    }
+
+    /**
+     * Vista inmutable de los eventos existentes en este momento, sin copiar datos
+     */
+    public HabitEventColumns columns() {
+        return new HabitEventColumns(lats, lngs, timestamps, types, noteIds, meters, notes.table(), size);
+    }
+
+    /**
+     * Cursor de solo lectura sobre los eventos existentes en este momento
+     */
+    public HabitEventCursor cursor() {
+        return columns().cursor();
+    }
+
+    /**
+     * Cursor sobre una selección de posiciones (p.ej. el resultado de un índice)
+     */
+    public HabitEventCursor cursor(int[] rows) {
+        return columns().cursor(rows);
+    }
+
+    private void addChunk(int chunk) {
+        if (chunk == lats.length) {
+            // Directorio nuevo: las vistas anteriores siguen usando el suyo
+            int capacity = chunk * 2;
+            lats = Arrays.copyOf(lats, capacity);
+            lngs = Arrays.copyOf(lngs, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            types = Arrays.copyOf(types, capacity);
+            noteIds = Arrays.copyOf(noteIds, capacity);
+            meters = Arrays.copyOf(meters, capacity);
+        }
+        lats[chunk] = new double[CHUNK_SIZE];
+        lngs[chunk] = new double[CHUNK_SIZE];
+        timestamps[chunk] = new long[CHUNK_SIZE];
+        types[chunk] = new byte[CHUNK_SIZE];
+        noteIds[chunk] = new int[CHUNK_SIZE];
+        meters[chunk] = new int[CHUNK_SIZE];
+    }
+
+    static HabitEvent.HabitType typeOf(byte ordinal) {
+        return TYPES[ordinal];
+    }
+}
@@ -0,0 +1,83 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Vista inmutable de las columnas de un HabitEventBuffer hasta un tamaño fijo.
+ * Comparte los bloques con el buffer (no copia datos): las posiciones menores
+ * a size() ya no cambian, así que leerla no necesita ningún lock.
+ */
+public class HabitEventColumns {
+
+    private static final int SHIFT = HabitEventBuffer.CHUNK_SHIFT;
+    private static final int MASK = HabitEventBuffer.CHUNK_MASK;
+
+    private final double[][] lats;
+    private final double[][] lngs;
+    private final long[][] timestamps;
+    private final byte[][] types;
+    private final int[][] noteIds;
+    private final int[][] meters;
+    private final String[] notes;
+    private final int size;
+
+    HabitEventColumns(double[][] lats, double[][] lngs, long[][] timestamps, byte[][] types,
+                      int[][] noteIds, int[][] meters, String[] notes, int size) {
+        this.lats = lats;
+        this.lngs = lngs;
+        this.timestamps = timestamps;
+        this.types = types;
+        this.noteIds = noteIds;
+        this.meters = meters;
+        this.notes = notes;
+        this.size = size;
+    }
+
+    public int size() { return size; }
+
+    public double getLat(int i) { return lats[i >>> SHIFT][i & MASK]; }
+    public double getLng(int i) { return lngs[i >>> SHIFT][i & MASK]; }
+    public long getTimestamp(int i) { return timestamps[i >>> SHIFT][i & MASK]; }
+    public HabitEvent.HabitType getType(int i) { return HabitEventBuffer.typeOf(types[i >>> SHIFT][i & MASK]); }
+    public int getNoteId(int i) { return noteIds[i >>> SHIFT][i & MASK]; }
+    public String getNote(int i) { return notes[getNoteId(i)]; }
+    public int getMeters(int i) { return meters[i >>> SHIFT][i & MASK]; }
+
+    /**
+     * Materializa un HabitEvent (solo para consumidores que necesitan el objeto)
+     */
+    public HabitEvent get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Evento " + i + " de " + size);
+        return new HabitEvent(getLat(i), getLng(i), getNote(i), getType(i), getTimestamp(i), getMeters(i));
+    }
+
+    /**
+     * Lista de solo lectura respaldada por la vista: no copia nada al crearla,
+     * cada get() crea el HabitEvent de esa posición.
+     */
+    public List<HabitEvent> asList() {
+        return new AbstractList<HabitEvent>() {
+            @Override
+            public HabitEvent get(int index) {
+                return HabitEventColumns.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public HabitEventCursor cursor() {
+        return new HabitEventCursor(this, null, size);
+    }
+
+    /**
+     * Cursor sobre una selección de posiciones (p.ej. el resultado de un índice)
+     */
+    public HabitEventCursor cursor(int[] rows) {
+        return new HabitEventCursor(this, rows, rows.length);
+    }
+}
@@ -0,0 +1,54 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+/**
+ * Recorre los eventos directamente sobre las columnas primitivas, sin crear
+ * un HabitEvent por fila. Trabaja sobre una vista inmutable, así que se puede
+ * usar desde cualquier hilo mientras otros agregan eventos.
+ *
+ * Uso:
+ * <pre>
+ * HabitEventCursor c = HabitEventStore.cursor();
+ * while (c.moveToNext()) {
+ *     double lat = c.getLat();
+ * }
+ * </pre>
+ */
+public class HabitEventCursor {
+
+    private final HabitEventColumns columns;
+    private final int[] rows; // Selección de filas (p.ej. un rango temporal); null = todas en orden
+    private final int count;
+    private int position = -1;
+    private int row = -1;
+
+    HabitEventCursor(HabitEventColumns columns, int[] rows, int count) {
+        this.columns = columns;
+        this.rows = rows;
+        this.count = count;
+    }
+
+    public boolean moveToNext() {
+        if (position + 1 >= count) return false;
+        position++;
+        row = rows != null ? rows[position] : position;
+        return true;
+    }
+
+    public int getCount() { return count; }
+    public int getPosition() { return position; }
+    /** Posición de la fila actual en el store (estable mientras no se llame a clear()) */
+    public int getRow() { return row; }
+
+    public double getLat() { return columns.getLat(row); }
+    public double getLng() { return columns.getLng(row); }
+    public long getTimestamp() { return columns.getTimestamp(row); }
+    public HabitEvent.HabitType getType() { return columns.getType(row); }
+    public int getNoteId() { return columns.getNoteId(row); }
+    public String getNote() { return columns.getNote(row); }
+    public int getMeters() { return columns.getMeters(row); }
+
+    /** Crea un HabitEvent con la fila actual */
+    public HabitEvent toEvent() {
+        return new HabitEvent(getLat(), getLng(), getNote(), getType(), getTimestamp(), getMeters());
+    }
+}
@@ -0,0 +1,391 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Log binario append-only de eventos de hábitos (write-ahead log).
+ * Cada registro va precedido por su longitud y su CRC32: [int longitud][int crc][payload]
+ *
+ * Las notas se codifican con un diccionario: la primera vez que aparece un texto
+ * se escribe un registro NOTE con él y desde ahí los eventos solo guardan su id.
+ * <pre>
+ * NOTE  = byte 1, UTF nota                       (recibe el siguiente id: 0, 1, 2...)
+ * EVENT = byte 0, long timestamp, byte tipo, double lat, double lng, varint idNota, varint metros
+ * </pre>
+ * Cada DICT_MARKER abre un diccionario nuevo. Se escribe al empezar cada archivo
+ * y cada vez que se reabre para escribir, así un segmento es legible por sí solo y
+ * un snapshot que concatena segmentos se lee igual. Un registro antes de la
+ * primera marca se trata como basura.
+ */
+public class HabitEventLog implements Closeable {
+
+    /** Recibe cada registro leído durante el replay, sin crear un HabitEvent intermedio */
+    public interface Visitor {
+        void onEvent(long timestamp, int typeOrdinal, double lat, double lng, String note, int meters);
+    }
+
+    /** Recibe solo la cabecera de cada evento durante un scan */
+    public interface HeaderVisitor {
+        void onRecord(long offset, int recordLength, long timestamp);
+    }
+
+    /** Marca de diccionario; negativa, nunca se confunde con una longitud */
+    static final int DICT_MARKER = 0xCE7C0003;
+
+    private static final byte KIND_EVENT = 0;
+    private static final byte KIND_NOTE = 1;
+    /** Payload más largo posible: un registro NOTE con 65535 bytes de texto */
+    private static final int MAX_PAYLOAD = 1 + 2 + 65535;
+
+    private final File file;
+    private final RecordBytes recordBytes = new RecordBytes();
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+    private final Map<String, Integer> noteIds = new HashMap<>(); // Diccionario del bloque en escritura
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private boolean recovered = false;
+
+    public HabitEventLog(File file) {
+        this.file = file;
+    }
+
+    public File getFile() { return file; }
+
+    /**
+     * Agrega un único registro al final del archivo (O(1), sin reescribir el historial).
+     * No fuerza el fsync: llamar a sync() al terminar una serie de append.
+     */
+    public synchronized void append(HabitEvent e) throws IOException {
+        DataOutputStream stream = openForAppend();
+        try {
+            writeEvent(stream, e);
+            stream.flush();
+        } catch (IOException error) {
+            discardOutput(-1);
+            throw error;
+        }
+    }
+
+    /**
+     * Agrega varios registros con una sola escritura y un solo fsync (group commit).
+     * Al volver, el lote completo sobrevive a un corte de energía; si falla, no
+     * queda nada del lote en el archivo.
+     */
+    public synchronized void appendAll(List<HabitEvent> batch) throws IOException {
+        if (batch.isEmpty()) return;
+        DataOutputStream stream = openForAppend();
+        long committed = -1;
+        try {
+            stream.flush();
+            committed = fileOut.getChannel().size();
+            for (HabitEvent e : batch) {
+                writeEvent(stream, e);
+            }
+            stream.flush();
+            fileOut.getChannel().force(false);
+        } catch (IOException error) {
+            discardOutput(committed);
+            throw error;
+        }
+    }
+
+    /**
+     * Fuerza al disco lo escrito con append()
+     */
+    public synchronized void sync() throws IOException {
+        if (out != null) {
+            out.flush();
+            fileOut.getChannel().force(false);
+        }
+    }
+
+    private void writeEvent(DataOutputStream stream, HabitEvent e) throws IOException {
+        String note = e.getNote() != null ? e.getNote() : "";
+        Integer noteId = noteIds.get(note);
+        if (noteId == null) {
+            noteId = noteIds.size();
+            recordBytes.reset();
+            record.writeByte(KIND_NOTE);
+            record.writeUTF(note);
+            writeRecord(stream);
+            noteIds.put(note, noteId);
+        }
+
+        recordBytes.reset();
+        record.writeByte(KIND_EVENT);
+        record.writeLong(e.getTimestamp());
+        record.writeByte(e.getType().ordinal());
+        record.writeDouble(e.getLat());
+        record.writeDouble(e.getLng());
+        writeVarInt(record, noteId);
+        writeVarInt(record, e.getMeters());
+        writeRecord(stream);
+    }
+
+    private void writeRecord(DataOutputStream stream) throws IOException {
+        crc.reset();
+        crc.update(recordBytes.array(), 0, recordBytes.size());
+        stream.writeInt(recordBytes.size());
+        stream.writeInt((int) crc.getValue());
+        recordBytes.writeTo(stream);
+    }
+
+    /**
+     * Lee el log secuencialmente desde el inicio.
+     *
+     * @return número de eventos leídos
+     */
+    public synchronized int replay(Visitor visitor) throws IOException {
+        if (!file.exists()) return 0;
+        closeOutput();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return readRecords(in, visitor);
+        }
+    }
+
+    /**
+     * Recuperación: recorre el archivo verificando longitud y CRC de cada registro.
+     * Si el final quedó a medias o corrupto (proceso o equipo apagado durante la
+     * escritura) se trunca en el último registro válido, sin perder lo anterior.
+     * El costo es proporcional a este archivo, no al historial completo.
+     *
+     * @return número de eventos válidos
+     */
+    public synchronized int scan(HeaderVisitor visitor) throws IOException {
+        closeOutput();
+        recovered = true;
+        if (!file.exists()) return 0;
+
+        int count = 0;
+        long fileLength = file.length();
+        RecordReader reader;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            reader = new RecordReader(in);
+            long offset = 0;
+            while (reader.next()) {
+                if (visitor != null) visitor.onRecord(offset, (int) (reader.validBytes - offset), reader.timestamp);
+                offset = reader.validBytes;
+                count++;
+            }
+        }
+
+        if (reader.validBytes < fileLength) {
+            android.util.Log.w("HabitEventLog", "Truncando " + file.getName() + " en " + reader.validBytes
+                    + " de " + fileLength + " bytes (registro incompleto o corrupto)");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(reader.validBytes);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Decodifica registros de cualquier flujo con este formato
+     * (un segmento o un snapshot comprimido). Se detiene en el primer
+     * registro incompleto o con CRC inválido.
+     *
+     * @return número de eventos leídos
+     */
+    static int readRecords(DataInputStream in, Visitor visitor) throws IOException {
+        RecordReader reader = new RecordReader(in);
+        int count = 0;
+        while (reader.next()) {
+            visitor.onEvent(reader.timestamp, reader.typeOrdinal, reader.lat, reader.lng, reader.note, reader.meters);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Recorre un flujo registro a registro llevando el diccionario de notas
+     * vigente. next() deja en los campos el siguiente evento.
+     */
+    private static class RecordReader {
+        private final DataInputStream in;
+        private final int typeCount = HabitEvent.HabitType.values().length;
+        private final CRC32 check = new CRC32();
+        private final List<String> notes = new ArrayList<>();
+        private byte[] payload = new byte[64];
+        private boolean started = false;
+
+        /** Bytes hasta el final del último registro o marca válidos */
+        long validBytes = 0;
+        long timestamp;
+        int typeOrdinal;
+        double lat;
+        double lng;
+        String note;
+        int meters;
+        private int at; // Posición de lectura en payload
+
+        RecordReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        boolean next() throws IOException {
+            while (true) {
+                int length;
+                int expected;
+                try {
+                    length = in.readInt();
+                    if (length == DICT_MARKER) {
+                        started = true;
+                        notes.clear();
+                        validBytes += 4;
+                        continue;
+                    }
+                    if (!started || length <= 0 || length > MAX_PAYLOAD) return false;
+                    expected = in.readInt();
+                    if (payload.length < length) payload = new byte[length];
+                    in.readFully(payload, 0, length);
+                } catch (EOFException eof) {
+                    return false;
+                }
+                check.reset();
+                check.update(payload, 0, length);
+                if ((int) check.getValue() != expected) return false;
+
+                boolean isEvent;
+                try {
+                    isEvent = decode(length);
+                } catch (IOException malformed) {
+                    return false;
+                }
+                if (isEvent && (typeOrdinal < 0 || typeOrdinal >= typeCount)) return false;
+                validBytes += 8 + length;
+                if (isEvent) return true;
+            }
+        }
+
+        /** @return true si el registro es un evento, false si definió una nota */
+        private boolean decode(int length) throws IOException {
+            if (payload[0] == KIND_NOTE) {
+                notes.add(new DataInputStream(new ByteArrayInputStream(payload, 1, length - 1)).readUTF());
+                return false;
+            }
+            if (payload[0] != KIND_EVENT || length < 1 + 8 + 1 + 8 + 8 + 2) throw new EOFException();
+            timestamp = readLong(payload, 1);
+            typeOrdinal = payload[9];
+            lat = Double.longBitsToDouble(readLong(payload, 10));
+            lng = Double.longBitsToDouble(readLong(payload, 18));
+            at = 26;
+            int noteId = readVarInt(length);
+            if (noteId < 0 || noteId >= notes.size()) throw new EOFException();
+            note = notes.get(noteId);
+            meters = readVarInt(length);
+            return true;
+        }
+
+        private int readVarInt(int end) throws EOFException {
+            int value = 0;
+            for (int shift = 0; shift < 32 && at < end; shift += 7) {
+                int v = payload[at++];
+                value |= (v & 0x7f) << shift;
+                if ((v & 0x80) == 0) return value;
+            }
+            throw new EOFException();
+        }
+    }
+
+    private static long readLong(byte[] b, int at) {
+        long v = 0;
+        for (int i = at; i < at + 8; i++) v = (v << 8) | (b[i] & 0xff);
+        return v;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Vacía el log
+     */
+    public synchronized void clear() throws IOException {
+        closeOutput();
+        if (file.exists() && !file.delete()) {
+            throw new IOException("No se pudo borrar " + file);
+        }
+        recovered = true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeOutput();
+    }
+
+    private DataOutputStream openForAppend() throws IOException {
+        if (out == null) {
+            if (!recovered) scan(null); // Antes de escribir se descarta una cola corrupta
+            fileOut = new FileOutputStream(file, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(DICT_MARKER);
+            noteIds.clear();
+        }
+        return out;
+    }
+
+    /**
+     * Tras un error de escritura (disco lleno): descarta el buffer sin volcarlo,
+     * recorta lo que llegó al archivo desde committed (si se conoce) y obliga a
+     * escanear y abrir un bloque DICT_MARKER nuevo en el próximo append, porque el
+     * diccionario en memoria puede tener notas que no llegaron al disco.
+     */
+    private void discardOutput(long committed) {
+        try {
+            fileOut.close();
+        } catch (IOException e) {
+            android.util.Log.w("HabitEventLog", "Error al cerrar " + file.getName(), e);
+        }
+        out = null;
+        fileOut = null;
+        noteIds.clear();
+        recovered = false;
+        if (committed < 0) return;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() > committed) raf.setLength(committed);
+        } catch (IOException e) {
+            android.util.Log.w("HabitEventLog", "No se pudo recortar " + file.getName(), e);
+        }
+    }
+
+    private void closeOutput() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    /** ByteArrayOutputStream que deja leer su arreglo sin copiarlo (para el CRC) */
+    private static class RecordBytes extends ByteArrayOutputStream {
+        RecordBytes() {
+            super(64);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
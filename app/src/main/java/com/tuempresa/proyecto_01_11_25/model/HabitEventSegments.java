@@ -0,0 +1,533 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Almacenamiento de eventos en segmentos de tamaño fijo dentro de un directorio:
+ *
+ * <pre>
+ * seg-N.log        segmento crudo (formato de HabitEventLog), el de mayor N es el activo
+ * snap-A-B.gz      snapshot comprimido con los segmentos A..B concatenados
+ * manifest.bin     unidades selladas con sus agregados diarios + agregados de lo expirado
+ * </pre>
+ *
+ * El manifest se reescribe de forma atómica (temporal + rename), así la lista de
+ * unidades y los agregados cambian juntos. Cada unidad lleva los agregados de sus
+ * eventos: el total se obtiene sin leer ningún segmento. La compactación borra los archivos que
+ * reemplazó en cuanto el manifest nuevo está en su lugar; una página de
+ * historial cargada antes se sigue leyendo de su parte del snapshot (o queda
+ * vacía si la retención la eliminó). Un lector que ya tenía el archivo abierto
+ * termina de leerlo. Los huérfanos de una compactación interrumpida se borran
+ * en el siguiente open().
+ *
+ * Solo el hilo escritor modifica el almacenamiento (append, roll, compactación, clear).
+ */
+public class HabitEventSegments implements HabitEventBackend {
+
+    /** Eventos por segmento crudo (cada segmento sellado es una página de historial) */
+    public static final int SEGMENT_EVENTS = PAGE_EVENTS;
+    /** Segmentos crudos más recientes que no se compactan (son los que se cargan al iniciar) */
+    public static final int RESIDENT_SEGMENTS = 4;
+    /** Segmentos crudos que se juntan en cada snapshot */
+    private static final int SNAPSHOT_SEGMENTS = 16;
+
+    private static final int MANIFEST_VERSION = 1;
+    private static final String MANIFEST_FILE = "manifest.bin";
+
+    /** Dónde quedaron los eventos de una página de historial cuyo archivo se borró */
+    private static class Moved {
+        static final Moved EXPIRED = new Moved(null, 0);
+
+        final Unit snapshot; // null: la retención la eliminó
+        final int skip; // Eventos de los segmentos anteriores dentro del snapshot
+
+        Moved(Unit snapshot, int skip) {
+            this.snapshot = snapshot;
+            this.skip = skip;
+        }
+    }
+
+    /** Archivo sellado (segmento o snapshot); inmutable */
+    public static class Unit {
+        public final String fileName;
+        public final boolean compressed;
+        public final long firstSeq;
+        public final long lastSeq;
+        public final int count;
+        public final long minTimestamp;
+        public final long maxTimestamp;
+        final HabitEventAggregates aggregates; // No se modifica después de crear la unidad
+
+        Unit(String fileName, boolean compressed, long firstSeq, long lastSeq,
+             int count, long minTimestamp, long maxTimestamp, HabitEventAggregates aggregates) {
+            this.fileName = fileName;
+            this.compressed = compressed;
+            this.firstSeq = firstSeq;
+            this.lastSeq = lastSeq;
+            this.count = count;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.aggregates = aggregates;
+        }
+    }
+
+    private final File dir;
+    private List<Unit> units = new ArrayList<>(); // Se reemplaza entera en cada cambio
+    private List<Unit> historyUnits = new ArrayList<>(); // Unidades no residentes al cargar
+    private final Map<String, Moved> moved = new HashMap<>(); // Páginas de historial ya compactadas
+    private HabitEventAggregates expired = new HabitEventAggregates(); // De unidades borradas por la retención
+    private HabitEventAggregates activeAggregates = new HabitEventAggregates();
+    private long sealedSeq = 0; // Primer número de secuencia sin sellar según el manifest
+    private HabitEventLog active;
+    private long activeSeq;
+    private int activeCount;
+    private long activeMinTs;
+    private long activeMaxTs;
+
+    public HabitEventSegments(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Carga el manifest, sella los segmentos que quedaron fuera de él, recupera
+     * el segmento activo y borra archivos huérfanos de compactaciones anteriores.
+     */
+    @Override
+    public synchronized void open() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear " + dir);
+        }
+        readManifest();
+
+        long maxReferenced = sealedSeq - 1;
+        List<Long> newer = new ArrayList<>();
+        Set<String> referenced = new HashSet<>();
+        referenced.add(MANIFEST_FILE);
+        for (Unit u : units) referenced.add(u.fileName);
+
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                long seq = segmentSeq(name);
+                if (seq > maxReferenced) {
+                    newer.add(seq);
+                } else if (!referenced.contains(name)) {
+                    new File(dir, name).delete();
+                }
+            }
+        }
+        Collections.sort(newer);
+
+        // Todos menos el último quedaron sellados por un roll cuyo manifest no llegó a escribirse
+        List<Unit> sealed = new ArrayList<>(units);
+        for (int i = 0; i < newer.size() - 1; i++) {
+            sealed.add(scanSegment(newer.get(i)));
+        }
+        boolean changed = sealed.size() != units.size();
+        units = sealed;
+
+        activeSeq = newer.isEmpty() ? maxReferenced + 1 : newer.get(newer.size() - 1);
+        openActive();
+        if (changed) {
+            sealedSeq = activeSeq;
+            writeManifest(units, expired, sealedSeq);
+        }
+    }
+
+    /**
+     * Escribe un lote en el segmento activo, sellándolo y abriendo otro cada SEGMENT_EVENTS eventos.
+     *
+     * @return true si se selló algún segmento (hay trabajo para el compactador)
+     */
+    @Override
+    public synchronized boolean appendAll(List<HabitEvent> batch) throws IOException {
+        boolean rolled = false;
+        int from = 0;
+        while (from < batch.size()) {
+            if (activeCount >= SEGMENT_EVENTS) {
+                roll();
+                rolled = true;
+            }
+            int to = Math.min(batch.size(), from + SEGMENT_EVENTS - activeCount);
+            List<HabitEvent> part = batch.subList(from, to);
+            active.appendAll(part);
+            for (HabitEvent e : part) {
+                activeAggregates.add(e);
+                long ts = e.getTimestamp();
+                activeMinTs = activeCount == 0 ? ts : Math.min(activeMinTs, ts);
+                activeMaxTs = activeCount == 0 ? ts : Math.max(activeMaxTs, ts);
+                activeCount++;
+            }
+            from = to;
+        }
+        return rolled;
+    }
+
+    private void roll() throws IOException {
+        active.close();
+        List<Unit> next = new ArrayList<>(units);
+        next.add(new Unit(segmentName(activeSeq), false, activeSeq, activeSeq,
+                activeCount, activeMinTs, activeMaxTs, activeAggregates));
+        writeManifest(next, expired, activeSeq + 1);
+        units = next;
+        activeSeq++;
+        sealedSeq = activeSeq;
+        openActive();
+    }
+
+    /**
+     * Aplica la retención y junta los segmentos crudos antiguos en snapshots comprimidos.
+     * Hace I/O pesado: solo desde el hilo escritor.
+     */
+    @Override
+    public void compact(RetentionPolicy retention, long now) throws IOException {
+        List<Unit> current;
+        HabitEventAggregates folded;
+        synchronized (this) {
+            current = units;
+            folded = expired.copy();
+        }
+
+        // 1) Unidades completamente fuera de la retención: solo quedan sus conteos diarios
+        long cutoff = retention.rawRetentionMs >= now ? Long.MIN_VALUE : now - retention.rawRetentionMs;
+        List<Unit> kept = new ArrayList<>(current.size());
+        List<Unit> expiredUnits = new ArrayList<>();
+        for (Unit u : current) {
+            if (u.maxTimestamp < cutoff) {
+                folded.addAll(u.aggregates);
+                expiredUnits.add(u);
+            } else {
+                kept.add(u);
+            }
+        }
+
+        // 2) Grupos de SNAPSHOT_SEGMENTS segmentos crudos consecutivos, sin tocar los residentes
+        List<Unit> result = new ArrayList<>(kept.size());
+        Map<String, Moved> snapshotted = new HashMap<>();
+        int compactable = kept.size() - RESIDENT_SEGMENTS;
+        int snapshots = 0;
+        int i = 0;
+        while (i < kept.size()) {
+            if (i + SNAPSHOT_SEGMENTS <= compactable && allRaw(kept, i, SNAPSHOT_SEGMENTS)) {
+                List<Unit> group = kept.subList(i, i + SNAPSHOT_SEGMENTS);
+                Unit snapshot = writeSnapshot(group);
+                int skip = 0;
+                for (Unit u : group) {
+                    snapshotted.put(u.fileName, new Moved(snapshot, skip));
+                    skip += u.count;
+                }
+                result.add(snapshot);
+                i += SNAPSHOT_SEGMENTS;
+                snapshots++;
+            } else {
+                result.add(kept.get(i++));
+            }
+        }
+
+        if (expiredUnits.isEmpty() && snapshots == 0) return;
+        synchronized (this) {
+            // Un roll durante la compactación solo pudo agregar unidades al final
+            for (int j = current.size(); j < units.size(); j++) result.add(units.get(j));
+            writeManifest(result, folded, sealedSeq);
+            units = result;
+            expired = folded;
+            deleteReplaced(expiredUnits, snapshotted);
+        }
+        android.util.Log.d("HabitEventSegments", "Compactación: " + expiredUnits.size() + " unidades expiradas, "
+                + snapshots + " snapshots nuevos");
+    }
+
+    /**
+     * Con el manifest nuevo ya escrito: anota dónde quedaron las páginas de
+     * historial afectadas y borra los archivos que dejaron de estar referenciados
+     */
+    private void deleteReplaced(List<Unit> expiredUnits, Map<String, Moved> snapshotted) {
+        Set<String> pages = new HashSet<>();
+        for (Unit u : historyUnits) pages.add(u.fileName);
+        for (Unit u : expiredUnits) {
+            for (Map.Entry<String, Moved> entry : moved.entrySet()) {
+                if (entry.getValue().snapshot == u) entry.setValue(Moved.EXPIRED);
+            }
+            if (pages.contains(u.fileName)) moved.put(u.fileName, Moved.EXPIRED);
+            new File(dir, u.fileName).delete();
+        }
+        for (Map.Entry<String, Moved> entry : snapshotted.entrySet()) {
+            if (pages.contains(entry.getKey())) moved.put(entry.getKey(), entry.getValue());
+            new File(dir, entry.getKey()).delete();
+        }
+    }
+
+    private static boolean allRaw(List<Unit> list, int from, int n) {
+        for (int i = from; i < from + n; i++) {
+            if (list.get(i).compressed) return false;
+        }
+        return true;
+    }
+
+    private Unit writeSnapshot(List<Unit> group) throws IOException {
+        Unit first = group.get(0);
+        Unit last = group.get(group.size() - 1);
+        String name = "snap-" + first.firstSeq + "-" + last.lastSeq + ".gz";
+        File tmp = new File(dir, name + ".tmp");
+
+        int count = 0;
+        long minTs = Long.MAX_VALUE;
+        long maxTs = Long.MIN_VALUE;
+        HabitEventAggregates merged = new HabitEventAggregates();
+        byte[] copy = new byte[8192];
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             OutputStream out = new GZIPOutputStream(new BufferedOutputStream(fos))) {
+            for (Unit u : group) {
+                try (InputStream in = new FileInputStream(new File(dir, u.fileName))) {
+                    int n;
+                    while ((n = in.read(copy)) > 0) out.write(copy, 0, n);
+                }
+                count += u.count;
+                minTs = Math.min(minTs, u.minTimestamp);
+                maxTs = Math.max(maxTs, u.maxTimestamp);
+                merged.addAll(u.aggregates);
+            }
+            ((GZIPOutputStream) out).finish();
+            out.flush();
+            fos.getFD().sync();
+        }
+        File target = new File(dir, name);
+        if (!tmp.renameTo(target)) throw new IOException("No se pudo renombrar " + tmp);
+        return new Unit(name, true, first.firstSeq, last.lastSeq, count, minTs, maxTs, merged);
+    }
+
+    /**
+     * Unidades selladas en orden cronológico de escritura (la lista no cambia después)
+     */
+    public synchronized List<Unit> getSealedUnits() {
+        return Collections.unmodifiableList(units);
+    }
+
+    /**
+     * Total a partir del manifest y del segmento activo, sin leer las unidades
+     */
+    @Override
+    public synchronized HabitEventAggregates loadAggregates() {
+        HabitEventAggregates total = expired.copy();
+        for (Unit u : units) total.addAll(u.aggregates);
+        total.addAll(activeAggregates);
+        return total;
+    }
+
+    /**
+     * Carga los RESIDENT_SEGMENTS segmentos sellados más recientes y el activo.
+     * Los anteriores quedan como páginas de historial: el costo del inicio no
+     * crece con los años de historial.
+     */
+    @Override
+    public int loadRecent(HabitEventLog.Visitor visitor) throws IOException {
+        List<Unit> sealed = getSealedUnits();
+        int firstResident = Math.max(0, sealed.size() - RESIDENT_SEGMENTS);
+        synchronized (this) {
+            historyUnits = new ArrayList<>(sealed.subList(0, firstResident));
+            moved.clear();
+        }
+        for (int i = firstResident; i < sealed.size(); i++) {
+            read(sealed.get(i), visitor);
+        }
+        readActive(visitor);
+        return firstResident;
+    }
+
+    /**
+     * Cada página es un segmento o snapshot sellado. Si desde que se cargó la
+     * compactación lo juntó en un snapshot, se lee su parte del snapshot; si la
+     * retención lo eliminó, la página queda vacía.
+     */
+    @Override
+    public int readHistoryPage(int page, HabitEventLog.Visitor visitor) throws IOException {
+        Unit unit;
+        Moved m;
+        InputStream in;
+        synchronized (this) {
+            if (page < 0 || page >= historyUnits.size()) {
+                throw new IndexOutOfBoundsException("Página " + page + " de " + historyUnits.size());
+            }
+            unit = historyUnits.get(page);
+            m = moved.get(unit.fileName);
+            if (m == Moved.EXPIRED) return 0;
+            // Se abre con el lock: la compactación no lo borra entre medio
+            in = open(m != null ? m.snapshot : unit);
+        }
+        if (m == null) return decode(in, visitor);
+
+        int[] index = {0};
+        int[] count = {0};
+        int end = m.skip + unit.count;
+        decode(in, (timestamp, typeOrdinal, lat, lng, note, meters) -> {
+            int i = index[0]++;
+            if (i < m.skip || i >= end) return;
+            visitor.onEvent(timestamp, typeOrdinal, lat, lng, note, meters);
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Decodifica una unidad sellada (descomprimiendo si es un snapshot)
+     */
+    public int read(Unit unit, HabitEventLog.Visitor visitor) throws IOException {
+        return decode(open(unit), visitor);
+    }
+
+    private InputStream open(Unit unit) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(new File(dir, unit.fileName)));
+        return unit.compressed ? new GZIPInputStream(in, 8192) : in;
+    }
+
+    private static int decode(InputStream in, HabitEventLog.Visitor visitor) throws IOException {
+        try (DataInputStream data = new DataInputStream(in)) {
+            return HabitEventLog.readRecords(data, visitor);
+        }
+    }
+
+    /**
+     * Decodifica el segmento activo
+     */
+    public synchronized int readActive(HabitEventLog.Visitor visitor) throws IOException {
+        return active.replay(visitor);
+    }
+
+    /**
+     * Borra todos los segmentos, snapshots y agregados
+     */
+    @Override
+    public synchronized void clear() throws IOException {
+        if (active != null) active.close();
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) new File(dir, name).delete();
+        }
+        units = new ArrayList<>();
+        historyUnits = new ArrayList<>();
+        moved.clear();
+        expired = new HabitEventAggregates();
+        sealedSeq = 0;
+        activeSeq = 0;
+        openActive();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) active.close();
+    }
+
+    private void openActive() throws IOException {
+        active = new HabitEventLog(new File(dir, segmentName(activeSeq)));
+        activeCount = 0;
+        active.scan((offset, recordLength, timestamp) -> {
+            activeMinTs = activeCount == 0 ? timestamp : Math.min(activeMinTs, timestamp);
+            activeMaxTs = activeCount == 0 ? timestamp : Math.max(activeMaxTs, timestamp);
+            activeCount++;
+        });
+        activeAggregates = new HabitEventAggregates();
+        HabitEventAggregates agg = activeAggregates;
+        if (activeCount > 0) active.replay((timestamp, typeOrdinal, lat, lng, note, meters) -> agg.add(timestamp, typeOrdinal, meters));
+    }
+
+    private Unit scanSegment(long seq) throws IOException {
+        long[] minMax = {Long.MAX_VALUE, Long.MIN_VALUE};
+        int count;
+        try (HabitEventLog segment = new HabitEventLog(new File(dir, segmentName(seq)))) {
+            count = segment.scan((offset, recordLength, timestamp) -> {
+                minMax[0] = Math.min(minMax[0], timestamp);
+                minMax[1] = Math.max(minMax[1], timestamp);
+            });
+        }
+        Unit unit = new Unit(segmentName(seq), false, seq, seq, count, minMax[0], minMax[1], null);
+        HabitEventAggregates agg = new HabitEventAggregates();
+        read(unit, (timestamp, typeOrdinal, lat, lng, note, meters) -> agg.add(timestamp, typeOrdinal, meters));
+        return new Unit(unit.fileName, false, seq, seq, count, minMax[0], minMax[1], agg);
+    }
+
+    private void readManifest() throws IOException {
+        File file = new File(dir, MANIFEST_FILE);
+        units = new ArrayList<>();
+        historyUnits = new ArrayList<>();
+        expired = new HabitEventAggregates();
+        sealedSeq = 0;
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != MANIFEST_VERSION) {
+                throw new IOException("Versión de manifest desconocida: " + version);
+            }
+            long seq = in.readLong();
+            int n = in.readInt();
+            List<Unit> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(new Unit(in.readUTF(), in.readBoolean(), in.readLong(), in.readLong(),
+                        in.readInt(), in.readLong(), in.readLong(),
+                        HabitEventAggregates.read(in)));
+            }
+            HabitEventAggregates read = HabitEventAggregates.read(in);
+            units = list;
+            expired = read;
+            sealedSeq = seq;
+        }
+    }
+
+    private void writeManifest(List<Unit> list, HabitEventAggregates agg, long nextSeq) throws IOException {
+        File tmp = new File(dir, MANIFEST_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MANIFEST_VERSION);
+            out.writeLong(nextSeq);
+            out.writeInt(list.size());
+            for (Unit u : list) {
+                out.writeUTF(u.fileName);
+                out.writeBoolean(u.compressed);
+                out.writeLong(u.firstSeq);
+                out.writeLong(u.lastSeq);
+                out.writeInt(u.count);
+                out.writeLong(u.minTimestamp);
+                out.writeLong(u.maxTimestamp);
+                u.aggregates.write(out);
+            }
+            agg.write(out);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(new File(dir, MANIFEST_FILE))) {
+            throw new IOException("No se pudo renombrar " + tmp);
+        }
+    }
+
+    private static String segmentName(long seq) {
+        return "seg-" + seq + ".log";
+    }
+
+    /** Número de secuencia de un segmento crudo, o -1 si el nombre no es de un segmento */
+    private static long segmentSeq(String name) {
+        if (!name.startsWith("seg-") || !name.endsWith(".log")) return -1;
+        try {
+            return Long.parseLong(name.substring(4, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.util.List;
+
+/**
+ * Estado inmutable del store en un momento dado: columnas y vistas de los índices
+ * del mismo instante. HabitEventStore publica uno nuevo tras cada cambio con una
+ * sola escritura volatile; los lectores lo toman con una sola lectura y nunca
+ * esperan a un escritor. Crear uno cuesta O(1): comparte los bloques con el anterior.
+ */
+public class HabitEventSnapshot {
+
+    private final long version;
+    private final HabitEventColumns columns;
+    private final HabitEventTimeIndex.View timeIndex;
+    private final HabitEventSpatialIndex spatialIndex;
+
+    HabitEventSnapshot(long version, HabitEventColumns columns,
+                       HabitEventTimeIndex.View timeIndex, HabitEventSpatialIndex spatialIndex) {
+        this.version = version;
+        this.columns = columns;
+        this.timeIndex = timeIndex;
+        this.spatialIndex = spatialIndex;
+    }
+
+    /** Crece con cada cambio del store: dos snapshots con la misma versión son iguales */
+    public long getVersion() { return version; }
+
+    public int size() { return columns.size(); }
+
+    /**
+     * Todos los eventos como lista de solo lectura; no copia nada al crearla
+     */
+    public List<HabitEvent> all() {
+        return columns.asList();
+    }
+
+    public HabitEventCursor cursor() {
+        return columns.cursor();
+    }
+
+    public HabitEventCursor eventsBetween(long from, long to) {
+        return columns.cursor(timeIndex.between(from, to));
+    }
+
+    public int countByTypeBetween(HabitEvent.HabitType type, long from, long to) {
+        return timeIndex.countBetween(type, from, to);
+    }
+
+    public HabitEvent latest() {
+        int position = timeIndex.latest();
+        return position >= 0 ? columns.get(position) : null;
+    }
+
+    public HabitEvent latest(HabitEvent.HabitType type) {
+        int position = timeIndex.latest(type);
+        return position >= 0 ? columns.get(position) : null;
+    }
+
+    public HabitEventCursor eventsInBounds(double south, double west, double north, double east) {
+        return columns.cursor(spatialIndex.inBounds(columns, south, west, north, east));
+    }
+
+    public HabitEventCursor nearest(double lat, double lng, int k) {
+        return columns.cursor(spatialIndex.nearest(columns, lat, lng, k));
+    }
+}
@@ -0,0 +1,233 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice espacial sobre un HabitEventBuffer: rejilla de celdas de CELL_DEGREES
+ * (~1 km) con las posiciones de los eventos de cada celda. El mapa consulta solo
+ * las celdas visibles en lugar de recorrer todo el historial.
+ *
+ * Los eventos sin ubicación (lat/lng NaN) no se indexan: no aparecen en el mapa.
+ *
+ * Un solo hilo agrega posiciones y cualquier hilo puede consultar sin lock:
+ * las consultas reciben la vista de columnas del mismo momento e ignoran las
+ * posiciones agregadas después (las celdas solo crecen).
+ */
+public class HabitEventSpatialIndex {
+
+    private static final double CELL_DEGREES = 0.01;
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int LNG_CELLS = (int) Math.round(360.0 / CELL_DEGREES);
+    private static final int MAX_RINGS = 64; // Más allá se recorre todo (eventos muy dispersos)
+
+    private final HabitEventBuffer buffer;
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+
+    public HabitEventSpatialIndex(HabitEventBuffer buffer) {
+        this.buffer = buffer;
+        for (int i = 0; i < buffer.size(); i++) add(i);
+    }
+
+    /**
+     * Indexa la posición recién agregada al buffer
+     */
+    public void add(int position) {
+        double lat = buffer.getLat(position), lng = buffer.getLng(position);
+        if (Double.isNaN(lat) || Double.isNaN(lng)) return;
+        int row = latCell(lat);
+        int col = lngCell(lng);
+        long key = key(row, col);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(row, col);
+            cells.put(key, cell);
+        }
+        cell.add(position);
+    }
+
+    /**
+     * Posiciones de los eventos dentro del rectángulo (admite cruzar el antimeridiano: west > east)
+     */
+    public int[] inBounds(HabitEventColumns columns, double south, double west, double north, double east) {
+        Cell result = new Cell(0, 0);
+        if (west > east) {
+            collect(columns, south, west, north, 180.0, result);
+            collect(columns, south, -180.0, north, east, result);
+        } else {
+            collect(columns, south, west, north, east, result);
+        }
+        return Arrays.copyOf(result.positions, result.size);
+    }
+
+    private void collect(HabitEventColumns columns, double south, double west, double north, double east, Cell out) {
+        int rowFrom = latCell(south), rowTo = latCell(north);
+        int colFrom = lngCell(west), colTo = lngCell(east);
+        long cellsInView = (long) (rowTo - rowFrom + 1) * (colTo - colFrom + 1);
+
+        if (cellsInView > cells.size()) {
+            // Vista muy alejada: es más barato revisar las celdas ocupadas que las visibles
+            for (Cell cell : cells.values()) {
+                if (cell.row >= rowFrom && cell.row <= rowTo && cell.col >= colFrom && cell.col <= colTo) {
+                    filter(columns, cell, south, west, north, east, out);
+                }
+            }
+        } else {
+            for (int row = rowFrom; row <= rowTo; row++) {
+                for (int col = colFrom; col <= colTo; col++) {
+                    Cell cell = cells.get(key(row, col));
+                    if (cell != null) filter(columns, cell, south, west, north, east, out);
+                }
+            }
+        }
+    }
+
+    private static void filter(HabitEventColumns columns, Cell cell,
+                               double south, double west, double north, double east, Cell out) {
+        int[] positions = cell.positions;
+        int limit = columns.size();
+        for (int i = 0; i < positions.length; i++) {
+            int p = positions[i];
+            if (p < 0 || p >= limit) break; // Fin de la celda para esta vista
+            double lat = columns.getLat(p), lng = columns.getLng(p);
+            if (lat >= south && lat <= north && lng >= west && lng <= east) out.add(p);
+        }
+    }
+
+    /**
+     * Las k posiciones más cercanas al punto, de la más cercana a la más lejana.
+     * Recorre anillos de celdas alrededor del punto y se detiene cuando ningún
+     * anillo más lejano puede mejorar el k-ésimo candidato. Los anillos dan la
+     * vuelta en el antimeridiano.
+     */
+    public int[] nearest(HabitEventColumns columns, double lat, double lng, int k) {
+        int limit = columns.size();
+        if (k <= 0 || limit == 0) return new int[0];
+        k = Math.min(k, limit);
+
+        int[] best = new int[k];
+        double[] bestDist = new double[k];
+        int found = 0;
+
+        int row0 = latCell(lat), col0 = lngCell(lng);
+
+        boolean complete = false;
+        for (int ring = 0; ring <= MAX_RINGS; ring++) {
+            // Un punto en el anillo r está al menos a (r - 1) celdas del punto consultado;
+            // el ancho de una celda se toma en la latitud más cercana al polo que alcanza el anillo
+            double edgeLat = Math.min(90.0, Math.abs(lat) + (ring + 1) * CELL_DEGREES);
+            double cellMeters = CELL_DEGREES * METERS_PER_DEGREE * Math.cos(Math.toRadians(edgeLat));
+            if (found == k && bestDist[k - 1] <= (ring - 1) * cellMeters) {
+                complete = true;
+                break;
+            }
+            for (int row = row0 - ring; row <= row0 + ring; row++) {
+                for (int col = col0 - ring; col <= col0 + ring; col++) {
+                    if (Math.abs(row - row0) != ring && Math.abs(col - col0) != ring) continue;
+                    int wrapped = Math.floorMod(col, LNG_CELLS);
+                    found = offerCell(columns, cells.get(key(row, wrapped)), lat, lng, best, bestDist, found);
+                    if (wrapped == 0) { // lng = 180 exacto cae en la columna LNG_CELLS
+                        found = offerCell(columns, cells.get(key(row, LNG_CELLS)), lat, lng, best, bestDist, found);
+                    }
+                }
+            }
+        }
+        if (!complete) {
+            // Eventos muy dispersos: se resuelve con un recorrido completo
+            found = 0;
+            for (int p = 0; p < limit; p++) {
+                found = offer(columns, p, lat, lng, best, bestDist, found);
+            }
+        }
+        return Arrays.copyOf(best, found);
+    }
+
+    private static int offerCell(HabitEventColumns columns, Cell cell, double lat, double lng,
+                                 int[] best, double[] bestDist, int found) {
+        if (cell == null) return found;
+        int[] positions = cell.positions;
+        int limit = columns.size();
+        for (int i = 0; i < positions.length; i++) {
+            int p = positions[i];
+            if (p < 0 || p >= limit) break;
+            found = offer(columns, p, lat, lng, best, bestDist, found);
+        }
+        return found;
+    }
+
+    /** Inserta p en la lista ordenada de mejores candidatos si mejora alguno */
+    private static int offer(HabitEventColumns columns, int p, double lat, double lng,
+                             int[] best, double[] bestDist, int found) {
+        double d = distanceMeters(lat, lng, columns.getLat(p), columns.getLng(p));
+        if (Double.isNaN(d)) return found; // Sin ubicación (en el recorrido completo)
+        if (found == best.length && d >= bestDist[found - 1]) return found;
+
+        int at = found == best.length ? found - 1 : found;
+        while (at > 0 && bestDist[at - 1] > d) {
+            best[at] = best[at - 1];
+            bestDist[at] = bestDist[at - 1];
+            at--;
+        }
+        best[at] = p;
+        bestDist[at] = d;
+        return found == best.length ? found : found + 1;
+    }
+
+    /** Distancia equirectangular, suficiente a escala de ciudad; cruza el antimeridiano por el lado corto */
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLng = lng2 - lng1;
+        if (dLng > 180.0) dLng -= 360.0;
+        else if (dLng < -180.0) dLng += 360.0;
+        double x = Math.toRadians(dLng) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6_371_000.0;
+    }
+
+    private static int latCell(double lat) {
+        return (int) Math.floor((lat + 90.0) / CELL_DEGREES);
+    }
+
+    private static int lngCell(double lng) {
+        return (int) Math.floor((lng + 180.0) / CELL_DEGREES);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    /**
+     * Celda de la rejilla: lista creciente de posiciones. Los huecos libres valen -1,
+     * así un lector recorre el arreglo sin leer el tamaño que modifica el escritor.
+     */
+    private static class Cell {
+        final int row;
+        final int col;
+        volatile int[] positions = emptySlots(8);
+        int size = 0;
+
+        Cell(int row, int col) {
+            this.row = row;
+            this.col = col;
+        }
+
+        void add(int position) {
+            int[] current = positions;
+            if (size == current.length) {
+                int[] grown = emptySlots(size * 2);
+                System.arraycopy(current, 0, grown, 0, size);
+                grown[size] = position;
+                positions = grown;
+            } else {
+                current[size] = position;
+            }
+            size++;
+        }
+
+        private static int[] emptySlots(int n) {
+            int[] slots = new int[n];
+            Arrays.fill(slots, -1);
+            return slots;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backend SQLite para HabitEventStore, alternativo a los segmentos.
+ *
+ * <pre>
+ * events(_id, ts, type, lat, lng, note_id, meters)   índices (ts) y (type, ts)
+ * notes(_id, text)                           diccionario de notas
+ * daily(day, type, count, meters)            estadísticas por día, incluidos los eventos expirados
+ * </pre>
+ *
+ * Cada lote del escritor es una transacción con sentencias preparadas, y la base
+ * usa journal WAL, así las lecturas de historial no bloquean las escrituras.
+ */
+public class HabitEventSqliteBackend extends SQLiteOpenHelper implements HabitEventBackend {
+
+    private static final String DB_NAME = "habit_events.db";
+    private static final int DB_VERSION = 1;
+    /** Eventos recientes que se cargan en memoria (lo mismo que los segmentos residentes) */
+    private static final int RESIDENT_EVENTS = (HabitEventSegments.RESIDENT_SEGMENTS + 1) * PAGE_EVENTS;
+
+    private final Map<String, Long> noteIds = new HashMap<>();
+    private SQLiteDatabase db;
+    private SQLiteStatement insertEvent;
+    private SQLiteStatement insertNote;
+    private SQLiteStatement updateDaily;
+    private SQLiteStatement insertDaily;
+    private long historyFirstId; // Páginas de historial: _id en [historyFirstId, residentFirstId)
+    private long residentFirstId;
+
+    public HabitEventSqliteBackend(Context context) {
+        this(context, DB_NAME);
+    }
+
+    /** Con otro archivo de base (p.ej. para benchmarks sin tocar los datos de la app) */
+    public HabitEventSqliteBackend(Context context, String dbName) {
+        super(context, dbName, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE events (_id INTEGER PRIMARY KEY AUTOINCREMENT, ts INTEGER NOT NULL,"
+                + " type INTEGER NOT NULL, lat REAL NOT NULL, lng REAL NOT NULL, note_id INTEGER NOT NULL,"
+                + " meters INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_events_ts ON events (ts)");
+        db.execSQL("CREATE INDEX idx_events_type_ts ON events (type, ts)");
+        db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY, text TEXT NOT NULL UNIQUE)");
+        db.execSQL("CREATE TABLE daily (day INTEGER NOT NULL, type INTEGER NOT NULL, count INTEGER NOT NULL,"
+                + " meters INTEGER NOT NULL, PRIMARY KEY (day, type))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Única versión del esquema
+    }
+
+    @Override
+    public synchronized void open() {
+        db = getWritableDatabase();
+        insertEvent = db.compileStatement("INSERT INTO events (ts, type, lat, lng, note_id, meters)"
+                + " VALUES (?, ?, ?, ?, ?, ?)");
+        insertNote = db.compileStatement("INSERT INTO notes (text) VALUES (?)");
+        updateDaily = db.compileStatement("UPDATE daily SET count = count + ?, meters = meters + ? WHERE day = ? AND type = ?");
+        insertDaily = db.compileStatement("INSERT INTO daily (day, type, count, meters) VALUES (?, ?, ?, ?)");
+        loadNoteIds();
+    }
+
+    private void loadNoteIds() {
+        noteIds.clear();
+        try (Cursor c = db.rawQuery("SELECT _id, text FROM notes", null)) {
+            while (c.moveToNext()) noteIds.put(c.getString(1), c.getLong(0));
+        }
+    }
+
+    /**
+     * Inserta el lote y suma sus conteos a daily en una sola transacción
+     * (un solo commit y fsync del WAL). Las notas nuevas pasan al caché recién
+     * después del commit: si se revierte, sus ids no existen.
+     */
+    @Override
+    public synchronized boolean appendAll(List<HabitEvent> batch) {
+        if (batch.isEmpty()) return false;
+        HabitEventAggregates delta = new HabitEventAggregates();
+        Map<String, Long> newNotes = new HashMap<>();
+        db.beginTransactionNonExclusive();
+        try {
+            for (HabitEvent e : batch) {
+                delta.add(e);
+                insertEvent.bindLong(1, e.getTimestamp());
+                insertEvent.bindLong(2, e.getType().ordinal());
+                insertEvent.bindDouble(3, e.getLat());
+                insertEvent.bindDouble(4, e.getLng());
+                insertEvent.bindLong(5, noteId(e.getNote(), newNotes));
+                insertEvent.bindLong(6, e.getMeters());
+                insertEvent.executeInsert();
+            }
+            delta.forEach(this::addDaily);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        noteIds.putAll(newNotes);
+        return false; // La retención se aplica al iniciar; no hay segmentos que sellar
+    }
+
+    private void addDaily(int day, int type, int count, long meters) {
+        updateDaily.bindLong(1, count);
+        updateDaily.bindLong(2, meters);
+        updateDaily.bindLong(3, day);
+        updateDaily.bindLong(4, type);
+        if (updateDaily.executeUpdateDelete() == 0) {
+            insertDaily.bindLong(1, day);
+            insertDaily.bindLong(2, type);
+            insertDaily.bindLong(3, count);
+            insertDaily.bindLong(4, meters);
+            insertDaily.executeInsert();
+        }
+    }
+
+    /** Id de la nota; las que inserta se anotan en newNotes hasta el commit */
+    private long noteId(String note, Map<String, Long> newNotes) {
+        if (note == null) note = "";
+        Long id = noteIds.get(note);
+        if (id == null) id = newNotes.get(note);
+        if (id == null) {
+            insertNote.bindString(1, note);
+            id = insertNote.executeInsert();
+            newNotes.put(note, id);
+        }
+        return id;
+    }
+
+    /**
+     * Borra los eventos fuera de la retención; sus conteos ya están en daily
+     */
+    @Override
+    public synchronized void compact(RetentionPolicy retention, long now) throws IOException {
+        if (retention.rawRetentionMs >= now) return;
+        long cutoff = now - retention.rawRetentionMs;
+        String[] args = {String.valueOf(cutoff)};
+
+        int expired;
+        db.beginTransactionNonExclusive();
+        try {
+            expired = db.delete("events", "ts < ?", args);
+            if (expired == 0) return;
+
+            db.execSQL("DELETE FROM notes WHERE _id NOT IN (SELECT DISTINCT note_id FROM events)");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        loadNoteIds();
+        android.util.Log.d("HabitEventSqlite", "Retención: " + expired + " eventos eliminados");
+    }
+
+    @Override
+    public synchronized HabitEventAggregates loadAggregates() {
+        HabitEventAggregates aggregates = new HabitEventAggregates();
+        try (Cursor c = db.rawQuery("SELECT day, type, count, meters FROM daily", null)) {
+            while (c.moveToNext()) {
+                int type = c.getInt(1);
+                if (type < 0 || type >= HabitEvent.HabitType.values().length) continue;
+                aggregates.addCounts(c.getInt(0), type, c.getInt(2), c.getLong(3));
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * Carga los RESIDENT_EVENTS eventos más recientes por orden de inserción;
+     * los anteriores se reparten en páginas de PAGE_EVENTS ids
+     */
+    @Override
+    public int loadRecent(HabitEventLog.Visitor visitor) {
+        long minId;
+        long maxId;
+        try (Cursor c = db.rawQuery("SELECT IFNULL(MIN(_id), 1), IFNULL(MAX(_id), 0) FROM events", null)) {
+            c.moveToNext();
+            minId = c.getLong(0);
+            maxId = c.getLong(1);
+        }
+        long residentFrom = Math.max(minId, maxId - RESIDENT_EVENTS + 1);
+        synchronized (this) {
+            historyFirstId = minId;
+            residentFirstId = residentFrom;
+        }
+        readRange(residentFrom, maxId + 1, visitor);
+        return historyPageCount();
+    }
+
+    @Override
+    public int readHistoryPage(int page, HabitEventLog.Visitor visitor) {
+        long from;
+        long to;
+        synchronized (this) {
+            if (page < 0 || page >= historyPageCount()) {
+                throw new IndexOutOfBoundsException("Página " + page + " de " + historyPageCount());
+            }
+            from = historyFirstId + (long) page * PAGE_EVENTS;
+            to = Math.min(from + PAGE_EVENTS, residentFirstId);
+        }
+        return readRange(from, to, visitor);
+    }
+
+    private int historyPageCount() {
+        return (int) ((residentFirstId - historyFirstId + PAGE_EVENTS - 1) / PAGE_EVENTS);
+    }
+
+    private int readRange(long fromId, long toId, HabitEventLog.Visitor visitor) {
+        int count = 0;
+        try (Cursor c = db.rawQuery("SELECT e.ts, e.type, e.lat, e.lng, n.text, e.meters FROM events e"
+                        + " JOIN notes n ON n._id = e.note_id WHERE e._id >= ? AND e._id < ? ORDER BY e._id",
+                new String[]{String.valueOf(fromId), String.valueOf(toId)})) {
+            while (c.moveToNext()) {
+                visitor.onEvent(c.getLong(0), c.getInt(1), c.getDouble(2), c.getDouble(3), c.getString(4), c.getInt(5));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Cuenta sobre todo el historial en disco (no solo lo residente) usando el índice (type, ts)
+     */
+    public int countByTypeBetween(HabitEvent.HabitType type, long from, long to) {
+        try (Cursor c = db.rawQuery("SELECT COUNT(*) FROM events WHERE type = ? AND ts >= ? AND ts < ?",
+                new String[]{String.valueOf(type.ordinal()), String.valueOf(from), String.valueOf(to)})) {
+            return c.moveToNext() ? c.getInt(0) : 0;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        db.beginTransactionNonExclusive();
+        try {
+            db.execSQL("DELETE FROM events");
+            db.execSQL("DELETE FROM notes");
+            db.execSQL("DELETE FROM daily");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        noteIds.clear();
+        historyFirstId = 1;
+        residentFirstId = 1;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (insertEvent != null) insertEvent.close();
+        if (insertNote != null) insertNote.close();
+        if (updateDaily != null) updateDaily.close();
+        if (insertDaily != null) insertDaily.close();
+        super.close();
+    }
+}
@@ -2,122 +2,483 @@ package com.tuempresa.proyecto_01_11_25.model;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 
+/**
+ * Store de eventos de hábitos.
+ *
+ * Las escrituras (add, clear, init) se serializan con el lock de la clase y al
+ * terminar publican un HabitEventSnapshot nuevo en un campo volatile. Las lecturas
+ * no toman ningún lock: leen ese campo una vez y consultan el snapshot, así un
+ * redibujado del mapa nunca espera a un add() de los sensores ni al revés.
+ */
 public class HabitEventStore {
     private static final String PREFS_NAME = "HabitEventStore";
     private static final String KEY_EVENTS = "habit_events";
-    private static final List<HabitEvent> events = new ArrayList<>();
+    private static final String LEGACY_LOG_FILE = "habit_events.log"; // Log único anterior a los segmentos
+    private static final String LEGACY_INDEX_FILE = "habit_events.idx";
+    private static final String SEGMENTS_DIR = "habit_events";
+    private static final long FLUSH_TIMEOUT_MS = 5000;
+    private static HabitEventBuffer events = new HabitEventBuffer();
+    private static HabitEventTimeIndex timeIndex = new HabitEventTimeIndex(events);
+    private static HabitEventSpatialIndex spatialIndex = new HabitEventSpatialIndex(events);
+    private static volatile HabitEventSnapshot snapshot = newSnapshot(0);
+    private static volatile HabitEventAggregates aggregates = new HabitEventAggregates(); // Todo el historial, no solo lo residente
     private static Context context;
     private static SharedPreferences prefs;
+    private static HabitEventBackend backend;
+    private static HabitEventWriter writer;
+    private static int historyPageCount = 0;
+    private static Backend backendType = Backend.SEGMENTS;
+    private static HabitEventWriter.CommitPolicy commitPolicy = HabitEventWriter.CommitPolicy.DEFAULT;
+    private static HabitEventBackend.RetentionPolicy retentionPolicy = HabitEventBackend.RetentionPolicy.DEFAULT;
+
+    /** Motor de persistencia; se elige antes de init() */
+    public enum Backend {
+        /** Segmentos binarios con snapshots comprimidos (por defecto) */
+        SEGMENTS,
+        /** Base SQLite con índices por timestamp y tipo */
+        SQLITE
+    }
 
     /**
      * Inicializa el store con el contexto de la aplicación
      * Debe llamarse en onCreate de la actividad principal
      */
-    public static void init(Context ctx) {
+    public static synchronized void init(Context ctx) {
+        if (backend != null) return; // Ya inicializado en este proceso (p.ej. tras recreate())
+
         context = ctx.getApplicationContext();
         prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        backend = backendType == Backend.SQLITE
+                ? new HabitEventSqliteBackend(context)
+                : new HabitEventSegments(new File(context.getFilesDir(), SEGMENTS_DIR));
+        migrateFromPreferences();
         loadEvents();
+        writer = new HabitEventWriter(backend, commitPolicy, retentionPolicy);
+        // Los recorridos y las series de ejercicio expiran con sus eventos
+        writer.setCompactionListener(cutoff -> {
+            HabitRouteStore.get(context).pruneAsync(cutoff);
+            HabitExerciseStore.get(context).pruneAsync(cutoff);
+        });
+        writer.requestCompaction(); // Aplica la retención aunque la app lleve tiempo sin escribir
+
+        // Al pasar la app a segundo plano se escribe lo pendiente sin esperar el retardo
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                writer.requestCommit();
+            }
+        });
+    }
+
+    /**
+     * Elige el motor de persistencia. Solo tiene efecto antes de init(); cada motor
+     * guarda sus propios datos (el historial JSON o del log anterior se importa en el elegido).
+     */
+    public static synchronized void setBackend(Backend type) {
+        if (backend != null) {
+            android.util.Log.w("HabitEventStore", "setBackend() ignorado: el store ya está inicializado");
+            return;
+        }
+        backendType = type;
+    }
+
+    /**
+     * Configura cuántos eventos y cuánto retardo acumula el escritor antes de cada commit
+     */
+    public static synchronized void setCommitPolicy(HabitEventWriter.CommitPolicy policy) {
+        commitPolicy = policy;
+        if (writer != null) writer.setPolicy(policy);
+    }
+
+    /**
+     * Configura cuánto tiempo se conservan los eventos crudos; los más antiguos
+     * se eliminan del disco y solo quedan sus conteos diarios (countBetweenDays()).
+     */
+    public static synchronized void setRetentionPolicy(HabitEventBackend.RetentionPolicy policy) {
+        retentionPolicy = policy;
+        if (writer != null) writer.setRetentionPolicy(policy);
+    }
+
+    static synchronized HabitEventBackend.RetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /**
+     * Día local de hoy, en la escala de countOnDay() y countBetweenDays()
+     */
+    public static int today() {
+        return HabitEventAggregates.epochDay(System.currentTimeMillis());
+    }
+
+    /**
+     * Eventos del tipo en el día (días desde 1970-01-01, hora local).
+     * Se mantiene al agregar: es O(1) y cubre todo el historial, incluido lo expirado.
+     */
+    public static int countOnDay(HabitEvent.HabitType type, int epochDay) {
+        return aggregates.count(epochDay, type);
+    }
+
+    /**
+     * Eventos del tipo en los días [fromDay, toDay), p.ej. la semana: (today() - 6, today() + 1)
+     */
+    public static int countBetweenDays(HabitEvent.HabitType type, int fromDay, int toDay) {
+        return aggregates.countBetween(type, fromDay, toDay);
+    }
+
+    /**
+     * Conteo de cada día en [fromDay, toDay), para gráficos
+     */
+    public static int[] dailyCounts(HabitEvent.HabitType type, int fromDay, int toDay) {
+        return aggregates.dailyCounts(type, fromDay, toDay);
+    }
+
+    /**
+     * Metros caminados en los días [fromDay, toDay)
+     */
+    public static long walkMetersBetweenDays(int fromDay, int toDay) {
+        return aggregates.metersBetween(HabitEvent.HabitType.WALK, fromDay, toDay);
+    }
+
+    /**
+     * Espera a que todos los eventos agregados hasta ahora estén en disco.
+     * No llamar desde el hilo principal.
+     *
+     * @return true si se escribieron antes del timeout
+     */
+    public static boolean flush() {
+        HabitEventWriter w;
+        synchronized (HabitEventStore.class) {
+            w = writer;
+        }
+        return w == null || w.flush(FLUSH_TIMEOUT_MS);
     }
 
     /**
-     * Agrega un evento y lo persiste inmediatamente
+     * Agrega un evento en memoria y lo encola para escritura en segundo plano.
+     * No toca el disco, se puede llamar desde el hilo principal.
      */
     public static synchronized void add(HabitEvent e) {
         events.add(e);
-        saveEvents();
-        android.util.Log.d("HabitEventStore", "Evento agregado y guardado: " + e.getNote());
+        timeIndex.add(events.size() - 1);
+        spatialIndex.add(events.size() - 1);
+        aggregates.add(e);
+        publish();
+        if (writer != null) {
+            writer.enqueue(e);
+        } else {
+            android.util.Log.w("HabitEventStore", "No se puede guardar: store no inicializado");
+        }
+        android.util.Log.d("HabitEventStore", "Evento agregado: " + e.getNote());
     }
 
     /**
-     * Obtiene todos los eventos
+     * Estado actual completo, para hacer varias consultas coherentes entre sí
+     * sin que un add() concurrente cambie el resultado a mitad de camino
      */
-    public static synchronized List<HabitEvent> all() {
-        return new ArrayList<>(events);
+    public static HabitEventSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Obtiene todos los eventos como lista de solo lectura (no copia: cada get()
+     * crea el HabitEvent de esa posición). Para recorridos largos preferir cursor().
+     */
+    public static List<HabitEvent> all() {
+        return snapshot.all();
+    }
+
+    /**
+     * Cursor sin copia sobre los eventos existentes en este momento
+     */
+    public static HabitEventCursor cursor() {
+        return snapshot.cursor();
+    }
+
+    /**
+     * Eventos con from <= timestamp < to, en orden temporal (búsqueda binaria).
+     * Cubre los eventos en memoria; el historial más antiguo se lee con loadHistoryPage().
+     */
+    public static HabitEventCursor eventsBetween(long from, long to) {
+        return snapshot.eventsBetween(from, to);
+    }
+
+    /**
+     * Cuántos eventos del tipo hay con from <= timestamp < to, sin recorrerlos
+     */
+    public static int countByTypeBetween(HabitEvent.HabitType type, long from, long to) {
+        return snapshot.countByTypeBetween(type, from, to);
+    }
+
+    /**
+     * Evento más reciente, o null si no hay ninguno
+     */
+    public static HabitEvent latest() {
+        return snapshot.latest();
+    }
+
+    /**
+     * Evento más reciente del tipo, o null si no hay ninguno
+     */
+    public static HabitEvent latest(HabitEvent.HabitType type) {
+        return snapshot.latest(type);
+    }
+
+    /**
+     * Eventos dentro del área visible del mapa, sin recorrer el historial completo
+     */
+    public static HabitEventCursor eventsInBounds(LatLngBounds bounds) {
+        return eventsInBounds(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+    }
+
+    public static HabitEventCursor eventsInBounds(double south, double west, double north, double east) {
+        return snapshot.eventsInBounds(south, west, north, east);
+    }
+
+    /**
+     * Los k eventos más cercanos al punto, del más cercano al más lejano
+     */
+    public static HabitEventCursor nearest(double lat, double lng, int k) {
+        return snapshot.nearest(lat, lng, k);
+    }
+
+    /**
+     * Número de eventos en memoria
+     */
+    public static int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Páginas de historial antiguo que no se cargaron al iniciar (0 = la más antigua)
+     */
+    public static synchronized int getHistoryPageCount() {
+        return historyPageCount;
+    }
+
+    /**
+     * Lee del disco una página de historial no residente.
+     * Hace I/O: llamar fuera del hilo principal.
+     *
+     * @throws IOException si no se pudo leer la página (nunca devuelve una página a medias)
+     */
+    @WorkerThread
+    public static HabitEventCursor loadHistoryPage(int page) throws IOException {
+        HabitEventBackend source;
+        synchronized (HabitEventStore.class) {
+            if (page < 0 || page >= historyPageCount) {
+                throw new IndexOutOfBoundsException("Página " + page + " de " + historyPageCount);
+            }
+            source = backend;
+        }
+
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        source.readHistoryPage(page, buffer::add);
+        return buffer.cursor();
     }
 
     /**
      * Limpia todos los eventos
      */
     public static synchronized void clear() {
-        events.clear();
+        events = new HabitEventBuffer(); // Los cursores abiertos siguen viendo el buffer anterior
+        timeIndex = new HabitEventTimeIndex(events);
+        spatialIndex = new HabitEventSpatialIndex(events);
+        historyPageCount = 0;
+        aggregates = new HabitEventAggregates();
+        publish();
         if (prefs != null) {
             prefs.edit().remove(KEY_EVENTS).apply();
         }
+        if (writer != null) {
+            writer.clear();
+        }
+        if (context != null) {
+            HabitRouteStore.get(context).clearAsync();
+            HabitExerciseStore.get(context).clearAsync();
+        }
         android.util.Log.d("HabitEventStore", "Eventos eliminados");
     }
 
     /**
-     * Guarda los eventos en SharedPreferences como JSON
+     * Escribe un lote grande directamente al backend (importación), en orden con
+     * los demás lotes del escritor. No lo agrega a memoria: al terminar llamar a
+     * reloadRecent().
      */
-    private static synchronized void saveEvents() {
-        if (prefs == null) {
-            android.util.Log.w("HabitEventStore", "No se puede guardar: SharedPreferences no inicializado");
-            return;
+    @WorkerThread
+    static void appendBulk(List<HabitEvent> batch) throws IOException {
+        HabitEventWriter w;
+        synchronized (HabitEventStore.class) {
+            w = writer;
         }
+        if (w == null) throw new IOException("Store no inicializado");
+        w.appendBulk(batch);
+    }
 
+    /**
+     * Vuelve a cargar los eventos recientes, las páginas de historial y las
+     * estadísticas desde el backend (p.ej. después de una importación)
+     */
+    @WorkerThread
+    static synchronized void reloadRecent() {
+        if (backend == null) return;
+        if (!writer.flush(FLUSH_TIMEOUT_MS)) {
+            android.util.Log.w("HabitEventStore", "Recarga sin terminar de escribir lo pendiente");
+        }
         try {
-            JSONArray jsonArray = new JSONArray();
-            for (HabitEvent event : events) {
-                JSONObject jsonEvent = new JSONObject();
-                jsonEvent.put("lat", event.getLat());
-                jsonEvent.put("lng", event.getLng());
-                jsonEvent.put("note", event.getNote());
-                jsonEvent.put("type", event.getType().name());
-                jsonEvent.put("timestamp", event.getTimestamp());
-                jsonArray.put(jsonEvent);
-            }
-
-            prefs.edit().putString(KEY_EVENTS, jsonArray.toString()).apply();
-            android.util.Log.d("HabitEventStore", "Eventos guardados: " + events.size());
-        } catch (JSONException e) {
-            android.util.Log.e("HabitEventStore", "Error al guardar eventos", e);
+            loadRecent();
+        } catch (IOException | RuntimeException e) {
+            android.util.Log.e("HabitEventStore", "Error al recargar eventos", e);
         }
     }
 
     /**
-     * Carga los eventos desde SharedPreferences
+     * Abre el backend y decodifica solo los eventos recientes; el historial más
+     * antiguo queda en páginas en disco, así el costo del inicio no crece con
+     * los años de historial. Las estadísticas diarias vienen ya calculadas del backend.
      */
-    private static synchronized void loadEvents() {
-        if (prefs == null) {
-            android.util.Log.w("HabitEventStore", "No se puede cargar: SharedPreferences no inicializado");
-            return;
+    private static void loadEvents() {
+        try {
+            backend.open();
+            backend.importLegacyLog(new File(context.getFilesDir(), LEGACY_LOG_FILE));
+            new File(context.getFilesDir(), LEGACY_INDEX_FILE).delete();
+            loadRecent();
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException: SQLiteException al abrir una base dañada
+            android.util.Log.e("HabitEventStore", "Error al cargar eventos", e);
+            events = new HabitEventBuffer();
+            aggregates = new HabitEventAggregates();
+            historyPageCount = 0;
+            timeIndex = new HabitEventTimeIndex(events);
+            spatialIndex = new HabitEventSpatialIndex(events);
+            publish();
         }
+    }
+
+    /**
+     * Reemplaza el estado en memoria por lo que hay en el backend. Llamar con el lock tomado.
+     */
+    private static void loadRecent() throws IOException {
+        HabitEventBuffer loaded = new HabitEventBuffer();
+        int pages = backend.loadRecent(loaded::add);
+        aggregates = backend.loadAggregates();
+        historyPageCount = pages;
+        events = loaded;
+        timeIndex = new HabitEventTimeIndex(events);
+        spatialIndex = new HabitEventSpatialIndex(events);
+        publish();
+        android.util.Log.d("HabitEventStore", "Eventos cargados: " + events.size()
+                + " (" + historyPageCount + " páginas en disco)");
+    }
 
-        events.clear();
+    /**
+     * Publica el estado actual para los lectores. Llamar con el lock tomado.
+     */
+    private static void publish() {
+        snapshot = newSnapshot(snapshot.getVersion() + 1);
+    }
+
+    private static HabitEventSnapshot newSnapshot(long version) {
+        HabitEventColumns columns = events.columns();
+        return new HabitEventSnapshot(version, columns, timeIndex.view(columns), spatialIndex);
+    }
+
+    /**
+     * Migra una sola vez el historial JSON guardado en SharedPreferences a un log binario
+     * que luego loadEvents() importa en el backend.
+     * El JSON se lee token a token (sin construir un JSONArray con todo el historial)
+     * y se escribe en un archivo temporal que luego se renombra, así una migración
+     * interrumpida nunca deja eventos duplicados.
+     */
+    private static void migrateFromPreferences() {
         String eventsJson = prefs.getString(KEY_EVENTS, null);
-        
-        if (eventsJson == null || eventsJson.isEmpty()) {
-            android.util.Log.d("HabitEventStore", "No hay eventos guardados");
-            return;
+        if (eventsJson == null) return;
+
+        File target = new File(context.getFilesDir(), LEGACY_LOG_FILE);
+        if (!target.exists() && !eventsJson.isEmpty()) {
+            File tmp = new File(target.getParentFile(), LEGACY_LOG_FILE + ".tmp");
+            int migrated = 0;
+            try (HabitEventLog tmpLog = new HabitEventLog(tmp);
+                 JsonReader reader = new JsonReader(new StringReader(eventsJson))) {
+                tmpLog.clear();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    tmpLog.append(readLegacyEvent(reader));
+                    migrated++;
+                }
+                reader.endArray();
+                tmpLog.sync();
+            } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+                // Se conserva el JSON para reintentar en el próximo inicio
+                android.util.Log.e("HabitEventStore", "Error al migrar eventos", e);
+                return;
+            }
+
+            if (!tmp.renameTo(target)) {
+                android.util.Log.e("HabitEventStore", "No se pudo renombrar " + tmp + " a " + target);
+                return;
+            }
+            android.util.Log.d("HabitEventStore", "Eventos migrados desde SharedPreferences: " + migrated);
         }
 
-        try {
-            JSONArray jsonArray = new JSONArray(eventsJson);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject jsonEvent = jsonArray.getJSONObject(i);
-                
-                double lat = jsonEvent.getDouble("lat");
-                double lng = jsonEvent.getDouble("lng");
-                String note = jsonEvent.getString("note");
-                HabitEvent.HabitType type = HabitEvent.HabitType.valueOf(jsonEvent.getString("type"));
-                
-                // Crear evento (el constructor ya asigna timestamp, pero guardamos el original)
-                HabitEvent event = new HabitEvent(lat, lng, note, type);
-                events.add(event);
+        // commit(): si el JSON sobreviviera a la importación se volvería a migrar
+        if (!prefs.edit().remove(KEY_EVENTS).commit()) {
+            android.util.Log.e("HabitEventStore", "No se pudo borrar el JSON migrado");
+        }
+    }
+
+    /**
+     * Lee un objeto {"lat","lng","note","type","timestamp"} del formato JSON anterior
+     * (también usado por NDJSON, que agrega "meters")
+     */
+    static HabitEvent readLegacyEvent(JsonReader reader) throws IOException {
+        double lat = 0;
+        double lng = 0;
+        String note = "";
+        HabitEvent.HabitType type = null;
+        long timestamp = System.currentTimeMillis();
+        int meters = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "lat": lat = readCoordinate(reader); break;
+                case "lng": lng = readCoordinate(reader); break;
+                case "note": note = reader.nextString(); break;
+                case "type": type = HabitEvent.HabitType.valueOf(reader.nextString()); break;
+                case "timestamp": timestamp = reader.nextLong(); break;
+                case "meters": meters = reader.nextInt(); break;
+                default: reader.skipValue(); break;
             }
-            
-            android.util.Log.d("HabitEventStore", "Eventos cargados: " + events.size());
-        } catch (JSONException e) {
-            android.util.Log.e("HabitEventStore", "Error al cargar eventos", e);
         }
+        reader.endObject();
+
+        if (type == null) throw new IllegalArgumentException("Evento sin tipo");
+        return new HabitEvent(lat, lng, note, type, timestamp, meters);
+    }
+
+    /** Coordenada o null (evento sin ubicación, NaN) */
+    private static double readCoordinate(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Double.NaN;
+        }
+        return reader.nextDouble();
     }
 }
@@ -0,0 +1,140 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.util.Arrays;
+
+/**
+ * Índice temporal sobre un HabitEventBuffer: posiciones ordenadas por timestamp,
+ * una lista global y una por tipo. Las consultas por rango usan búsqueda binaria,
+ * O(log n + k) en lugar de recorrer todo el historial.
+ *
+ * Los eventos llegan casi siempre en orden, así que insertar es un append;
+ * solo un evento atrasado (p.ej. un callback de ubicación lento) desplaza posiciones.
+ * En ese caso la lista se copia en lugar de modificarse, así las vistas publicadas
+ * con view() nunca ven un arreglo a medio desplazar.
+ */
+public class HabitEventTimeIndex {
+
+    private final HabitEventBuffer buffer;
+    private final SortedPositions all = new SortedPositions();
+    private final SortedPositions[] byType = new SortedPositions[HabitEvent.HabitType.values().length];
+
+    public HabitEventTimeIndex(HabitEventBuffer buffer) {
+        this.buffer = buffer;
+        for (int i = 0; i < byType.length; i++) byType[i] = new SortedPositions();
+        for (int i = 0; i < buffer.size(); i++) add(i);
+    }
+
+    /**
+     * Indexa la posición recién agregada al buffer
+     */
+    public void add(int position) {
+        all.insert(position);
+        byType[buffer.getType(position).ordinal()].insert(position);
+    }
+
+    /**
+     * Vista inmutable del índice tal como está ahora, para consultar sin lock
+     * junto con la vista de columnas del mismo momento
+     */
+    public View view(HabitEventColumns columns) {
+        int[][] typePositions = new int[byType.length][];
+        int[] typeSizes = new int[byType.length];
+        for (int t = 0; t < byType.length; t++) {
+            typePositions[t] = byType[t].positions;
+            typeSizes[t] = byType[t].size;
+        }
+        return new View(columns, all.positions, all.size, typePositions, typeSizes);
+    }
+
+    /** Consultas sobre el índice congelado en un momento dado */
+    public static class View {
+        private final HabitEventColumns columns;
+        private final int[] positions;
+        private final int size;
+        private final int[][] typePositions;
+        private final int[] typeSizes;
+
+        View(HabitEventColumns columns, int[] positions, int size, int[][] typePositions, int[] typeSizes) {
+            this.columns = columns;
+            this.positions = positions;
+            this.size = size;
+            this.typePositions = typePositions;
+            this.typeSizes = typeSizes;
+        }
+
+        /**
+         * Posiciones del buffer con from <= timestamp < to, en orden temporal
+         */
+        public int[] between(long from, long to) {
+            int lo = lowerBound(positions, size, from);
+            int hi = lowerBound(positions, size, to);
+            return hi > lo ? Arrays.copyOfRange(positions, lo, hi) : new int[0];
+        }
+
+        public int countBetween(HabitEvent.HabitType type, long from, long to) {
+            int[] list = typePositions[type.ordinal()];
+            int n = typeSizes[type.ordinal()];
+            return Math.max(0, lowerBound(list, n, to) - lowerBound(list, n, from));
+        }
+
+        /**
+         * Posición del evento más reciente, o -1 si no hay ninguno
+         */
+        public int latest() {
+            return size > 0 ? positions[size - 1] : -1;
+        }
+
+        /**
+         * Posición del evento más reciente del tipo, o -1 si no hay ninguno
+         */
+        public int latest(HabitEvent.HabitType type) {
+            int n = typeSizes[type.ordinal()];
+            return n > 0 ? typePositions[type.ordinal()][n - 1] : -1;
+        }
+
+        /** Primer índice cuyo timestamp es >= ts */
+        private int lowerBound(int[] list, int n, long ts) {
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (columns.getTimestamp(list[mid]) < ts) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /** Lista de posiciones ordenada por el timestamp que tienen en el buffer */
+    private class SortedPositions {
+        int[] positions = new int[64];
+        int size = 0;
+
+        void insert(int position) {
+            long ts = buffer.getTimestamp(position);
+            if (size > 0 && buffer.getTimestamp(positions[size - 1]) > ts) {
+                // Evento atrasado: copia con el hueco ya abierto
+                int at = upperBound(ts);
+                int[] copy = new int[Math.max(positions.length, size + 1)];
+                System.arraycopy(positions, 0, copy, 0, at);
+                copy[at] = position;
+                System.arraycopy(positions, at, copy, at + 1, size - at);
+                positions = copy;
+            } else {
+                if (size == positions.length) positions = Arrays.copyOf(positions, size * 2);
+                positions[size] = position;
+            }
+            size++;
+        }
+
+        /** Primer índice cuyo timestamp es > ts */
+        int upperBound(long ts) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (buffer.getTimestamp(positions[mid]) <= ts) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
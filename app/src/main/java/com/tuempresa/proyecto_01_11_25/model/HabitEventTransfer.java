@@ -0,0 +1,746 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportación e importación del historial de eventos en NDJSON, CSV o GeoJSON.
+ *
+ * Todo pasa por streaming: la exportación recorre el historial página a página
+ * (más los eventos en memoria) y codifica directo a un ByteBuffer directo que se
+ * reutiliza; la importación decodifica del canal con el mismo buffer y escribe al
+ * backend en lotes de PAGE_EVENTS. Nunca se arma la lista completa de eventos.
+ *
+ * Campos: timestamp, type, lat, lng, note (los mismos nombres que el JSON anterior)
+ * y meters; al importar, un archivo sin meters se lee con 0.
+ * <pre>
+ * NDJSON   {"timestamp":..,"type":"WALK","lat":..,"lng":..,"note":"..","meters":..} por línea
+ * CSV      cabecera timestamp,type,lat,lng,note,meters; la nota entre comillas si hace falta
+ * GeoJSON  FeatureCollection de Point [lng, lat] con timestamp, type, note y meters en properties
+ * </pre>
+ * Un evento sin ubicación (lat/lng NaN) lleva lat y lng null en NDJSON, NaN en CSV
+ * y geometry null en GeoJSON.
+ *
+ * Al importar se omiten los eventos con el mismo timestamp y tipo que uno existente
+ * (o uno ya importado), así reimportar un respaldo no duplica nada. Ver ImportDedup:
+ * se compara un lote a la vez contra las páginas de su rango de tiempo, y los
+ * eventos ya expirados por la retención, contra las estadísticas diarias.
+ *
+ * Una instancia no es thread-safe; usarla desde un hilo de fondo.
+ */
+public class HabitEventTransfer {
+
+    public enum Format { NDJSON, CSV, GEOJSON }
+
+    /** Avance de la operación; total = -1 si no se conoce */
+    public interface ProgressListener {
+        void onProgress(long done, long total);
+    }
+
+    public static class ImportResult {
+        public final int imported;
+        public final int duplicates;
+
+        ImportResult(int imported, int duplicates) {
+            this.imported = imported;
+            this.duplicates = duplicates;
+        }
+    }
+
+    /** Recibe cada evento leído del archivo */
+    interface EventVisitor {
+        void onEvent(HabitEvent e) throws IOException;
+    }
+
+    /** Lee una página de historial; un error de lectura corta la exportación */
+    interface PageSource {
+        HabitEventCursor page(int page) throws IOException;
+    }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int TEXT_FLUSH_CHARS = 8 * 1024;
+    private static final int PROGRESS_EVERY = 4096;
+    private static final String CSV_HEADER = "timestamp,type,lat,lng,note,meters";
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder text = new StringBuilder(TEXT_FLUSH_CHARS + 512);
+    private WritableByteChannel out;
+
+    /**
+     * Exporta todo el historial (páginas en disco y eventos en memoria) a un archivo.
+     * Si no se puede leer una página falla con IOException (no deja un archivo incompleto como bueno).
+     *
+     * @return eventos exportados
+     */
+    @WorkerThread
+    public long export(File file, Format format, ProgressListener listener) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file);
+             FileChannel channel = stream.getChannel()) {
+            long count = export(channel, format, listener);
+            channel.force(false);
+            return count;
+        }
+    }
+
+    @WorkerThread
+    public long export(WritableByteChannel channel, Format format, ProgressListener listener) throws IOException {
+        HabitEventSnapshot snapshot = HabitEventStore.snapshot();
+        int pages = HabitEventStore.getHistoryPageCount();
+        // Estimado: las páginas pueden tener menos eventos
+        long total = (long) pages * HabitEventBackend.PAGE_EVENTS + snapshot.size();
+        return export(channel, format, pages, HabitEventStore::loadHistoryPage, snapshot.cursor(), total, listener);
+    }
+
+    /**
+     * Escribe las páginas en orden y después los eventos residentes
+     */
+    long export(WritableByteChannel channel, Format format, int pageCount, PageSource pages,
+                HabitEventCursor resident, long total, ProgressListener listener) throws IOException {
+        out = channel;
+        buffer.clear();
+        encoder.reset();
+        text.setLength(0);
+        long count = 0;
+        try {
+            if (format == Format.CSV) text.append(CSV_HEADER).append('\n');
+            if (format == Format.GEOJSON) text.append("{\"type\":\"FeatureCollection\",\"features\":[\n");
+
+            for (int page = 0; page <= pageCount; page++) {
+                HabitEventCursor c = page < pageCount ? pages.page(page) : resident;
+                while (c.moveToNext()) {
+                    if (format == Format.GEOJSON && count > 0) text.append(",\n");
+                    appendEvent(format, c);
+                    count++;
+                    if (text.length() >= TEXT_FLUSH_CHARS) emitText();
+                    if (listener != null && count % PROGRESS_EVERY == 0) listener.onProgress(count, Math.max(total, count));
+                }
+            }
+
+            if (format == Format.GEOJSON) text.append("\n]}\n");
+            emitText();
+            encoder.encode(CharBuffer.allocate(0), buffer, true);
+            encoder.flush(buffer);
+            drain();
+        } finally {
+            out = null;
+        }
+        if (listener != null) listener.onProgress(count, count);
+        android.util.Log.d("HabitEventTransfer", "Exportados " + count + " eventos (" + format + ")");
+        return count;
+    }
+
+    private void appendEvent(Format format, HabitEventCursor c) {
+        switch (format) {
+            case NDJSON:
+                text.append("{\"timestamp\":").append(c.getTimestamp())
+                        .append(",\"type\":\"").append(c.getType().name())
+                        .append("\",\"lat\":");
+                appendJsonNumber(text, c.getLat());
+                text.append(",\"lng\":");
+                appendJsonNumber(text, c.getLng());
+                text.append(",\"note\":");
+                appendJsonString(text, c.getNote());
+                text.append(",\"meters\":").append(c.getMeters()).append("}\n");
+                break;
+            case CSV:
+                text.append(c.getTimestamp()).append(',').append(c.getType().name()).append(',')
+                        .append(c.getLat()).append(',').append(c.getLng()).append(',');
+                appendCsvField(text, c.getNote());
+                text.append(',').append(c.getMeters()).append('\n');
+                break;
+            case GEOJSON:
+                text.append("{\"type\":\"Feature\",\"geometry\":");
+                if (Double.isNaN(c.getLat()) || Double.isNaN(c.getLng())) {
+                    text.append("null");
+                } else {
+                    text.append("{\"type\":\"Point\",\"coordinates\":[")
+                            .append(c.getLng()).append(',').append(c.getLat()).append("]}");
+                }
+                text.append(",\"properties\":{\"timestamp\":").append(c.getTimestamp())
+                        .append(",\"type\":\"").append(c.getType().name())
+                        .append("\",\"note\":");
+                appendJsonString(text, c.getNote());
+                text.append(",\"meters\":").append(c.getMeters()).append("}}");
+                break;
+        }
+    }
+
+    /** JSON no admite NaN: un evento sin ubicación lleva null */
+    private static void appendJsonNumber(StringBuilder out, double value) {
+        if (Double.isNaN(value)) out.append("null");
+        else out.append(value);
+    }
+
+    /** Codifica el texto acumulado al buffer directo, vaciándolo al canal cuando se llena */
+    private void emitText() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (encoder.encode(chars, buffer, false).isOverflow()) drain();
+        text.setLength(0);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Importa un archivo al store, omitiendo duplicados por timestamp + tipo.
+     * Si un registro es inválido, o no se puede leer una página del historial
+     * para deduplicar, se detiene con IOException; lo importado hasta ahí se
+     * conserva y reintentar no lo duplica.
+     */
+    @WorkerThread
+    public ImportResult importFrom(File file, Format format, ProgressListener listener) throws IOException {
+        try (FileInputStream stream = new FileInputStream(file);
+             FileChannel channel = stream.getChannel()) {
+            return importFrom(channel, channel.size(), format, listener);
+        }
+    }
+
+    /**
+     * @param totalBytes tamaño del contenido para el progreso, o -1 si no se conoce
+     */
+    @WorkerThread
+    public ImportResult importFrom(ReadableByteChannel channel, long totalBytes, Format format,
+                                   ProgressListener listener) throws IOException {
+        long cutoff = System.currentTimeMillis() - HabitEventStore.getRetentionPolicy().rawRetentionMs;
+        ImportDedup dedup = new ImportDedup(storeHistory(), cutoff);
+        List<HabitEvent> batch = new ArrayList<>(HabitEventBackend.PAGE_EVENTS);
+        int[] counts = new int[2]; // importados, duplicados
+        try {
+            parse(channel, format, e -> {
+                batch.add(e);
+                if (batch.size() == HabitEventBackend.PAGE_EVENTS) appendNew(dedup, batch, counts);
+            }, totalBytes, listener);
+            appendNew(dedup, batch, counts);
+        } finally {
+            if (counts[0] > 0) HabitEventStore.reloadRecent();
+        }
+        android.util.Log.d("HabitEventTransfer", "Importados " + counts[0] + " eventos, "
+                + counts[1] + " duplicados omitidos (" + format + ")");
+        return new ImportResult(counts[0], counts[1]);
+    }
+
+    private static void appendNew(ImportDedup dedup, List<HabitEvent> batch, int[] counts) throws IOException {
+        counts[1] += dedup.filter(batch);
+        if (!batch.isEmpty()) {
+            HabitEventStore.appendBulk(batch);
+            counts[0] += batch.size();
+        }
+        batch.clear();
+    }
+
+    /**
+     * El store como History. Las estadísticas no cambian durante la importación
+     * (appendBulk no toca la memoria hasta reloadRecent()), así que countOnDay()
+     * ve solo lo que había antes.
+     */
+    private static History storeHistory() {
+        HabitEventSnapshot snapshot = HabitEventStore.snapshot();
+        int pages = HabitEventStore.getHistoryPageCount();
+        return new History() {
+            @Override
+            public int pageCount() {
+                return pages;
+            }
+
+            @Override
+            public HabitEventCursor page(int page) throws IOException {
+                return HabitEventStore.loadHistoryPage(page);
+            }
+
+            @Override
+            public HabitEventCursor residentBetween(long from, long to) {
+                return snapshot.eventsBetween(from, to);
+            }
+
+            @Override
+            public int countOnDay(HabitEvent.HabitType type, int epochDay) {
+                return HabitEventStore.countOnDay(type, epochDay);
+            }
+        };
+    }
+
+    /** timestamp y tipo en un long: el tipo ocupa los 3 bits bajos */
+    static long key(long timestamp, int typeOrdinal) {
+        return (timestamp << 3) | typeOrdinal;
+    }
+
+    /**
+     * Decodifica el canal y entrega cada evento
+     *
+     * @return eventos leídos
+     */
+    int parse(ReadableByteChannel channel, Format format, EventVisitor visitor,
+              long totalBytes, ProgressListener listener) throws IOException {
+        ChannelReader reader = new ChannelReader(channel);
+        int[] count = {0};
+        EventVisitor counting = e -> {
+            visitor.onEvent(e);
+            if (++count[0] % PROGRESS_EVERY == 0 && listener != null) listener.onProgress(reader.bytesRead, totalBytes);
+        };
+        try {
+            switch (format) {
+                case CSV:
+                    parseCsv(new BufferedReader(reader), counting);
+                    break;
+                case NDJSON:
+                    parseNdjson(new JsonReader(reader), counting);
+                    break;
+                case GEOJSON:
+                    parseGeoJson(new JsonReader(reader), counting);
+                    break;
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Tipo desconocido, número inválido o JSON mal formado
+            throw new IOException("Registro inválido después de " + count[0] + " eventos", e);
+        }
+        if (listener != null) listener.onProgress(reader.bytesRead, totalBytes < 0 ? reader.bytesRead : totalBytes);
+        return count[0];
+    }
+
+    private void parseNdjson(JsonReader json, EventVisitor visitor) throws IOException {
+        json.setLenient(true); // Varios valores de primer nivel, uno por línea
+        while (json.peek() != JsonToken.END_DOCUMENT) {
+            visitor.onEvent(HabitEventStore.readLegacyEvent(json));
+        }
+    }
+
+    private void parseGeoJson(JsonReader json, EventVisitor visitor) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            if (!"features".equals(json.nextName())) {
+                json.skipValue();
+                continue;
+            }
+            json.beginArray();
+            while (json.hasNext()) visitor.onEvent(readFeature(json));
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private static HabitEvent readFeature(JsonReader json) throws IOException {
+        double lat = 0;
+        double lng = 0;
+        long timestamp = System.currentTimeMillis();
+        HabitEvent.HabitType type = null;
+        String note = "";
+        int meters = 0;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("geometry".equals(name) && json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                lat = Double.NaN;
+                lng = Double.NaN;
+            } else if ("geometry".equals(name)) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if ("coordinates".equals(json.nextName())) {
+                        json.beginArray();
+                        lng = json.nextDouble();
+                        lat = json.nextDouble();
+                        while (json.hasNext()) json.skipValue(); // Altitud
+                        json.endArray();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else if ("properties".equals(name)) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "timestamp": timestamp = json.nextLong(); break;
+                        case "type": type = HabitEvent.HabitType.valueOf(json.nextString()); break;
+                        case "note": note = json.nextString(); break;
+                        case "meters": meters = json.nextInt(); break;
+                        default: json.skipValue(); break;
+                    }
+                }
+                json.endObject();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (type == null) throw new IllegalArgumentException("Feature sin tipo");
+        return new HabitEvent(lat, lng, note, type, timestamp, meters);
+    }
+
+    private void parseCsv(BufferedReader reader, EventVisitor visitor) throws IOException {
+        List<String> fields = new ArrayList<>(6);
+        boolean first = true;
+        while (readCsvRecord(reader, fields)) {
+            if (first) {
+                first = false;
+                if ("timestamp".equals(fields.get(0))) continue; // Cabecera
+            }
+            if (fields.size() < 5) throw new IllegalArgumentException("Faltan columnas: " + fields);
+            visitor.onEvent(new HabitEvent(
+                    Double.parseDouble(fields.get(2)),
+                    Double.parseDouble(fields.get(3)),
+                    fields.get(4),
+                    HabitEvent.HabitType.valueOf(fields.get(1)),
+                    Long.parseLong(fields.get(0)),
+                    fields.size() > 5 ? Integer.parseInt(fields.get(5)) : 0));
+        }
+    }
+
+    /**
+     * Lee un registro CSV (RFC 4180: comillas dobles, "" dentro de comillas,
+     * saltos de línea dentro de un campo entre comillas)
+     *
+     * @return false al final del archivo
+     */
+    private boolean readCsvRecord(BufferedReader reader, List<String> fields) throws IOException {
+        fields.clear();
+        text.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (quoted) {
+                if (c != '"') {
+                    text.append((char) c);
+                    continue;
+                }
+                reader.mark(1);
+                int next = reader.read();
+                if (next == '"') {
+                    text.append('"');
+                } else {
+                    quoted = false;
+                    if (next >= 0) reader.reset();
+                }
+            } else if (c == '"') {
+                quoted = true;
+                any = true;
+            } else if (c == ',') {
+                fields.add(text.toString());
+                text.setLength(0);
+                any = true;
+            } else if (c == '\n') {
+                if (any) break;
+                // Línea vacía: se ignora
+            } else if (c != '\r') {
+                text.append((char) c);
+                any = true;
+            }
+        }
+        if (!any) return false;
+        fields.add(text.toString());
+        return true;
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xf, 16));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void appendCsvField(StringBuilder sb, String s) {
+        if (s == null) return;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Reader que decodifica UTF-8 del canal usando el buffer directo de la instancia
+     */
+    private final class ChannelReader extends Reader {
+        private final ReadableByteChannel in;
+        private boolean endOfInput = false;
+        private boolean done = false;
+        long bytesRead = 0;
+
+        ChannelReader(ReadableByteChannel in) {
+            this.in = in;
+            buffer.clear();
+            buffer.flip(); // Vacío, listo para leer
+            decoder.reset();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (done) return -1;
+            CharBuffer target = CharBuffer.wrap(cbuf, off, len);
+            while (true) {
+                CoderResult result = decoder.decode(buffer, target, endOfInput);
+                if (result.isError()) result.throwException();
+                if (target.position() > off) return target.position() - off;
+                if (endOfInput) {
+                    decoder.flush(target);
+                    done = true;
+                    return target.position() > off ? target.position() - off : -1;
+                }
+                buffer.compact();
+                int n = in.read(buffer);
+                buffer.flip();
+                if (n < 0) endOfInput = true;
+                else bytesRead += n;
+            }
+        }
+
+        @Override
+        public void close() {
+            // El canal lo cierra quien lo abrió
+        }
+    }
+
+    /** Lo que la deduplicación lee del store */
+    interface History {
+        /** Páginas de historial en disco (fijo durante la importación) */
+        int pageCount();
+
+        HabitEventCursor page(int page) throws IOException;
+
+        /** Eventos en memoria con timestamp en [from, to) */
+        HabitEventCursor residentBetween(long from, long to);
+
+        /** Conteo diario de las estadísticas, que incluye lo expirado */
+        int countOnDay(HabitEvent.HabitType type, int epochDay);
+    }
+
+    /**
+     * Deduplica la importación un lote a la vez, con memoria acotada por el lote.
+     *
+     * Al crearla recorre las páginas una vez y guarda solo el rango de tiempo de
+     * cada una. Por cada lote carga las claves de las páginas (y de los eventos
+     * en memoria) que se solapan con el rango del lote; los archivos exportados
+     * vienen en orden de tiempo, así que cada página se lee una o dos veces.
+     * Las claves aceptadas del lote anterior se conservan para los empates en el
+     * borde; repeticiones lejanas dentro de un archivo desordenado no se detectan.
+     *
+     * De los días hasta el corte de la retención quedan los conteos diarios pero
+     * no todos los eventos crudos. Por día y tipo, lo expirado es el conteo menos
+     * los eventos crudos que quedan; los eventos del archivo de ese día que no
+     * coinciden con uno crudo se cuentan y solo se aceptan los que pasan de lo
+     * expirado (los primeros se toman como los mismos que ya están contados).
+     */
+    static final class ImportDedup {
+        private final History history;
+        private final int cutoffDay;
+        private final long[] pageBounds; // [2p] = timestamp mínimo, [2p + 1] = máximo
+        private final Map<Long, Integer> rawCounts = new HashMap<>(); // Día y tipo hasta cutoffDay → eventos crudos
+        private final Map<Long, Integer> expiredLeft = new HashMap<>(); // Día y tipo → expirados aún sin emparejar
+        private KeySet previous = new KeySet(0);
+
+        ImportDedup(History history, long cutoff) throws IOException {
+            this.history = history;
+            this.cutoffDay = HabitEventAggregates.epochDay(cutoff);
+            int pages = history.pageCount();
+            pageBounds = new long[pages * 2];
+            for (int page = 0; page < pages; page++) {
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                HabitEventCursor c = history.page(page);
+                while (c.moveToNext()) {
+                    min = Math.min(min, c.getTimestamp());
+                    max = Math.max(max, c.getTimestamp());
+                    countRaw(c);
+                }
+                pageBounds[page * 2] = min;
+                pageBounds[page * 2 + 1] = max;
+            }
+            HabitEventCursor c = history.residentBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+            while (c.moveToNext()) countRaw(c);
+        }
+
+        private void countRaw(HabitEventCursor c) {
+            int day = HabitEventAggregates.epochDay(c.getTimestamp());
+            if (day > cutoffDay) return;
+            rawCounts.merge(dayKey(day, c.getType().ordinal()), 1, Integer::sum);
+        }
+
+        /**
+         * Deja en el lote solo los eventos nuevos, en su orden
+         *
+         * @return eventos omitidos
+         */
+        int filter(List<HabitEvent> batch) throws IOException {
+            if (batch.isEmpty()) return 0;
+            long from = Long.MAX_VALUE;
+            long to = Long.MIN_VALUE;
+            for (HabitEvent e : batch) {
+                from = Math.min(from, e.getTimestamp());
+                to = Math.max(to, e.getTimestamp());
+            }
+
+            KeySet existing = new KeySet(batch.size());
+            for (int page = 0; page * 2 < pageBounds.length; page++) {
+                if (pageBounds[page * 2 + 1] < from || pageBounds[page * 2] > to) continue;
+                addKeys(existing, history.page(page), from, to);
+            }
+            addKeys(existing, history.residentBetween(from, to + 1), from, to);
+
+            KeySet accepted = new KeySet(batch.size());
+            int kept = 0;
+            for (HabitEvent e : batch) {
+                long key = key(e.getTimestamp(), e.getType().ordinal());
+                if (existing.contains(key) || previous.contains(key) || accepted.contains(key)
+                        || matchesExpired(e)) {
+                    continue;
+                }
+                accepted.add(key);
+                batch.set(kept++, e);
+            }
+            int skipped = batch.size() - kept;
+            batch.subList(kept, batch.size()).clear();
+            previous = accepted;
+            return skipped;
+        }
+
+        /**
+         * true si el evento (que no coincide con uno crudo) corresponde a uno ya
+         * expirado de su día y tipo; cada expirado se empareja una sola vez
+         */
+        private boolean matchesExpired(HabitEvent e) {
+            int day = HabitEventAggregates.epochDay(e.getTimestamp());
+            if (day > cutoffDay) return false;
+            long dayKey = dayKey(day, e.getType().ordinal());
+            Integer left = expiredLeft.get(dayKey);
+            if (left == null) {
+                Integer raw = rawCounts.get(dayKey);
+                left = history.countOnDay(e.getType(), day) - (raw != null ? raw : 0);
+            }
+            if (left <= 0) {
+                expiredLeft.put(dayKey, 0);
+                return false;
+            }
+            expiredLeft.put(dayKey, left - 1);
+            return true;
+        }
+
+        private static long dayKey(int epochDay, int typeOrdinal) {
+            return ((long) epochDay << 3) | typeOrdinal;
+        }
+
+        private static void addKeys(KeySet keys, HabitEventCursor c, long from, long to) {
+            while (c.moveToNext()) {
+                long t = c.getTimestamp();
+                if (t >= from && t <= to) keys.add(key(t, c.getType().ordinal()));
+            }
+        }
+    }
+
+    /**
+     * Set de long con direccionamiento abierto (sin objetos por clave)
+     */
+    static class KeySet {
+        private static final long EMPTY = Long.MIN_VALUE;
+        private long[] slots;
+        private int size = 0;
+
+        KeySet(long expected) {
+            int capacity = 16;
+            while (capacity < expected * 2 && capacity < (1 << 30)) capacity <<= 1;
+            slots = new long[capacity];
+            Arrays.fill(slots, EMPTY);
+        }
+
+        /** @return false si ya estaba */
+        boolean add(long key) {
+            if (size * 4L >= slots.length * 3L) grow();
+            int mask = slots.length - 1;
+            int i = mix(key) & mask;
+            while (slots[i] != EMPTY) {
+                if (slots[i] == key) return false;
+                i = (i + 1) & mask;
+            }
+            slots[i] = key;
+            size++;
+            return true;
+        }
+
+        boolean contains(long key) {
+            int mask = slots.length - 1;
+            int i = mix(key) & mask;
+            while (slots[i] != EMPTY) {
+                if (slots[i] == key) return true;
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            Arrays.fill(slots, EMPTY);
+            size = 0;
+            for (long key : old) if (key != EMPTY) add(key);
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escritor en segundo plano (write-behind) para el backend de eventos.
+ * add() solo encola; un único hilo agrupa los eventos pendientes y los escribe
+ * juntos (group commit) cuando se llena el lote o vence el retardo máximo.
+ * El mismo hilo ejecuta la compactación, así nunca compite con una escritura.
+ *
+ * Si un lote falla (disco lleno, SQLiteException) vuelve al frente de la cola y se
+ * reintenta con espera exponencial; mientras tanto flush() devuelve false.
+ * Un lote grande (appendBulk) se escribe después de los eventos encolados antes que él.
+ */
+public class HabitEventWriter {
+
+    /**
+     * Política de commit: se escribe al juntar maxBatchSize eventos
+     * o cuando el evento más antiguo lleva maxDelayMs esperando.
+     */
+    public static class CommitPolicy {
+        public static final CommitPolicy DEFAULT = new CommitPolicy(32, 500);
+
+        public final int maxBatchSize;
+        public final long maxDelayMs;
+
+        public CommitPolicy(int maxBatchSize, long maxDelayMs) {
+            if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize debe ser >= 1");
+            if (maxDelayMs < 0) throw new IllegalArgumentException("maxDelayMs debe ser >= 0");
+            this.maxBatchSize = maxBatchSize;
+            this.maxDelayMs = maxDelayMs;
+        }
+    }
+
+    private static final long RETRY_MIN_MS = 100;
+    private static final long RETRY_MAX_MS = 30_000;
+
+    /**
+     * Recibe el corte de cada compactación que aplicó la retención, para
+     * aplicarla también a datos asociados a los eventos (los recorridos)
+     */
+    public interface CompactionListener {
+        void onCompacted(long cutoff);
+    }
+
+    private final HabitEventBackend backend;
+    private final Object lock = new Object();
+    private final ArrayDeque<HabitEvent> pending = new ArrayDeque<>();
+    private final Thread thread;
+
+    private volatile CommitPolicy policy;
+    private volatile HabitEventBackend.RetentionPolicy retention;
+    private volatile CompactionListener compactionListener;
+    private long oldestPendingAt = 0;
+    private long enqueuedSeq = 0;   // eventos encolados desde el inicio
+    private long committedSeq = 0;  // eventos ya escritos (o descartados por clear)
+    private long failures = 0;      // lotes que fallaron desde el inicio
+    private long retryDelayMs = 0;  // 0 = el último lote se escribió bien
+    private long retryAt = 0;
+    private boolean commitNow = false;
+    private boolean clearRequested = false;
+    private boolean compactRequested = false;
+    private List<HabitEvent> bulk;          // Lote grande esperando al hilo (appendBulk)
+    private long bulkAfterSeq = 0;          // Eventos encolados antes del lote grande: van primero
+    private long bulkRequested = 0;
+    private long bulkWritten = 0;
+    private IOException bulkError;
+
+    public HabitEventWriter(HabitEventBackend backend, CommitPolicy policy,
+                            HabitEventBackend.RetentionPolicy retention) {
+        this.backend = backend;
+        this.policy = policy;
+        this.retention = retention;
+        this.thread = new Thread(this::run, "HabitEventWriter");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread.start();
+    }
+
+    public void setPolicy(CommitPolicy policy) {
+        this.policy = policy;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Cambia la retención; se aplica en la próxima compactación
+     */
+    public void setRetentionPolicy(HabitEventBackend.RetentionPolicy retention) {
+        this.retention = retention;
+        requestCompaction();
+    }
+
+    public void setCompactionListener(CompactionListener listener) {
+        this.compactionListener = listener;
+    }
+
+    /**
+     * Pide una compactación (retención + snapshots) en el hilo escritor
+     */
+    public void requestCompaction() {
+        synchronized (lock) {
+            compactRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Encola un evento. Nunca bloquea en disco.
+     */
+    public void enqueue(HabitEvent e) {
+        synchronized (lock) {
+            if (pending.isEmpty()) oldestPendingAt = System.currentTimeMillis();
+            pending.add(e);
+            enqueuedSeq++;
+            // El primero arranca el reloj del retardo; el que completa el lote dispara el commit
+            if (pending.size() == 1 || pending.size() >= policy.maxBatchSize) lock.notifyAll();
+        }
+    }
+
+    /**
+     * Pide escribir ya lo pendiente sin esperar el retardo, sin bloquear al llamador
+     * (p.ej. cuando la app pasa a segundo plano).
+     */
+    public void requestCommit() {
+        synchronized (lock) {
+            commitNow = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Escribe todo lo encolado hasta ahora y espera a que termine.
+     *
+     * @return true si se completó antes del timeout; false también si un lote
+     * falló mientras se esperaba (queda encolado para reintentar)
+     */
+    public boolean flush(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (lock) {
+            long target = enqueuedSeq;
+            long failuresBefore = failures;
+            commitNow = true;
+            lock.notifyAll();
+            while (committedSeq < target) {
+                if (failures != failuresBefore) return false;
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Escribe un lote grande (p.ej. una importación) como un solo commit en el
+     * hilo escritor y espera a que termine. No llamar desde el hilo principal.
+     * Antes escribe lo encolado hasta ahora; si eso falla, el lote grande no se
+     * escribe y se lanza el mismo error (lo encolado queda para reintentar).
+     */
+    public void appendBulk(List<HabitEvent> events) throws IOException {
+        synchronized (lock) {
+            try {
+                while (bulk != null) lock.wait();
+                bulk = events;
+                bulkAfterSeq = enqueuedSeq;
+                long ticket = ++bulkRequested;
+                lock.notifyAll();
+                while (bulkWritten < ticket) lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Escritura interrumpida", e);
+            }
+            IOException error = bulkError;
+            bulkError = null;
+            if (error != null) throw error;
+        }
+    }
+
+    /**
+     * Descarta lo pendiente y vacía el backend en orden con los lotes ya tomados,
+     * así ningún evento anterior al clear() reaparece después.
+     */
+    public void clear() {
+        synchronized (lock) {
+            committedSeq += pending.size();
+            pending.clear();
+            clearRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        List<HabitEvent> batch = new ArrayList<>();
+        while (true) {
+            boolean doClear;
+            boolean doCompact;
+            boolean isBulk = false;
+            boolean beforeBulk = false;
+            IOException error = null;
+            synchronized (lock) {
+                try {
+                    waitForWork();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                doClear = clearRequested;
+                clearRequested = false;
+                if (!doClear && bulk != null && committedSeq >= bulkAfterSeq) {
+                    batch.addAll(bulk);
+                    bulk = null;
+                    isBulk = true;
+                } else if (!doClear && (bulk != null || commitReady())) {
+                    // Con un lote grande esperando se escribe ya lo encolado antes que él
+                    beforeBulk = bulk != null;
+                    int n = Math.min(pending.size(), policy.maxBatchSize);
+                    if (beforeBulk) n = (int) Math.min(n, bulkAfterSeq - committedSeq);
+                    for (int i = 0; i < n; i++) batch.add(pending.poll());
+                    if (pending.isEmpty()) commitNow = false;
+                    else oldestPendingAt = System.currentTimeMillis();
+                }
+                doCompact = compactRequested && batch.isEmpty() && !doClear;
+                if (doCompact) compactRequested = false;
+            }
+
+            try {
+                if (doClear) {
+                    backend.clear();
+                } else if (!batch.isEmpty() && backend.appendAll(batch)) {
+                    // El backend pide compactar (p.ej. se selló un segmento) cuando no haya lotes esperando
+                    synchronized (lock) {
+                        compactRequested = true;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // RuntimeException: SQLiteException del backend SQLite; el hilo debe seguir vivo
+                android.util.Log.e("HabitEventWriter", "Error al escribir lote de " + batch.size() + " eventos", e);
+                if (!doClear) error = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+            boolean failed = error != null;
+            if (doCompact) {
+                try {
+                    HabitEventBackend.RetentionPolicy r = retention;
+                    long now = System.currentTimeMillis();
+                    backend.compact(r, now);
+                    CompactionListener listener = compactionListener;
+                    if (listener != null && r.rawRetentionMs < now) listener.onCompacted(now - r.rawRetentionMs);
+                } catch (IOException | RuntimeException e) {
+                    android.util.Log.e("HabitEventWriter", "Error al compactar", e);
+                }
+            }
+
+            synchronized (lock) {
+                if (isBulk) {
+                    bulkError = error;
+                    bulkWritten++; // El error vuelve a quien llamó a appendBulk
+                } else if (failed && !clearRequested) {
+                    retryLater(batch);
+                    if (beforeBulk && bulk != null) {
+                        // Lo anterior no se escribió: el lote grande no puede ir delante
+                        bulk = null;
+                        bulkError = error;
+                        bulkWritten++;
+                    }
+                } else {
+                    // Tras un clear() pedido durante la escritura, el lote fallido se descarta
+                    committedSeq += batch.size();
+                    if (!batch.isEmpty()) retryDelayMs = 0;
+                }
+                lock.notifyAll();
+            }
+            if (!batch.isEmpty() && !failed) {
+                android.util.Log.d("HabitEventWriter", "Lote escrito: " + batch.size() + " eventos");
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Con el lock tomado: devuelve el lote al frente de la cola, en orden, y
+     * duplica la espera antes del próximo intento
+     */
+    private void retryLater(List<HabitEvent> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) pending.addFirst(batch.get(i));
+        commitNow = true; // Se reintenta al vencer la espera, sin esperar a que se llene otro lote
+        failures++;
+        retryDelayMs = retryDelayMs == 0 ? RETRY_MIN_MS : Math.min(retryDelayMs * 2, RETRY_MAX_MS);
+        retryAt = System.currentTimeMillis() + retryDelayMs;
+    }
+
+    private boolean commitReady() {
+        if (pending.isEmpty()) return false;
+        if (System.currentTimeMillis() < retryAt) return false;
+        CommitPolicy p = policy;
+        return commitNow || pending.size() >= p.maxBatchSize
+                || System.currentTimeMillis() - oldestPendingAt >= p.maxDelayMs;
+    }
+
+    /**
+     * Espera (con el lock tomado) hasta que haya un lote listo, un clear
+     * o una compactación pendiente
+     */
+    private void waitForWork() throws InterruptedException {
+        while (true) {
+            if (clearRequested || compactRequested || bulk != null || commitReady()) return;
+            if (!pending.isEmpty()) {
+                long wakeAt = commitNow ? retryAt : Math.max(oldestPendingAt + policy.maxDelayMs, retryAt);
+                lock.wait(Math.max(1, wakeAt - System.currentTimeMillis()));
+            } else {
+                lock.wait();
+            }
+        }
+    }
+}
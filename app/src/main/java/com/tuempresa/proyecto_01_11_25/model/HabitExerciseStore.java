@@ -0,0 +1,92 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Métricas de cada serie de ejercicio (ExerciseSet), asociadas por el timestamp
+ * del evento EXERCISE. Van aparte, como los recorridos (HabitRouteStore): el
+ * evento lleva una nota fija y las métricas no llenan el diccionario de notas.
+ * Siguen la retención de los eventos crudos (prune()) y se borran con ellos (clear()).
+ */
+public class HabitExerciseStore {
+
+    private static final String EXERCISE_FILE = "habit_exercise.bin";
+
+    private static HabitExerciseStore shared;
+
+    /** Recibe cada serie guardada */
+    public interface SetVisitor {
+        void onSet(long eventTimestamp, ExerciseSet set);
+    }
+
+    private final EventRecordFile records;
+
+    public HabitExerciseStore(File file) {
+        records = new EventRecordFile(file, ExerciseSet.BYTES, "HabitExerciseStore");
+    }
+
+    /**
+     * Instancia del proceso sobre el archivo de la app
+     */
+    public static synchronized HabitExerciseStore get(Context ctx) {
+        if (shared == null) {
+            shared = new HabitExerciseStore(new File(ctx.getApplicationContext().getFilesDir(), EXERCISE_FILE));
+        }
+        return shared;
+    }
+
+    /**
+     * Guarda la serie en segundo plano
+     */
+    public void putAsync(long eventTimestamp, ExerciseSet set) {
+        records.runAsync("guardar serie", () -> put(eventTimestamp, set));
+    }
+
+    /**
+     * Quita en segundo plano las series de eventos anteriores a cutoff
+     */
+    public void pruneAsync(long cutoff) {
+        records.runAsync("aplicar la retención a las series", () -> prune(cutoff));
+    }
+
+    /**
+     * Borra en segundo plano todas las series, también las de putAsync() pendientes
+     */
+    public void clearAsync() {
+        records.runAsync("borrar las series", this::clear);
+    }
+
+    public void put(long eventTimestamp, ExerciseSet set) throws IOException {
+        records.put(eventTimestamp, set.toBytes());
+    }
+
+    /**
+     * @return la serie del evento, o null si no tiene
+     */
+    public ExerciseSet get(long eventTimestamp) throws IOException {
+        byte[] bytes = records.get(eventTimestamp);
+        return bytes != null ? ExerciseSet.fromBytes(bytes) : null;
+    }
+
+    /**
+     * Recorre todas las series con una sola apertura (para el mapa)
+     */
+    public void forEach(SetVisitor visitor) throws IOException {
+        records.forEach((timestamp, bytes) -> visitor.onSet(timestamp, ExerciseSet.fromBytes(bytes)));
+    }
+
+    public int prune(long cutoff) throws IOException {
+        return records.prune(cutoff);
+    }
+
+    public void clear() throws IOException {
+        records.clear();
+    }
+
+    public int size() throws IOException {
+        return records.size();
+    }
+}
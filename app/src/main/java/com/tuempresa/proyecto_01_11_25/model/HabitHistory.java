@@ -0,0 +1,158 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Historial de cumplimiento de cada hábito: un DayBitmap por hábito (por título)
+ * con los días en que se completó. De ahí salen el estado de hoy, las rachas y
+ * la tasa de cumplimiento de cualquier rango.
+ *
+ * Se guarda completo en un archivo pequeño (pocos KB aun con años de historial
+ * de decenas de hábitos), reescrito de forma atómica con temporal + rename.
+ * saveAsync() lo escribe desde un hilo de fondo, como HabitRepository: varios
+ * cambios seguidos se escriben una sola vez.
+ */
+public class HabitHistory {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "HabitHistory");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File file;
+    private final Map<String, DayBitmap> days = new HashMap<>();
+    private boolean savePending = false;
+
+    public HabitHistory(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Lee el archivo si existe. Un archivo ilegible se descarta (empieza vacío).
+     */
+    public synchronized void load() {
+        days.clear();
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) throw new IOException("Versión de historial desconocida: " + version);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String habit = in.readUTF();
+                days.put(habit, DayBitmap.read(in));
+            }
+        } catch (IOException e) {
+            android.util.Log.e("HabitHistory", "Historial ilegible, se descarta", e);
+            days.clear();
+        }
+    }
+
+    /**
+     * Programa una escritura en segundo plano. Si ya hay una pendiente, esa
+     * escribirá también este cambio (copia el historial al ejecutarse).
+     */
+    public synchronized void saveAsync() {
+        if (savePending) return;
+        savePending = true;
+        io.execute(() -> {
+            try {
+                save();
+            } catch (IOException e) {
+                android.util.Log.e("HabitHistory", "Error al guardar el historial", e);
+            }
+        });
+    }
+
+    /**
+     * Escribe el historial y espera al disco. El lock del historial se toma solo
+     * para copiarlo a memoria: las consultas no esperan al fsync.
+     */
+    public void save() throws IOException {
+        synchronized (file) { // Una escritura a la vez, en el orden de las copias
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            synchronized (this) {
+                savePending = false;
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(days.size());
+                for (Map.Entry<String, DayBitmap> entry : days.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (FileOutputStream fileOut = new FileOutputStream(tmp)) {
+                bytes.writeTo(fileOut);
+                fileOut.getChannel().force(false);
+            }
+            if (!tmp.renameTo(file)) throw new IOException("No se pudo renombrar " + tmp + " a " + file);
+        }
+    }
+
+    public synchronized void setCompleted(String habit, int epochDay, boolean completed) {
+        DayBitmap bitmap = days.get(habit);
+        if (bitmap == null) {
+            if (!completed) return;
+            bitmap = new DayBitmap();
+            days.put(habit, bitmap);
+        }
+        bitmap.set(epochDay, completed);
+    }
+
+    public synchronized boolean isCompleted(String habit, int epochDay) {
+        DayBitmap bitmap = days.get(habit);
+        return bitmap != null && bitmap.contains(epochDay);
+    }
+
+    /**
+     * Días seguidos cumplidos hasta hoy. Si hoy todavía no se cumplió la racha
+     * sigue viva y se cuenta hasta ayer.
+     */
+    public synchronized int currentStreak(String habit, int today) {
+        DayBitmap bitmap = days.get(habit);
+        if (bitmap == null) return 0;
+        return bitmap.contains(today) ? bitmap.runEndingAt(today) : bitmap.runEndingAt(today - 1);
+    }
+
+    /**
+     * Racha más larga en los días [fromDay, toDay)
+     */
+    public synchronized int longestStreak(String habit, int fromDay, int toDay) {
+        DayBitmap bitmap = days.get(habit);
+        return bitmap != null ? bitmap.longestRun(fromDay, toDay) : 0;
+    }
+
+    /**
+     * Fracción de días cumplidos en [fromDay, toDay), entre 0 y 1
+     */
+    public synchronized double completionRate(String habit, int fromDay, int toDay) {
+        DayBitmap bitmap = days.get(habit);
+        return bitmap != null ? bitmap.completionRate(fromDay, toDay) : 0;
+    }
+
+    /**
+     * Días cumplidos en [fromDay, toDay)
+     */
+    public synchronized int completedDays(String habit, int fromDay, int toDay) {
+        DayBitmap bitmap = days.get(habit);
+        return bitmap != null ? bitmap.cardinality(fromDay, toDay) : 0;
+    }
+
+    public synchronized void clear() {
+        days.clear();
+    }
+}
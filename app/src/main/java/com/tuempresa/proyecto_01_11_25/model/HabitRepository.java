@@ -0,0 +1,179 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Repositorio único de hábitos: los predeterminados más los creados por el usuario.
+ *
+ * Los hábitos viven en memoria; la lista publicada no se modifica (se reemplaza en
+ * cada cambio), así se lee sin lock desde cualquier hilo. Hacia afuera se entregan
+ * copias: el estado de completado de cada pantalla no toca las instancias compartidas. Los nombres se indexan
+ * sin distinguir mayúsculas, así comprobar duplicados es O(1).
+ *
+ * Los hábitos del usuario se guardan en HabitusPrefs/habits (mismo JSON que antes)
+ * desde un hilo de fondo; varios cambios seguidos se escriben una sola vez.
+ * Los listeners se notifican en el hilo principal.
+ */
+public class HabitRepository {
+    private static final String PREFS_NAME = "HabitusPrefs";
+    private static final String KEY_HABITS = "habits";
+
+    /** Recibe la lista completa tras cada cambio, en el hilo principal */
+    public interface Listener {
+        void onHabitsChanged(List<Habit> habits);
+    }
+
+    private static volatile List<Habit> habits = Collections.emptyList();
+    private static final Map<String, Habit> byName = new HashMap<>();
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "HabitRepository");
+        t.setDaemon(true);
+        return t;
+    });
+    private static SharedPreferences prefs;
+    private static Handler mainHandler;
+    private static boolean persistPending = false;
+
+    /**
+     * Carga los hábitos una sola vez por proceso; las llamadas siguientes no hacen nada
+     */
+    public static synchronized void init(Context ctx) {
+        if (prefs != null) return;
+        prefs = ctx.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mainHandler = new Handler(Looper.getMainLooper());
+
+        List<Habit> loaded = new ArrayList<>();
+        for (Habit h : Habit.defaultHabits()) addToIndex(loaded, h);
+        String json = prefs.getString(KEY_HABITS, null);
+        if (json != null) {
+            try {
+                JSONArray array = new JSONArray(json);
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject o = array.getJSONObject(i);
+                    addToIndex(loaded, new Habit(o.getString("name"), o.optString("goal", ""),
+                            o.optString("period", "diario"), o.optString("type", "general"), Habit.HabitType.CUSTOM));
+                }
+            } catch (JSONException e) {
+                android.util.Log.e("HabitRepository", "Hábitos guardados ilegibles", e);
+            }
+        }
+        habits = Collections.unmodifiableList(loaded);
+        android.util.Log.d("HabitRepository", "Hábitos cargados: " + loaded.size());
+    }
+
+    /**
+     * Copia de todos los hábitos, predeterminados primero y luego en orden de creación
+     */
+    public static List<Habit> all() {
+        return copies(habits);
+    }
+
+    /**
+     * true si ya hay un hábito con ese nombre (sin distinguir mayúsculas)
+     */
+    public static synchronized boolean contains(String name) {
+        return byName.containsKey(key(name));
+    }
+
+    /**
+     * Agrega un hábito creado por el usuario
+     *
+     * @return false si ya existe uno con ese nombre
+     */
+    public static synchronized boolean add(Habit habit) {
+        if (prefs == null) throw new IllegalStateException("HabitRepository no inicializado");
+        List<Habit> next = new ArrayList<>(habits);
+        if (!addToIndex(next, habit)) return false;
+        habits = Collections.unmodifiableList(next);
+        schedulePersist();
+        notifyListeners(copies(habits));
+        android.util.Log.d("HabitRepository", "Hábito agregado: " + habit.getTitle());
+        return true;
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static boolean addToIndex(List<Habit> list, Habit habit) {
+        String key = key(habit.getTitle());
+        if (byName.containsKey(key)) return false;
+        byName.put(key, habit);
+        list.add(habit);
+        return true;
+    }
+
+    private static List<Habit> copies(List<Habit> list) {
+        List<Habit> result = new ArrayList<>(list.size());
+        for (Habit h : list) result.add(new Habit(h));
+        return result;
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void notifyListeners(List<Habit> snapshot) {
+        mainHandler.post(() -> {
+            for (Listener l : listeners) l.onHabitsChanged(snapshot);
+        });
+    }
+
+    /**
+     * Programa una escritura en segundo plano. Si ya hay una pendiente, esa
+     * escribirá también este cambio (lee la lista al ejecutarse).
+     */
+    private static void schedulePersist() {
+        if (persistPending) return;
+        persistPending = true;
+        io.execute(HabitRepository::persist);
+    }
+
+    private static void persist() {
+        List<Habit> current;
+        synchronized (HabitRepository.class) {
+            persistPending = false;
+            current = habits;
+        }
+        JSONArray array = new JSONArray();
+        try {
+            for (Habit h : current) {
+                if (h.getType() != Habit.HabitType.CUSTOM) continue;
+                JSONObject o = new JSONObject();
+                o.put("name", h.getTitle());
+                o.put("goal", h.getGoal());
+                o.put("period", h.getPeriod());
+                o.put("type", h.getCategory());
+                array.put(o);
+            }
+        } catch (JSONException e) {
+            android.util.Log.e("HabitRepository", "Error al serializar hábitos", e);
+            return;
+        }
+        if (!prefs.edit().putString(KEY_HABITS, array.toString()).commit()) {
+            android.util.Log.e("HabitRepository", "Error al guardar hábitos");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Recorridos de los eventos WALK, asociados por el timestamp del evento.
+ *
+ * Van aparte del backend de eventos (que no los copia al recuperar, paginar ni
+ * compactar) en un EventRecordFile: un archivo append-only indexado por
+ * timestamp; leer uno es un solo acceso al archivo. Siguen la retención de los
+ * eventos crudos (prune()) y se borran con ellos (clear()).
+ */
+public class HabitRouteStore {
+
+    private static final String ROUTES_FILE = "habit_routes.bin";
+    private static final int MAX_ROUTE_BYTES = 1 << 20;
+
+    private static HabitRouteStore shared;
+
+    /** Recibe cada recorrido guardado */
+    public interface RouteVisitor {
+        void onRoute(long eventTimestamp, RoutePolyline route);
+    }
+
+    private final EventRecordFile records;
+
+    public HabitRouteStore(File file) {
+        records = new EventRecordFile(file, MAX_ROUTE_BYTES, "HabitRouteStore");
+    }
+
+    /**
+     * Instancia del proceso sobre el archivo de la app, ya cargada
+     */
+    public static synchronized HabitRouteStore get(Context ctx) {
+        if (shared == null) {
+            shared = new HabitRouteStore(new File(ctx.getApplicationContext().getFilesDir(), ROUTES_FILE));
+        }
+        return shared;
+    }
+
+    /**
+     * Guarda el recorrido en segundo plano
+     */
+    public void putAsync(long eventTimestamp, RoutePolyline route) {
+        records.runAsync("guardar recorrido", () -> put(eventTimestamp, route));
+    }
+
+    /**
+     * Quita en segundo plano los recorridos de eventos anteriores a cutoff
+     * (en orden con los putAsync() anteriores)
+     */
+    public void pruneAsync(long cutoff) {
+        records.runAsync("aplicar la retención a los recorridos", () -> prune(cutoff));
+    }
+
+    /**
+     * Borra en segundo plano todos los recorridos, también los de putAsync() pendientes
+     */
+    public void clearAsync() {
+        records.runAsync("borrar los recorridos", this::clear);
+    }
+
+    /**
+     * Agrega el recorrido del evento y lo fuerza al disco. Si el evento ya tenía
+     * uno, el nuevo lo reemplaza (el anterior queda como espacio muerto).
+     */
+    public void put(long eventTimestamp, RoutePolyline route) throws IOException {
+        records.put(eventTimestamp, route.toBytes());
+    }
+
+    /**
+     * @return el recorrido del evento, o null si no tiene
+     */
+    public RoutePolyline get(long eventTimestamp) throws IOException {
+        byte[] bytes = records.get(eventTimestamp);
+        return bytes != null ? RoutePolyline.fromBytes(bytes) : null;
+    }
+
+    /**
+     * Recorre todos los recorridos en orden de archivo, con una sola apertura
+     * (para el mapa, que los carga todos de una vez)
+     */
+    public void forEach(RouteVisitor visitor) throws IOException {
+        records.forEach((timestamp, bytes) -> visitor.onRoute(timestamp, RoutePolyline.fromBytes(bytes)));
+    }
+
+    /**
+     * Quita los recorridos de eventos anteriores a cutoff (y el espacio de los reemplazados)
+     *
+     * @return recorridos quitados
+     */
+    public int prune(long cutoff) throws IOException {
+        return records.prune(cutoff);
+    }
+
+    /**
+     * Borra todos los recorridos
+     */
+    public void clear() throws IOException {
+        records.clear();
+    }
+
+    public boolean contains(long eventTimestamp) throws IOException {
+        return records.contains(eventTimestamp);
+    }
+
+    public int size() throws IOException {
+        return records.size();
+    }
+}
@@ -0,0 +1,48 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Diccionario de notas: cada texto distinto se guarda una sola vez y los eventos
+ * solo guardan su id entero ("Demo ✅ Completado" se repite miles de veces).
+ *
+ * Un solo hilo registra notas; los lectores usan la tabla capturada con table(),
+ * cuyas entradas ya escritas nunca cambian (al crecer se copia a otra tabla).
+ */
+public class NoteDictionary {
+
+    private String[] notes = new String[16];
+    private int size = 0;
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Devuelve el id de la nota, registrándola si es nueva
+     */
+    public int intern(String note) {
+        if (note == null) note = "";
+        Integer id = ids.get(note);
+        if (id == null) {
+            if (size == notes.length) notes = Arrays.copyOf(notes, size * 2);
+            id = size;
+            notes[size++] = note;
+            ids.put(note, id);
+        }
+        return id;
+    }
+
+    public String get(int id) {
+        if (id >= size) throw new IndexOutOfBoundsException("Nota " + id + " de " + size);
+        return notes[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Tabla actual; válida para todos los ids emitidos hasta ahora */
+    String[] table() {
+        return notes;
+    }
+}
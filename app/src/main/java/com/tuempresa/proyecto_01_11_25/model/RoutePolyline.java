@@ -0,0 +1,143 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import java.util.Arrays;
+
+/**
+ * Recorrido comprimido e inmutable: coordenadas en grados × 1e5 (~1 m) y tiempo
+ * en segundos, cada punto como diferencia con el anterior en varint zigzag.
+ * Caminando, un punto ocupa 3-4 bytes en lugar de los 24 de dos double y un long.
+ * <pre>
+ * varint cantidad, y por punto: zigzag Δlat, zigzag Δlng, zigzag Δsegundos
+ * </pre>
+ * El primer punto es la diferencia con 0 (segundos de época).
+ */
+public class RoutePolyline {
+
+    private static final double SCALE = 1e5;
+
+    /** Recibe los puntos decodificados, en orden */
+    public interface PointVisitor {
+        void onPoint(int index, double lat, double lng, long timeMs);
+    }
+
+    private final byte[] bytes;
+    private final int size;
+
+    private RoutePolyline(byte[] bytes, int size) {
+        this.bytes = bytes;
+        this.size = size;
+    }
+
+    /**
+     * Lee un recorrido codificado con toBytes()
+     *
+     * @throws IllegalArgumentException si la cabecera está dañada
+     */
+    public static RoutePolyline fromBytes(byte[] bytes) {
+        int[] at = {0};
+        long size = readVarLong(bytes, at);
+        if (size < 0 || size > bytes.length) throw new IllegalArgumentException("Recorrido inválido");
+        return new RoutePolyline(bytes, (int) size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int sizeInBytes() {
+        return bytes.length;
+    }
+
+    /** Bytes codificados; no modificar el arreglo */
+    public byte[] toBytes() {
+        return bytes;
+    }
+
+    public void forEach(PointVisitor visitor) {
+        int[] at = {0};
+        readVarLong(bytes, at);
+        long lat = 0;
+        long lng = 0;
+        long seconds = 0;
+        for (int i = 0; i < size; i++) {
+            lat += unzigzag(readVarLong(bytes, at));
+            lng += unzigzag(readVarLong(bytes, at));
+            seconds += unzigzag(readVarLong(bytes, at));
+            visitor.onPoint(i, lat / SCALE, lng / SCALE, seconds * 1000);
+        }
+    }
+
+    /** Arma un recorrido punto a punto, codificando sobre la marcha */
+    public static class Builder {
+        private byte[] buffer = new byte[64];
+        private int length = 0;
+        private int size = 0;
+        private long lastLat;
+        private long lastLng;
+        private long lastSeconds;
+
+        /**
+         * Agrega un punto. Si cae en la misma posición (a la precisión guardada)
+         * que el anterior no se agrega: no aporta nada al recorrido.
+         */
+        public Builder add(double lat, double lng, long timeMs) {
+            long qLat = Math.round(lat * SCALE);
+            long qLng = Math.round(lng * SCALE);
+            long seconds = timeMs / 1000;
+            if (size > 0 && qLat == lastLat && qLng == lastLng) return this;
+            writeVarLong(zigzag(qLat - lastLat));
+            writeVarLong(zigzag(qLng - lastLng));
+            writeVarLong(zigzag(seconds - lastSeconds));
+            lastLat = qLat;
+            lastLng = qLng;
+            lastSeconds = seconds;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public RoutePolyline build() {
+            byte[] header = new byte[10];
+            int headerLength = putVarLong(header, 0, size);
+            byte[] bytes = new byte[headerLength + length];
+            System.arraycopy(header, 0, bytes, 0, headerLength);
+            System.arraycopy(buffer, 0, bytes, headerLength, length);
+            return new RoutePolyline(bytes, size);
+        }
+
+        private void writeVarLong(long value) {
+            if (length + 10 > buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            length = putVarLong(buffer, length, value);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int putVarLong(byte[] b, int at, long value) {
+        while ((value & ~0x7fL) != 0) {
+            b[at++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        b[at++] = (byte) value;
+        return at;
+    }
+
+    private static long readVarLong(byte[] b, int[] at) {
+        long value = 0;
+        for (int shift = 0; shift < 64 && at[0] < b.length; shift += 7) {
+            int v = b[at[0]++];
+            value |= (long) (v & 0x7f) << shift;
+            if ((v & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Recorrido truncado");
+    }
+}
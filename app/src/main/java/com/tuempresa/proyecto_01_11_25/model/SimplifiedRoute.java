@@ -0,0 +1,178 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+/**
+ * Recorrido listo para dibujar con nivel de detalle según el zoom del mapa.
+ *
+ * Al crearlo se corre Douglas-Peucker una sola vez guardando, para cada punto,
+ * la tolerancia máxima con la que sobrevive (acotada por la de su padre, así el
+ * resultado coincide con Douglas-Peucker a esa tolerancia). Simplificar para un
+ * zoom es entonces filtrar por un umbral; cada nivel se calcula la primera vez
+ * que se pide y queda cacheado.
+ *
+ * Crearlo y pedir niveles nuevos es trabajo para un hilo de fondo; bounds e
+ * intersects() se pueden consultar desde cualquier hilo.
+ */
+public class SimplifiedRoute {
+
+    public static final int MAX_ZOOM = 21;
+    /** Desvío tolerado en píxeles: menos no se nota en pantalla */
+    private static final double TOLERANCE_PX = 1.5;
+    /** Metros por píxel en el ecuador con zoom 0 (teselas de 256 px) */
+    private static final double METERS_PER_PX_ZOOM0 = 156_543.034;
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private final long eventTimestamp;
+    private final double[] lat;
+    private final double[] lng;
+    private final double[] tolerance;
+    private final double[][] levels = new double[MAX_ZOOM + 1][];
+
+    public final double south;
+    public final double west;
+    public final double north;
+    public final double east;
+
+    private SimplifiedRoute(long eventTimestamp, double[] lat, double[] lng) {
+        this.eventTimestamp = eventTimestamp;
+        this.lat = lat;
+        this.lng = lng;
+        double s = 90, w = 180, n = -90, e = -180;
+        for (int i = 0; i < lat.length; i++) {
+            s = Math.min(s, lat[i]);
+            n = Math.max(n, lat[i]);
+            w = Math.min(w, lng[i]);
+            e = Math.max(e, lng[i]);
+        }
+        south = s;
+        west = w;
+        north = n;
+        east = e;
+        tolerance = computeTolerances(lat, lng);
+    }
+
+    /**
+     * Decodifica el recorrido y precalcula las tolerancias
+     */
+    public static SimplifiedRoute of(long eventTimestamp, RoutePolyline route) {
+        double[] lat = new double[route.size()];
+        double[] lng = new double[route.size()];
+        route.forEach((index, pointLat, pointLng, timeMs) -> {
+            lat[index] = pointLat;
+            lng[index] = pointLng;
+        });
+        return new SimplifiedRoute(eventTimestamp, lat, lng);
+    }
+
+    public long getEventTimestamp() {
+        return eventTimestamp;
+    }
+
+    public int size() {
+        return lat.length;
+    }
+
+    /**
+     * true si el recorrido toca el rectángulo (admite cruzar el antimeridiano: west > east)
+     */
+    public boolean intersects(double viewSouth, double viewWest, double viewNorth, double viewEast) {
+        if (lat.length == 0 || north < viewSouth || south > viewNorth) return false;
+        if (viewWest > viewEast) return east >= viewWest || west <= viewEast;
+        return east >= viewWest && west <= viewEast;
+    }
+
+    /**
+     * Puntos a dibujar con ese zoom, intercalados [lat0, lng0, lat1, lng1, ...].
+     * El arreglo queda cacheado y compartido: no modificarlo.
+     */
+    public synchronized double[] pointsForZoom(int zoom) {
+        zoom = Math.max(0, Math.min(MAX_ZOOM, zoom));
+        double[] cached = levels[zoom];
+        if (cached != null) return cached;
+
+        double threshold = toleranceForZoom(zoom, (south + north) / 2);
+        int count = 0;
+        for (double t : tolerance) if (t > threshold) count++;
+        double[] points = new double[count * 2];
+        int j = 0;
+        for (int i = 0; i < tolerance.length; i++) {
+            if (tolerance[i] <= threshold) continue;
+            points[j++] = lat[i];
+            points[j++] = lng[i];
+        }
+        levels[zoom] = points;
+        return points;
+    }
+
+    /**
+     * Metros que abarcan TOLERANCE_PX píxeles con ese zoom y latitud
+     */
+    static double toleranceForZoom(int zoom, double latitude) {
+        double metersPerPx = METERS_PER_PX_ZOOM0 * Math.cos(Math.toRadians(latitude)) / (1L << zoom);
+        return metersPerPx * TOLERANCE_PX;
+    }
+
+    /**
+     * Douglas-Peucker completo (tolerancia 0) con pila explícita: un recorrido
+     * largo no agota la pila del hilo. Los extremos se conservan siempre.
+     */
+    static double[] computeTolerances(double[] lat, double[] lng) {
+        int n = lat.length;
+        double[] result = new double[n];
+        if (n == 0) return result;
+        result[0] = Double.POSITIVE_INFINITY;
+        result[n - 1] = Double.POSITIVE_INFINITY;
+        if (n < 3) return result;
+
+        // Proyección local en metros: los recorridos miden a lo sumo unos kilómetros
+        double metersPerDegreeLng = METERS_PER_DEGREE * Math.cos(Math.toRadians(lat[0]));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (lng[i] - lng[0]) * metersPerDegreeLng;
+            y[i] = (lat[i] - lat[0]) * METERS_PER_DEGREE;
+        }
+
+        // Tramos pendientes [desde, hasta] con la tolerancia del punto que los separó
+        int[] stack = new int[2 * n];
+        double[] limits = new double[n];
+        int entries = 0;
+        stack[0] = 0;
+        stack[1] = n - 1;
+        limits[entries++] = Double.POSITIVE_INFINITY;
+        while (entries > 0) {
+            entries--;
+            int from = stack[2 * entries];
+            int to = stack[2 * entries + 1];
+            double limit = limits[entries];
+            if (to - from < 2) continue;
+
+            int split = from + 1;
+            double max = -1;
+            for (int i = from + 1; i < to; i++) {
+                double d = distanceToSegment(x[i], y[i], x[from], y[from], x[to], y[to]);
+                if (d > max) {
+                    max = d;
+                    split = i;
+                }
+            }
+            double t = Math.min(max, limit);
+            result[split] = t;
+            stack[2 * entries] = from;
+            stack[2 * entries + 1] = split;
+            limits[entries++] = t;
+            stack[2 * entries] = split;
+            stack[2 * entries + 1] = to;
+            limits[entries++] = t;
+        }
+        return result;
+    }
+
+    private static double distanceToSegment(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+}
@@ -3,31 +3,54 @@ package com.tuempresa.proyecto_01_11_25.sensors;
 import android.content.Context;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
+import android.hardware.SensorEventListener2;
 import android.hardware.SensorManager;
 
+import com.tuempresa.proyecto_01_11_25.model.ExerciseSet;
+
 /**
  * Gestor del sensor acelerómetro para detectar ejercicio/movimiento
- * Detecta movimiento brusco o repetitivo (indicador de ejercicio)
+ * Cuenta las repeticiones de cada serie con RepetitionCounter y avisa al terminarla
+ *
+ * Por defecto las muestras se entregan en lotes (FIFO del sensor): una serie se
+ * informa al terminar, así que unos segundos de retardo no cambian nada y
+ * el procesador despierta una vez por lote en lugar de una por muestra.
+ *
+ * Las mismas muestras alimentan un MotionStateClassifier (quieto / caminando)
+ * que otros gestores usan como señal barata, p.ej. para espaciar el GPS.
+ *
+ * Las muestras se procesan en el hilo MOTION de SensorHub; solo las detecciones
+ * y los cambios de estado llegan al hilo principal.
  */
-public class AccelerometerSensorManager implements SensorEventListener {
+public class AccelerometerSensorManager implements SensorEventListener2 {
 
-    private static final float MOVEMENT_THRESHOLD = 12.0f; // m/s² - umbral para detectar movimiento significativo
-    private static final long MIN_EXERCISE_DURATION_MS = 3000; // 3 segundos de movimiento continuo
-    private static final long DEBOUNCE_MS = 5000; // 5 segundos entre detecciones
+    /** 50 Hz (la cadencia llega a 2.5 Hz) en lotes de hasta 5 s */
+    public static final SensorBatching DEFAULT_BATCHING = new SensorBatching(20_000, 5_000_000);
 
     private final SensorManager sensorManager;
     private final Sensor accelerometer;
     private final OnExerciseDetectedListener listener;
+    private final RepetitionCounter detector = new RepetitionCounter();
+    // Cabe un lote completo (5 s a ~50 Hz); preasignado, no se crea nada por muestra
+    private final SensorRingBuffer samples = new SensorRingBuffer(256, 3);
+
+    private final MotionStateClassifier motion = new MotionStateClassifier();
+    private final Runnable resetDetector = this::resetDetectors;
+    private final Runnable notifyMotionState = this::notifyMotionState;
+    private volatile MotionStateClassifier.State motionState = MotionStateClassifier.State.UNKNOWN;
+    private volatile MotionStateListener motionListener;
 
-    private boolean isListening = false;
-    private boolean exerciseDetected = false; // Flag para evitar múltiples detecciones
-    private long movementStartTime = 0;
-    private long lastExerciseDetection = 0;
-    private boolean isMoving = false;
+    private SensorBatching batching = DEFAULT_BATCHING;
+    private volatile boolean isListening = false;
 
     public interface OnExerciseDetectedListener {
-        void onExerciseDetected();
+        /** Terminó una serie de al menos RepetitionCounter.MIN_REPS repeticiones */
+        void onExerciseDetected(ExerciseSet set);
+    }
+
+    public interface MotionStateListener {
+        /** En el hilo principal; UNKNOWN también al detener el sensor */
+        void onMotionStateChanged(MotionStateClassifier.State state);
     }
 
     public AccelerometerSensorManager(Context context, OnExerciseDetectedListener listener) {
@@ -36,11 +59,27 @@ public class AccelerometerSensorManager implements SensorEventListener {
         accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
     }
 
+    /**
+     * Recibe los cambios de estado de movimiento (null para dejar de recibirlos)
+     */
+    public void setMotionStateListener(MotionStateListener listener) {
+        this.motionListener = listener;
+    }
+
+    /**
+     * Cambia el modo de entrega; se aplica en el próximo start()
+     */
+    public void setBatching(SensorBatching batching) {
+        this.batching = batching;
+    }
+
     public void start() {
         if (accelerometer != null && !isListening) {
             isListening = true;
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
-            android.util.Log.d("AccelerometerSensor", "Sensor de acelerómetro iniciado");
+            SensorHub.post(SensorHub.Group.MOTION, resetDetector); // Antes de la primera muestra
+            SensorHub.register(SensorHub.Group.MOTION, sensorManager, this, accelerometer, batching);
+            android.util.Log.d("AccelerometerSensor", "Sensor de acelerómetro iniciado (latencia "
+                    + batching.maxReportLatencyUs / 1000 + " ms)");
         } else if (accelerometer == null) {
             android.util.Log.w("AccelerometerSensor", "Sensor de acelerómetro no disponible");
         }
@@ -50,79 +89,70 @@ public class AccelerometerSensorManager implements SensorEventListener {
         if (isListening) {
             isListening = false;
             sensorManager.unregisterListener(this);
-            isMoving = false;
-            movementStartTime = 0;
+            SensorHub.post(SensorHub.Group.MOTION, resetDetector);
+            // Sin acelerómetro ya no se sabe si el teléfono se mueve
+            MotionStateListener l = motionListener;
+            if (l != null && motionState != MotionStateClassifier.State.UNKNOWN) {
+                motionState = MotionStateClassifier.State.UNKNOWN;
+                l.onMotionStateChanged(motionState);
+            }
             android.util.Log.d("AccelerometerSensor", "Sensor de acelerómetro detenido");
         }
     }
 
+    /**
+     * Pide al hardware entregar ya las muestras acumuladas en la FIFO
+     */
+    public void flush() {
+        if (isListening) sensorManager.flush(this);
+    }
+
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {
         // No necesitamos manejar cambios de precisión
     }
 
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        // Las muestras del flush ya llegaron por onSensorChanged
+    }
+
+    /** Hilo MOTION de SensorHub */
     @Override
     public void onSensorChanged(SensorEvent event) {
-        if (!isListening || exerciseDetected) return;
-
-        // Valores del acelerómetro (m/s²)
-        float accX = event.values[0];
-        float accY = event.values[1];
-        float accZ = event.values[2];
-
-        // Calcular magnitud total (excluyendo gravedad)
-        float magnitude = (float) Math.sqrt(accX * accX + accY * accY + accZ * accZ);
-        // Restar gravedad aproximada (9.8 m/s²)
-        float movementMagnitude = Math.abs(magnitude - SensorManager.GRAVITY_EARTH);
-
-        long now = System.currentTimeMillis();
-
-        // Verificar si hay movimiento significativo
-        if (movementMagnitude > MOVEMENT_THRESHOLD) {
-            if (!isMoving) {
-                // Iniciar contador de movimiento
-                isMoving = true;
-                movementStartTime = now;
-                android.util.Log.d("AccelerometerSensor", "Movimiento detectado: " + String.format("%.2f", movementMagnitude) + " m/s²");
-            } else {
-                // Verificar si el movimiento ha durado lo suficiente
-                long movementDuration = now - movementStartTime;
-                if (movementDuration >= MIN_EXERCISE_DURATION_MS) {
-                    // Verificar que haya pasado suficiente tiempo desde la última detección
-                    if (now - lastExerciseDetection >= DEBOUNCE_MS) {
-                        exerciseDetected = true;
-                        lastExerciseDetection = now;
-                        android.util.Log.d("AccelerometerSensor", "Ejercicio detectado después de " + movementDuration + "ms de movimiento");
-                        
-                        if (listener != null) {
-                            listener.onExerciseDetected();
-                        }
-                        
-                        // Resetear para permitir futuras detecciones después del debounce
-                        resetAfterDelay();
-                    }
-                }
-            }
-        } else {
-            // Si el movimiento se detiene, resetear contador
-            if (isMoving) {
-                android.util.Log.d("AccelerometerSensor", "Movimiento detenido");
-                isMoving = false;
-                movementStartTime = 0;
-            }
+        if (!isListening) return;
+
+        // Valores del acelerómetro (m/s²) con el instante real de la muestra
+        samples.add(event.timestamp, event.values);
+        if (motion.onSample(event.timestamp, event.values[0], event.values[1], event.values[2])) {
+            motionState = motion.getState();
+            SensorHub.postToMain(notifyMotionState);
+        }
+        if (detector.process(samples)) {
+            // Una vez por serie: el objeto no pesa en el camino de cada muestra
+            ExerciseSet set = new ExerciseSet(detector.getSetReps(), detector.getSetRepsPerMinute(),
+                    detector.getSetIntensity(), detector.getSetDurationMs());
+            android.util.Log.d("AccelerometerSensor", "Serie detectada: " + set.getReps() + " repeticiones");
+            SensorHub.postToMain(() -> notifyExercise(set));
         }
     }
 
-    /**
-     * Resetea el flag de ejercicio después del período de debounce
-     */
-    private void resetAfterDelay() {
-        new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-            exerciseDetected = false;
-            isMoving = false;
-            movementStartTime = 0;
-            android.util.Log.d("AccelerometerSensor", "Flag de ejercicio reseteado, listo para nueva detección");
-        }, DEBOUNCE_MS);
+    /** Hilo MOTION de SensorHub */
+    private void resetDetectors() {
+        detector.reset();
+        motion.reset();
+    }
+
+    /** Hilo principal; se descarta si el sensor se detuvo mientras tanto */
+    private void notifyMotionState() {
+        MotionStateListener l = motionListener;
+        if (isListening && l != null) l.onMotionStateChanged(motionState);
     }
-}
 
+    /** Hilo principal; se descarta si el sensor se detuvo mientras tanto */
+    private void notifyExercise(ExerciseSet set) {
+        if (isListening && listener != null) {
+            listener.onExerciseDetected(set);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.Priority;
+
+/**
+ * Elige cómo pedir ubicaciones según el movimiento: alta precisión cada 2 s solo
+ * caminando, precisión equilibrada cada 10 s si no se sabe y bajo consumo cada
+ * minuto quieto. Lleva el tiempo en cada estado y las fijaciones recibidas en
+ * cada uno, para validar cuánto GPS se ahorra.
+ *
+ * Los tiempos son de SystemClock.elapsedRealtime(); se pasan como parámetro.
+ * No es thread-safe: usarlo desde el hilo principal.
+ */
+public class AdaptiveLocationSampler {
+
+    private static final MotionStateClassifier.State[] STATES = MotionStateClassifier.State.values();
+
+    private MotionStateClassifier.State state = MotionStateClassifier.State.UNKNOWN;
+    private long stateSinceMs = -1;
+    private final long[] timeMs = new long[STATES.length];
+    private final int[] fixes = new int[STATES.length];
+
+    /** Empieza a contar tiempo en el estado actual */
+    public void start(long nowMs) {
+        stateSinceMs = nowMs;
+    }
+
+    /** Deja de contar tiempo (las ubicaciones se detuvieron) */
+    public void stop(long nowMs) {
+        accumulate(nowMs);
+        stateSinceMs = -1;
+    }
+
+    /**
+     * @return true si cambió el estado (hay que volver a pedir ubicaciones)
+     */
+    public boolean setState(MotionStateClassifier.State next, long nowMs) {
+        if (next == state) return false;
+        accumulate(nowMs);
+        state = next;
+        return true;
+    }
+
+    public void onFix() {
+        fixes[state.ordinal()]++;
+    }
+
+    public MotionStateClassifier.State getState() {
+        return state;
+    }
+
+    public int getPriority() {
+        switch (state) {
+            case WALKING:
+                return Priority.PRIORITY_HIGH_ACCURACY;
+            case STATIONARY:
+                return Priority.PRIORITY_LOW_POWER;
+            default:
+                return Priority.PRIORITY_BALANCED_POWER_ACCURACY;
+        }
+    }
+
+    public long getIntervalMs() {
+        switch (state) {
+            case WALKING:
+                return 2_000;
+            case STATIONARY:
+                return 60_000;
+            default:
+                return 10_000;
+        }
+    }
+
+    public float getMinDistanceMeters() {
+        switch (state) {
+            case WALKING:
+                return 2;
+            case STATIONARY:
+                return 25;
+            default:
+                return 10;
+        }
+    }
+
+    /**
+     * true si las fijaciones de este estado sirven para sumar distancia: quieto,
+     * las de bajo consumo solo aportarían su error
+     */
+    public boolean countsDistance() {
+        return state != MotionStateClassifier.State.STATIONARY;
+    }
+
+    public LocationRequest buildRequest() {
+        return new LocationRequest.Builder(getPriority(), getIntervalMs())
+                .setMinUpdateIntervalMillis(getIntervalMs() * 3 / 4)
+                .setMinUpdateDistanceMeters(getMinDistanceMeters())
+                .build();
+    }
+
+    /** Tiempo total en el estado, incluido el tramo en curso */
+    public long getTimeInStateMs(MotionStateClassifier.State s, long nowMs) {
+        long time = timeMs[s.ordinal()];
+        if (s == state && stateSinceMs >= 0) time += nowMs - stateSinceMs;
+        return time;
+    }
+
+    public int getFixCount(MotionStateClassifier.State s) {
+        return fixes[s.ordinal()];
+    }
+
+    /** Resumen para el log: segundos y fijaciones por estado */
+    public String summary(long nowMs) {
+        StringBuilder sb = new StringBuilder();
+        for (MotionStateClassifier.State s : STATES) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(s).append(' ').append(getTimeInStateMs(s, nowMs) / 1000).append(" s/")
+                    .append(getFixCount(s)).append(" fijaciones");
+        }
+        return sb.toString();
+    }
+
+    private void accumulate(long nowMs) {
+        if (stateSinceMs < 0) return;
+        timeMs[state.ordinal()] += nowMs - stateSinceMs;
+        stateSinceMs = nowMs;
+    }
+}
@@ -3,27 +3,38 @@ package com.tuempresa.proyecto_01_11_25.sensors;
 import android.content.Context;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
+import android.hardware.SensorEventListener2;
 import android.hardware.SensorManager;
 
 /**
  * Gestor del sensor giroscopio para activar modo foco
- * Requiere 3 giros seguidos (dentro de 1.2 segundos cada uno)
+ * Requiere 3 giros seguidos (dentro de 1.2 segundos cada uno); qué cuenta como
+ * giro lo decide la máquina de estados de RotationGestureDetector
+ *
+ * El gesto lo hace el usuario a propósito, así que los lotes son cortos
+ * para que el modo foco responda enseguida.
+ *
+ * Las muestras se procesan en el hilo MOTION de SensorHub; solo la activación
+ * llega al hilo principal.
  */
-public class GyroSensorManager implements SensorEventListener {
+public class GyroSensorManager implements SensorEventListener2 {
 
-    private static final double ROTATION_THRESHOLD = 4.5; // rad/s
-    private static final long MAX_TIME_BETWEEN_ROTATIONS = 1200; // ms
-    private static final int REQUIRED_ROTATIONS = 3;
+    /** Lotes de hasta 1 s */
+    public static final SensorBatching DEFAULT_BATCHING = SensorBatching.withLatencyMs(1000);
 
     private final SensorManager sensorManager;
     private final Sensor gyroscope;
     private final OnFocusModeListener listener;
+    private final RotationGestureDetector detector = new RotationGestureDetector();
+    private final SensorRingBuffer samples = new SensorRingBuffer(64, 3);
 
-    private boolean isListening = false;
-    private boolean isFocusModeActive = false; // Flag para evitar múltiples activaciones
-    private int rotationCount = 0;
-    private long lastRotationTime = 0;
+    private final Runnable resetDetector = detector::reset;
+    private final Runnable resetFocus = this::resetFocusOnSensorThread;
+    private final Runnable notifyFocus = this::notifyFocus;
+
+    private SensorBatching batching = DEFAULT_BATCHING;
+    private volatile boolean isListening = false;
+    private boolean isFocusModeActive = false; // Flag para evitar múltiples activaciones (hilo MOTION)
 
     public interface OnFocusModeListener {
         void onFocusModeActivated();
@@ -35,11 +46,18 @@ public class GyroSensorManager implements SensorEventListener {
         gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
     }
 
+    /**
+     * Cambia el modo de entrega; se aplica en el próximo start()
+     */
+    public void setBatching(SensorBatching batching) {
+        this.batching = batching;
+    }
+
     public void start() {
         if (gyroscope != null && !isListening) {
             isListening = true;
-            rotationCount = 0; // Resetear contador al iniciar
-            sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_NORMAL);
+            SensorHub.post(SensorHub.Group.MOTION, resetDetector); // Resetear contador al iniciar
+            SensorHub.register(SensorHub.Group.MOTION, sensorManager, this, gyroscope, batching);
         }
     }
 
@@ -47,16 +65,27 @@ public class GyroSensorManager implements SensorEventListener {
         if (isListening) {
             isListening = false;
             sensorManager.unregisterListener(this);
-            rotationCount = 0; // Resetear al detener
+            SensorHub.post(SensorHub.Group.MOTION, resetDetector); // Resetear al detener
         }
     }
 
+    /**
+     * Pide al hardware entregar ya las muestras acumuladas en la FIFO
+     */
+    public void flush() {
+        if (isListening) sensorManager.flush(this);
+    }
+
     /**
      * Permite resetear el modo foco (útil cuando se desactiva manualmente)
      */
     public void resetFocusMode() {
+        SensorHub.post(SensorHub.Group.MOTION, resetFocus);
+    }
+
+    private void resetFocusOnSensorThread() {
         isFocusModeActive = false;
-        rotationCount = 0;
+        detector.reset();
     }
 
     @Override
@@ -64,38 +93,26 @@ public class GyroSensorManager implements SensorEventListener {
         // No necesitamos manejar cambios de precisión
     }
 
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        // Las muestras del flush ya llegaron por onSensorChanged
+    }
+
+    /** Hilo MOTION de SensorHub */
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (!isListening || isFocusModeActive) return;
 
-        float rotX = Math.abs(event.values[0]);
-        float rotY = Math.abs(event.values[1]);
-        float rotZ = Math.abs(event.values[2]);
-
-        // Calcular magnitud de rotación
-        double rotationMagnitude = Math.sqrt(rotX * rotX + rotY * rotY + rotZ * rotZ);
-
-        if (rotationMagnitude > ROTATION_THRESHOLD) {
-            long now = System.currentTimeMillis();
-
-            // Si pasó mucho tiempo desde la última rotación, resetear contador
-            if (now - lastRotationTime > MAX_TIME_BETWEEN_ROTATIONS) {
-                rotationCount = 1;
-                android.util.Log.d("GyroSensor", "Rotación detectada (resetear contador): " + String.format("%.2f", rotationMagnitude));
-            } else {
-                rotationCount++;
-                android.util.Log.d("GyroSensor", "Rotación " + rotationCount + "/" + REQUIRED_ROTATIONS + ": " + String.format("%.2f", rotationMagnitude));
-            }
-
-            lastRotationTime = now;
-
-            // Si se alcanzaron 3 rotaciones seguidas, activar modo foco
-            if (rotationCount >= REQUIRED_ROTATIONS) {
-                android.util.Log.d("GyroSensor", "¡Modo foco activado por " + REQUIRED_ROTATIONS + " giros!");
-                isFocusModeActive = true;
-                rotationCount = 0;
-                listener.onFocusModeActivated();
-            }
+        samples.add(event.timestamp, event.values);
+        if (detector.process(samples)) {
+            android.util.Log.d("GyroSensor", "¡Modo foco activado por " + RotationGestureDetector.REQUIRED_ROTATIONS + " giros!");
+            isFocusModeActive = true;
+            SensorHub.postToMain(notifyFocus);
         }
     }
+
+    /** Hilo principal; se descarta si el sensor se detuvo mientras tanto */
+    private void notifyFocus() {
+        if (isListening) listener.onFocusModeActivated();
+    }
 }
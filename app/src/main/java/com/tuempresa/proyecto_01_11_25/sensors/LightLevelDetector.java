@@ -0,0 +1,58 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+/**
+ * Decide luz baja / normal con umbral y debounce sobre el timestamp de cada
+ * muestra: un cambio solo se acepta si pasó DEBOUNCE desde el último.
+ * Umbral: < 15 lux = luz baja.
+ */
+public class LightLevelDetector {
+
+    private static final float LIGHT_THRESHOLD = 15f; // lux
+    private static final long DEBOUNCE_NS = 2_500_000_000L; // 2.5 segundos
+
+    private boolean initialized = false;
+    private boolean lowLight = false;
+    private long lastChangeNs = 0;
+    private long nextSeq = 0; // Próxima muestra del buffer por procesar (reset() no la toca)
+
+    /**
+     * Procesa las lecturas del buffer que todavía no vio (un eje: lux)
+     *
+     * @return true si cambió el estado
+     */
+    public boolean process(SensorRingBuffer samples) {
+        boolean changed = false;
+        long seq = Math.max(nextSeq, samples.startSeq());
+        for (long end = samples.endSeq(); seq < end; seq++) {
+            if (onSample(samples.getTimestamp(seq), samples.getValue(seq, 0))) changed = true;
+        }
+        nextSeq = seq;
+        return changed;
+    }
+
+    /**
+     * @return true si cambió el estado (consultar isLowLight()); la primera
+     *         muestra solo fija el estado inicial
+     */
+    public boolean onSample(long timestampNs, float lux) {
+        boolean isLow = lux < LIGHT_THRESHOLD;
+        if (!initialized) {
+            initialized = true;
+            lowLight = isLow;
+            lastChangeNs = timestampNs;
+            return false;
+        }
+        if (isLow == lowLight || timestampNs - lastChangeNs < DEBOUNCE_NS) return false;
+        lowLight = isLow;
+        lastChangeNs = timestampNs;
+        return true;
+    }
+
+    public boolean isLowLight() {
+        return lowLight;
+    }
+
+    public void reset() {
+        initialized = false;
+    }
+}
@@ -3,30 +3,41 @@ package com.tuempresa.proyecto_01_11_25.sensors;
 import android.content.Context;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
+import android.hardware.SensorEventListener2;
 import android.hardware.SensorManager;
 
 /**
  * Gestor del sensor de luz para detectar modo nocturno
  * Umbral: < 15 lux = modo oscuro, >= 15 lux = modo claro
+ *
+ * El cambio de tema ya espera un debounce de 2.5 s, así que las lecturas
+ * se entregan en lotes; flush() da una lectura al momento (p.ej. al volver a la app).
+ *
+ * Las lecturas se procesan en el hilo ENVIRONMENT de SensorHub; solo los
+ * cambios de estado llegan al hilo principal.
  */
-public class LightSensorManager implements SensorEventListener {
+public class LightSensorManager implements SensorEventListener2 {
 
     public interface OnLowLightListener {
         void onLowLight();
         void onNormalLight();
     }
 
-    private static final float LIGHT_THRESHOLD = 15f; // lux
-    private static final long DEBOUNCE_MS = 2500; // 2.5 segundos
+    /** Lotes de hasta 3 s */
+    public static final SensorBatching DEFAULT_BATCHING = SensorBatching.withLatencyMs(3000);
 
     private final SensorManager sensorManager;
     private final Sensor lightSensor;
     private final OnLowLightListener listener;
+    private final LightLevelDetector detector = new LightLevelDetector();
+    private final SensorRingBuffer samples = new SensorRingBuffer(64, 1);
 
-    private boolean isListening = false;
-    private boolean currentStateIsNight = false; // Estado actual detectado
-    private long lastNotificationTime = 0;
+    private final Runnable resetDetector = detector::reset;
+    private final Runnable notifyLowLight = this::notifyLowLight;
+    private final Runnable notifyNormalLight = this::notifyNormalLight;
+
+    private SensorBatching batching = DEFAULT_BATCHING;
+    private volatile boolean isListening = false;
 
     public LightSensorManager(Context context, OnLowLightListener listener) {
         this.listener = listener;
@@ -34,10 +45,18 @@ public class LightSensorManager implements SensorEventListener {
         lightSensor = sensorManager.getDefaultSensor(Sensor.TYPE_LIGHT);
     }
 
+    /**
+     * Cambia el modo de entrega; se aplica en el próximo start()
+     */
+    public void setBatching(SensorBatching batching) {
+        this.batching = batching;
+    }
+
     public void start() {
         if (lightSensor != null && !isListening) {
             isListening = true;
-            sensorManager.registerListener(this, lightSensor, SensorManager.SENSOR_DELAY_NORMAL);
+            SensorHub.post(SensorHub.Group.ENVIRONMENT, resetDetector);
+            SensorHub.register(SensorHub.Group.ENVIRONMENT, sensorManager, this, lightSensor, batching);
         }
     }
 
@@ -48,47 +67,46 @@ public class LightSensorManager implements SensorEventListener {
         }
     }
 
+    /**
+     * Pide al hardware entregar ya las muestras acumuladas en la FIFO
+     */
+    public void flush() {
+        if (isListening) sensorManager.flush(this);
+    }
+
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {
         // No necesitamos manejar cambios de precisión
     }
 
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        // Las muestras del flush ya llegaron por onSensorChanged
+    }
+
+    /** Hilo ENVIRONMENT de SensorHub */
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (!isListening) return;
 
-        float lightValue = event.values[0];
-        boolean isLowLight = lightValue < LIGHT_THRESHOLD;
-        long now = System.currentTimeMillis();
-
-        // Log para debugging (comentar en producción)
-        android.util.Log.d("LightSensor", String.format("Luz: %.2f lux, isLowLight: %s, currentState: %s", 
-            lightValue, isLowLight, currentStateIsNight));
+        samples.add(event.timestamp, event.values);
+        if (detector.process(samples)) {
+            boolean isLowLight = detector.isLowLight();
+            // Solo en los cambios de estado, nunca por lectura
+            android.util.Log.d("LightSensor", "Cambio detectado: " + (isLowLight ? "BAJA" : "NORMAL")
+                    + " (" + event.values[0] + " lux)");
 
-        // Inicializar estado en la primera lectura
-        if (lastNotificationTime == 0) {
-            currentStateIsNight = isLowLight;
-            lastNotificationTime = now;
-            android.util.Log.d("LightSensor", "Estado inicial: " + (isLowLight ? "BAJA" : "NORMAL"));
-            return;
+            // Notificar cambio en el hilo principal
+            SensorHub.postToMain(isLowLight ? notifyLowLight : notifyNormalLight);
         }
+    }
 
-        // Solo notificar si cambió el estado Y pasó el debounce
-        if (isLowLight != currentStateIsNight) {
-            if (now - lastNotificationTime >= DEBOUNCE_MS) {
-                android.util.Log.d("LightSensor", "Cambio detectado: " + (isLowLight ? "BAJA" : "NORMAL") + " después de " + (now - lastNotificationTime) + "ms");
-                currentStateIsNight = isLowLight;
-                lastNotificationTime = now;
-
-                // Notificar cambio
-                if (isLowLight) {
-                    listener.onLowLight();
-                } else {
-                    listener.onNormalLight();
-                }
-            } else {
-                android.util.Log.d("LightSensor", "Esperando debounce: " + (DEBOUNCE_MS - (now - lastNotificationTime)) + "ms restantes");
-            }
-        }
+    /** Hilo principal; se descarta si el sensor se detuvo mientras tanto */
+    private void notifyLowLight() {
+        if (isListening) listener.onLowLight();
+    }
+
+    private void notifyNormalLight() {
+        if (isListening) listener.onNormalLight();
     }
 }
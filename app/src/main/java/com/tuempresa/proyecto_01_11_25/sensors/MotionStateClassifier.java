@@ -0,0 +1,115 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+/**
+ * Clasifica el movimiento del teléfono (quieto, caminando o no se sabe) con la
+ * dispersión de la magnitud del acelerómetro en ventanas de 2 s.
+ *
+ * Quieto sobre una mesa la magnitud apenas varía; caminando oscila 1-3 m/s²
+ * con cada paso. Para cambiar de estado hacen falta varias ventanas seguidas
+ * (histéresis), así un golpe aislado o una pausa corta no hacen saltar el GPS.
+ *
+ * No crea objetos por muestra. No es thread-safe: un solo hilo de sensores.
+ */
+public class MotionStateClassifier {
+
+    public enum State { UNKNOWN, STATIONARY, WALKING }
+
+    private static final long WINDOW_NS = 2_000_000_000L;
+    private static final double QUIET_STD = 0.2;  // m/s²
+    private static final double ACTIVE_STD = 0.8; // m/s²
+    static final int STATIONARY_WINDOWS = 5; // 10 s quieto
+    static final int WALKING_WINDOWS = 2;    // 4 s de movimiento
+    private static final int LEAVE_WALKING_WINDOWS = 3;
+
+    private State state = State.UNKNOWN;
+    private boolean started = false;
+    private long windowStartNs;
+    private int count;
+    private double sum;
+    private double sumSq;
+    private int quietWindows;
+    private int activeWindows;
+    private int otherWindows;
+
+    /**
+     * @param timestampNs event.timestamp de la muestra
+     * @return true si cambió el estado
+     */
+    public boolean onSample(long timestampNs, float x, float y, float z) {
+        if (!started) {
+            started = true;
+            windowStartNs = timestampNs;
+        }
+        boolean changed = false;
+        long elapsed = timestampNs - windowStartNs;
+        if (elapsed >= 2 * WINDOW_NS) {
+            // Sin muestras durante más de una ventana (sensor detenido): no se sabe qué pasó
+            changed = setState(State.UNKNOWN);
+            quietWindows = 0;
+            activeWindows = 0;
+            otherWindows = 0;
+            clearWindow(timestampNs);
+        } else if (elapsed >= WINDOW_NS) {
+            changed = closeWindow();
+            clearWindow(windowStartNs + WINDOW_NS);
+        }
+        double magnitude = Math.sqrt(x * x + y * y + z * z);
+        count++;
+        sum += magnitude;
+        sumSq += magnitude * magnitude;
+        return changed;
+    }
+
+    private boolean closeWindow() {
+        if (count < 2) return false;
+        double mean = sum / count;
+        double std = Math.sqrt(Math.max(0, sumSq / count - mean * mean));
+        if (std < QUIET_STD) {
+            quietWindows++;
+            activeWindows = 0;
+            otherWindows = 0;
+            if (quietWindows >= STATIONARY_WINDOWS) return setState(State.STATIONARY);
+            if (state == State.WALKING && quietWindows >= LEAVE_WALKING_WINDOWS) return setState(State.UNKNOWN);
+        } else if (std >= ACTIVE_STD) {
+            activeWindows++;
+            quietWindows = 0;
+            otherWindows = 0;
+            if (activeWindows >= WALKING_WINDOWS) return setState(State.WALKING);
+            if (state == State.STATIONARY) return setState(State.UNKNOWN);
+        } else {
+            otherWindows++;
+            quietWindows = 0;
+            activeWindows = 0;
+            // Algo de movimiento: deja de estar quieto enseguida, deja de caminar con más calma
+            if (state == State.STATIONARY) return setState(State.UNKNOWN);
+            if (state == State.WALKING && otherWindows >= LEAVE_WALKING_WINDOWS) return setState(State.UNKNOWN);
+        }
+        return false;
+    }
+
+    private void clearWindow(long startNs) {
+        windowStartNs = startNs;
+        count = 0;
+        sum = 0;
+        sumSq = 0;
+    }
+
+    private boolean setState(State next) {
+        if (next == state) return false;
+        state = next;
+        return true;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void reset() {
+        state = State.UNKNOWN;
+        started = false;
+        quietWindows = 0;
+        activeWindows = 0;
+        otherWindows = 0;
+        clearWindow(0);
+    }
+}
@@ -0,0 +1,338 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import java.util.Arrays;
+
+/**
+ * Cuenta repeticiones de ejercicio y estima su cadencia con el acelerómetro.
+ *
+ * La magnitud de la aceleración se promedia en ticks de 100 ms (ritmo fijo
+ * aunque las muestras lleguen irregulares o en lotes) y se le resta la gravedad
+ * con una media lenta. Sobre los últimos 6.4 s se mantiene una DFT deslizante de
+ * los bins de 0.3 a 2.5 Hz (unas 18 a 150 repeticiones/min): cada tick actualiza
+ * cada bin en O(1), sin recorrer la ventana. Al completar una vuelta de la
+ * ventana los bins se recalculan enteros para que no acumulen error.
+ *
+ * Hay serie cuando la energía se concentra alrededor de un bin (periodicidad
+ * >= 0.5) con intensidad suficiente: un ejercicio repetitivo lo cumple, los
+ * baches de un viaje no, porque su energía se reparte en todo el espectro.
+ * Mientras dura la serie las repeticiones se integran con la cadencia estimada;
+ * la serie termina tras 3 s sin movimiento periódico.
+ *
+ * No crea objetos por muestra. No es thread-safe: un solo hilo de sensores.
+ */
+public class RepetitionCounter {
+
+    private static final long TICK_NS = 100_000_000L;
+    private static final double TICK_S = 0.1;
+    static final int WINDOW = 64; // Ticks (6.4 s), potencia de 2
+    private static final int MIN_BIN = 2;  // 0.31 Hz
+    private static final int MAX_BIN = 16; // 2.5 Hz
+    static final double MIN_PERIODICITY = 0.5;
+    static final double MIN_INTENSITY = 1.5; // m/s² RMS sin gravedad
+    static final int MIN_REPS = 8;
+    private static final long END_AFTER_NS = 3_000_000_000L;
+    private static final double BASELINE_ALPHA = 0.02; // Gravedad: ~5 s
+    private static final double ENERGY_ALPHA = 0.1;    // Energía reciente: ~1 s
+
+    private static final double[] COS = new double[WINDOW];
+    private static final double[] SIN = new double[WINDOW];
+
+    static {
+        for (int n = 0; n < WINDOW; n++) {
+            COS[n] = Math.cos(2 * Math.PI * n / WINDOW);
+            SIN[n] = Math.sin(2 * Math.PI * n / WINDOW);
+        }
+    }
+
+    // Ventana de ticks (magnitud sin gravedad) y sus bins, 0..MAX_BIN + 1
+    private final float[] window = new float[WINDOW];
+    private final double[] re = new double[MAX_BIN + 2];
+    private final double[] im = new double[MAX_BIN + 2];
+    private int head = 0; // Posición del tick más viejo, donde se escribe el próximo
+    private long ticks = 0;
+    private double sumX = 0;
+    private double sumX2 = 0;
+
+    // Tick en curso
+    private boolean started = false;
+    private long tickStartNs = 0;
+    private double tickSum = 0;
+    private int tickCount = 0;
+    private double lastTickMean = 0;
+
+    private double baseline = 0;
+    private double recentEnergy = 0;
+    private long motionStartNs = -1;
+
+    // Estimación de la ventana actual
+    private double cadenceHz = 0;
+    private double periodicity = 0;
+    private double intensity = 0;
+
+    // Serie en curso
+    private boolean inSet = false;
+    private double reps = 0;
+    private long setStartNs = 0;
+    private long lastActiveNs = 0;
+    private double cadenceSum = 0;
+    private double intensitySum = 0;
+    private int activeTicks = 0;
+
+    // Última serie terminada
+    private int setReps = 0;
+    private double setRepsPerMinute = 0;
+    private double setIntensity = 0;
+    private long setDurationMs = 0;
+    private long setEndNs = 0;
+
+    private long nextSeq = 0; // Próxima muestra del buffer por procesar (reset() no la toca)
+
+    /**
+     * Procesa las muestras del buffer que todavía no vio (ejes x, y, z)
+     *
+     * @return true si alguna terminó una serie (ver getSetReps() y demás)
+     */
+    public boolean process(SensorRingBuffer samples) {
+        boolean finished = false;
+        long seq = Math.max(nextSeq, samples.startSeq());
+        for (long end = samples.endSeq(); seq < end; seq++) {
+            if (onSample(samples.getTimestamp(seq), samples.getValue(seq, 0),
+                    samples.getValue(seq, 1), samples.getValue(seq, 2))) {
+                finished = true;
+            }
+        }
+        nextSeq = seq;
+        return finished;
+    }
+
+    /**
+     * @param timestampNs event.timestamp de la muestra
+     * @return true si con esta muestra terminó una serie de al menos MIN_REPS
+     */
+    public boolean onSample(long timestampNs, float x, float y, float z) {
+        double magnitude = Math.sqrt(x * x + y * y + z * z);
+        if (!started) {
+            started = true;
+            tickStartNs = timestampNs;
+            baseline = magnitude;
+            lastTickMean = magnitude;
+        }
+
+        boolean finished = false;
+        if (timestampNs - tickStartNs >= (WINDOW + 1) * TICK_NS) {
+            // Hueco más largo que la ventana (sensor detenido): se empieza de cero
+            finished = finishSet();
+            resetSignal(timestampNs, magnitude);
+        }
+        while (timestampNs - tickStartNs >= TICK_NS) {
+            // Un tick sin muestras repite el valor anterior
+            if (closeTick()) finished = true;
+        }
+        tickSum += magnitude;
+        tickCount++;
+        return finished;
+    }
+
+    private boolean closeTick() {
+        double mean = tickCount > 0 ? tickSum / tickCount : lastTickMean;
+        lastTickMean = mean;
+        tickSum = 0;
+        tickCount = 0;
+        tickStartNs += TICK_NS;
+
+        baseline += BASELINE_ALPHA * (mean - baseline);
+        float value = (float) (mean - baseline);
+        recentEnergy += ENERGY_ALPHA * (value * value - recentEnergy);
+        push(value);
+        return update(tickStartNs);
+    }
+
+    /** Agrega un tick a la ventana y actualiza los bins (DFT deslizante) */
+    private void push(float value) {
+        float old = window[head];
+        window[head] = value;
+        head = (head + 1) & (WINDOW - 1);
+        ticks++;
+        if (head == 0) {
+            recompute();
+            return;
+        }
+        double delta = value - old;
+        for (int k = 1; k < re.length; k++) {
+            double r = re[k] + delta;
+            double i = im[k];
+            re[k] = r * COS[k] - i * SIN[k];
+            im[k] = r * SIN[k] + i * COS[k];
+        }
+        sumX += delta;
+        sumX2 += (double) value * value - (double) old * old;
+    }
+
+    /** DFT directa de la ventana, del tick más viejo al más nuevo */
+    private void recompute() {
+        sumX = 0;
+        sumX2 = 0;
+        for (int k = 1; k < re.length; k++) {
+            re[k] = 0;
+            im[k] = 0;
+        }
+        for (int n = 0; n < WINDOW; n++) {
+            double value = window[(head + n) & (WINDOW - 1)];
+            sumX += value;
+            sumX2 += value * value;
+            for (int k = 1; k < re.length; k++) {
+                int index = (k * n) & (WINDOW - 1);
+                re[k] += value * COS[index];
+                im[k] -= value * SIN[index];
+            }
+        }
+    }
+
+    private boolean update(long nowNs) {
+        boolean energetic = recentEnergy >= MIN_INTENSITY * MIN_INTENSITY * 0.5;
+        if (!energetic) {
+            motionStartNs = -1;
+        } else if (motionStartNs < 0) {
+            motionStartNs = nowNs - TICK_NS;
+        }
+        if (ticks < WINDOW) return false;
+
+        // Varianza de la ventana (por WINDOW) y bin dominante
+        double variance = Math.max(0, sumX2 - sumX * sumX / WINDOW);
+        intensity = Math.sqrt(variance / WINDOW);
+        int best = MIN_BIN;
+        double bestPower = 0;
+        for (int k = MIN_BIN; k <= MAX_BIN; k++) {
+            double power = power(k);
+            if (power > bestPower) {
+                bestPower = power;
+                best = k;
+            }
+        }
+        // Interpolación parabólica entre vecinos para no quedar limitado a 0.16 Hz de resolución
+        double a = Math.sqrt(power(best - 1));
+        double b = Math.sqrt(bestPower);
+        double c = Math.sqrt(power(best + 1));
+        double denominator = a - 2 * b + c;
+        double offset = denominator < 0 ? 0.5 * (a - c) / denominator : 0;
+        cadenceHz = (best + offset) / (WINDOW * TICK_S);
+        // Parseval: una senoidal pura deja la mitad de la energía en su bin (la otra en N - k)
+        double peak = power(best - 1) + bestPower + power(best + 1);
+        periodicity = variance > 0 ? Math.min(1, 2 * peak / (WINDOW * variance)) : 0;
+
+        boolean periodic = intensity >= MIN_INTENSITY && periodicity >= MIN_PERIODICITY;
+        if (periodic && energetic) {
+            if (!inSet) {
+                // La serie empezó cuando empezó el movimiento, no cuando la ventana lo confirmó
+                inSet = true;
+                setStartNs = motionStartNs;
+                reps = cadenceHz * ((nowNs - TICK_NS - motionStartNs) / 1e9);
+                cadenceSum = 0;
+                intensitySum = 0;
+                activeTicks = 0;
+            }
+            reps += cadenceHz * TICK_S;
+            cadenceSum += cadenceHz;
+            intensitySum += intensity;
+            activeTicks++;
+            lastActiveNs = nowNs;
+        } else if (inSet && nowNs - lastActiveNs >= END_AFTER_NS) {
+            return finishSet();
+        }
+        return false;
+    }
+
+    private double power(int k) {
+        return re[k] * re[k] + im[k] * im[k];
+    }
+
+    private boolean finishSet() {
+        if (!inSet) return false;
+        inSet = false;
+        int count = (int) reps;
+        if (count < MIN_REPS) return false;
+        setReps = count;
+        setRepsPerMinute = 60 * cadenceSum / activeTicks;
+        setIntensity = intensitySum / activeTicks;
+        setDurationMs = (lastActiveNs - setStartNs) / 1_000_000L;
+        setEndNs = lastActiveNs;
+        return true;
+    }
+
+    private void resetSignal(long timestampNs, double magnitude) {
+        Arrays.fill(window, 0f);
+        Arrays.fill(re, 0);
+        Arrays.fill(im, 0);
+        head = 0;
+        ticks = 0;
+        sumX = 0;
+        sumX2 = 0;
+        tickStartNs = timestampNs;
+        tickSum = 0;
+        tickCount = 0;
+        lastTickMean = magnitude;
+        baseline = magnitude;
+        recentEnergy = 0;
+        motionStartNs = -1;
+        cadenceHz = 0;
+        periodicity = 0;
+        intensity = 0;
+    }
+
+    /** true mientras hay una serie en curso */
+    public boolean isInSet() {
+        return inSet;
+    }
+
+    /** Repeticiones de la serie en curso (0 si no hay) */
+    public int getReps() {
+        return inSet ? (int) reps : 0;
+    }
+
+    /** Cadencia estimada en la ventana actual, repeticiones por minuto */
+    public double getRepsPerMinute() {
+        return cadenceHz * 60;
+    }
+
+    /** Aceleración RMS sin gravedad de la ventana actual, m/s² */
+    public double getIntensity() {
+        return intensity;
+    }
+
+    /** Fracción de la energía concentrada en la cadencia dominante, de 0 a 1 */
+    public double getPeriodicity() {
+        return periodicity;
+    }
+
+    /** Repeticiones de la última serie terminada */
+    public int getSetReps() {
+        return setReps;
+    }
+
+    /** Cadencia media de la última serie terminada, repeticiones por minuto */
+    public double getSetRepsPerMinute() {
+        return setRepsPerMinute;
+    }
+
+    /** Intensidad media de la última serie terminada, m/s² */
+    public double getSetIntensity() {
+        return setIntensity;
+    }
+
+    public long getSetDurationMs() {
+        return setDurationMs;
+    }
+
+    /** event.timestamp del último movimiento de la serie */
+    public long getSetEndNs() {
+        return setEndNs;
+    }
+
+    /** Descarta la serie en curso y la señal acumulada */
+    public void reset() {
+        started = false;
+        inSet = false;
+        reps = 0;
+        resetSignal(0, 0);
+    }
+}
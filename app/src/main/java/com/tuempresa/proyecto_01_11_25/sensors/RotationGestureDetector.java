@@ -0,0 +1,127 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+/**
+ * Detecta REQUIRED_ROTATIONS giros seguidos del giroscopio, cada uno a menos de
+ * MAX_TIME_BETWEEN_ROTATIONS del anterior. Los tiempos salen del timestamp de cada
+ * muestra, no del reloj al recibirla, así un lote de la FIFO se evalúa igual.
+ *
+ * Un giro es un pico, no una muestra: la velocidad angular sube por encima de
+ * ROTATION_THRESHOLD y vuelve a bajar de RELEASE_THRESHOLD (histéresis) en menos
+ * de MAX_PEAK. Se cuenta al terminar el pico, así un giro largo cuenta una sola
+ * vez, y una rotación sostenida (girar en la silla, el teléfono en un bolsillo
+ * que se mueve) no cuenta y anula el gesto. Tras cada giro hay un período
+ * refractario que ignora la vuelta de la muñeca.
+ *
+ * Costo fijo por muestra: una magnitud al cuadrado y comparaciones, sin raíz.
+ */
+public class RotationGestureDetector {
+
+    private static final double ROTATION_THRESHOLD = 4.5; // rad/s
+    private static final double RELEASE_THRESHOLD = 2.5;  // rad/s
+    private static final double ROTATION_THRESHOLD_SQ = ROTATION_THRESHOLD * ROTATION_THRESHOLD;
+    private static final double RELEASE_THRESHOLD_SQ = RELEASE_THRESHOLD * RELEASE_THRESHOLD;
+    private static final long MAX_PEAK_NS = 600_000_000L;
+    private static final long REFRACTORY_NS = 200_000_000L;
+    private static final long MAX_TIME_BETWEEN_ROTATIONS_NS = 1_200_000_000L;
+    static final int REQUIRED_ROTATIONS = 3;
+
+    enum State {
+        /** Debajo del umbral, esperando un flanco de subida */
+        ARMED,
+        /** Dentro de un pico */
+        PEAK,
+        /** Tras contar un giro: se ignoran picos hasta que pase el período */
+        REFRACTORY,
+        /** El pico duró demasiado: se espera a que termine sin contarlo */
+        SUSTAINED
+    }
+
+    private State state = State.ARMED;
+    private long peakStartNs;
+    private long refractoryEndNs;
+    private int rotationCount = 0;
+    private long lastRotationNs = 0;
+    private long nextSeq = 0; // Próxima muestra del buffer por procesar (reset() no la toca)
+
+    /**
+     * Procesa las muestras del buffer que todavía no vio (ejes x, y, z)
+     *
+     * @return true si alguna completó el gesto
+     */
+    public boolean process(SensorRingBuffer samples) {
+        boolean found = false;
+        long seq = Math.max(nextSeq, samples.startSeq());
+        for (long end = samples.endSeq(); seq < end; seq++) {
+            if (onSample(samples.getTimestamp(seq), samples.getValue(seq, 0),
+                    samples.getValue(seq, 1), samples.getValue(seq, 2))) {
+                found = true;
+            }
+        }
+        nextSeq = seq;
+        return found;
+    }
+
+    /**
+     * @return true si con esta muestra se completa el gesto
+     */
+    public boolean onSample(long timestampNs, float x, float y, float z) {
+        double magnitudeSq = (double) x * x + (double) y * y + (double) z * z;
+        switch (state) {
+            case ARMED:
+                if (magnitudeSq > ROTATION_THRESHOLD_SQ) {
+                    state = State.PEAK;
+                    peakStartNs = timestampNs;
+                }
+                return false;
+
+            case PEAK:
+                if (timestampNs - peakStartNs > MAX_PEAK_NS) {
+                    state = State.SUSTAINED;
+                    rotationCount = 0;
+                    return false;
+                }
+                if (magnitudeSq >= RELEASE_THRESHOLD_SQ) return false;
+                state = State.REFRACTORY;
+                refractoryEndNs = timestampNs + REFRACTORY_NS;
+                return countRotation(timestampNs);
+
+            case REFRACTORY:
+                if (timestampNs >= refractoryEndNs && magnitudeSq < RELEASE_THRESHOLD_SQ) state = State.ARMED;
+                return false;
+
+            case SUSTAINED:
+            default:
+                if (magnitudeSq < RELEASE_THRESHOLD_SQ) state = State.ARMED;
+                return false;
+        }
+    }
+
+    private boolean countRotation(long timestampNs) {
+        // Si pasó mucho tiempo desde la última rotación, se empieza de nuevo
+        if (rotationCount == 0 || timestampNs - lastRotationNs > MAX_TIME_BETWEEN_ROTATIONS_NS) {
+            rotationCount = 1;
+        } else {
+            rotationCount++;
+        }
+        lastRotationNs = timestampNs;
+
+        if (rotationCount >= REQUIRED_ROTATIONS) {
+            rotationCount = 0;
+            return true;
+        }
+        return false;
+    }
+
+    public int getRotationCount() {
+        return rotationCount;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    public void reset() {
+        rotationCount = 0;
+        state = State.ARMED;
+    }
+}
@@ -0,0 +1,50 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+/**
+ * Cómo se registra un sensor: período de muestreo y latencia máxima de entrega.
+ *
+ * Con latencia > 0 el hardware acumula las muestras en su FIFO y las entrega
+ * juntas, sin despertar al procesador por cada una; cada muestra conserva su
+ * event.timestamp, así los detectores miden tiempos igual que sin batching.
+ * SensorManager.flush() entrega lo acumulado en el momento.
+ */
+public class SensorBatching {
+
+    /** Sin batching: cada muestra se entrega al llegar */
+    public static final SensorBatching NONE = new SensorBatching(SensorManager.SENSOR_DELAY_NORMAL, 0);
+
+    /** Período de muestreo en µs o una constante SENSOR_DELAY_* */
+    public final int samplingPeriodUs;
+    /** Retardo máximo entre que se toma una muestra y se entrega, en µs */
+    public final int maxReportLatencyUs;
+
+    public SensorBatching(int samplingPeriodUs, int maxReportLatencyUs) {
+        if (maxReportLatencyUs < 0) throw new IllegalArgumentException("maxReportLatencyUs debe ser >= 0");
+        this.samplingPeriodUs = samplingPeriodUs;
+        this.maxReportLatencyUs = maxReportLatencyUs;
+    }
+
+    /** Muestreo normal entregado en lotes de hasta latencyMs */
+    public static SensorBatching withLatencyMs(int latencyMs) {
+        return new SensorBatching(SensorManager.SENSOR_DELAY_NORMAL, latencyMs * 1000);
+    }
+
+    /**
+     * Registra el listener; los eventos llegan por el Handler dado. Si el sensor
+     * no tiene FIFO el sistema entrega cada muestra al llegar (la latencia se ignora).
+     */
+    boolean register(SensorManager sensorManager, SensorEventListener listener, Sensor sensor, Handler handler) {
+        if (maxReportLatencyUs == 0) {
+            return sensorManager.registerListener(listener, sensor, samplingPeriodUs, handler);
+        }
+        if (sensor.getFifoMaxEventCount() == 0) {
+            android.util.Log.d("SensorBatching", sensor.getName() + " sin FIFO: entrega sin batching");
+        }
+        return sensorManager.registerListener(listener, sensor, samplingPeriodUs, maxReportLatencyUs, handler);
+    }
+}
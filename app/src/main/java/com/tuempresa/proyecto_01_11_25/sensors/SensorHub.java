@@ -0,0 +1,84 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * Hilos de procesamiento de sensores, compartidos por todo el proceso.
+ *
+ * Cada grupo de sensores tiene su HandlerThread: los listeners se registran con
+ * su Handler, así las muestras (y los detectores que las procesan) nunca pasan
+ * por el hilo principal, que queda libre para la UI y los recreate() del tema.
+ * Al hilo principal solo se publican las detecciones finales con postToMain().
+ *
+ * Los hilos se crean al primer uso y viven lo que el proceso: sobreviven a la
+ * recreación de las activities sin volver a arrancar.
+ */
+public class SensorHub {
+
+    /** Sensores que comparten hilo */
+    public enum Group {
+        /** Acelerómetro y giroscopio: muchas muestras, detección de gestos */
+        MOTION("SensorHub-motion", Process.THREAD_PRIORITY_DEFAULT),
+        /** Luz y pasos: pocas lecturas, sin apuro */
+        ENVIRONMENT("SensorHub-environment", Process.THREAD_PRIORITY_BACKGROUND);
+
+        final String threadName;
+        final int priority;
+
+        Group(String threadName, int priority) {
+            this.threadName = threadName;
+            this.priority = priority;
+        }
+    }
+
+    private static final Handler[] handlers = new Handler[Group.values().length];
+    private static Handler mainHandler;
+
+    /**
+     * Handler del hilo del grupo; lo arranca si es la primera vez
+     */
+    public static synchronized Handler handler(Group group) {
+        Handler handler = handlers[group.ordinal()];
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread(group.threadName, group.priority);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+            handlers[group.ordinal()] = handler;
+            android.util.Log.d("SensorHub", "Hilo " + group.threadName + " iniciado");
+        }
+        return handler;
+    }
+
+    /**
+     * Registra el listener para que sus onSensorChanged corran en el hilo del grupo
+     */
+    public static boolean register(Group group, SensorManager sensorManager, SensorEventListener listener,
+                                   Sensor sensor, SensorBatching batching) {
+        return batching.register(sensorManager, listener, sensor, handler(group));
+    }
+
+    /**
+     * Ejecuta en el hilo del grupo, en orden con las muestras de sus sensores
+     */
+    public static void post(Group group, Runnable task) {
+        handler(group).post(task);
+    }
+
+    /**
+     * Publica una detección en el hilo principal
+     */
+    public static void postToMain(Runnable task) {
+        mainHandler().post(task);
+    }
+
+    private static synchronized Handler mainHandler() {
+        if (mainHandler == null) mainHandler = new Handler(Looper.getMainLooper());
+        return mainHandler;
+    }
+}
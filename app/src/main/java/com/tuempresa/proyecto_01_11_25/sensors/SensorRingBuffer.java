@@ -0,0 +1,72 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+/**
+ * Buffer circular preasignado de muestras de un sensor: timestamps en un long[]
+ * y valores en un float[] plano (muestra i, eje a = values[i * axes + a]).
+ * Agregar y leer no crea objetos, así el camino de cada muestra no genera basura.
+ *
+ * Cada muestra recibe un número de secuencia creciente; un consumidor recuerda
+ * hasta dónde leyó y procesa solo lo nuevo (un lote de la FIFO, por ejemplo).
+ * Si se agregan más de capacity() sin leer, las más antiguas se pierden.
+ * La secuencia nunca se reinicia, así un consumidor reiniciado no relee lo ya visto.
+ *
+ * No es thread-safe: escribir y leer desde el hilo que recibe los eventos.
+ */
+public class SensorRingBuffer {
+
+    private final int axes;
+    private final int mask;
+    private final long[] timestamps;
+    private final float[] values;
+    private long written = 0; // Muestras agregadas en total; nunca vuelve atrás
+
+    /**
+     * @param capacity muestras que conserva (se redondea a potencia de 2)
+     * @param axes     valores por muestra (3 para acelerómetro o giroscopio, 1 para luz)
+     */
+    public SensorRingBuffer(int capacity, int axes) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.axes = axes;
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.values = new float[size * axes];
+    }
+
+    /** Copia los primeros axes() valores de la muestra */
+    public void add(long timestampNs, float[] sample) {
+        int slot = (int) (written & mask);
+        timestamps[slot] = timestampNs;
+        System.arraycopy(sample, 0, values, slot * axes, axes);
+        written++;
+    }
+
+    /** Secuencia de la próxima muestra a escribir (= total escrito) */
+    public long endSeq() {
+        return written;
+    }
+
+    /** Secuencia de la muestra más antigua que sigue en el buffer */
+    public long startSeq() {
+        return Math.max(0, written - timestamps.length);
+    }
+
+    public long getTimestamp(long seq) {
+        return timestamps[(int) (seq & mask)];
+    }
+
+    public float getValue(long seq, int axis) {
+        return values[(int) (seq & mask) * axes + axis];
+    }
+
+    public int size() {
+        return (int) (written - startSeq());
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public int axes() {
+        return axes;
+    }
+}
@@ -0,0 +1,273 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formato binario de las trazas de sensores que graba SensorTraceRecorder, para
+ * reproducir los detectores en la JVM sin dispositivo.
+ *
+ * Cabecera MAGIC + VERSION y luego registros [tipo][delta de tiempo][datos]. El
+ * delta es contra el registro anterior (de cualquier flujo), en nanosegundos,
+ * zigzag + varint: los lotes de sensores distintos llegan entrelazados y pueden
+ * retroceder un poco. Los valores de acelerómetro, giroscopio y luz van como
+ * float crudos; la ubicación en grados × 1e7 más la precisión. Un acelerómetro
+ * a 50 Hz ocupa 17 bytes por muestra (unos 3 MB por hora).
+ *
+ * Un registro a medias al final (la app se cerró grabando) se trata como fin.
+ */
+public final class SensorTrace {
+
+    static final int MAGIC = 0x48545243; // "HTRC"
+    static final int VERSION = 1;
+    private static final double E7 = 1e7;
+    private static final int MAX_LABEL_BYTES = 1024;
+
+    /** Flujos de la traza; el código es ordinal() + 1 */
+    public enum Stream {
+        ACCEL(3), GYRO(3), LIGHT(1), LOCATION(0), MARK(0);
+
+        /** Ejes de las muestras de sensor (0 en ubicación y marcas) */
+        public final int axes;
+
+        Stream(int axes) {
+            this.axes = axes;
+        }
+    }
+
+    private static final Stream[] STREAMS = Stream.values();
+
+    private SensorTrace() {
+    }
+
+    /**
+     * Escribe una traza. No es thread-safe: el grabador escribe desde un solo hilo.
+     */
+    public static final class Writer {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[64];
+        private long lastTimestampNs = 0;
+        private long records = 0;
+        private long bytes = 0;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = out;
+            int n = putInt(buffer, 0, MAGIC);
+            buffer[n++] = (byte) VERSION;
+            write(n);
+        }
+
+        public void sample(Stream stream, long timestampNs, float[] values) throws IOException {
+            int n = header(stream, timestampNs);
+            for (int axis = 0; axis < stream.axes; axis++) {
+                n = putInt(buffer, n, Float.floatToIntBits(values[axis]));
+            }
+            write(n);
+        }
+
+        public void location(long timestampNs, double lat, double lng, float accuracyM) throws IOException {
+            int n = header(Stream.LOCATION, timestampNs);
+            n = putInt(buffer, n, (int) Math.round(lat * E7));
+            n = putInt(buffer, n, (int) Math.round(lng * E7));
+            n = putInt(buffer, n, Float.floatToIntBits(accuracyM));
+            write(n);
+        }
+
+        /**
+         * Etiqueta un instante (un gesto hecho a propósito, una detección de la app)
+         * para medir contra ella al reproducir
+         */
+        public void mark(long timestampNs, String label) throws IOException {
+            byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+            int n = header(Stream.MARK, timestampNs);
+            n = putVarLong(buffer, n, utf8.length);
+            write(n);
+            out.write(utf8);
+            bytes += utf8.length;
+        }
+
+        public long getRecordCount() {
+            return records;
+        }
+
+        /** Bytes escritos hasta ahora, cabecera incluida */
+        public long getByteCount() {
+            return bytes;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void write(int n) throws IOException {
+            out.write(buffer, 0, n);
+            bytes += n;
+        }
+
+        private int header(Stream stream, long timestampNs) {
+            buffer[0] = (byte) (stream.ordinal() + 1);
+            int n = putVarLong(buffer, 1, zigzag(timestampNs - lastTimestampNs));
+            lastTimestampNs = timestampNs;
+            records++;
+            return n;
+        }
+    }
+
+    /**
+     * Lee una traza registro a registro, sin crear objetos por muestra (salvo
+     * las etiquetas). Pasarle un stream con buffer.
+     */
+    public static final class Reader {
+        private final InputStream in;
+        private final float[] values = new float[3];
+        private Stream stream;
+        private long timestampNs = 0;
+        private double lat;
+        private double lng;
+        private float accuracy;
+        private String label;
+
+        /**
+         * @throws IOException si no es una traza o es de una versión desconocida
+         */
+        public Reader(InputStream in) throws IOException {
+            this.in = in;
+            if (readInt() != MAGIC) throw new IOException("No es una traza de sensores");
+            int version = in.read();
+            if (version != VERSION) throw new IOException("Versión de traza no soportada: " + version);
+        }
+
+        /**
+         * Avanza al próximo registro
+         *
+         * @return false al final (o ante un registro incompleto)
+         */
+        public boolean next() throws IOException {
+            int code = in.read();
+            if (code < 0) return false;
+            if (code < 1 || code > STREAMS.length) throw new IOException("Registro de traza inválido: " + code);
+            try {
+                stream = STREAMS[code - 1];
+                timestampNs += unzigzag(readVarLong());
+                switch (stream) {
+                    case LOCATION:
+                        lat = readInt() / E7;
+                        lng = readInt() / E7;
+                        accuracy = Float.intBitsToFloat(readInt());
+                        break;
+                    case MARK:
+                        long length = readVarLong();
+                        if (length > MAX_LABEL_BYTES) throw new IOException("Etiqueta de traza inválida");
+                        byte[] utf8 = new byte[(int) length];
+                        readFully(utf8);
+                        label = new String(utf8, StandardCharsets.UTF_8);
+                        break;
+                    default:
+                        for (int axis = 0; axis < stream.axes; axis++) {
+                            values[axis] = Float.intBitsToFloat(readInt());
+                        }
+                }
+                return true;
+            } catch (EOFException truncated) {
+                return false;
+            }
+        }
+
+        public Stream getStream() {
+            return stream;
+        }
+
+        public long getTimestampNs() {
+            return timestampNs;
+        }
+
+        /** Valor del eje en ACCEL, GYRO y LIGHT */
+        public float getValue(int axis) {
+            return values[axis];
+        }
+
+        /** Los valores del registro actual; el arreglo se reusa en cada next() */
+        public float[] getValues() {
+            return values;
+        }
+
+        public double getLat() {
+            return lat;
+        }
+
+        public double getLng() {
+            return lng;
+        }
+
+        public float getAccuracy() {
+            return accuracy;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        private int readInt() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) value = (value << 8) | readByte();
+            return value;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Varint inválido en la traza");
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            return b;
+        }
+
+        private void readFully(byte[] bytes) throws IOException {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) throw new EOFException();
+                read += n;
+            }
+        }
+    }
+
+    private static int putInt(byte[] buffer, int at, int value) {
+        buffer[at] = (byte) (value >>> 24);
+        buffer[at + 1] = (byte) (value >>> 16);
+        buffer[at + 2] = (byte) (value >>> 8);
+        buffer[at + 3] = (byte) value;
+        return at + 4;
+    }
+
+    private static int putVarLong(byte[] buffer, int at, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer[at++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[at++] = (byte) value;
+        return at;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
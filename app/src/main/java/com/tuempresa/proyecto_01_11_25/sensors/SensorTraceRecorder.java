@@ -0,0 +1,245 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.location.Location;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+import com.tuempresa.proyecto_01_11_25.BuildConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Graba acelerómetro, giroscopio, luz y ubicación crudos en una traza
+ * (SensorTrace) en files/traces/, para reproducir los detectores en la JVM.
+ *
+ * Los sensores se registran con el mismo modo de entrega que sus gestores, así
+ * la traza trae los lotes que ven los detectores. La ubicación es pasiva: se
+ * graban las fijaciones que pide la app (la caminata) sin encender el GPS.
+ * Todo se escribe en el hilo MOTION de SensorHub, en orden.
+ *
+ * Una grabación por proceso; sobrevive a la recreación de las activities.
+ * Solo en builds de debug. Se detiene sola al llegar a MAX_DURATION_MS o
+ * MAX_BYTES, y al empezar otra se borran las más viejas (quedan MAX_TRACES).
+ */
+public class SensorTraceRecorder implements SensorEventListener {
+
+    private static final String TRACE_DIR = "traces";
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long LOCATION_INTERVAL_MS = 1000;
+    private static final long MAX_DURATION_MS = 60 * 60 * 1000;
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+    private static final int MAX_TRACES = 5;
+
+    private static SensorTraceRecorder active;
+
+    private final SensorManager sensorManager;
+    private final FusedLocationProviderClient fused;
+    private final File file;
+    private final SensorTrace.Writer writer;
+    private final long startedAtMs = SystemClock.elapsedRealtime();
+    private LocationCallback locationCallback;
+    private boolean failed = false; // Hilo MOTION
+    private boolean limitReached = false; // Hilo MOTION
+
+    private SensorTraceRecorder(Context ctx, File file) throws IOException {
+        this.file = file;
+        sensorManager = (SensorManager) ctx.getSystemService(Context.SENSOR_SERVICE);
+        fused = LocationServices.getFusedLocationProviderClient(ctx);
+        writer = new SensorTrace.Writer(new BufferedOutputStream(new FileOutputStream(file), BUFFER_BYTES));
+    }
+
+    /**
+     * Empieza a grabar
+     *
+     * @return el archivo de la traza, o null si ya se estaba grabando, no se pudo
+     * crear o no es un build de debug
+     */
+    public static synchronized File start(Context ctx) {
+        if (!BuildConfig.DEBUG || active != null) return null;
+        Context app = ctx.getApplicationContext();
+        File dir = new File(app.getFilesDir(), TRACE_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            android.util.Log.e("SensorTrace", "No se pudo crear " + dir);
+            return null;
+        }
+        pruneOldTraces(dir);
+        File file = new File(dir, "trace-" + System.currentTimeMillis() + ".bin");
+        try {
+            active = new SensorTraceRecorder(app, file);
+        } catch (IOException e) {
+            android.util.Log.e("SensorTrace", "No se pudo crear la traza", e);
+            return null;
+        }
+        active.register(app);
+        android.util.Log.d("SensorTrace", "Grabando en " + file);
+        return file;
+    }
+
+    /**
+     * Deja de grabar; el archivo se cierra después de las muestras ya recibidas
+     *
+     * @return el archivo grabado, o null si no se estaba grabando
+     */
+    public static synchronized File stop() {
+        return active != null ? stop(active) : null;
+    }
+
+    private static synchronized File stop(SensorTraceRecorder recorder) {
+        if (active != recorder) return null; // Ya se detuvo
+        active = null;
+        recorder.unregister();
+        SensorHub.post(SensorHub.Group.MOTION, recorder::close);
+        return recorder.file;
+    }
+
+    public static synchronized boolean isRecording() {
+        return active != null;
+    }
+
+    /**
+     * Etiqueta el instante actual en la traza (un gesto hecho a propósito o una
+     * detección de la app). No hace nada si no se está grabando.
+     */
+    public static synchronized void mark(String label) {
+        SensorTraceRecorder recorder = active;
+        if (recorder == null) return;
+        long now = SystemClock.elapsedRealtimeNanos();
+        SensorHub.post(SensorHub.Group.MOTION, () -> recorder.write(() -> recorder.writer.mark(now, label)));
+    }
+
+    private void register(Context ctx) {
+        registerSensor(Sensor.TYPE_ACCELEROMETER, AccelerometerSensorManager.DEFAULT_BATCHING);
+        registerSensor(Sensor.TYPE_GYROSCOPE, GyroSensorManager.DEFAULT_BATCHING);
+        registerSensor(Sensor.TYPE_LIGHT, LightSensorManager.DEFAULT_BATCHING);
+
+        if (ContextCompat.checkSelfPermission(ctx, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            android.util.Log.w("SensorTrace", "Sin permiso de ubicación: la traza no tendrá fijaciones");
+            return;
+        }
+        locationCallback = new LocationCallback() {
+            @Override
+            public void onLocationResult(@NonNull LocationResult result) {
+                for (Location loc : result.getLocations()) {
+                    write(() -> writer.location(loc.getElapsedRealtimeNanos(), loc.getLatitude(),
+                            loc.getLongitude(), loc.hasAccuracy() ? loc.getAccuracy() : Float.NaN));
+                }
+            }
+        };
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_PASSIVE, LOCATION_INTERVAL_MS).build();
+        fused.requestLocationUpdates(request, locationCallback, SensorHub.handler(SensorHub.Group.MOTION).getLooper());
+    }
+
+    /** Deja las MAX_TRACES - 1 trazas más nuevas, así con la que empieza quedan MAX_TRACES */
+    private static void pruneOldTraces(File dir) {
+        File[] traces = dir.listFiles((d, name) -> name.startsWith("trace-") && name.endsWith(".bin"));
+        if (traces == null || traces.length < MAX_TRACES) return;
+        Arrays.sort(traces, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (int i = MAX_TRACES - 1; i < traces.length; i++) {
+            if (!traces[i].delete()) android.util.Log.w("SensorTrace", "No se pudo borrar " + traces[i]);
+        }
+    }
+
+    private void registerSensor(int type, SensorBatching batching) {
+        Sensor sensor = sensorManager.getDefaultSensor(type);
+        if (sensor != null) SensorHub.register(SensorHub.Group.MOTION, sensorManager, this, sensor, batching);
+    }
+
+    private void unregister() {
+        sensorManager.unregisterListener(this);
+        if (locationCallback != null) fused.removeLocationUpdates(locationCallback);
+    }
+
+    /** Hilo MOTION de SensorHub */
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        SensorTrace.Stream stream;
+        switch (event.sensor.getType()) {
+            case Sensor.TYPE_ACCELEROMETER:
+                stream = SensorTrace.Stream.ACCEL;
+                break;
+            case Sensor.TYPE_GYROSCOPE:
+                stream = SensorTrace.Stream.GYRO;
+                break;
+            case Sensor.TYPE_LIGHT:
+                stream = SensorTrace.Stream.LIGHT;
+                break;
+            default:
+                return;
+        }
+        if (failed || limitReached) return;
+        try {
+            writer.sample(stream, event.timestamp, event.values);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        checkLimits();
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // La precisión no se graba
+    }
+
+    private interface TraceWrite {
+        void run() throws IOException;
+    }
+
+    /** Hilo MOTION: tras un error de escritura (disco lleno) se deja de grabar */
+    private void write(TraceWrite write) {
+        if (failed || limitReached) return;
+        try {
+            write.run();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        checkLimits();
+    }
+
+    /** Hilo MOTION: al llegar a un límite se detiene la grabación */
+    private void checkLimits() {
+        if (writer.getByteCount() >= MAX_BYTES
+                || SystemClock.elapsedRealtime() - startedAtMs >= MAX_DURATION_MS) {
+            limitReached = true;
+            android.util.Log.w("SensorTrace", "Límite de la traza alcanzado ("
+                    + writer.getByteCount() + " bytes); se detiene la grabación");
+            stop(this);
+        }
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        android.util.Log.e("SensorTrace", "Error al escribir la traza; se descarta el resto", e);
+    }
+
+    private void close() {
+        try {
+            writer.close();
+            android.util.Log.d("SensorTrace", "Traza cerrada: " + writer.getRecordCount() + " registros, "
+                    + file.length() + " bytes");
+        } catch (IOException e) {
+            android.util.Log.e("SensorTrace", "Error al cerrar la traza", e);
+        }
+    }
+}
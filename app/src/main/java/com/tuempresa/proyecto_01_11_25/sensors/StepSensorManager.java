@@ -3,34 +3,108 @@ package com.tuempresa.proyecto_01_11_25.sensors;
 import android.Manifest;
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
 import android.location.Location;
+import android.os.Build;
+import android.os.SystemClock;
 import android.widget.Toast;
 
 import androidx.core.content.ContextCompat;
 
-import com.google.android.gms.location.CurrentLocationRequest;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 import com.tuempresa.proyecto_01_11_25.model.HabitEvent;
 import com.tuempresa.proyecto_01_11_25.model.HabitEventStore;
+import com.tuempresa.proyecto_01_11_25.model.HabitRouteStore;
+import com.tuempresa.proyecto_01_11_25.model.RoutePolyline;
 
-public class StepSensorManager {
+/**
+ * Hábito de caminar: TARGET_METERS recorridos en el día.
+ *
+ * Con sensor de pasos (contador o detector, casi gratis en batería) la distancia
+ * es pasos × zancada. El GPS solo se consulta de forma puntual: una fijación cada
+ * CALIBRATION_STEPS pasos para calibrar la zancada (StrideCalibrator) y otra al
+ * completar, para ubicar el evento en el mapa. Los pasos del día se guardan, así
+ * una recreación de la activity no pierde lo caminado y, con el contador, cuentan
+ * también los pasos dados con la app cerrada.
+ *
+ * Sin sensor de pasos (o sin permiso de actividad física) se suman distancias
+ * entre ubicaciones. La frecuencia se adapta al movimiento (AdaptiveLocationSampler):
+ * alta precisión cada 2 s solo caminando, bajo consumo cada minuto quieto. El
+ * estado llega de onMotionStateChanged() (acelerómetro) y, estando quieto, el
+ * sensor de movimiento significativo lo devuelve a UNKNOWN al primer movimiento.
+ * Las ubicaciones pasan por TrackFilter (Kalman con rechazo de saltos), así el
+ * ruido del GPS parado o bajo techo no suma metros.
+ *
+ * El recorrido se guarda comprimido (RoutePolyline) en HabitRouteStore con la
+ * marca de tiempo del evento WALK.
+ */
+public class StepSensorManager implements SensorEventListener2 {
 
     private static final float TARGET_METERS = 150f;
+    /** Pasos entre fijaciones de GPS para calibrar la zancada */
+    private static final int CALIBRATION_STEPS = 300;
+    /** Cada cuántos pasos se guarda el progreso */
+    private static final int PERSIST_STEPS = 50;
+    /** Los pasos no tienen apuro: lotes de hasta 10 s */
+    private static final SensorBatching STEP_BATCHING = SensorBatching.withLatencyMs(10_000);
+
+    private static final String PREFS_NAME = "HabitusPrefs";
+    private static final String KEY_DAY = "walk_day";
+    private static final String KEY_STEPS = "walk_steps";
+    private static final String KEY_BASE = "walk_counter_base";
+    private static final String KEY_DONE = "walk_done";
+    private static final String KEY_STRIDE = "walk_stride_m";
+    private static final String KEY_STRIDE_WEIGHT = "walk_stride_weight_m";
 
     private final Context ctx;
     private final FusedLocationProviderClient fused;
-    private Location last;
-    private float accMeters = 0f;
-    private boolean done = false;
+    private final SharedPreferences prefs;
+    private final SensorManager sensorManager;
+    private final Sensor stepSensor; // Contador si hay, si no detector; null sin ninguno
+    private final StrideCalibrator calibrator;
+    private Runnable onWalkCompletedCallback;
+
+    // Recorrido de la caminata en curso, se guarda con el evento WALK
+    private RoutePolyline.Builder route = new RoutePolyline.Builder();
 
+    // Modo GPS
+    private TrackFilter track;
     private LocationCallback callback;
-    private Runnable onWalkCompletedCallback;
+    private final AdaptiveLocationSampler sampler = new AdaptiveLocationSampler();
+    private final Sensor significantMotion;
+    private boolean triggerArmed = false;
+    private final TriggerEventListener motionTrigger = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            // Se dispara una sola vez: el teléfono dejó de estar quieto
+            triggerArmed = false;
+            onMotionStateChanged(MotionStateClassifier.State.UNKNOWN);
+        }
+    };
+
+    // Modo pasos: los escribe el hilo ENVIRONMENT de SensorHub y se leen en el principal
+    private volatile boolean stepsActive = false;
+    private volatile long walkedSteps = 0;
+    private volatile double strideM;
+    private volatile boolean done = false;
+    private int day;
+    private volatile long counterBase = -1;
+    private volatile long nextCalibrationSteps;
+    private volatile long lastPersistedSteps;
+    private double lastFixLat = Double.NaN; // Última fijación de calibración (hilo principal)
+    private double lastFixLng = Double.NaN;
+    private final Runnable requestCalibrationFix = this::requestCalibrationFix;
 
     public StepSensorManager(Context ctx) {
         this(ctx, null);
@@ -40,59 +114,297 @@ public class StepSensorManager {
         this.ctx = ctx;
         this.onWalkCompletedCallback = onWalkCompletedCallback;
         this.fused = LocationServices.getFusedLocationProviderClient(ctx);
+        this.prefs = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.sensorManager = (SensorManager) ctx.getSystemService(Context.SENSOR_SERVICE);
+        Sensor counter = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+        this.stepSensor = counter != null ? counter : sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+        this.significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+        this.calibrator = new StrideCalibrator(prefs.getFloat(KEY_STRIDE, (float) StrideCalibrator.DEFAULT_STRIDE_M),
+                prefs.getFloat(KEY_STRIDE_WEIGHT, 0f));
+        this.strideM = calibrator.getStrideMeters();
+    }
+
+    /**
+     * true si hay sensor de pasos pero falta el permiso de actividad física (Android 10+);
+     * tras concederlo, stop() + start() pasa del modo GPS al de pasos
+     */
+    public boolean needsActivityPermission() {
+        return stepSensor != null && !hasActivityPermission();
+    }
+
+    private boolean canCountSteps() {
+        return stepSensor != null && hasActivityPermission();
+    }
+
+    private boolean hasActivityPermission() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                || ContextCompat.checkSelfPermission(ctx, Manifest.permission.ACTIVITY_RECOGNITION)
+                == PackageManager.PERMISSION_GRANTED;
     }
 
-    @SuppressLint("MissingPermission")
     public void start() {
-        done = false;
-        accMeters = 0f;
+        if (stepsActive || callback != null) return;
+        loadToday();
+        if (done) {
+            android.util.Log.d("StepSensor", "Meta de caminar ya cumplida hoy: sin sensores");
+            return;
+        }
+        if (canCountSteps()) {
+            startStepMode();
+        } else {
+            startGpsMode();
+        }
+    }
+
+    public void stop() {
+        if (stepsActive) {
+            stepsActive = false;
+            sensorManager.unregisterListener(this);
+            calibrator.resetSegment();
+            persist();
+        }
+        if (callback != null) {
+            fused.removeLocationUpdates(callback);
+            long now = SystemClock.elapsedRealtime();
+            sampler.stop(now);
+            android.util.Log.d("StepSensor", "Muestreo de ubicación: " + sampler.summary(now));
+        }
+        callback = null;
+        disarmMotionTrigger();
+    }
+
+    /**
+     * Estado de movimiento del teléfono (p.ej. de AccelerometerSensorManager).
+     * En modo GPS ajusta prioridad e intervalo de las ubicaciones. Hilo principal.
+     */
+    public void onMotionStateChanged(MotionStateClassifier.State state) {
+        if (!sampler.setState(state, SystemClock.elapsedRealtime())) return;
+        if (callback == null) return;
+        requestGpsUpdates();
+        android.util.Log.d("StepSensor", "Movimiento: " + state + " → ubicación cada "
+                + sampler.getIntervalMs() / 1000 + " s");
+    }
+
+    /** Tiempo y fijaciones por estado de movimiento, para validar el ahorro */
+    public AdaptiveLocationSampler getLocationSampler() {
+        return sampler;
+    }
+
+    /** Progreso guardado de hoy; otro día empieza de cero */
+    private void loadToday() {
+        day = HabitEventStore.today();
+        if (prefs.getInt(KEY_DAY, -1) == day) {
+            walkedSteps = prefs.getLong(KEY_STEPS, 0);
+            counterBase = prefs.getLong(KEY_BASE, -1);
+            done = prefs.getBoolean(KEY_DONE, false);
+        } else {
+            walkedSteps = 0;
+            counterBase = -1;
+            done = false;
+        }
+        lastPersistedSteps = walkedSteps;
+    }
+
+    private void persist() {
+        prefs.edit()
+                .putInt(KEY_DAY, day)
+                .putLong(KEY_STEPS, walkedSteps)
+                .putLong(KEY_BASE, counterBase)
+                .putBoolean(KEY_DONE, done)
+                .apply();
+        lastPersistedSteps = walkedSteps;
+    }
+
+    // --- Modo pasos ---
+
+    private void startStepMode() {
+        stepsActive = true;
+        route = new RoutePolyline.Builder();
+        lastFixLat = Double.NaN;
+        lastFixLng = Double.NaN;
+        nextCalibrationSteps = walkedSteps + CALIBRATION_STEPS;
+        SensorHub.register(SensorHub.Group.ENVIRONMENT, sensorManager, this, stepSensor, STEP_BATCHING);
+        requestCalibrationFix(); // Inicio del primer tramo
+        android.util.Log.d("StepSensor", "Contando pasos (" + walkedSteps + " hoy, zancada "
+                + Math.round(strideM * 100) + " cm)");
+    }
+
+    /** Hilo ENVIRONMENT de SensorHub */
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (!stepsActive || done) return;
+
+        if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
+            // Pasos desde el arranque del teléfono
+            long total = (long) event.values[0];
+            if (counterBase < 0 || total < counterBase) {
+                // Primera lectura del día o el teléfono se reinició: se sigue desde lo ya caminado
+                counterBase = total - walkedSteps;
+                persist();
+            }
+            walkedSteps = total - counterBase;
+        } else {
+            walkedSteps++; // Un evento por paso
+        }
+
+        if (walkedSteps * strideM >= TARGET_METERS) {
+            done = true;
+            persist();
+            SensorHub.postToMain(this::onStepGoalReached);
+            return;
+        }
+        if (walkedSteps >= nextCalibrationSteps) {
+            nextCalibrationSteps = walkedSteps + CALIBRATION_STEPS;
+            SensorHub.postToMain(requestCalibrationFix);
+        }
+        if (walkedSteps - lastPersistedSteps >= PERSIST_STEPS) persist();
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // No necesitamos manejar cambios de precisión
+    }
+
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        // Los pasos del flush ya llegaron por onSensorChanged
+    }
+
+    /** Hilo principal: una fijación puntual para calibrar la zancada */
+    @SuppressLint("MissingPermission")
+    private void requestCalibrationFix() {
+        if (!stepsActive || !hasPermission()) return;
+        fused.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null).addOnSuccessListener(loc -> {
+            if (loc != null && stepsActive) onCalibrationFix(loc);
+        });
+    }
+
+    private void onCalibrationFix(Location loc) {
+        sampler.onFix();
+        lastFixLat = loc.getLatitude();
+        lastFixLng = loc.getLongitude();
+        // Con pasos el recorrido es grueso: un punto por fijación de calibración
+        if (loc.getAccuracy() <= TrackFilter.MAX_ACCURACY_M) {
+            route.add(loc.getLatitude(), loc.getLongitude(), loc.getTime());
+        }
+        // Pasos al llegar la fijación, no al pedirla: se siguió caminando mientras tanto
+        if (calibrator.onFix(walkedSteps, loc.getLatitude(), loc.getLongitude(), loc.getAccuracy())) {
+            strideM = calibrator.getStrideMeters();
+            prefs.edit()
+                    .putFloat(KEY_STRIDE, (float) strideM)
+                    .putFloat(KEY_STRIDE_WEIGHT, (float) calibrator.getWeightMeters())
+                    .apply();
+            android.util.Log.d("StepSensor", "Zancada calibrada: " + Math.round(strideM * 100) + " cm");
+        }
+    }
+
+    /** Hilo principal: la meta se cumplió contando pasos */
+    @SuppressLint("MissingPermission")
+    private void onStepGoalReached() {
+        long steps = walkedSteps;
+        int meters = (int) (steps * strideM);
+        android.util.Log.d("StepSensor", "Meta de caminar alcanzada con " + steps + " pasos");
+        stop();
+
+        // Una sola fijación para ubicar el evento; también cierra un tramo de calibración.
+        // El evento se guarda siempre: sin fijación queda en la última de calibración o sin ubicación (NaN)
+        String note = "Caminar completado (" + meters + " m) · " + steps + " pasos 🚶";
+        if (hasPermission()) {
+            fused.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null).addOnCompleteListener(task -> {
+                Location loc = task.isSuccessful() ? task.getResult() : null;
+                if (loc != null) onCalibrationFix(loc);
+                saveWalkEvent(lastFixLat, lastFixLng, note, meters);
+            });
+        } else {
+            saveWalkEvent(lastFixLat, lastFixLng, note, meters);
+        }
+        notifyCompleted();
+    }
+
+    // --- Modo GPS (sin sensor de pasos) ---
+
+    @SuppressLint("MissingPermission")
+    private void startGpsMode() {
+        route = new RoutePolyline.Builder();
+        track = new TrackFilter(route);
         if (!hasPermission()) {
             Toast.makeText(ctx, "Sin permiso de ubicación", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        LocationRequest req = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 2000)
-                .setMinUpdateIntervalMillis(1500)
-                .setMinUpdateDistanceMeters(2)
-                .build();
-
         callback = new LocationCallback() {
             @Override
             public void onLocationResult(LocationResult result) {
                 for (Location loc : result.getLocations()) {
-                    if (last != null) {
-                        accMeters += last.distanceTo(loc);
-                    }
-                    last = loc;
+                    sampler.onFix();
+                    // Quieto, las fijaciones de bajo consumo solo aportarían su error
+                    if (!sampler.countsDistance()) continue;
+                    // Sin precisión conocida se asume la peor aceptable
+                    float accuracy = loc.hasAccuracy() ? loc.getAccuracy() : TrackFilter.MAX_ACCURACY_M;
+                    track.onFix(loc.getTime(), loc.getLatitude(), loc.getLongitude(), accuracy);
 
-                    if (!done && accMeters >= TARGET_METERS) {
+                    double meters = track.getDistanceMeters();
+                    if (!done && meters >= TARGET_METERS) {
                         done = true;
-                        HabitEventStore.add(new HabitEvent(
-                                loc.getLatitude(),
-                                loc.getLongitude(),
-                                "Caminar completado (" + (int)accMeters + " m) 🚶",
-                                HabitEvent.HabitType.WALK
-                        ));
-                        Toast.makeText(ctx, "Meta de caminar alcanzada", Toast.LENGTH_LONG).show();
-                        
-                        // Notificar callback si existe
-                        if (onWalkCompletedCallback != null) {
-                            onWalkCompletedCallback.run();
-                        }
-                        
+                        persist();
+                        android.util.Log.d("StepSensor", "Meta de caminar alcanzada: " + track.getAcceptedCount()
+                                + " fijaciones usadas, " + track.getRejectedCount() + " descartadas");
+                        saveWalkEvent(track.getLat(), track.getLng(), "Caminar completado (" + (int) meters + " m) 🚶",
+                                (int) meters);
                         stop();
+                        notifyCompleted();
                         break;
                     }
                 }
             }
         };
 
-        fused.requestLocationUpdates(req, callback, ctx.getMainLooper());
+        sampler.start(SystemClock.elapsedRealtime());
+        requestGpsUpdates();
+        android.util.Log.d("StepSensor", "Sin sensor de pasos: midiendo con GPS");
     }
 
-    public void stop() {
-        if (callback != null) fused.removeLocationUpdates(callback);
-        callback = null;
+    /** Pide (o reemplaza) las actualizaciones con los parámetros del estado actual */
+    @SuppressLint("MissingPermission")
+    private void requestGpsUpdates() {
+        fused.requestLocationUpdates(sampler.buildRequest(), callback, ctx.getMainLooper());
+        if (sampler.getState() == MotionStateClassifier.State.STATIONARY) {
+            armMotionTrigger();
+        } else {
+            disarmMotionTrigger();
+        }
+    }
+
+    private void armMotionTrigger() {
+        if (significantMotion == null || triggerArmed) return;
+        triggerArmed = sensorManager.requestTriggerSensor(motionTrigger, significantMotion);
+    }
+
+    private void disarmMotionTrigger() {
+        if (!triggerArmed) return;
+        sensorManager.cancelTriggerSensor(motionTrigger, significantMotion);
+        triggerArmed = false;
+    }
+
+    /** Guarda el evento WALK con la distancia y el recorrido de esta caminata */
+    private void saveWalkEvent(double lat, double lng, String note, int meters) {
+        HabitEvent event = new HabitEvent(lat, lng, note, HabitEvent.HabitType.WALK, System.currentTimeMillis(), meters);
+        HabitEventStore.add(event);
+        RoutePolyline polyline = route.build();
+        if (polyline.size() > 1) {
+            HabitRouteStore.get(ctx).putAsync(event.getTimestamp(), polyline);
+            android.util.Log.d("StepSensor", "Recorrido: " + polyline.size() + " puntos en "
+                    + polyline.sizeInBytes() + " bytes");
+        }
+    }
+
+    private void notifyCompleted() {
+        Toast.makeText(ctx, "Meta de caminar alcanzada", Toast.LENGTH_LONG).show();
+
+        // Notificar callback si existe
+        if (onWalkCompletedCallback != null) {
+            onWalkCompletedCallback.run();
+        }
     }
 
     private boolean hasPermission() {
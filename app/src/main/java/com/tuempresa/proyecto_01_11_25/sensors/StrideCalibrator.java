@@ -0,0 +1,98 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+/**
+ * Largo de zancada calibrado con fijaciones de GPS espaciadas.
+ *
+ * Entre dos fijaciones se comparan los pasos contados con la distancia en línea
+ * recta. El tramo solo se usa si es largo frente a la precisión de ambas
+ * fijaciones (error de GPS <= 25 %) y la zancada resultante es plausible; un
+ * tramo con vueltas acorta la línea recta y da una zancada baja, que se descarta.
+ * Cada tramo válido pesa según su distancia, con un tope para que la zancada siga
+ * adaptándose (calzado, ritmo).
+ *
+ * No es thread-safe: usarlo desde un solo hilo.
+ */
+public class StrideCalibrator {
+
+    static final double DEFAULT_STRIDE_M = 0.7;
+    static final double MIN_STRIDE_M = 0.4;
+    static final double MAX_STRIDE_M = 1.2;
+    static final int MIN_SEGMENT_STEPS = 100;
+    /** Distancia mínima del tramo por cada metro de imprecisión de las fijaciones */
+    private static final double MIN_DISTANCE_PER_ACCURACY = 4;
+    private static final double MAX_WEIGHT_M = 2000;
+    private static final double EARTH_RADIUS_M = 6_371_000;
+
+    private double strideM;
+    private double weightM;
+
+    // Fijación de inicio del tramo en curso
+    private boolean anchored = false;
+    private long anchorSteps;
+    private double anchorLat;
+    private double anchorLng;
+    private float anchorAccuracyM;
+
+    public StrideCalibrator() {
+        this(DEFAULT_STRIDE_M, 0);
+    }
+
+    /**
+     * @param strideM zancada guardada
+     * @param weightM metros de GPS que la respaldan (0 si es la de fábrica)
+     */
+    public StrideCalibrator(double strideM, double weightM) {
+        this.strideM = strideM >= MIN_STRIDE_M && strideM <= MAX_STRIDE_M ? strideM : DEFAULT_STRIDE_M;
+        this.weightM = Math.max(0, weightM);
+    }
+
+    /**
+     * Registra una fijación tomada cuando el contador marcaba steps pasos
+     *
+     * @return true si la zancada cambió
+     */
+    public boolean onFix(long steps, double lat, double lng, float accuracyM) {
+        boolean updated = false;
+        if (anchored && steps - anchorSteps >= MIN_SEGMENT_STEPS) {
+            double distance = distanceMeters(anchorLat, anchorLng, lat, lng);
+            double stride = distance / (steps - anchorSteps);
+            boolean precise = distance >= MIN_DISTANCE_PER_ACCURACY * (anchorAccuracyM + accuracyM);
+            if (precise && stride >= MIN_STRIDE_M && stride <= MAX_STRIDE_M) {
+                strideM += (stride - strideM) * distance / (weightM + distance);
+                weightM = Math.min(MAX_WEIGHT_M, weightM + distance);
+                updated = true;
+            }
+        }
+        if (!anchored || steps - anchorSteps >= MIN_SEGMENT_STEPS || accuracyM < anchorAccuracyM) {
+            // Nuevo tramo; con pocos pasos solo se cambia el inicio si la fijación es mejor
+            anchored = true;
+            anchorSteps = steps;
+            anchorLat = lat;
+            anchorLng = lng;
+            anchorAccuracyM = accuracyM;
+        }
+        return updated;
+    }
+
+    /** Olvida el tramo en curso (p.ej. al dejar de contar pasos) */
+    public void resetSegment() {
+        anchored = false;
+    }
+
+    public double getStrideMeters() {
+        return strideM;
+    }
+
+    public double getWeightMeters() {
+        return weightM;
+    }
+
+    /** Distancia entre dos puntos, fórmula del haversine */
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,215 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import com.tuempresa.proyecto_01_11_25.model.RoutePolyline;
+
+/**
+ * Filtro de Kalman de velocidad constante para las ubicaciones del GPS, con la
+ * distancia recorrida y el recorrido filtrado.
+ *
+ * Trabaja en metros sobre un plano local (este, norte) centrado en la primera
+ * fijación. Los dos ejes usan el mismo modelo y el mismo ruido de medición
+ * (la precisión de la fijación), así comparten una sola covarianza 2×2.
+ *
+ * Se descartan fijaciones poco precisas, las que implican una velocidad
+ * imposible caminando y las que caen demasiado lejos de la predicción (prueba
+ * chi² con la covarianza de la innovación). Si se descartan varias seguidas el
+ * filtro se reinicia en la última: era el filtro el que había quedado atrás.
+ *
+ * La distancia solo avanza cuando la posición filtrada se aleja del último punto
+ * confirmado y la velocidad estimada es clara, ambas más allá de su incertidumbre:
+ * quieto, el ruido del GPS no suma. Se mide en línea recta entre puntos
+ * confirmados, así que en las curvas tiende a quedar corta.
+ * Cada punto confirmado se agrega al recorrido.
+ *
+ * No es thread-safe: usarlo desde un solo hilo.
+ */
+public class TrackFilter {
+
+    static final float MAX_ACCURACY_M = 30f;
+    static final double MAX_SPEED_MPS = 8;      // Trotando rápido
+    private static final double ACCEL_VARIANCE = 0.05; // (m/s²)², caminando el ritmo cambia despacio
+    private static final double GATE_CHI2 = 13.8;     // 2 grados de libertad, 99.9 %
+    private static final int MAX_CONSECUTIVE_REJECTS = 4;
+    private static final double MIN_COMMIT_M = 3;
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    /** Resultado de onFix() */
+    public enum Result { ACCEPTED, REJECTED_ACCURACY, REJECTED_SPEED, REJECTED_GATE, RESET }
+
+    private final RoutePolyline.Builder route;
+
+    private boolean initialized = false;
+    private double originLat;
+    private double originLng;
+    private double metersPerDegreeLng;
+
+    // Estado [posición, velocidad] por eje y covarianza compartida
+    private double x;
+    private double vx;
+    private double y;
+    private double vy;
+    private double p00;
+    private double p01;
+    private double p11;
+    private long lastTimeMs;
+
+    // Última fijación aceptada, para la prueba de velocidad
+    private double lastFixX;
+    private double lastFixY;
+    private long lastFixTimeMs;
+    private int consecutiveRejects = 0;
+
+    // Último punto confirmado del recorrido
+    private double committedX;
+    private double committedY;
+    private double distanceM = 0;
+    private int accepted = 0;
+    private int rejected = 0;
+
+    /**
+     * @param route donde se agregan los puntos confirmados (null para no guardarlos)
+     */
+    public TrackFilter(RoutePolyline.Builder route) {
+        this.route = route;
+    }
+
+    public Result onFix(long timeMs, double lat, double lng, float accuracyM) {
+        if (accuracyM > MAX_ACCURACY_M) {
+            rejected++;
+            return Result.REJECTED_ACCURACY;
+        }
+        double r = Math.max(1, (double) accuracyM * accuracyM);
+        if (!initialized) {
+            start(timeMs, lat, lng, r);
+            return Result.ACCEPTED;
+        }
+        double zx = (lng - originLng) * metersPerDegreeLng;
+        double zy = (lat - originLat) * METERS_PER_DEGREE;
+
+        Result rejection = null;
+        double fixDt = (timeMs - lastFixTimeMs) / 1000.0;
+        double jump = Math.hypot(zx - lastFixX, zy - lastFixY);
+        // Margen por la precisión: dos fijaciones quietas pueden diferir en su error
+        if (fixDt > 0 && jump - 2 * accuracyM > MAX_SPEED_MPS * fixDt) rejection = Result.REJECTED_SPEED;
+
+        predict(timeMs);
+        double ix = zx - x;
+        double iy = zy - y;
+        double s = p00 + r;
+        if (rejection == null && (ix * ix + iy * iy) / s > GATE_CHI2) rejection = Result.REJECTED_GATE;
+
+        if (rejection != null) {
+            rejected++;
+            if (++consecutiveRejects < MAX_CONSECUTIVE_REJECTS) return rejection;
+            // Varias seguidas coinciden entre sí y no con el filtro: reiniciar ahí
+            restart(timeMs, zx, zy, r);
+            // El salto no se suma: sin fijaciones creíbles no se sabe por dónde se fue
+            committedX = x;
+            committedY = y;
+            if (route != null) route.add(getLat(), getLng(), timeMs);
+            return Result.RESET;
+        }
+
+        double k0 = p00 / s;
+        double k1 = p01 / s;
+        x += k0 * ix;
+        vx += k1 * ix;
+        y += k0 * iy;
+        vy += k1 * iy;
+        double np00 = (1 - k0) * p00;
+        double np01 = (1 - k0) * p01;
+        double np11 = p11 - k1 * p01;
+        p00 = np00;
+        p01 = np01;
+        p11 = np11;
+
+        consecutiveRejects = 0;
+        lastFixX = zx;
+        lastFixY = zy;
+        lastFixTimeMs = timeMs;
+        accepted++;
+        commit(timeMs);
+        return Result.ACCEPTED;
+    }
+
+    private void start(long timeMs, double lat, double lng, double r) {
+        initialized = true;
+        originLat = lat;
+        originLng = lng;
+        metersPerDegreeLng = METERS_PER_DEGREE * Math.cos(Math.toRadians(lat));
+        restart(timeMs, 0, 0, r);
+        committedX = 0;
+        committedY = 0;
+        if (route != null) route.add(lat, lng, timeMs);
+    }
+
+    private void restart(long timeMs, double zx, double zy, double r) {
+        x = zx;
+        y = zy;
+        vx = 0;
+        vy = 0;
+        p00 = r;
+        p01 = 0;
+        p11 = 4; // (2 m/s)²: velocidad desconocida
+        lastTimeMs = timeMs;
+        lastFixX = zx;
+        lastFixY = zy;
+        lastFixTimeMs = timeMs;
+        consecutiveRejects = 0;
+        accepted++;
+    }
+
+    private void predict(long timeMs) {
+        double dt = (timeMs - lastTimeMs) / 1000.0;
+        if (dt <= 0) return;
+        lastTimeMs = timeMs;
+        x += vx * dt;
+        y += vy * dt;
+        double dt2 = dt * dt;
+        double q = ACCEL_VARIANCE;
+        double np00 = p00 + 2 * dt * p01 + dt2 * p11 + q * dt2 * dt2 / 4;
+        double np01 = p01 + dt * p11 + q * dt2 * dt / 2;
+        double np11 = p11 + q * dt2;
+        p00 = np00;
+        p01 = np01;
+        p11 = np11;
+    }
+
+    private void commit(long timeMs) {
+        // Se confirma solo si el desplazamiento y la velocidad superan su incertidumbre
+        double moved = Math.hypot(x - committedX, y - committedY);
+        if (moved < Math.max(MIN_COMMIT_M, 2 * Math.sqrt(p00))) return;
+        if (getSpeed() < 2 * Math.sqrt(p11)) return;
+        distanceM += moved;
+        committedX = x;
+        committedY = y;
+        if (route != null) route.add(getLat(), getLng(), timeMs);
+    }
+
+    /** Metros recorridos según los puntos confirmados */
+    public double getDistanceMeters() {
+        return distanceM;
+    }
+
+    /** Latitud filtrada (sin fijaciones, NaN) */
+    public double getLat() {
+        return initialized ? originLat + y / METERS_PER_DEGREE : Double.NaN;
+    }
+
+    public double getLng() {
+        return initialized ? originLng + x / metersPerDegreeLng : Double.NaN;
+    }
+
+    /** Velocidad filtrada, m/s */
+    public double getSpeed() {
+        return Math.hypot(vx, vy);
+    }
+
+    public int getAcceptedCount() {
+        return accepted;
+    }
+
+    public int getRejectedCount() {
+        return rejected;
+    }
+}
@@ -1,7 +1,5 @@
 package com.tuempresa.proyecto_01_11_25.ui;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.widget.Button;
 import android.widget.EditText;
@@ -10,10 +8,8 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.tuempresa.proyecto_01_11_25.R;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.tuempresa.proyecto_01_11_25.model.Habit;
+import com.tuempresa.proyecto_01_11_25.model.HabitRepository;
 
 public class CreateHabitActivity extends AppCompatActivity {
 
@@ -24,7 +20,7 @@ public class CreateHabitActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_create_habit);
-
+        HabitRepository.init(this);
 
         edtName = findViewById(R.id.edtName);
         edtGoal = findViewById(R.id.edtGoal);
@@ -46,45 +42,13 @@ public class CreateHabitActivity extends AppCompatActivity {
             return;
         }
 
-        SharedPreferences prefs = getSharedPreferences("HabitusPrefs", Context.MODE_PRIVATE);
-        String existing = prefs.getString("habits", null);
-        JSONArray array = new JSONArray();
-
-        try {
-
-            if (existing != null) {
-                array = new JSONArray(existing);
-            }
-
-
-            for (int i = 0; i < array.length(); i++) {
-                JSONObject existingHabit = array.getJSONObject(i);
-                if (existingHabit.getString("name").equalsIgnoreCase(name)) {
-                    Toast.makeText(this, "⚠️ Ya existe un hábito con ese nombre", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-            }
-
-
-            JSONObject habitObj = new JSONObject();
-            habitObj.put("name", name);
-            habitObj.put("goal", goal);
-            habitObj.put("period", period);
-            habitObj.put("type", type);
-            habitObj.put("done", false);
-
-
-            array.put(habitObj);
-
-
-            prefs.edit().putString("habits", array.toString()).apply();
-
-            Toast.makeText(this, "✅ Hábito guardado correctamente", Toast.LENGTH_SHORT).show();
-            finish();
-
-        } catch (JSONException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "❌ Error al guardar el hábito", Toast.LENGTH_SHORT).show();
+        // El repositorio comprueba el nombre en su índice (O(1), sin recorrer el JSON guardado)
+        // y guarda en segundo plano; el dashboard se entera por su listener
+        if (!HabitRepository.add(new Habit(name, goal, period, type, Habit.HabitType.CUSTOM))) {
+            Toast.makeText(this, "⚠️ Ya existe un hábito con ese nombre", Toast.LENGTH_SHORT).show();
+            return;
         }
+        Toast.makeText(this, "✅ Hábito guardado correctamente", Toast.LENGTH_SHORT).show();
+        finish();
     }
 }
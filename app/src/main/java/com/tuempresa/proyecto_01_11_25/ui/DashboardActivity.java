@@ -19,18 +19,27 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.tuempresa.proyecto_01_11_25.BuildConfig;
 import com.tuempresa.proyecto_01_11_25.R;
+import com.tuempresa.proyecto_01_11_25.model.ExerciseSet;
 import com.tuempresa.proyecto_01_11_25.model.Habit;
 import com.tuempresa.proyecto_01_11_25.model.HabitEvent;
 import com.tuempresa.proyecto_01_11_25.model.HabitEventStore;
+import com.tuempresa.proyecto_01_11_25.model.HabitExerciseStore;
+import com.tuempresa.proyecto_01_11_25.model.HabitHistory;
+import com.tuempresa.proyecto_01_11_25.model.HabitRepository;
 import com.tuempresa.proyecto_01_11_25.sensors.AccelerometerSensorManager;
 import com.tuempresa.proyecto_01_11_25.sensors.GyroSensorManager;
 import com.tuempresa.proyecto_01_11_25.sensors.LightSensorManager;
+import com.tuempresa.proyecto_01_11_25.sensors.SensorTraceRecorder;
 import com.tuempresa.proyecto_01_11_25.sensors.StepSensorManager;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 
 public class DashboardActivity extends AppCompatActivity {
@@ -38,7 +47,9 @@ public class DashboardActivity extends AppCompatActivity {
     private static final String PREFS_NAME = "DashboardPrefs";
     private static final String KEY_NIGHT_MODE = "night_mode";
     private static final String KEY_FOCUS_MODE = "focus_mode";
-    private static final String KEY_HABITS_STATE = "habits_completed_state";
+    private static final String KEY_HABITS_STATE = "habits_completed_state"; // Formato anterior: un boolean por hábito, sin fecha
+    private static final String HISTORY_FILE = "habit_history.bin";
+    private static final String EXERCISE_NOTE = "Ejercicio 🏋️";
     private static final String KEY_LAST_RECREATION_TIME = "last_recreation_time";
     private static final long SENSOR_DELAY_MS = 5000; // 5 segundos antes de activar sensores (evitar loops)
     private static final long LIGHT_DEBOUNCE_MS = 5000; // 5 segundos debounce (aumentado para evitar parpadeos)
@@ -54,6 +65,9 @@ public class DashboardActivity extends AppCompatActivity {
     private AccelerometerSensorManager accelerometerSensor;
 
     private List<Habit> habits;
+    private HabitHistory history;
+    private final HabitRepository.Listener habitsListener = this::onHabitsChanged;
+    private int today; // Día local de los estados mostrados; al cambiar, se reinician
     private FusedLocationProviderClient fused;
     private Handler mainHandler;
     private SharedPreferences prefs;
@@ -131,16 +145,25 @@ public class DashboardActivity extends AppCompatActivity {
         // 🔥 Inicializar HabitEventStore para cargar eventos guardados
         HabitEventStore.init(this);
 
-        // 🔥 Cargar hábitos (predeterminados o con estados guardados)
+        // 🔥 Cargar hábitos (predeterminados y del usuario, con el estado de hoy)
+        HabitRepository.init(this);
         habits = loadHabitsWithState();
 
         rv = findViewById(R.id.rvHabits);
         rv.setLayoutManager(new LinearLayoutManager(this));
         adapter = new HabitAdapter(habits, this::completeDemoHabit);
         rv.setAdapter(adapter);
+        HabitRepository.addListener(habitsListener);
 
         btnMap = findViewById(R.id.btnMap);
         btnMap.setOnClickListener(v -> startActivity(new Intent(this, MapActivity.class)));
+        // Pulsación larga: grabar una traza de sensores (solo en builds de debug)
+        if (BuildConfig.DEBUG) {
+            btnMap.setOnLongClickListener(v -> {
+                toggleSensorTrace();
+                return true;
+            });
+        }
 
         FloatingActionButton btnCamera = findViewById(R.id.btnCamera);
         btnCamera.setOnClickListener(v -> {
@@ -154,14 +177,19 @@ public class DashboardActivity extends AppCompatActivity {
             }
         });
 
-        // Botón temporal para resetear estado (solo para debugging - remover en producción)
         FloatingActionButton fabAddHabit = findViewById(R.id.fabAddHabit);
         if (fabAddHabit != null) {
-            fabAddHabit.setOnClickListener(v -> {
-                // Resetear estados para testing
+            fabAddHabit.setOnClickListener(v -> startActivity(new Intent(this, CreateHabitActivity.class)));
+
+            // Pulsación larga: resetear estado (solo para debugging - remover en producción)
+            fabAddHabit.setOnLongClickListener(v -> {
+                // Resetear estados para testing (el historial de días anteriores se conserva)
                 prefs.edit().clear().apply();
+                for (Habit habit : habits) habit.setCompleted(false);
+                saveHabitsState();
                 Toast.makeText(this, "Estados reseteados", Toast.LENGTH_SHORT).show();
                 recreate();
+                return true;
             });
         }
 
@@ -171,6 +199,11 @@ public class DashboardActivity extends AppCompatActivity {
             completeHabitByType(Habit.HabitType.WALK);
         });
         walkSensor.start();
+        if (walkSensor.needsActivityPermission()) {
+            // Con el permiso se cuentan pasos en lugar de usar GPS continuo
+            ActivityCompat.requestPermissions(this,
+                    new String[]{android.Manifest.permission.ACTIVITY_RECOGNITION}, 101);
+        }
 
         // 🔦 Sensor de luz — modo nocturno dinámico
         lightSensor = new LightSensorManager(this, new LightSensorManager.OnLowLightListener() {
@@ -185,11 +218,15 @@ public class DashboardActivity extends AppCompatActivity {
             }
         });
         
-        // 🏋️ Sensor de acelerómetro — detección de ejercicio/movimiento
-        accelerometerSensor = new AccelerometerSensorManager(this, () -> {
-            // Callback cuando se detecta ejercicio (movimiento continuo)
+        // 🏋️ Sensor de acelerómetro — series de ejercicio con repeticiones y cadencia
+        accelerometerSensor = new AccelerometerSensorManager(this, set -> {
+            // Cada serie queda en el mapa con su detalle; la primera del día completa el hábito
+            SensorTraceRecorder.mark("exercise");
+            saveExerciseEvent(set);
             completeHabitByType(Habit.HabitType.EXERCISE);
         });
+        // El mismo acelerómetro dice si el teléfono está quieto: el GPS de caminar se espacia
+        accelerometerSensor.setMotionStateListener(walkSensor::onMotionStateChanged);
 
         // 🧘 Sensor de giros — modo foco azul
         gyroSensor = new GyroSensorManager(this, this::activateFocusMode);
@@ -343,11 +380,31 @@ public class DashboardActivity extends AppCompatActivity {
         safeRecreate();
     }
 
+    /**
+     * Empieza o termina la grabación de la traza de sensores (files/traces/).
+     * Las detecciones de la app quedan marcadas en la traza para compararlas al reproducirla.
+     */
+    private void toggleSensorTrace() {
+        File trace = SensorTraceRecorder.isRecording()
+                ? SensorTraceRecorder.stop()
+                : SensorTraceRecorder.start(this);
+        String message;
+        if (trace == null) {
+            message = "No se pudo grabar la traza";
+        } else if (SensorTraceRecorder.isRecording()) {
+            message = "Grabando sensores: " + trace.getName();
+        } else {
+            message = "Traza guardada: " + trace.getName();
+        }
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
+
     /**
      * Activa el modo foco (azul) con giroscopio
      */
     private void activateFocusMode() {
         android.util.Log.d("Dashboard", "activateFocusMode llamado: isRecreating=" + isRecreating + ", focusMode=" + focusMode);
+        SensorTraceRecorder.mark("focus");
         
         if (isRecreating) {
             android.util.Log.d("Dashboard", "Recreando, ignorando activación");
@@ -448,10 +505,35 @@ public class DashboardActivity extends AppCompatActivity {
         }, 1000); // Aumentado a 1 segundo para dar más tiempo
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refreshDay();
+        // Las lecturas llegan en lotes: pedir ya la luz actual en lugar de esperar al próximo
+        if (lightSensor != null) lightSensor.flush();
+    }
+
+    /**
+     * Si cambió el día desde que se cargaron los estados, los hábitos vuelven a
+     * pendientes (lo de ayer queda en el historial)
+     */
+    private void refreshDay() {
+        int current = HabitEventStore.today();
+        if (current == today || habits == null) return;
+        android.util.Log.d("Dashboard", "Nuevo día: reiniciando estados de hábitos");
+        today = current;
+        for (Habit habit : habits) {
+            habit.setCompleted(history.isCompleted(habit.getTitle(), today));
+        }
+        adapter.notifyDataSetChanged();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
         
+        HabitRepository.removeListener(habitsListener);
+
         // Limpiar handlers pendientes
         if (mainHandler != null) {
             mainHandler.removeCallbacksAndMessages(null);
@@ -465,50 +547,64 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
     /**
-     * Carga los hábitos predeterminados y restaura sus estados de completado
+     * Carga los hábitos del repositorio con su estado de hoy según el historial
      */
     private List<Habit> loadHabitsWithState() {
-        List<Habit> defaultHabits = Habit.defaultHabits();
-        
-        // Cargar estados guardados
+        List<Habit> list = HabitRepository.all();
+        history = new HabitHistory(new File(getFilesDir(), HISTORY_FILE));
+        history.load();
+        today = HabitEventStore.today();
+        migrateHabitsState();
+
+        for (Habit habit : list) {
+            habit.setCompleted(history.isCompleted(habit.getTitle(), today)); // Usar título como key
+        }
+        return list;
+    }
+
+    /**
+     * Se creó un hábito (p.ej. desde CreateHabitActivity): se muestra la lista nueva
+     */
+    private void onHabitsChanged(List<Habit> all) {
+        habits.clear();
+        habits.addAll(all);
+        for (Habit habit : habits) {
+            habit.setCompleted(history.isCompleted(habit.getTitle(), today));
+        }
+        adapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Pasa al historial los estados del formato anterior. No tenían fecha: los
+     * completados se toman como cumplidos hoy.
+     */
+    private void migrateHabitsState() {
         String habitsStateJson = prefs.getString(KEY_HABITS_STATE, null);
-        if (habitsStateJson != null) {
-            try {
-                JSONObject stateJson = new JSONObject(habitsStateJson);
-                
-                // Restaurar estado de cada hábito
-                for (Habit habit : defaultHabits) {
-                    String habitKey = habit.getTitle(); // Usar título como key
-                    if (stateJson.has(habitKey)) {
-                        boolean completed = stateJson.getBoolean(habitKey);
-                        habit.setCompleted(completed);
-                        android.util.Log.d("Dashboard", "Restaurado estado de " + habitKey + ": " + completed);
-                    }
-                }
-            } catch (JSONException e) {
-                android.util.Log.e("Dashboard", "Error al cargar estados de hábitos", e);
+        if (habitsStateJson == null) return;
+        try {
+            JSONObject stateJson = new JSONObject(habitsStateJson);
+            Iterator<String> titles = stateJson.keys();
+            while (titles.hasNext()) {
+                String title = titles.next();
+                if (stateJson.optBoolean(title, false)) history.setCompleted(title, today, true);
             }
+            history.save();
+            android.util.Log.d("Dashboard", "Estados de hábitos migrados al historial");
+        } catch (JSONException | IOException e) {
+            android.util.Log.e("Dashboard", "Error al migrar estados de hábitos", e);
+            return;
         }
-        
-        return defaultHabits;
+        prefs.edit().remove(KEY_HABITS_STATE).apply();
     }
 
     /**
-     * Guarda los estados de completado de todos los hábitos
+     * Guarda en el historial el estado de hoy de todos los hábitos
      */
     private void saveHabitsState() {
-        try {
-            JSONObject stateJson = new JSONObject();
-            
-            for (Habit habit : habits) {
-                stateJson.put(habit.getTitle(), habit.isCompleted());
-            }
-            
-            prefs.edit().putString(KEY_HABITS_STATE, stateJson.toString()).apply();
-            android.util.Log.d("Dashboard", "Estados de hábitos guardados");
-        } catch (JSONException e) {
-            android.util.Log.e("Dashboard", "Error al guardar estados de hábitos", e);
+        for (Habit habit : habits) {
+            history.setCompleted(habit.getTitle(), today, habit.isCompleted());
         }
+        history.saveAsync(); // El fsync no bloquea el hilo principal
     }
 
     @Override
@@ -529,13 +625,47 @@ public class DashboardActivity extends AppCompatActivity {
             startActivityForResult(new Intent(this, CameraActivity.class), 200);
         } else if (requestCode == 100) {
             Toast.makeText(this, "Se necesita permiso de cámara para leer", Toast.LENGTH_SHORT).show();
+        } else if (requestCode == 101 && grantResults.length > 0 && grantResults[0] == android.content.pm.PackageManager.PERMISSION_GRANTED) {
+            // Pasar del modo GPS al contador de pasos
+            walkSensor.stop();
+            walkSensor.start();
+        }
+    }
+
+    /**
+     * Guarda una serie de ejercicio en el mapa. La nota es fija (una sola entrada
+     * en el diccionario de notas); repeticiones, cadencia e intensidad van en HabitExerciseStore.
+     * La serie se guarda siempre: sin ubicación el evento queda sin lat/lng (NaN) y no sale en el mapa.
+     */
+    private void saveExerciseEvent(ExerciseSet set) {
+        if (ContextCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_FINE_LOCATION)
+                != android.content.pm.PackageManager.PERMISSION_GRANTED) {
+            addExerciseEvent(Double.NaN, Double.NaN, set);
+            return;
         }
+        fused.getLastLocation().addOnCompleteListener(task -> {
+            android.location.Location loc = task.isSuccessful() ? task.getResult() : null;
+            if (loc != null) {
+                addExerciseEvent(loc.getLatitude(), loc.getLongitude(), set);
+            } else {
+                addExerciseEvent(Double.NaN, Double.NaN, set);
+            }
+        });
+    }
+
+    private void addExerciseEvent(double lat, double lng, ExerciseSet set) {
+        HabitEvent event = new HabitEvent(lat, lng, EXERCISE_NOTE, HabitEvent.HabitType.EXERCISE);
+        HabitEventStore.add(event);
+        HabitExerciseStore.get(this).putAsync(event.getTimestamp(), set);
+        android.util.Log.d("Dashboard", "Serie de ejercicio guardada: " + set.getReps() + " reps"
+                + (Double.isNaN(lat) ? " (sin ubicación)" : ""));
     }
 
     /**
      * Completa un hábito por su tipo (EXERCISE, WALK, READ, DEMO)
      */
     private void completeHabitByType(Habit.HabitType type) {
+        refreshDay();
         for (Habit habit : habits) {
             if (habit.getType() == type && !habit.isCompleted()) {
                 habit.setCompleted(true);
@@ -543,21 +673,8 @@ public class DashboardActivity extends AppCompatActivity {
                 // Guardar estado inmediatamente
                 saveHabitsState();
                 
-                // Guardar evento en el mapa (excepto WALK que ya lo guarda StepSensorManager, READ lo guarda CameraActivity)
-                if (type == Habit.HabitType.EXERCISE) {
-                    fused.getLastLocation().addOnSuccessListener(loc -> {
-                        if (loc != null) {
-                            HabitEventStore.add(new HabitEvent(
-                                    loc.getLatitude(),
-                                    loc.getLongitude(),
-                                    "Ejercicio ✅ Completado",
-                                    HabitEvent.HabitType.EXERCISE
-                            ));
-                            android.util.Log.d("Dashboard", "Evento de ejercicio guardado en mapa");
-                        }
-                    });
-                }
-                // Nota: WALK ya guarda su evento en StepSensorManager, READ lo guarda CameraActivity, DEMO lo guarda en completeDemoHabit
+                // Nota: EXERCISE guarda un evento por serie en saveExerciseEvent, WALK lo guarda StepSensorManager,
+                // READ lo guarda CameraActivity, DEMO lo guarda en completeDemoHabit
                 
                 // Actualizar UI
                 int position = habits.indexOf(habit);
@@ -568,7 +685,9 @@ public class DashboardActivity extends AppCompatActivity {
                 }
                 
                 android.util.Log.d("Dashboard", "Hábito completado: " + habit.getTitle());
-                Toast.makeText(this, "✅ " + habit.getTitle() + " completado", Toast.LENGTH_SHORT).show();
+                int streak = history.currentStreak(habit.getTitle(), today);
+                Toast.makeText(this, "✅ " + habit.getTitle() + " completado"
+                        + (streak > 1 ? " · racha de " + streak + " días" : ""), Toast.LENGTH_SHORT).show();
                 break;
             }
         }
@@ -576,6 +695,7 @@ public class DashboardActivity extends AppCompatActivity {
 
     /** ✅ Toggle hábito con click - puede marcar/desmarcar */
     private void completeDemoHabit(Habit h) {
+        refreshDay();
         // Si ya está completado, desmarcarlo (toggle)
         if (h.isCompleted()) {
             h.setCompleted(false);
@@ -596,23 +716,25 @@ public class DashboardActivity extends AppCompatActivity {
             return;
         }
 
-        // Si no está completado, solo DEMO puede marcarse manualmente
-        if (h.getType() == Habit.HabitType.DEMO) {
+        // Si no está completado, solo DEMO y los creados por el usuario pueden marcarse manualmente
+        if (h.getType() == Habit.HabitType.DEMO || h.getType() == Habit.HabitType.CUSTOM) {
             h.setCompleted(true);
             
             // Guardar estado inmediatamente
             saveHabitsState();
             
-            fused.getLastLocation().addOnSuccessListener(loc -> {
-                if (loc != null) {
-                    HabitEventStore.add(new HabitEvent(
-                            loc.getLatitude(),
-                            loc.getLongitude(),
-                            "Demo ✅ Completado",
-                            HabitEvent.HabitType.DEMO
-                    ));
-                }
-            });
+            if (h.getType() == Habit.HabitType.DEMO) {
+                fused.getLastLocation().addOnSuccessListener(loc -> {
+                    if (loc != null) {
+                        HabitEventStore.add(new HabitEvent(
+                                loc.getLatitude(),
+                                loc.getLongitude(),
+                                "Demo ✅ Completado",
+                                HabitEvent.HabitType.DEMO
+                        ));
+                    }
+                });
+            }
             // Actualizar solo el item específico para mejor rendimiento
             int position = habits.indexOf(h);
             if (position >= 0) {
@@ -4,6 +4,8 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -16,17 +18,66 @@ import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.tuempresa.proyecto_01_11_25.R;
+import com.tuempresa.proyecto_01_11_25.model.ExerciseSet;
 import com.tuempresa.proyecto_01_11_25.model.HabitEvent;
+import com.tuempresa.proyecto_01_11_25.model.HabitEventCursor;
 import com.tuempresa.proyecto_01_11_25.model.HabitEventStore;
+import com.tuempresa.proyecto_01_11_25.model.HabitExerciseStore;
+import com.tuempresa.proyecto_01_11_25.model.HabitRouteStore;
+import com.tuempresa.proyecto_01_11_25.model.SimplifiedRoute;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Mapa de eventos: marcadores por evento y los recorridos de las caminatas.
+ *
+ * Los recorridos se cargan y simplifican en un hilo de fondo (SimplifiedRoute,
+ * un nivel de detalle por zoom). Al detenerse la cámara solo se dibujan los que
+ * tocan la vista; una polilínea ya dibujada con el mismo zoom no se toca al
+ * desplazarse. Las series de ejercicio (HabitExerciseStore) se cargan igual y
+ * su detalle va en el snippet del marcador.
+ */
 public class MapActivity extends AppCompatActivity implements OnMapReadyCallback {
 
+    private static final int MAX_VISIBLE_MARKERS = 300; // Con la vista muy alejada no se satura el mapa
+    private static final int MAX_VISIBLE_ROUTES = 200;
+    private static final float ROUTE_WIDTH_PX = 8f;
+
     private GoogleMap map;
+    private final Map<Integer, Marker> markers = new HashMap<>();
+    private final Map<HabitEvent.HabitType, BitmapDescriptor> iconCache = new EnumMap<>(HabitEvent.HabitType.class);
+
+    // Recorridos: la lista se arma en routeExecutor; las polilíneas, en el hilo principal
+    private final ExecutorService routeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "MapRoutes");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile List<SimplifiedRoute> routes = Collections.emptyList();
+    private final Map<Long, Polyline> polylines = new HashMap<>();
+    private final Map<Long, Integer> polylineZoom = new HashMap<>();
+    private int routeRequest = 0; // Descarta resultados de una cámara que ya se movió
+    private volatile Map<Long, ExerciseSet> exerciseSets = Collections.emptyMap();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -43,35 +94,190 @@ public class MapActivity extends AppCompatActivity implements OnMapReadyCallback
     @Override
     public void onMapReady(@NonNull GoogleMap googleMap) {
         map = googleMap;
-        drawEvents();
+        // Cada vez que la cámara se detiene se dibujan solo los eventos visibles
+        map.setOnCameraIdleListener(() -> {
+            drawVisibleEvents();
+            drawVisibleRoutes();
+        });
+        routeExecutor.execute(this::loadRoutes);
+        routeExecutor.execute(this::loadExerciseSets);
+
+        HabitEvent latest = HabitEventStore.latest();
+        if (latest != null && !Double.isNaN(latest.getLat())) {
+            map.moveCamera(CameraUpdateFactory.newLatLngZoom(new LatLng(latest.getLat(), latest.getLng()), 16f));
+        }
     }
 
-    private void drawEvents() {
-        List<HabitEvent> list = HabitEventStore.all();
-        if (list.isEmpty()) return;
+    /**
+     * Agrega marcadores para los eventos que entraron en la vista y quita los que salieron
+     */
+    private void drawVisibleEvents() {
+        LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+        // Consulta al índice espacial del store: solo las celdas visibles, sin copiar el historial
+        HabitEventCursor cursor = HabitEventStore.eventsInBounds(bounds);
+
+        Set<Integer> visible = new HashSet<>();
+        while (cursor.moveToNext() && visible.size() < MAX_VISIBLE_MARKERS) {
+            int row = cursor.getRow();
+            visible.add(row);
+            if (markers.containsKey(row)) continue;
 
-        LatLng focus = null;
-        for (HabitEvent e : list) {
-            LatLng p = new LatLng(e.getLat(), e.getLng());
+            LatLng p = new LatLng(cursor.getLat(), cursor.getLng());
             
             // Usar iconos personalizados según el tipo de evento
-            BitmapDescriptor icon = getIconForEventType(e.getType());
+            BitmapDescriptor icon = getIconForEventType(cursor.getType());
 
-            map.addMarker(new MarkerOptions()
+            MarkerOptions options = new MarkerOptions()
                     .position(p)
-                    .title(e.getNote())
-                    .icon(icon));
-            focus = p;
+                    .title(cursor.getNote())
+                    .icon(icon);
+            ExerciseSet set = null;
+            if (cursor.getType() == HabitEvent.HabitType.EXERCISE) {
+                set = exerciseSets.get(cursor.getTimestamp());
+                if (set != null) options.snippet(describe(set));
+            }
+            Marker marker = map.addMarker(options);
+            if (marker == null) continue;
+            markers.put(row, marker);
+            // Si las series todavía no cargaron, el snippet se completa al llegar
+            if (cursor.getType() == HabitEvent.HabitType.EXERCISE && set == null) marker.setTag(cursor.getTimestamp());
         }
-        if (focus != null) {
-            map.moveCamera(CameraUpdateFactory.newLatLngZoom(focus, 16f));
+
+        Iterator<Map.Entry<Integer, Marker>> it = markers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Marker> entry = it.next();
+            if (!visible.contains(entry.getKey())) {
+                entry.getValue().remove();
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        routeExecutor.shutdownNow();
+    }
+
+    /**
+     * Carga y simplifica todos los recorridos guardados (hilo de fondo)
+     */
+    private void loadRoutes() {
+        List<SimplifiedRoute> loaded = new ArrayList<>();
+        try {
+            HabitRouteStore.get(this).forEach((timestamp, route) -> {
+                if (route.size() > 1) loaded.add(SimplifiedRoute.of(timestamp, route));
+            });
+        } catch (IOException e) {
+            android.util.Log.e("MapActivity", "Error al leer recorridos", e);
+            return;
+        }
+        routes = loaded;
+        android.util.Log.d("MapActivity", "Recorridos cargados: " + loaded.size());
+        mainHandler.post(this::drawVisibleRoutes);
+    }
+
+    /**
+     * Carga las métricas de las series de ejercicio (hilo de fondo)
+     */
+    private void loadExerciseSets() {
+        Map<Long, ExerciseSet> loaded = new HashMap<>();
+        try {
+            HabitExerciseStore.get(this).forEach(loaded::put);
+        } catch (IOException e) {
+            android.util.Log.e("MapActivity", "Error al leer series de ejercicio", e);
+            return;
+        }
+        exerciseSets = loaded;
+        mainHandler.post(() -> {
+            if (isDestroyed()) return;
+            for (Marker marker : markers.values()) {
+                Object timestamp = marker.getTag();
+                ExerciseSet set = timestamp instanceof Long ? loaded.get(timestamp) : null;
+                if (set != null) marker.setSnippet(describe(set));
+            }
+        });
+    }
+
+    private static String describe(ExerciseSet set) {
+        return String.format(Locale.getDefault(), "%d reps · %.0f reps/min · intensidad %.1f m/s²",
+                set.getReps(), set.getRepsPerMinute(), set.getIntensity());
+    }
+
+    /**
+     * Pide al hilo de fondo los puntos de los recorridos visibles con el zoom actual
+     */
+    private void drawVisibleRoutes() {
+        if (map == null || isDestroyed()) return;
+        LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+        int zoom = (int) map.getCameraPosition().zoom;
+        double south = bounds.southwest.latitude, west = bounds.southwest.longitude;
+        double north = bounds.northeast.latitude, east = bounds.northeast.longitude;
+        int request = ++routeRequest;
+        List<SimplifiedRoute> all = routes;
+
+        routeExecutor.execute(() -> {
+            List<SimplifiedRoute> visible = new ArrayList<>();
+            List<double[]> points = new ArrayList<>();
+            for (SimplifiedRoute route : all) {
+                if (!route.intersects(south, west, north, east)) continue;
+                visible.add(route);
+                points.add(route.pointsForZoom(zoom)); // Calculado una vez por recorrido y zoom
+                if (visible.size() >= MAX_VISIBLE_ROUTES) break;
+            }
+            mainHandler.post(() -> {
+                if (request == routeRequest && !isDestroyed()) applyRoutes(visible, points, zoom);
+            });
+        });
+    }
+
+    /**
+     * Agrega o actualiza las polilíneas visibles y quita las que salieron
+     */
+    private void applyRoutes(List<SimplifiedRoute> visible, List<double[]> points, int zoom) {
+        Set<Long> shown = new HashSet<>();
+        for (int i = 0; i < visible.size(); i++) {
+            long key = visible.get(i).getEventTimestamp();
+            shown.add(key);
+            Integer drawnZoom = polylineZoom.get(key);
+            if (drawnZoom != null && drawnZoom == zoom) continue;
+
+            double[] p = points.get(i);
+            List<LatLng> latLngs = new ArrayList<>(p.length / 2);
+            for (int j = 0; j < p.length; j += 2) latLngs.add(new LatLng(p[j], p[j + 1]));
+            Polyline polyline = polylines.get(key);
+            if (polyline != null) {
+                polyline.setPoints(latLngs);
+            } else {
+                polyline = map.addPolyline(new PolylineOptions()
+                        .addAll(latLngs)
+                        .width(ROUTE_WIDTH_PX)
+                        .color(ContextCompat.getColor(this, R.color.orange)));
+                if (polyline == null) continue;
+                polylines.put(key, polyline);
+            }
+            polylineZoom.put(key, zoom);
+        }
+
+        Iterator<Map.Entry<Long, Polyline>> it = polylines.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Polyline> entry = it.next();
+            if (!shown.contains(entry.getKey())) {
+                entry.getValue().remove();
+                polylineZoom.remove(entry.getKey());
+                it.remove();
+            }
         }
     }
 
     /**
      * Obtiene el icono vectorial correspondiente al tipo de evento
+     * (rasterizado una sola vez por tipo, no una vez por marcador)
      */
     private BitmapDescriptor getIconForEventType(HabitEvent.HabitType type) {
+        BitmapDescriptor cached = iconCache.get(type);
+        if (cached != null) return cached;
+
         int drawableId;
         switch (type) {
             case EXERCISE:
@@ -93,7 +299,9 @@ public class MapActivity extends AppCompatActivity implements OnMapReadyCallback
                 break;
         }
         
-        return bitmapDescriptorFromVector(this, drawableId);
+        BitmapDescriptor icon = bitmapDescriptorFromVector(this, drawableId);
+        iconCache.put(type, icon);
+        return icon;
     }
 
     /**
@@ -0,0 +1,126 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rachas y conteos de DayBitmap contra un boolean[] de referencia, incluidas
+ * rachas que cruzan contenedores, más el tamaño de años de historial.
+ */
+public class DayBitmapTest {
+
+    private static final int FIRST_DAY = 19_000;
+    private static final int DAYS = 5 * 365;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void queries_matchReferenceBeforeAndAfterCompression() throws IOException {
+        Random random = new Random(42);
+        boolean[] present = new boolean[DAYS];
+        DayBitmap bitmap = new DayBitmap();
+        for (int i = 0; i < DAYS; i++) {
+            // Rachas largas con huecos, como un hábito real
+            present[i] = random.nextInt(10) != 0;
+            if (present[i]) bitmap.add(FIRST_DAY + i);
+        }
+        assertMatches(present, bitmap);
+
+        DayBitmap reread = roundTrip(bitmap);
+        assertMatches(present, reread);
+        assertMatches(present, bitmap); // write() compacta el original
+
+        reread.remove(FIRST_DAY + 100);
+        present[100] = false;
+        reread.add(FIRST_DAY + 101);
+        present[101] = true;
+        assertMatches(present, reread);
+    }
+
+    @Test
+    public void streakAcrossContainerBoundary() throws IOException {
+        DayBitmap original = new DayBitmap();
+        for (int day = 1000; day < 1100; day++) original.add(day); // Contenedores 0 y 1
+        DayBitmap bitmap = roundTrip(original);
+        assertEquals(100, bitmap.runEndingAt(1099));
+        assertEquals(25, bitmap.runEndingAt(1024));
+        assertEquals(100, bitmap.longestRun(0, 5000));
+        assertEquals(40, bitmap.longestRun(1060, 5000));
+        assertEquals(0, bitmap.runEndingAt(1100));
+    }
+
+    @Test
+    public void yearsOfDailyHabit_takeFewBytes() throws IOException {
+        DayBitmap bitmap = new DayBitmap();
+        for (int i = 0; i < DAYS; i++) {
+            if (i % 60 != 0) bitmap.add(FIRST_DAY + i); // Un día libre cada dos meses
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.write(new DataOutputStream(bytes));
+        assertTrue("bytes=" + bytes.size(), bytes.size() < 200); // Rachas: el bitmap serían 3 × 128 bytes
+
+        DayBitmap reread = roundTrip(bitmap);
+        assertEquals(59, reread.longestRun(FIRST_DAY, FIRST_DAY + DAYS));
+        assertEquals(DAYS - DAYS / 60 - 1, reread.cardinality(FIRST_DAY, FIRST_DAY + DAYS));
+        assertEquals(30, reread.runEndingAt(FIRST_DAY + 90));
+    }
+
+    @Test
+    public void history_currentStreakSurvivesUnfinishedToday() throws IOException {
+        File file = new File(folder.getRoot(), "history.bin");
+        HabitHistory history = new HabitHistory(file);
+        int today = FIRST_DAY + 10;
+        for (int day = today - 5; day < today; day++) history.setCompleted("Leer", day, true);
+        assertEquals(5, history.currentStreak("Leer", today));
+        history.setCompleted("Leer", today, true);
+        history.save();
+
+        HabitHistory reloaded = new HabitHistory(file);
+        reloaded.load();
+        assertTrue(reloaded.isCompleted("Leer", today));
+        assertFalse(reloaded.isCompleted("Caminar", today));
+        assertEquals(6, reloaded.currentStreak("Leer", today));
+        assertEquals(0, reloaded.currentStreak("Leer", today + 2));
+        assertEquals(0.6, reloaded.completionRate("Leer", today - 9, today + 1), 1e-9);
+    }
+
+    private static void assertMatches(boolean[] present, DayBitmap bitmap) {
+        int longest = 0;
+        int run = 0;
+        int count = 0;
+        for (int i = 0; i < DAYS; i++) {
+            int day = FIRST_DAY + i;
+            assertEquals("día " + day, present[i], bitmap.contains(day));
+            run = present[i] ? run + 1 : 0;
+            longest = Math.max(longest, run);
+            if (present[i]) count++;
+            assertEquals("racha en " + day, run, bitmap.runEndingAt(day));
+        }
+        assertEquals(longest, bitmap.longestRun(FIRST_DAY, FIRST_DAY + DAYS));
+        assertEquals(count, bitmap.cardinality(FIRST_DAY - 50, FIRST_DAY + DAYS + 50));
+
+        int expected = 0;
+        for (int i = 300; i < 700; i++) if (present[i]) expected++;
+        assertEquals(expected, bitmap.cardinality(FIRST_DAY + 300, FIRST_DAY + 700));
+    }
+
+    private static DayBitmap roundTrip(DayBitmap bitmap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.write(new DataOutputStream(bytes));
+        return DayBitmap.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
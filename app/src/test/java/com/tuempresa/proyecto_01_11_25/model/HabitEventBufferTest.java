@@ -0,0 +1,108 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Columnas de HabitEventBuffer al cruzar bloques de CHUNK_SIZE y al crecer el
+ * directorio, vistas tomadas antes de agregar más y el diccionario de notas.
+ */
+public class HabitEventBufferTest {
+
+    private static final int CHUNK = HabitEventBuffer.CHUNK_SIZE;
+    private static final long T0 = 1_000_000_000_000L;
+    private static final HabitEvent.HabitType[] TYPES = HabitEvent.HabitType.values();
+
+    @Test
+    public void columns_roundTripAcrossChunkBoundaries() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        int count = 5 * CHUNK + 3; // Cinco bloques: el quinto agranda el directorio
+        for (int i = 0; i < count; i++) buffer.add(event(i));
+        assertEquals(count, buffer.size());
+
+        HabitEventColumns columns = buffer.columns();
+        int[] probes = {0, CHUNK - 1, CHUNK, CHUNK + 1, 4 * CHUNK - 1, 4 * CHUNK, count - 1};
+        for (int i : probes) {
+            assertEvent(i, buffer.get(i));
+            assertEvent(i, columns.get(i));
+            assertEquals(buffer.getNoteId(i), columns.getNoteId(i));
+        }
+
+        HabitEventCursor cursor = buffer.cursor();
+        int position = 0;
+        while (cursor.moveToNext()) {
+            assertEquals(T0 + position, cursor.getTimestamp());
+            position++;
+        }
+        assertEquals(count, position);
+    }
+
+    @Test
+    public void publishedColumns_ignoreLaterAdds() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        for (int i = 0; i < CHUNK; i++) buffer.add(event(i));
+        HabitEventColumns full = buffer.columns(); // Justo al final del primer bloque
+
+        for (int i = CHUNK; i < 4 * CHUNK + 1; i++) buffer.add(event(i));
+
+        assertEquals(CHUNK, full.size());
+        assertEquals(CHUNK, full.asList().size());
+        assertEvent(CHUNK - 1, full.get(CHUNK - 1));
+        try {
+            full.get(CHUNK);
+            fail("La vista no debe ver eventos agregados después");
+        } catch (IndexOutOfBoundsException expected) {
+            // Esperado
+        }
+        assertEvent(4 * CHUNK, buffer.columns().get(4 * CHUNK));
+    }
+
+    @Test
+    public void notes_areSharedAndOldTablesStayValid() {
+        NoteDictionary notes = new NoteDictionary();
+        assertEquals(0, notes.intern("Demo ✅ Completado"));
+        assertEquals(1, notes.intern(null));
+        assertEquals(1, notes.intern(""));
+        assertEquals(0, notes.intern("Demo ✅ Completado"));
+        String[] before = notes.table();
+
+        for (int i = 0; i < 100; i++) notes.intern("nota " + i); // Hace crecer la tabla
+        assertEquals(102, notes.size());
+        assertEquals("Demo ✅ Completado", before[0]);
+        assertEquals("", before[1]);
+        assertEquals("nota 99", notes.get(101));
+        try {
+            notes.get(102);
+            fail("Id fuera de rango");
+        } catch (IndexOutOfBoundsException expected) {
+            // Esperado
+        }
+    }
+
+    @Test
+    public void buffer_storesEachNoteOnce() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        for (int i = 0; i < 2 * CHUNK; i++) {
+            buffer.add(T0 + i, HabitEvent.HabitType.DEMO.ordinal(), 1.0, 2.0, i % 2 == 0 ? "par" : "impar", 0);
+        }
+        assertEquals(buffer.getNoteId(0), buffer.getNoteId(CHUNK + 2));
+        assertTrue(buffer.getNoteId(0) != buffer.getNoteId(1));
+        assertEquals("impar", buffer.columns().getNote(CHUNK + 1));
+    }
+
+    private static HabitEvent event(int i) {
+        return new HabitEvent(i * 0.001, -i * 0.002, "n" + (i % 7), TYPES[i % TYPES.length], T0 + i, i * 3);
+    }
+
+    private static void assertEvent(int i, HabitEvent e) {
+        assertEquals(i * 0.001, e.getLat(), 0);
+        assertEquals(-i * 0.002, e.getLng(), 0);
+        assertEquals("n" + (i % 7), e.getNote());
+        assertEquals(TYPES[i % TYPES.length], e.getType());
+        assertEquals(T0 + i, e.getTimestamp());
+        assertEquals(i * 3, e.getMeters());
+    }
+}
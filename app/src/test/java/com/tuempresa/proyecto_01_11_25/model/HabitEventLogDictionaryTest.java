@@ -0,0 +1,82 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Codificación de notas con diccionario en el log
+ */
+public class HabitEventLogDictionaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void repeatedNotes_areWrittenOnce() throws IOException {
+        File file = new File(folder.getRoot(), "dict.log");
+        List<HabitEvent> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(new HabitEvent(1.0, 2.0, "Ejercicio ✅ Completado", HabitEvent.HabitType.EXERCISE, i));
+        }
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            log.appendAll(batch);
+        }
+        // 8 bytes de cabecera + 28 de evento con id y metros de 1 byte; la nota aparece una sola vez
+        assertTrue("bytes por evento: " + file.length() / 1000.0, file.length() < 1000 * 36 + 64);
+    }
+
+    @Test
+    public void dynamicNotes_surviveReopenAndNewDictionaryBlocks() throws IOException {
+        File file = new File(folder.getRoot(), "dynamic.log");
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            for (int i = 0; i < 300; i++) {
+                log.append(new HabitEvent(1.0, 2.0, "Caminar completado (" + i + " m)", HabitEvent.HabitType.WALK, i));
+            }
+        }
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            // Reabrir para escribir abre un diccionario nuevo: los ids vuelven a empezar
+            log.append(new HabitEvent(1.0, 2.0, "Caminar completado (0 m)", HabitEvent.HabitType.WALK, 300));
+            log.append(new HabitEvent(1.0, 2.0, null, HabitEvent.HabitType.DEMO, 301));
+        }
+
+        List<String> notes = new ArrayList<>();
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            assertEquals(302, log.replay((timestamp, typeOrdinal, lat, lng, note, meters) -> notes.add(note)));
+        }
+        assertEquals("Caminar completado (0 m)", notes.get(0));
+        assertEquals("Caminar completado (299 m)", notes.get(299));
+        assertEquals("Caminar completado (0 m)", notes.get(300));
+        assertEquals("", notes.get(301));
+    }
+
+    @Test
+    public void meters_areStoredApartFromTheNote() throws IOException {
+        File file = new File(folder.getRoot(), "meters.log");
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            log.append(new HabitEvent(1.0, 2.0, "Caminar completado (999 m)", HabitEvent.HabitType.WALK, 1, 1523));
+            log.append(new HabitEvent(1.0, 2.0, "Sin distancia", HabitEvent.HabitType.WALK, 2));
+        }
+
+        HabitEventAggregates aggregates = new HabitEventAggregates();
+        List<Integer> meters = new ArrayList<>();
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            log.replay((timestamp, typeOrdinal, lat, lng, note, m) -> {
+                meters.add(m);
+                aggregates.add(timestamp, typeOrdinal, m);
+            });
+        }
+        assertEquals(1523, (int) meters.get(0));
+        assertEquals(0, (int) meters.get(1));
+        int day = HabitEventAggregates.epochDay(1);
+        assertEquals(1523, aggregates.metersBetween(HabitEvent.HabitType.WALK, day, day + 1));
+    }
+}
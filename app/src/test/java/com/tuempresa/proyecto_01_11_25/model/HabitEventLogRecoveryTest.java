@@ -0,0 +1,137 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recuperación del log tras una escritura interrumpida, más un benchmark del
+ * tiempo de reinicio con 1M de registros (fuera de la suite; se corre a mano y
+ * se imprime en la salida del test).
+ */
+public class HabitEventLogRecoveryTest {
+
+    private static final int BENCHMARK_RECORDS = 1_000_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void tornTail_isTruncatedAtLastValidRecord() throws IOException {
+        File file = new File(folder.getRoot(), "torn.log");
+        writeEvents(file, 100);
+        long validLength = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3}); // Registro a medias
+        }
+
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            assertEquals(100, log.scan(null));
+            assertEquals(validLength, file.length());
+
+            log.append(event(100));
+            assertEquals(101, log.replay(countingVisitor()));
+        }
+    }
+
+    @Test
+    public void corruptRecord_keepsEverythingBeforeIt() throws IOException {
+        File file = new File(folder.getRoot(), "corrupt.log");
+        writeEvents(file, 100);
+        long[] offsets = new long[100];
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            log.scan((offset, recordLength, timestamp) -> offsets[(int) (timestamp - event(0).getTimestamp())] = offset);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long at = offsets[50] + 20; // Dentro del payload del evento 50
+            raf.seek(at);
+            int b = raf.read();
+            raf.seek(at);
+            raf.write(b ^ 0xff);
+        }
+
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            assertEquals(50, log.scan(null));
+            assertEquals(50, log.replay(countingVisitor()));
+        }
+    }
+
+    @Ignore("Benchmark: escribe 1M de registros dos veces; correrlo a mano")
+    @Test
+    public void recoveryBenchmark_millionRecords() throws IOException {
+        // Un solo log de 1M de registros con la cola rota: scan verifica cada CRC y trunca
+        File file = new File(folder.getRoot(), "big.log");
+        writeEvents(file, BENCHMARK_RECORDS);
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0, 0, 40, 9});
+        }
+        int recovered;
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            recovered = log.scan(null);
+        }
+        assertEquals(BENCHMARK_RECORDS, recovered);
+
+        // Lo mismo en segmentos: al reiniciar solo se verifica el segmento activo
+        // y se decodifican los residentes, sin importar el tamaño del historial
+        File dir = new File(folder.getRoot(), "segments");
+        HabitEventSegments segments = new HabitEventSegments(dir);
+        segments.open();
+        List<HabitEvent> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < BENCHMARK_RECORDS; i++) {
+            batch.add(event(i));
+            if (batch.size() == 10_000) {
+                segments.appendAll(batch);
+                batch.clear();
+            }
+        }
+        segments.close();
+
+        HabitEventSegments reopened = new HabitEventSegments(dir);
+        reopened.open();
+        List<HabitEventSegments.Unit> units = reopened.getSealedUnits();
+        HabitEventBuffer resident = new HabitEventBuffer();
+        for (int i = Math.max(0, units.size() - HabitEventSegments.RESIDENT_SEGMENTS); i < units.size(); i++) {
+            reopened.read(units.get(i), resident::add);
+        }
+        int active = reopened.readActive(resident::add);
+        reopened.close();
+
+        int total = 0;
+        for (HabitEventSegments.Unit u : units) total += u.count;
+        assertEquals(BENCHMARK_RECORDS, total + active);
+        assertTrue(resident.size() <= (HabitEventSegments.RESIDENT_SEGMENTS + 1) * HabitEventSegments.SEGMENT_EVENTS);
+    }
+
+    private static void writeEvents(File file, int count) throws IOException {
+        try (HabitEventLog log = new HabitEventLog(file)) {
+            List<HabitEvent> batch = new ArrayList<>(10_000);
+            for (int i = 0; i < count; i++) {
+                batch.add(event(i));
+                if (batch.size() == 10_000) {
+                    log.appendAll(batch);
+                    batch.clear();
+                }
+            }
+            log.appendAll(batch);
+        }
+    }
+
+    private static HabitEvent event(int i) {
+        return new HabitEvent(40.0 + i * 1e-6, -3.0, "nota", HabitEvent.HabitType.WALK, 1_700_000_000_000L + i);
+    }
+
+    private static HabitEventLog.Visitor countingVisitor() {
+        return (timestamp, typeOrdinal, lat, lng, note, meters) -> { };
+    }
+}
@@ -0,0 +1,170 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compactación, retención y recuperación del almacenamiento en segmentos
+ */
+public class HabitEventSegmentsTest {
+
+    private static final int SEGMENT = HabitEventSegments.SEGMENT_EVENTS;
+    /** Suficientes segmentos sellados para un snapshot de 16 más los residentes */
+    private static final int EVENTS = (16 + HabitEventSegments.RESIDENT_SEGMENTS + 1) * SEGMENT + 1;
+    private static final long T0 = 1_000_000_000_000L;
+    private static final long STEP_MS = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void compact_snapshotsOldSegmentsAndSurvivesReopen() throws IOException {
+        File dir = folder.newFolder("segments");
+        HabitEventSegments segments = filled(dir);
+        segments.compact(HabitEventBackend.RetentionPolicy.KEEP_ALL, T0);
+
+        List<HabitEventSegments.Unit> units = segments.getSealedUnits();
+        assertTrue(units.get(0).compressed);
+        assertEquals(16 * SEGMENT, units.get(0).count);
+        // Los segmentos reemplazados se borran sin esperar al próximo open()
+        assertFalse(new File(dir, "seg-0.log").exists());
+        assertFalse(new File(dir, "seg-15.log").exists());
+        assertTrue(new File(dir, "seg-16.log").exists());
+        segments.close();
+
+        HabitEventSegments reopened = new HabitEventSegments(dir);
+        reopened.open();
+        assertEquals(units.size(), reopened.getSealedUnits().size());
+        assertInOrder(readAll(reopened), EVENTS);
+        assertEquals(EVENTS, totalWalks(reopened));
+        reopened.close();
+    }
+
+    @Test
+    public void crashBeforeManifestRename_keepsTheOldUnits() throws IOException {
+        File dir = folder.newFolder("segments");
+        filled(dir).close();
+        File copy = folder.newFolder("copy");
+        copyDir(dir, copy);
+
+        HabitEventSegments segments = new HabitEventSegments(dir);
+        segments.open();
+        segments.compact(HabitEventBackend.RetentionPolicy.KEEP_ALL, T0);
+        segments.close();
+
+        // Estado de un corte entre escribir el snapshot y renombrar el manifest:
+        // el snapshot y el temporal existen, los segmentos crudos y el manifest viejo también
+        String snapshot = segments.getSealedUnits().get(0).fileName;
+        Files.copy(new File(dir, snapshot).toPath(), new File(copy, snapshot).toPath());
+        Files.copy(new File(dir, "manifest.bin").toPath(), new File(copy, "manifest.bin.tmp").toPath());
+
+        HabitEventSegments recovered = new HabitEventSegments(copy);
+        recovered.open();
+        assertFalse(new File(copy, snapshot).exists());
+        assertFalse(new File(copy, "manifest.bin.tmp").exists());
+        assertFalse(recovered.getSealedUnits().get(0).compressed);
+        assertInOrder(readAll(recovered), EVENTS);
+        recovered.close();
+    }
+
+    @Test
+    public void retention_foldsExpiredUnitsIntoAggregates() throws IOException {
+        File dir = folder.newFolder("segments");
+        HabitEventSegments segments = filled(dir);
+        // Corte justo después del segundo segmento: solo esos dos expiran enteros
+        long now = T0 + 2L * SEGMENT * STEP_MS + 1000;
+        segments.compact(new HabitEventBackend.RetentionPolicy(1000), now);
+
+        List<HabitEventSegments.Unit> units = segments.getSealedUnits();
+        assertEquals(2, units.get(0).firstSeq);
+        assertFalse(new File(dir, "seg-0.log").exists());
+        assertFalse(new File(dir, "seg-1.log").exists());
+        assertEquals(EVENTS, totalWalks(segments));
+        segments.close();
+
+        HabitEventSegments reopened = new HabitEventSegments(dir);
+        reopened.open();
+        assertEquals(EVENTS, totalWalks(reopened));
+        List<Long> remaining = readAll(reopened);
+        assertEquals(EVENTS - 2 * SEGMENT, remaining.size());
+        assertEquals(T0 + 2L * SEGMENT * STEP_MS, (long) remaining.get(0));
+        reopened.close();
+    }
+
+    @Test
+    public void historyPages_stayReadableAfterCompaction() throws IOException {
+        File dir = folder.newFolder("segments");
+        filled(dir).close();
+        HabitEventSegments segments = new HabitEventSegments(dir);
+        segments.open();
+        int pages = segments.loadRecent((timestamp, typeOrdinal, lat, lng, note, meters) -> { });
+        assertEquals(17, pages);
+        List<Long> before = readPage(segments, 3);
+
+        // Expira el primer segmento y los 16 siguientes pasan a un snapshot
+        long now = T0 + (long) SEGMENT * STEP_MS + 1000;
+        segments.compact(new HabitEventBackend.RetentionPolicy(1000), now);
+        assertTrue(segments.getSealedUnits().get(0).compressed);
+        assertFalse(new File(dir, "seg-3.log").exists());
+
+        // La página 3 ahora sale de su parte del snapshot; la 0 expiró
+        assertEquals(before, readPage(segments, 3));
+        assertEquals(0, readPage(segments, 0).size());
+        segments.close();
+    }
+
+    private static HabitEventSegments filled(File dir) throws IOException {
+        HabitEventSegments segments = new HabitEventSegments(dir);
+        segments.open();
+        List<HabitEvent> batch = new ArrayList<>(SEGMENT);
+        for (int i = 0; i < EVENTS; i++) {
+            batch.add(new HabitEvent(1.0, 2.0, "n", HabitEvent.HabitType.WALK, T0 + i * STEP_MS));
+            if (batch.size() == SEGMENT) {
+                segments.appendAll(batch);
+                batch.clear();
+            }
+        }
+        segments.appendAll(batch);
+        return segments;
+    }
+
+    private static List<Long> readAll(HabitEventSegments segments) throws IOException {
+        List<Long> timestamps = new ArrayList<>();
+        HabitEventLog.Visitor visitor = (timestamp, typeOrdinal, lat, lng, note, meters) -> timestamps.add(timestamp);
+        for (HabitEventSegments.Unit u : segments.getSealedUnits()) segments.read(u, visitor);
+        segments.readActive(visitor);
+        return timestamps;
+    }
+
+    private static List<Long> readPage(HabitEventSegments segments, int page) throws IOException {
+        List<Long> timestamps = new ArrayList<>();
+        segments.readHistoryPage(page, (timestamp, typeOrdinal, lat, lng, note, meters) -> timestamps.add(timestamp));
+        return timestamps;
+    }
+
+    private static void assertInOrder(List<Long> timestamps, int count) {
+        assertEquals(count, timestamps.size());
+        for (int i = 0; i < count; i++) assertEquals(T0 + i * STEP_MS, (long) timestamps.get(i));
+    }
+
+    private static int totalWalks(HabitEventSegments segments) {
+        return segments.loadAggregates().countBetween(HabitEvent.HabitType.WALK, Integer.MIN_VALUE / 2, Integer.MAX_VALUE / 2);
+    }
+
+    private static void copyDir(File from, File to) throws IOException {
+        String[] names = from.list();
+        if (names == null) return;
+        for (String name : names) Files.copy(new File(from, name).toPath(), new File(to, name).toPath());
+    }
+}
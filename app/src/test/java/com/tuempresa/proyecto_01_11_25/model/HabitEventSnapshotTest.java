@@ -0,0 +1,64 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Un snapshot publicado por HabitEventStore no cambia cuando después se agregan
+ * eventos, incluidos eventos atrasados y bloques nuevos del buffer.
+ */
+public class HabitEventSnapshotTest {
+
+    private static final long T0 = 2_000_000_000_000L;
+    private static final double LAT = -12.05;
+    private static final double LNG = -77.04;
+
+    @Test
+    public void publishedSnapshot_isUnchangedByLaterAdds() {
+        // El store es estático: se trabaja con lo que ya tenga y solo se cuenta lo propio
+        for (int i = 0; i < 10; i++) HabitEventStore.add(walk(T0 + i * 1000L, LAT, LNG));
+        HabitEventSnapshot before = HabitEventStore.snapshot();
+        int size = before.size();
+        List<HabitEvent> all = before.all();
+        HabitEvent latest = before.latest();
+        int walks = before.countByTypeBetween(HabitEvent.HabitType.WALK, T0, T0 + 10_000);
+        int inBounds = before.eventsInBounds(LAT - 0.01, LNG - 0.01, LAT + 0.01, LNG + 0.01).getCount();
+        int nearest = before.nearest(LAT, LNG, 1).getCount();
+
+        // Más de un bloque de CHUNK_SIZE, uno atrasado y uno en el mismo punto
+        HabitEventStore.add(walk(T0 + 500, LAT, LNG));
+        for (int i = 0; i < HabitEventBuffer.CHUNK_SIZE + 10; i++) {
+            HabitEventStore.add(walk(T0 + 20_000 + i, LAT + 0.001, LNG));
+        }
+        HabitEventStore.add(new HabitEvent(LAT, LNG, "", HabitEvent.HabitType.READ, T0 + 5000));
+
+        assertEquals(size, before.size());
+        assertEquals(size, all.size());
+        assertEquals(latest.getTimestamp(), before.latest().getTimestamp());
+        assertEquals(walks, before.countByTypeBetween(HabitEvent.HabitType.WALK, T0, T0 + 10_000));
+        assertEquals(0, before.countByTypeBetween(HabitEvent.HabitType.READ, T0, T0 + 10_000));
+        assertEquals(inBounds, before.eventsInBounds(LAT - 0.01, LNG - 0.01, LAT + 0.01, LNG + 0.01).getCount());
+        assertEquals(10, before.eventsBetween(T0, T0 + 10_000).getCount());
+        assertEquals(nearest, before.nearest(LAT, LNG, 1).getCount());
+        HabitEventCursor cursor = before.cursor();
+        int count = 0;
+        while (cursor.moveToNext()) count++;
+        assertEquals(size, count);
+
+        HabitEventSnapshot after = HabitEventStore.snapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(size + HabitEventBuffer.CHUNK_SIZE + 12, after.size());
+        assertEquals(walks + 1, after.countByTypeBetween(HabitEvent.HabitType.WALK, T0, T0 + 10_000));
+        assertEquals(1, after.countByTypeBetween(HabitEvent.HabitType.READ, T0, T0 + 10_000));
+        assertEquals(inBounds + HabitEventBuffer.CHUNK_SIZE + 12,
+                after.eventsInBounds(LAT - 0.01, LNG - 0.01, LAT + 0.01, LNG + 0.01).getCount());
+    }
+
+    private static HabitEvent walk(long timestamp, double lat, double lng) {
+        return new HabitEvent(lat, lng, "", HabitEvent.HabitType.WALK, timestamp);
+    }
+}
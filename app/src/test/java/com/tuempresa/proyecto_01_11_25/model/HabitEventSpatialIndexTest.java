@@ -0,0 +1,121 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Vecinos más cercanos y rectángulos de HabitEventSpatialIndex contra un
+ * recorrido completo: celdas vacías, antimeridiano, polos y eventos sin ubicación.
+ */
+public class HabitEventSpatialIndexTest {
+
+    private static final long T0 = 1_000_000_000_000L;
+
+    @Test
+    public void nearest_matchesBruteForceAcrossEmptyCells() {
+        Random random = new Random(3);
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        // Dos barrios separados por varias celdas vacías
+        for (int i = 0; i < 500; i++) {
+            double lat = i % 2 == 0 ? -34.60 : -34.55;
+            double lng = i % 2 == 0 ? -58.38 : -58.45;
+            add(buffer, lat + random.nextDouble() * 0.004, lng + random.nextDouble() * 0.004);
+        }
+        HabitEventSpatialIndex index = new HabitEventSpatialIndex(buffer);
+        HabitEventColumns columns = buffer.columns();
+
+        for (int q = 0; q < 100; q++) {
+            double lat = -34.62 + random.nextDouble() * 0.1;
+            double lng = -58.47 + random.nextDouble() * 0.1;
+            int k = 1 + random.nextInt(10);
+            assertNearest(columns, lat, lng, k, index.nearest(columns, lat, lng, k));
+        }
+    }
+
+    @Test
+    public void nearest_wrapsAroundTheAntimeridian() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        add(buffer, 10.0, -179.998); // ~440 m del punto, del otro lado
+        add(buffer, 10.0, 179.95);   // ~5 km, del mismo lado
+        HabitEventSpatialIndex index = new HabitEventSpatialIndex(buffer);
+
+        assertArrayEquals(new int[]{0, 1}, index.nearest(buffer.columns(), 10.0, 179.998, 2));
+        assertArrayEquals(new int[]{0}, index.nearest(buffer.columns(), 10.0, 180.0, 1));
+    }
+
+    @Test
+    public void nearest_nearThePoleChecksFartherColumns() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        // Cerca del polo una celda mide menos de un metro de ancho:
+        // el evento dos columnas a la derecha está más cerca que el de la columna vecina
+        add(buffer, 89.955, -0.0099);
+        add(buffer, 89.955, 0.0201);
+        HabitEventSpatialIndex index = new HabitEventSpatialIndex(buffer);
+
+        assertArrayEquals(new int[]{1}, index.nearest(buffer.columns(), 89.955, 0.0099, 1));
+        assertNearest(buffer.columns(), 90.0, 0.0, 2, index.nearest(buffer.columns(), 90.0, 0.0, 2));
+    }
+
+    @Test
+    public void eventsWithoutLocation_areExcluded() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        add(buffer, Double.NaN, Double.NaN);
+        add(buffer, -34.6, -58.4);
+        add(buffer, Double.NaN, -58.4);
+        add(buffer, -34.7, Double.NaN);
+        HabitEventSpatialIndex index = new HabitEventSpatialIndex(buffer);
+        HabitEventColumns columns = buffer.columns();
+
+        assertArrayEquals(new int[]{1}, index.inBounds(columns, -90, -180, 90, 180));
+        assertArrayEquals(new int[]{1}, index.nearest(columns, -34.6, -58.4, 4));
+        assertArrayEquals(new int[]{1}, index.nearest(columns, 60.0, 30.0, 4)); // Sin candidatos cerca: recorrido completo
+    }
+
+    @Test
+    public void inBounds_acrossAntimeridianAndLaterAdds() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        HabitEventSpatialIndex index = new HabitEventSpatialIndex(buffer);
+        add(buffer, index, -17.0, 179.5);
+        add(buffer, index, -17.0, -179.5);
+        add(buffer, index, -17.0, 0.0);
+        HabitEventColumns before = buffer.columns();
+        add(buffer, index, -17.0, 179.9);
+
+        int[] found = index.inBounds(buffer.columns(), -18, 179, -16, -179);
+        Arrays.sort(found);
+        assertArrayEquals(new int[]{0, 1, 3}, found);
+        // Una vista anterior no ve lo agregado después
+        found = index.inBounds(before, -18, 179, -16, -179);
+        Arrays.sort(found);
+        assertArrayEquals(new int[]{0, 1}, found);
+    }
+
+    private static void add(HabitEventBuffer buffer, double lat, double lng) {
+        buffer.add(new HabitEvent(lat, lng, "", HabitEvent.HabitType.WALK, T0 + buffer.size()));
+    }
+
+    private static void add(HabitEventBuffer buffer, HabitEventSpatialIndex index, double lat, double lng) {
+        add(buffer, lat, lng);
+        index.add(buffer.size() - 1);
+    }
+
+    /** Compara las distancias con las de un recorrido completo (los empates pueden venir en otro orden) */
+    private static void assertNearest(HabitEventColumns columns, double lat, double lng, int k, int[] actual) {
+        double[] all = new double[columns.size()];
+        for (int p = 0; p < all.length; p++) {
+            all[p] = HabitEventSpatialIndex.distanceMeters(lat, lng, columns.getLat(p), columns.getLng(p));
+        }
+        Arrays.sort(all);
+        assertEquals(Math.min(k, all.length), actual.length);
+        for (int i = 0; i < actual.length; i++) {
+            int p = actual[i];
+            double d = HabitEventSpatialIndex.distanceMeters(lat, lng, columns.getLat(p), columns.getLng(p));
+            assertEquals(all[i], d, 1e-6);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Consultas por rango de HabitEventTimeIndex contra un recorrido completo,
+ * con eventos atrasados y vistas publicadas antes de insertarlos.
+ */
+public class HabitEventTimeIndexTest {
+
+    private static final long T0 = 1_000_000_000_000L;
+    private static final HabitEvent.HabitType[] TYPES = HabitEvent.HabitType.values();
+
+    @Test
+    public void lateInserts_matchReference() {
+        Random random = new Random(7);
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        HabitEventTimeIndex index = new HabitEventTimeIndex(buffer);
+        long clock = T0;
+        for (int i = 0; i < 3000; i++) {
+            clock += random.nextInt(1000);
+            // Uno de cada diez llega atrasado, algunos con el mismo timestamp que otro
+            long ts = random.nextInt(10) == 0 ? clock - random.nextInt(200_000) : clock;
+            add(buffer, index, ts, TYPES[random.nextInt(TYPES.length)]);
+        }
+        HabitEventTimeIndex.View view = index.view(buffer.columns());
+
+        for (int q = 0; q < 200; q++) {
+            long from = T0 + random.nextInt((int) (clock - T0));
+            long to = from + random.nextInt(100_000);
+            assertBetween(buffer, view, from, to);
+            for (HabitEvent.HabitType type : TYPES) {
+                assertEquals(reference(buffer, type, from, to), view.countBetween(type, from, to));
+            }
+        }
+        assertBetween(buffer, view, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void between_includesFromAndExcludesTo() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        HabitEventTimeIndex index = new HabitEventTimeIndex(buffer);
+        add(buffer, index, T0 + 20, HabitEvent.HabitType.WALK);
+        add(buffer, index, T0 + 10, HabitEvent.HabitType.READ);
+        add(buffer, index, T0 + 20, HabitEvent.HabitType.WALK);
+        add(buffer, index, T0 + 30, HabitEvent.HabitType.WALK);
+        HabitEventTimeIndex.View view = index.view(buffer.columns());
+
+        assertArrayEquals(new int[]{1, 0, 2}, view.between(T0 + 10, T0 + 30));
+        assertArrayEquals(new int[]{0, 2}, view.between(T0 + 20, T0 + 21));
+        assertArrayEquals(new int[0], view.between(T0 + 20, T0 + 20));
+        assertArrayEquals(new int[0], view.between(T0 + 30, T0 + 10));
+        assertArrayEquals(new int[0], view.between(T0 + 31, Long.MAX_VALUE));
+        assertArrayEquals(new int[0], view.between(Long.MIN_VALUE, T0 + 10));
+        assertEquals(2, view.countBetween(HabitEvent.HabitType.WALK, T0 + 20, T0 + 30));
+        assertEquals(0, view.countBetween(HabitEvent.HabitType.FOCUS, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(3, view.latest());
+        assertEquals(1, view.latest(HabitEvent.HabitType.READ));
+        assertEquals(-1, view.latest(HabitEvent.HabitType.FOCUS));
+    }
+
+    @Test
+    public void lateInsert_leavesPublishedViewUnchanged() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        HabitEventTimeIndex index = new HabitEventTimeIndex(buffer);
+        for (int i = 0; i < 100; i++) add(buffer, index, T0 + i * 10L, HabitEvent.HabitType.WALK);
+        HabitEventTimeIndex.View before = index.view(buffer.columns());
+        int[] expected = before.between(T0, T0 + 1000);
+
+        add(buffer, index, T0 + 5, HabitEvent.HabitType.WALK);   // Atrasado: desplaza posiciones
+        add(buffer, index, T0 + 2000, HabitEvent.HabitType.WALK); // En orden: append
+
+        assertArrayEquals(expected, before.between(T0, T0 + 1000));
+        assertEquals(99, before.latest());
+        HabitEventTimeIndex.View after = index.view(buffer.columns());
+        assertEquals(101, after.between(T0, T0 + 1000).length);
+        assertEquals(100, after.between(T0, T0 + 1000)[1]);
+        assertEquals(101, after.latest());
+    }
+
+    @Test
+    public void constructor_indexesExistingEventsOutOfOrder() {
+        HabitEventBuffer buffer = new HabitEventBuffer();
+        buffer.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, T0 + 300));
+        buffer.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, T0 + 100));
+        buffer.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, T0 + 200));
+        HabitEventTimeIndex.View view = new HabitEventTimeIndex(buffer).view(buffer.columns());
+        assertArrayEquals(new int[]{1, 2, 0}, view.between(T0, T0 + 301));
+        assertEquals(0, view.latest());
+    }
+
+    private static void add(HabitEventBuffer buffer, HabitEventTimeIndex index, long ts, HabitEvent.HabitType type) {
+        buffer.add(new HabitEvent(0, 0, "", type, ts));
+        index.add(buffer.size() - 1);
+    }
+
+    /** Comprueba el rango contra un recorrido completo; el orden entre timestamps iguales no importa */
+    private static void assertBetween(HabitEventBuffer buffer, HabitEventTimeIndex.View view, long from, long to) {
+        int[] positions = view.between(from, to);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            long ts = buffer.getTimestamp(i);
+            if (ts >= from && ts < to) expected.add(i);
+        }
+        assertEquals(expected.size(), positions.length);
+        long previous = Long.MIN_VALUE;
+        for (int p : positions) {
+            long ts = buffer.getTimestamp(p);
+            assertTrue(ts >= previous);
+            assertTrue(expected.contains(p));
+            previous = ts;
+        }
+    }
+
+    private static int reference(HabitEventBuffer buffer, HabitEvent.HabitType type, long from, long to) {
+        int count = 0;
+        for (int i = 0; i < buffer.size(); i++) {
+            long ts = buffer.getTimestamp(i);
+            if (buffer.getType(i) == type && ts >= from && ts < to) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,222 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Codificación de los formatos de exportación y lectura de CSV por streaming
+ * (NDJSON y GeoJSON se leen con android.util.JsonReader, que no existe en la JVM).
+ */
+public class HabitEventTransferTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Test
+    public void csv_roundTripsQuotesCommasNewlinesAndUnicode() throws IOException {
+        HabitEventBuffer source = new HabitEventBuffer();
+        source.add(new HabitEvent(40.5, -3.25, "simple", HabitEvent.HabitType.WALK, 1000, 812));
+        source.add(new HabitEvent(1, 2, "con, coma y \"comillas\"", HabitEvent.HabitType.READ, 2000));
+        source.add(new HabitEvent(3, 4, "dos\nlíneas 🧘", HabitEvent.HabitType.FOCUS, 3000));
+        source.add(new HabitEvent(5, 6, "", HabitEvent.HabitType.DEMO, 4000));
+
+        List<HabitEvent> read = roundTrip(source, HabitEventTransfer.Format.CSV);
+        assertEquals(source.size(), read.size());
+        for (int i = 0; i < read.size(); i++) {
+            HabitEvent expected = source.get(i);
+            HabitEvent actual = read.get(i);
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getLat(), actual.getLat(), 0);
+            assertEquals(expected.getLng(), actual.getLng(), 0);
+            assertEquals(expected.getNote(), actual.getNote());
+            assertEquals(expected.getMeters(), actual.getMeters());
+        }
+    }
+
+    @Test
+    public void csv_largeExportCrossesBufferBoundaries() throws IOException {
+        HabitEventBuffer source = new HabitEventBuffer();
+        for (int i = 0; i < 50_000; i++) {
+            source.add(new HabitEvent(i * 1e-3, -i * 1e-3, "año ñ " + (i % 97), HabitEvent.HabitType.WALK, i));
+        }
+        List<HabitEvent> read = roundTrip(source, HabitEventTransfer.Format.CSV);
+        assertEquals(50_000, read.size());
+        assertEquals("año ñ " + (49_999 % 97), read.get(49_999).getNote());
+        assertEquals(49_999, read.get(49_999).getTimestamp());
+    }
+
+    @Test
+    public void ndjsonAndGeoJson_escapeNotes() throws IOException {
+        HabitEventBuffer source = new HabitEventBuffer();
+        source.add(new HabitEvent(1.5, 2.5, "a \"b\"\n\\c", HabitEvent.HabitType.WALK, 7));
+
+        String ndjson = export(source, HabitEventTransfer.Format.NDJSON);
+        assertEquals("{\"timestamp\":7,\"type\":\"WALK\",\"lat\":1.5,\"lng\":2.5,\"note\":\"a \\\"b\\\"\\n\\\\c\",\"meters\":0}\n", ndjson);
+
+        String geoJson = export(source, HabitEventTransfer.Format.GEOJSON);
+        assertTrue(geoJson.startsWith("{\"type\":\"FeatureCollection\",\"features\":[\n"));
+        assertTrue(geoJson.contains("\"coordinates\":[2.5,1.5]"));
+        assertTrue(geoJson.endsWith("\n]}\n"));
+    }
+
+    @Test
+    public void export_writesMissingLocationAsNull() throws IOException {
+        HabitEventBuffer source = new HabitEventBuffer();
+        source.add(new HabitEvent(Double.NaN, Double.NaN, "sin fijación", HabitEvent.HabitType.WALK, 9));
+
+        String ndjson = export(source, HabitEventTransfer.Format.NDJSON);
+        assertTrue(ndjson.contains("\"lat\":null,\"lng\":null"));
+        String geoJson = export(source, HabitEventTransfer.Format.GEOJSON);
+        assertTrue(geoJson.contains("\"geometry\":null,\"properties\""));
+
+        List<HabitEvent> read = roundTrip(source, HabitEventTransfer.Format.CSV);
+        assertTrue(Double.isNaN(read.get(0).getLat()));
+    }
+
+    @Test
+    public void keySet_detectsDuplicatesByTimestampAndType() {
+        HabitEventTransfer.KeySet keys = new HabitEventTransfer.KeySet(0);
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(keys.add(HabitEventTransfer.key(i, HabitEvent.HabitType.WALK.ordinal())));
+        }
+        assertFalse(keys.add(HabitEventTransfer.key(500, HabitEvent.HabitType.WALK.ordinal())));
+        assertTrue(keys.add(HabitEventTransfer.key(500, HabitEvent.HabitType.READ.ordinal())));
+        assertEquals(100_001, keys.size());
+    }
+
+    @Test
+    public void importDedup_checksOnlyOverlappingPages() throws IOException {
+        long t0 = 100 * DAY;
+        HabitEventBuffer[] pages = {new HabitEventBuffer(), new HabitEventBuffer()};
+        for (int i = 0; i < 1000; i++) {
+            pages[0].add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 1000 + i));
+            pages[1].add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 2000 + i));
+        }
+        HabitEventBuffer resident = new HabitEventBuffer();
+        resident.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 3050));
+        int[] pageLoads = new int[2];
+        HabitEventTransfer.History history = history(pages, resident, pageLoads, (type, day) -> 0);
+
+        // Nada expiró todavía
+        HabitEventTransfer.ImportDedup dedup = new HabitEventTransfer.ImportDedup(history, t0 - 2 * DAY);
+        assertEquals(1, pageLoads[0]);
+        assertEquals(1, pageLoads[1]);
+
+        List<HabitEvent> batch = new ArrayList<>();
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 2500)); // En la página 1
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.READ, t0 + 2500));
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 3050)); // En memoria
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 3200));
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 3200)); // Repetido en el archivo
+        assertEquals(3, dedup.filter(batch));
+        assertEquals(2, batch.size());
+        assertEquals(HabitEvent.HabitType.READ, batch.get(0).getType());
+        assertEquals(t0 + 3200, batch.get(1).getTimestamp());
+        assertEquals(1, pageLoads[0]); // La página 0 no se solapa con el lote
+        assertEquals(2, pageLoads[1]);
+
+        // El lote siguiente empieza donde terminó el anterior: no vuelve a leer páginas
+        batch.clear();
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 3200));
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, t0 + 3300));
+        assertEquals(1, dedup.filter(batch));
+        assertEquals(1, batch.size());
+        assertEquals(t0 + 3300, batch.get(0).getTimestamp());
+        assertEquals(1, pageLoads[0]);
+        assertEquals(2, pageLoads[1]);
+    }
+
+    @Test
+    public void importDedup_acceptsEventsBeyondTheExpiredDayCount() throws IOException {
+        long expired = 50 * DAY + DAY / 2;
+        int expiredDay = HabitEventAggregates.epochDay(expired);
+        // Del día quedan 2 caminatas contadas, una todavía cruda; 1 ejercicio contado, ya sin crudo
+        HabitEventBuffer[] pages = {new HabitEventBuffer()};
+        pages[0].add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, expired + 1000));
+        HabitEventTransfer.History history = history(pages, new HabitEventBuffer(), new int[1], (type, day) -> {
+            if (day != expiredDay) return 0;
+            return type == HabitEvent.HabitType.WALK ? 2 : type == HabitEvent.HabitType.EXERCISE ? 1 : 0;
+        });
+        HabitEventTransfer.ImportDedup dedup = new HabitEventTransfer.ImportDedup(history, 60 * DAY);
+
+        List<HabitEvent> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.EXERCISE, expired + i));
+        }
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, expired + 1000)); // El crudo
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, expired + 5));
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, expired + 6));
+        batch.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.READ, expired + 7));
+        // Se omite un ejercicio y una caminata por lo expirado, más el crudo repetido
+        assertEquals(3, dedup.filter(batch));
+        assertEquals(4, batch.size());
+        assertEquals(expired + 1, batch.get(0).getTimestamp());
+        assertEquals(expired + 2, batch.get(1).getTimestamp());
+        assertEquals(expired + 6, batch.get(2).getTimestamp());
+        assertEquals(HabitEvent.HabitType.READ, batch.get(3).getType());
+    }
+
+    private interface DayCounts {
+        int count(HabitEvent.HabitType type, int epochDay);
+    }
+
+    private static HabitEventTransfer.History history(HabitEventBuffer[] pages, HabitEventBuffer resident,
+                                                       int[] pageLoads, DayCounts counts) {
+        return new HabitEventTransfer.History() {
+            @Override
+            public int pageCount() {
+                return pages.length;
+            }
+
+            @Override
+            public HabitEventCursor page(int page) {
+                pageLoads[page]++;
+                return pages[page].cursor();
+            }
+
+            @Override
+            public HabitEventCursor residentBetween(long from, long to) {
+                HabitEventBuffer selected = new HabitEventBuffer();
+                for (int i = 0; i < resident.size(); i++) {
+                    long t = resident.getTimestamp(i);
+                    if (t >= from && t < to) selected.add(resident.get(i));
+                }
+                return selected.cursor();
+            }
+
+            @Override
+            public int countOnDay(HabitEvent.HabitType type, int epochDay) {
+                return counts.count(type, epochDay);
+            }
+        };
+    }
+
+    private static String export(HabitEventBuffer source, HabitEventTransfer.Format format) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new HabitEventTransfer().export(Channels.newChannel(bytes), format, 0, page -> null,
+                source.cursor(), source.size(), null);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static List<HabitEvent> roundTrip(HabitEventBuffer source, HabitEventTransfer.Format format) throws IOException {
+        byte[] exported = export(source, format).getBytes(StandardCharsets.UTF_8);
+        List<HabitEvent> read = new ArrayList<>();
+        long[] lastProgress = {0};
+        int count = new HabitEventTransfer().parse(Channels.newChannel(new ByteArrayInputStream(exported)), format,
+                read::add, exported.length, (done, total) -> lastProgress[0] = done);
+        assertEquals(read.size(), count);
+        assertEquals(exported.length, lastProgress[0]);
+        return read;
+    }
+}
@@ -0,0 +1,171 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Reintento de lotes fallidos y orden de los lotes grandes en el escritor de fondo
+ */
+public class HabitEventWriterTest {
+
+    /** Backend en memoria que falla las primeras escrituras */
+    private static class FlakyBackend implements HabitEventBackend {
+        final List<Long> written = new ArrayList<>();
+        int failuresLeft;
+        int attempts = 0;
+
+        FlakyBackend(int failures) {
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public synchronized boolean appendAll(List<HabitEvent> batch) throws IOException {
+            attempts++;
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IOException("Disco lleno");
+            }
+            for (HabitEvent e : batch) written.add(e.getTimestamp());
+            return false;
+        }
+
+        @Override
+        public void compact(RetentionPolicy retention, long now) {
+        }
+
+        @Override
+        public HabitEventAggregates loadAggregates() {
+            return new HabitEventAggregates();
+        }
+
+        @Override
+        public int loadRecent(HabitEventLog.Visitor visitor) {
+            return 0;
+        }
+
+        @Override
+        public int readHistoryPage(int page, HabitEventLog.Visitor visitor) {
+            return 0;
+        }
+
+        @Override
+        public synchronized void clear() {
+            written.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void failedBatch_isRetriedInOrderAndFlushReportsIt() {
+        FlakyBackend backend = new FlakyBackend(1);
+        HabitEventWriter writer = new HabitEventWriter(backend, new HabitEventWriter.CommitPolicy(32, 60_000),
+                HabitEventBackend.RetentionPolicy.KEEP_ALL);
+        for (int i = 0; i < 3; i++) {
+            writer.enqueue(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, i));
+        }
+
+        // Nada se escribe hasta el flush; el intento fallido lo corta y el lote sigue encolado
+        assertFalse(writer.flush(5000));
+        assertTrue(writer.flush(5000));
+        synchronized (backend) {
+            assertEquals(2, backend.attempts);
+            assertEquals(3, backend.written.size());
+            for (int i = 0; i < 3; i++) assertEquals(i, (long) backend.written.get(i));
+        }
+    }
+
+    @Test
+    public void clear_dropsTheBatchWaitingForRetry() {
+        FlakyBackend backend = new FlakyBackend(1);
+        HabitEventWriter writer = new HabitEventWriter(backend, new HabitEventWriter.CommitPolicy(32, 60_000),
+                HabitEventBackend.RetentionPolicy.KEEP_ALL);
+        writer.enqueue(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, 1));
+        assertFalse(writer.flush(5000));
+
+        writer.clear();
+        writer.enqueue(new HabitEvent(0, 0, "", HabitEvent.HabitType.READ, 2));
+        assertTrue(writer.flush(5000));
+        synchronized (backend) {
+            assertEquals(1, backend.written.size());
+            assertEquals(2, (long) backend.written.get(0));
+        }
+    }
+
+    @Test
+    public void bulk_isWrittenAfterEventsEnqueuedBeforeIt() throws IOException {
+        FlakyBackend backend = new FlakyBackend(0);
+        // Con este retardo lo encolado solo se escribiría con un flush
+        HabitEventWriter writer = new HabitEventWriter(backend, new HabitEventWriter.CommitPolicy(2, 60_000),
+                HabitEventBackend.RetentionPolicy.KEEP_ALL);
+        writer.enqueue(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, 0));
+        writer.enqueue(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, 1));
+        writer.enqueue(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, 2));
+        List<HabitEvent> bulk = new ArrayList<>();
+        for (int i = 10; i < 13; i++) bulk.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.READ, i));
+
+        writer.appendBulk(bulk);
+        synchronized (backend) {
+            assertEquals(6, backend.written.size());
+            long[] expected = {0, 1, 2, 10, 11, 12};
+            for (int i = 0; i < expected.length; i++) assertEquals(expected[i], (long) backend.written.get(i));
+        }
+    }
+
+    @Test
+    public void bulk_failsWhenAnEarlierBatchFails() {
+        FlakyBackend backend = new FlakyBackend(1);
+        HabitEventWriter writer = new HabitEventWriter(backend, new HabitEventWriter.CommitPolicy(32, 60_000),
+                HabitEventBackend.RetentionPolicy.KEEP_ALL);
+        writer.enqueue(new HabitEvent(0, 0, "", HabitEvent.HabitType.WALK, 1));
+        List<HabitEvent> bulk = new ArrayList<>();
+        bulk.add(new HabitEvent(0, 0, "", HabitEvent.HabitType.READ, 10));
+        try {
+            writer.appendBulk(bulk);
+            fail("El lote grande no debe quedar delante del evento que falló");
+        } catch (IOException expected) {
+            // Esperado
+        }
+
+        // El evento encolado sigue para reintentar; el lote grande no se escribió
+        assertTrue(writer.flush(5000));
+        synchronized (backend) {
+            assertEquals(1, backend.written.size());
+            assertEquals(1, (long) backend.written.get(0));
+        }
+    }
+
+    @Test
+    public void compaction_reportsTheRetentionCutoff() throws InterruptedException {
+        FlakyBackend backend = new FlakyBackend(0);
+        HabitEventWriter writer = new HabitEventWriter(backend, HabitEventWriter.CommitPolicy.DEFAULT,
+                new HabitEventBackend.RetentionPolicy(60_000));
+        CountDownLatch compacted = new CountDownLatch(1);
+        long[] cutoff = new long[1];
+        writer.setCompactionListener(c -> {
+            cutoff[0] = c;
+            compacted.countDown();
+        });
+        long before = System.currentTimeMillis();
+        writer.requestCompaction();
+        assertTrue(compacted.await(5, TimeUnit.SECONDS));
+        assertTrue(cutoff[0] >= before - 60_000);
+        assertTrue(cutoff[0] <= System.currentTimeMillis() - 60_000);
+    }
+}
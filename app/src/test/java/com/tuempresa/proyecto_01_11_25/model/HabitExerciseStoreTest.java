@@ -0,0 +1,41 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Métricas de las series de ejercicio guardadas aparte del evento
+ */
+public class HabitExerciseStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void store_reloadsSetsAndPrunesExpired() throws IOException {
+        File file = new File(folder.getRoot(), "exercise.bin");
+        HabitExerciseStore store = new HabitExerciseStore(file);
+        store.put(1000, new ExerciseSet(12, 30.5, 4.25, 24_000));
+        store.put(2000, new ExerciseSet(8, 20, 3, 25_000));
+        assertEquals(2 * (16 + ExerciseSet.BYTES), file.length());
+
+        HabitExerciseStore reloaded = new HabitExerciseStore(file);
+        ExerciseSet set = reloaded.get(1000);
+        assertEquals(12, set.getReps());
+        assertEquals(30.5, set.getRepsPerMinute(), 1e-6);
+        assertEquals(4.25, set.getIntensity(), 1e-6);
+        assertEquals(24_000, set.getDurationMs());
+        assertNull(reloaded.get(3000));
+
+        assertEquals(1, reloaded.prune(1500));
+        assertNull(reloaded.get(1000));
+        assertEquals(8, new HabitExerciseStore(file).get(2000).getReps());
+    }
+}
@@ -0,0 +1,128 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Codificación de RoutePolyline y persistencia de HabitRouteStore, incluido un
+ * final de archivo a medias.
+ */
+public class HabitRouteStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void polyline_roundTripsWithinE5AndSkipsRepeats() {
+        RoutePolyline.Builder builder = new RoutePolyline.Builder();
+        for (int i = 0; i < 500; i++) {
+            builder.add(40.4 + i * 2e-5, -3.7 - i * 1e-5, 1_700_000_000_000L + i * 2000L);
+        }
+        builder.add(40.4 + 499 * 2e-5, -3.7 - 499 * 1e-5, 1_700_000_000_000L + 499 * 2000L);
+        RoutePolyline polyline = RoutePolyline.fromBytes(builder.build().toBytes());
+        assertEquals(500, polyline.size());
+        // Pasos de ~2 m cada 2 s: menos de 4 bytes por punto
+        assertTrue("bytes=" + polyline.sizeInBytes(), polyline.sizeInBytes() < 500 * 4);
+
+        List<double[]> points = new ArrayList<>();
+        polyline.forEach((index, lat, lng, timeMs) -> points.add(new double[]{index, lat, lng, timeMs}));
+        for (int i = 0; i < 500; i++) {
+            double[] p = points.get(i);
+            assertEquals(i, (int) p[0]);
+            assertEquals(40.4 + i * 2e-5, p[1], 1e-5);
+            assertEquals(-3.7 - i * 1e-5, p[2], 1e-5);
+            assertEquals(1_700_000_000_000L + i * 2000L, (long) p[3], 1000);
+        }
+    }
+
+    @Test
+    public void store_reloadsRoutesByTimestamp() throws IOException {
+        File file = new File(folder.getRoot(), "routes.bin");
+        HabitRouteStore store = new HabitRouteStore(file);
+        store.put(1000, route(10));
+        store.put(2000, route(20));
+
+        HabitRouteStore reloaded = new HabitRouteStore(file);
+        assertEquals(2, reloaded.size());
+        assertEquals(20, reloaded.get(2000).size());
+        assertEquals(10, reloaded.get(1000).size());
+        assertNull(reloaded.get(3000));
+        assertFalse(reloaded.contains(3000));
+
+        List<Long> visited = new ArrayList<>();
+        reloaded.forEach((timestamp, route) -> {
+            visited.add(timestamp);
+            assertEquals(timestamp == 1000 ? 10 : 20, route.size());
+        });
+        assertEquals(2, visited.size());
+    }
+
+    @Test
+    public void store_truncatesPartialTail() throws IOException {
+        File file = new File(folder.getRoot(), "routes.bin");
+        HabitRouteStore store = new HabitRouteStore(file);
+        store.put(1000, route(10));
+        long intact = file.length();
+        store.put(2000, route(30));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 7); // Escritura cortada por un cierre del proceso
+        }
+
+        HabitRouteStore reloaded = new HabitRouteStore(file);
+        assertEquals(1, reloaded.size());
+        assertEquals(intact, file.length());
+        assertFalse(reloaded.contains(2000));
+        reloaded.put(2000, route(30));
+        assertEquals(30, new HabitRouteStore(file).get(2000).size());
+    }
+
+    @Test
+    public void prune_dropsExpiredAndReplacedRoutes() throws IOException {
+        File file = new File(folder.getRoot(), "routes.bin");
+        HabitRouteStore store = new HabitRouteStore(file);
+        store.put(1000, route(10));
+        store.put(2000, route(20));
+        store.put(3000, route(5));
+        store.put(3000, route(30)); // Reemplazo: el anterior queda como espacio muerto
+
+        assertEquals(0, store.prune(500));
+        assertEquals(1, store.prune(2000));
+        assertFalse(store.contains(1000));
+        assertEquals(20, store.get(2000).size());
+        assertEquals(30, store.get(3000).size());
+
+        HabitRouteStore reloaded = new HabitRouteStore(file);
+        assertEquals(2, reloaded.size());
+        assertEquals(30, reloaded.get(3000).size());
+        assertEquals(file.length(), sizeOf(20) + sizeOf(30));
+
+        reloaded.clear();
+        assertEquals(0, reloaded.size());
+        assertFalse(file.exists());
+        reloaded.put(4000, route(10));
+        assertEquals(1, new HabitRouteStore(file).size());
+    }
+
+    /** Bytes del registro de un recorrido de route(points) */
+    private static long sizeOf(int points) {
+        return 16 + route(points).toBytes().length;
+    }
+
+    private static RoutePolyline route(int points) {
+        RoutePolyline.Builder builder = new RoutePolyline.Builder();
+        for (int i = 0; i < points; i++) builder.add(40.4 + i * 1e-4, -3.7, i * 1000L);
+        return builder.build();
+    }
+}
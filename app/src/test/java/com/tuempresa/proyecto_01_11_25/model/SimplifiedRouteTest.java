@@ -0,0 +1,105 @@
+package com.tuempresa.proyecto_01_11_25.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Niveles de detalle de SimplifiedRoute contra un Douglas-Peucker recursivo de
+ * referencia, más la prueba de intersección con la vista.
+ */
+public class SimplifiedRouteTest {
+
+    private static final double LAT0 = 40.4;
+    private static final double LNG0 = -3.7;
+    private static final double M_PER_DEG = 111_320;
+    private static final double M_PER_DEG_LNG = M_PER_DEG * Math.cos(Math.toRadians(LAT0));
+
+    @Test
+    public void toleranceFilter_matchesRecursiveDouglasPeucker() {
+        Random random = new Random(7);
+        int n = 2000;
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        double x = 0, y = 0, heading = 0;
+        for (int i = 0; i < n; i++) { // Paseo con giros suaves y ruido de GPS
+            heading += random.nextGaussian() * 0.2;
+            x += 2.8 * Math.cos(heading) + random.nextGaussian();
+            y += 2.8 * Math.sin(heading) + random.nextGaussian();
+            lat[i] = LAT0 + y / M_PER_DEG;
+            lng[i] = LNG0 + x / M_PER_DEG_LNG;
+        }
+        double[] tolerances = SimplifiedRoute.computeTolerances(lat, lng);
+        for (double epsilon : new double[]{0.5, 2, 5, 20, 100}) {
+            boolean[] expected = new boolean[n];
+            expected[0] = true;
+            expected[n - 1] = true;
+            douglasPeucker(lat, lng, 0, n - 1, epsilon, expected);
+            for (int i = 0; i < n; i++) {
+                assertEquals("punto " + i + " con " + epsilon + " m", expected[i], tolerances[i] > epsilon);
+            }
+        }
+    }
+
+    @Test
+    public void pointsForZoom_shrinkWhenZoomingOutAndAreCached() {
+        RoutePolyline.Builder builder = new RoutePolyline.Builder();
+        for (int i = 0; i < 1000; i++) { // Zigzag de 3 m sobre una recta de 2.8 km
+            builder.add(LAT0 + (i % 2) * 3 / M_PER_DEG, LNG0 + i * 2.8 / M_PER_DEG_LNG, i * 2000L);
+        }
+        SimplifiedRoute route = SimplifiedRoute.of(99, builder.build());
+        assertEquals(1000, route.size());
+
+        int previous = Integer.MAX_VALUE;
+        for (int zoom = SimplifiedRoute.MAX_ZOOM; zoom >= 0; zoom--) {
+            int points = route.pointsForZoom(zoom).length / 2;
+            assertTrue(points <= previous);
+            assertTrue(points >= 2);
+            previous = points;
+        }
+        assertEquals(1000, route.pointsForZoom(SimplifiedRoute.MAX_ZOOM).length / 2);
+        assertEquals(2, route.pointsForZoom(12).length / 2); // ~57 m por píxel: el zigzag no se ve
+
+        double[] level = route.pointsForZoom(15);
+        assertTrue(level == route.pointsForZoom(15));
+        assertEquals(LAT0, level[0], 1e-5);
+        assertEquals(LNG0, level[1], 1e-5);
+    }
+
+    @Test
+    public void intersects_handlesAntimeridianViews() {
+        RoutePolyline.Builder builder = new RoutePolyline.Builder();
+        builder.add(-17.0, 179.9, 0).add(-17.1, 179.95, 1000);
+        SimplifiedRoute route = SimplifiedRoute.of(1, builder.build());
+        assertTrue(route.intersects(-18, 179.92, -16, 179.99));
+        assertTrue(route.intersects(-18, 179.0, -16, -179.0)); // Vista que cruza el antimeridiano
+        assertFalse(route.intersects(-18, -179.5, -16, -179.0));
+        assertFalse(route.intersects(-16.9, 179.0, -16, 180));
+    }
+
+    private static void douglasPeucker(double[] lat, double[] lng, int from, int to, double epsilon, boolean[] keep) {
+        if (to - from < 2) return;
+        double ax = (lng[from] - lng[0]) * M_PER_DEG_LNG, ay = (lat[from] - lat[0]) * M_PER_DEG;
+        double bx = (lng[to] - lng[0]) * M_PER_DEG_LNG, by = (lat[to] - lat[0]) * M_PER_DEG;
+        int split = -1;
+        double max = -1;
+        for (int i = from + 1; i < to; i++) {
+            double px = (lng[i] - lng[0]) * M_PER_DEG_LNG, py = (lat[i] - lat[0]) * M_PER_DEG;
+            double dx = bx - ax, dy = by - ay;
+            double t = Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / (dx * dx + dy * dy)));
+            double d = Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+            if (d > max) {
+                max = d;
+                split = i;
+            }
+        }
+        if (max <= epsilon) return;
+        keep[split] = true;
+        douglasPeucker(lat, lng, from, split, epsilon, keep);
+        douglasPeucker(lat, lng, split, to, epsilon, keep);
+    }
+}
@@ -0,0 +1,27 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * El detector de luz mide el tiempo con el timestamp de cada muestra: un lote
+ * entregado de golpe por la FIFO da el mismo resultado que las muestras en vivo.
+ */
+public class LightLevelDetectorTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void light_changesOnlyAfterDebounce() {
+        LightLevelDetector detector = new LightLevelDetector();
+        assertFalse(detector.onSample(0, 100f)); // Estado inicial
+        assertFalse(detector.onSample(1000 * MS, 5f));
+        assertTrue(detector.onSample(2500 * MS, 5f));
+        assertTrue(detector.isLowLight());
+        assertFalse(detector.onSample(3000 * MS, 100f));
+        assertTrue(detector.onSample(5000 * MS, 100f));
+        assertFalse(detector.isLowLight());
+    }
+}
@@ -0,0 +1,81 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Estados de movimiento con histéresis y la contabilidad del muestreo de ubicación
+ */
+public class MotionStateClassifierTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final Random random = new Random(11);
+    private long t = 0;
+
+    @Test
+    public void desk_walk_pause_desk() {
+        MotionStateClassifier classifier = new MotionStateClassifier();
+        feed(classifier, 8_000, 0.02);
+        assertEquals(MotionStateClassifier.State.UNKNOWN, classifier.getState()); // Menos de 10 s quieto
+        feed(classifier, 4_000, 0.02);
+        assertEquals(MotionStateClassifier.State.STATIONARY, classifier.getState());
+
+        feed(classifier, 1_000, 2.0); // Un golpe no alcanza para caminar
+        assertEquals(MotionStateClassifier.State.STATIONARY, classifier.getState());
+        feed(classifier, 2_000, 2.0);
+        assertEquals(MotionStateClassifier.State.UNKNOWN, classifier.getState());
+        feed(classifier, 4_000, 2.0);
+        assertEquals(MotionStateClassifier.State.WALKING, classifier.getState());
+
+        feed(classifier, 3_000, 0.02); // Semáforo: sigue caminando
+        assertEquals(MotionStateClassifier.State.WALKING, classifier.getState());
+        feed(classifier, 5_000, 0.02); // 6 s quieto: dejó de caminar
+        assertEquals(MotionStateClassifier.State.UNKNOWN, classifier.getState());
+        feed(classifier, 4_000, 0.02);
+        assertEquals(MotionStateClassifier.State.STATIONARY, classifier.getState());
+    }
+
+    @Test
+    public void gapInSamples_isUnknown() {
+        MotionStateClassifier classifier = new MotionStateClassifier();
+        feed(classifier, 12_000, 0.02);
+        assertEquals(MotionStateClassifier.State.STATIONARY, classifier.getState());
+        t += 30_000; // Sensor detenido
+        feed(classifier, 100, 0.02);
+        assertEquals(MotionStateClassifier.State.UNKNOWN, classifier.getState());
+    }
+
+    @Test
+    public void sampler_accumulatesTimeAndFixesPerState() {
+        AdaptiveLocationSampler sampler = new AdaptiveLocationSampler();
+        sampler.start(0);
+        sampler.onFix();
+        assertEquals(10_000, sampler.getIntervalMs());
+        sampler.setState(MotionStateClassifier.State.WALKING, 5_000);
+        sampler.onFix();
+        sampler.onFix();
+        assertEquals(2_000, sampler.getIntervalMs());
+        sampler.setState(MotionStateClassifier.State.STATIONARY, 65_000);
+        assertEquals(60_000, sampler.getIntervalMs());
+        sampler.stop(125_000);
+
+        assertEquals(5_000, sampler.getTimeInStateMs(MotionStateClassifier.State.UNKNOWN, 200_000));
+        assertEquals(60_000, sampler.getTimeInStateMs(MotionStateClassifier.State.WALKING, 200_000));
+        assertEquals(60_000, sampler.getTimeInStateMs(MotionStateClassifier.State.STATIONARY, 200_000));
+        assertEquals(1, sampler.getFixCount(MotionStateClassifier.State.UNKNOWN));
+        assertEquals(2, sampler.getFixCount(MotionStateClassifier.State.WALKING));
+        assertEquals(0, sampler.getFixCount(MotionStateClassifier.State.STATIONARY));
+    }
+
+    /** durationMs de muestras a 50 Hz con ruido de desvío std sobre la gravedad */
+    private void feed(MotionStateClassifier classifier, long durationMs, double std) {
+        for (long end = t + durationMs; t < end; t += 20) {
+            float z = (float) (9.8 + std * random.nextGaussian());
+            classifier.onSample(t * MS, 0.1f, 0.1f, z);
+        }
+    }
+}
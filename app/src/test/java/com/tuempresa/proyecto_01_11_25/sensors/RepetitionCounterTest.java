@@ -0,0 +1,82 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Series sintéticas con cadencia conocida: repeticiones, cadencia y rechazo de
+ * movimiento no periódico (baches de un viaje).
+ */
+public class RepetitionCounterTest {
+
+    private static final long MS = 1_000_000L;
+    private static final float GRAVITY = 9.8f;
+
+    @Test
+    public void countsRepsAndCadenceOfASet() {
+        for (double hz : new double[]{0.5, 1.0, 2.0}) {
+            RepetitionCounter counter = new RepetitionCounter();
+            // 10 s quieto, 30 s de repeticiones, 10 s quieto, a 50 Hz
+            int sets = run(counter, 50, 20, new Random(1), t -> t >= 10 && t < 40 ? 4 * Math.sin(2 * Math.PI * hz * (t - 10)) : 0);
+            assertEquals("cadencia " + hz, 1, sets);
+            int expected = (int) (30 * hz);
+            assertEquals("repeticiones a " + hz + " Hz", expected, counter.getSetReps(), Math.max(2, expected * 0.1));
+            assertEquals("reps/min a " + hz + " Hz", 60 * hz, counter.getSetRepsPerMinute(), 60 * hz * 0.1);
+            assertEquals(4 / Math.sqrt(2), counter.getSetIntensity(), 0.5);
+            assertEquals(30_000, counter.getSetDurationMs(), 3000);
+            assertFalse(counter.isInSet());
+        }
+    }
+
+    @Test
+    public void bumpyRide_isNotExercise() {
+        RepetitionCounter counter = new RepetitionCounter();
+        Random random = new Random(7);
+        // 10 minutos de vibración y golpes sin ritmo
+        int sets = run(counter, 50, 20, random, t -> 4 * random.nextGaussian() + (random.nextInt(100) == 0 ? 20 : 0), 600);
+        assertEquals(0, sets);
+        assertTrue(counter.getPeriodicity() < RepetitionCounter.MIN_PERIODICITY);
+    }
+
+    @Test
+    public void pauseSplitsSets_andSlowIrregularSamplingStillCounts() {
+        RepetitionCounter counter = new RepetitionCounter();
+        // Muestras a ~5 Hz con jitter, como SENSOR_DELAY_NORMAL: dos series de 20 s a 1 Hz con 15 s de pausa
+        int sets = run(counter, 5, 60, new Random(3),
+                t -> (t >= 5 && t < 25) || (t >= 40 && t < 60) ? 4 * Math.sin(2 * Math.PI * t) : 0, 70);
+        assertEquals(2, sets);
+        assertEquals(20, counter.getSetReps(), 2);
+    }
+
+    @Test
+    public void shortBurst_isBelowMinimumReps() {
+        RepetitionCounter counter = new RepetitionCounter();
+        int sets = run(counter, 50, 20, new Random(5), t -> t >= 10 && t < 14 ? 4 * Math.sin(2 * Math.PI * t) : 0);
+        assertEquals(0, sets);
+    }
+
+    private interface Signal {
+        double at(double seconds);
+    }
+
+    private static int run(RepetitionCounter counter, int hz, int jitterMs, Random random, Signal signal) {
+        return run(counter, hz, jitterMs, random, signal, 50);
+    }
+
+    /** Señal vertical sobre la gravedad más ruido de sensor; devuelve las series terminadas */
+    private static int run(RepetitionCounter counter, int hz, int jitterMs, Random random, Signal signal, int seconds) {
+        int sets = 0;
+        long periodMs = 1000 / hz;
+        for (long ms = 0; ms < seconds * 1000L; ms += periodMs) {
+            long t = ms + (jitterMs > 0 && ms > 0 ? random.nextInt(jitterMs) - jitterMs / 2 : 0);
+            float z = (float) (GRAVITY + signal.at(t / 1000.0) + 0.1 * random.nextGaussian());
+            if (counter.onSample(t * MS, 0.2f, 0.1f, z)) sets++;
+        }
+        return sets;
+    }
+}
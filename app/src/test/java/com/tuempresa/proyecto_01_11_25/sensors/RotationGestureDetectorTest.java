@@ -0,0 +1,123 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Máquina de estados de RotationGestureDetector con giros sintéticos a 200 Hz
+ * (la frecuencia de SENSOR_DELAY_GAME).
+ */
+public class RotationGestureDetectorTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long SAMPLE_NS = 5 * MS;
+
+    private long clockNs = 0;
+
+    @Test
+    public void threeTwistsWithinWindow_completeGesture() {
+        RotationGestureDetector detector = new RotationGestureDetector();
+        assertEquals(0, twist(detector, 0, 150, 6f));
+        assertEquals(0, twist(detector, 800, 150, 6f));
+        assertEquals(1, twist(detector, 1600, 150, 6f));
+        assertEquals(0, detector.getRotationCount());
+
+        // Demasiado separados: cada giro vuelve a empezar la cuenta
+        twist(detector, 10_000, 150, 6f);
+        twist(detector, 11_500, 150, 6f);
+        assertEquals(1, detector.getRotationCount());
+    }
+
+    @Test
+    public void longTwist_countsOnce() {
+        RotationGestureDetector detector = new RotationGestureDetector();
+        // 500 ms por encima del umbral: antes eran 100 "giros" (uno por muestra)
+        twist(detector, 0, 500, 7f);
+        assertEquals(1, detector.getRotationCount());
+        assertEquals(RotationGestureDetector.State.REFRACTORY, detector.getState());
+    }
+
+    @Test
+    public void sustainedRotation_isNotAGesture() {
+        RotationGestureDetector detector = new RotationGestureDetector();
+        twist(detector, 0, 150, 6f);
+        twist(detector, 800, 150, 6f);
+        assertEquals(2, detector.getRotationCount());
+        // Girando en la silla 3 s: no cuenta y anula lo que había
+        assertEquals(0, twist(detector, 1600, 3000, 5f));
+        assertEquals(0, detector.getRotationCount());
+        assertEquals(RotationGestureDetector.State.ARMED, detector.getState());
+    }
+
+    @Test
+    public void wristReturnAndHoveringNoise_doNotCount() {
+        RotationGestureDetector detector = new RotationGestureDetector();
+        // Ida y vuelta de la muñeca separados por 100 ms: un solo giro
+        twist(detector, 0, 100, 6f);
+        twist(detector, 200, 100, 6f);
+        assertEquals(1, detector.getRotationCount());
+
+        // Ruido alrededor del umbral sin bajar de la histéresis: un solo pico
+        detector.reset();
+        for (int i = 0; i < 60; i++, clockNs += SAMPLE_NS) detector.onSample(clockNs, i % 2 == 0 ? 4.8f : 4.2f, 0f, 0f);
+        detector.onSample(clockNs, 0f, 0f, 0f);
+        assertEquals(1, detector.getRotationCount());
+    }
+
+    @Test
+    public void randomHandling_hasFewerFalsePositivesThanPerSampleCounting() {
+        Random random = new Random(3);
+        RotationGestureDetector detector = new RotationGestureDetector();
+        int gestures = 0;
+        int perSample = 0;
+        int perSampleCount = 0;
+        long lastAboveNs = 0;
+        // 10 minutos en la mano: movimientos bruscos de 0.2 a 1 s separados por pausas
+        long t = 0;
+        for (int burst = 0; burst < 400; burst++) {
+            long lengthNs = (200 + random.nextInt(800)) * MS;
+            float peak = 3f + random.nextFloat() * 5f;
+            for (long s = 0; s < lengthNs; s += SAMPLE_NS, t += SAMPLE_NS) {
+                float w = peak * (float) Math.sin(Math.PI * s / lengthNs) + 0.3f * (float) random.nextGaussian();
+                if (detector.onSample(t, w, 0.2f * w, 0f)) gestures++;
+                // Conteo anterior: cada muestra por encima del umbral era un giro
+                if (Math.sqrt(w * w + 0.04 * w * w) > 4.5) {
+                    perSampleCount = t - lastAboveNs > 1200 * MS ? 1 : perSampleCount + 1;
+                    lastAboveNs = t;
+                    if (perSampleCount >= 3) {
+                        perSample++;
+                        perSampleCount = 0;
+                    }
+                }
+            }
+            long pauseNs = (500 + random.nextInt(2000)) * MS;
+            for (long s = 0; s < pauseNs; s += SAMPLE_NS, t += SAMPLE_NS) detector.onSample(t, 0.1f, 0f, 0f);
+        }
+        assertTrue("gestos=" + gestures + " antes=" + perSample, gestures * 5 < perSample);
+    }
+
+    /**
+     * Muestras quietas hasta startMs (el sensor entrega sin pausa), un giro de
+     * durationMs con la velocidad dada y 50 ms quieto
+     *
+     * @return cuántas veces se completó el gesto
+     */
+    private int twist(RotationGestureDetector detector, long startMs, long durationMs, float speed) {
+        int gestures = 0;
+        for (; clockNs < startMs * MS; clockNs += SAMPLE_NS) {
+            if (detector.onSample(clockNs, 0f, 0f, 0.1f)) gestures++;
+        }
+        for (; clockNs < (startMs + durationMs) * MS; clockNs += SAMPLE_NS) {
+            if (detector.onSample(clockNs, 0f, 0f, speed)) gestures++;
+        }
+        for (long end = clockNs + 50 * MS; clockNs < end; clockNs += SAMPLE_NS) {
+            if (detector.onSample(clockNs, 0f, 0f, 0.1f)) gestures++;
+        }
+        return gestures;
+    }
+}
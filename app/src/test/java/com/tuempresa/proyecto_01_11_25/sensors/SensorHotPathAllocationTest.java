@@ -0,0 +1,114 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * El camino de cada muestra (buffer circular + detectores) no debe crear objetos:
+ * se mide lo que asigna el hilo con el ThreadMXBean de HotSpot y el test falla
+ * si un cambio introduce boxing, strings o lambdas por muestra.
+ */
+public class SensorHotPathAllocationTest {
+
+    private static final long MS = 1_000_000L;
+    private static final int WARMUP_SAMPLES = 200_000;
+    private static final int MEASURED_SAMPLES = 1_000_000;
+
+    @Test
+    public void ringBuffer_keepsNewestSamplesAndSequence() {
+        SensorRingBuffer samples = new SensorRingBuffer(5, 3);
+        assertEquals(8, samples.capacity());
+        float[] values = new float[3];
+        for (int i = 0; i < 20; i++) {
+            values[0] = i;
+            values[2] = -i;
+            samples.add(i * MS, values);
+        }
+        assertEquals(20, samples.endSeq());
+        assertEquals(12, samples.startSeq());
+        assertEquals(8, samples.size());
+        assertEquals(12 * MS, samples.getTimestamp(12));
+        assertEquals(19f, samples.getValue(19, 0), 0);
+        assertEquals(-19f, samples.getValue(19, 2), 0);
+    }
+
+    @Test
+    public void detector_skipsSamplesLostToOverflow() {
+        SensorRingBuffer samples = new SensorRingBuffer(16, 3);
+        RotationGestureDetector detector = new RotationGestureDetector();
+        float[] turning = {6f, 0f, 0f};
+        float[] still = {0f, 0f, 0f};
+        // 5 giros (pico de 100 ms cada 400 ms) sin leer: las 16 muestras que
+        // quedan tienen 4, el gesto y 1 giro suelto; con las 20 sobrarían 2
+        for (long t = 0; t < 20; t++) samples.add(t * 100 * MS, t % 2 == 0 ? turning : still);
+        assertTrue(detector.process(samples));
+        assertEquals(1, detector.getRotationCount());
+        assertFalse(detector.process(samples)); // Nada nuevo
+        assertEquals(1, detector.getRotationCount());
+    }
+
+    @Test
+    public void hotPath_allocatesNothingPerSample() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        HotPath path = new HotPath();
+        path.run(0, WARMUP_SAMPLES); // Que el JIT compile antes de medir
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        int events = path.run(WARMUP_SAMPLES, MEASURED_SAMPLES);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue("no hubo detecciones", events > 0);
+        // Unos pocos bytes de margen por la propia medición; uno por muestra serían MB
+        assertTrue("asignados " + allocated + " bytes en " + MEASURED_SAMPLES + " muestras", allocated < 1024);
+    }
+
+    /** Los tres sensores como los alimentan los gestores, con la instancia de float[] que reusa SensorEvent */
+    private static final class HotPath {
+        final SensorRingBuffer accel = new SensorRingBuffer(256, 3);
+        final SensorRingBuffer gyro = new SensorRingBuffer(64, 3);
+        final SensorRingBuffer light = new SensorRingBuffer(64, 1);
+        final RepetitionCounter exercise = new RepetitionCounter();
+        final MotionStateClassifier motion = new MotionStateClassifier();
+        final RotationGestureDetector rotation = new RotationGestureDetector();
+        final LightLevelDetector lightLevel = new LightLevelDetector();
+        final float[] values = new float[3];
+        final float[] turn = new float[3];
+
+        int run(int from, int count) {
+            int events = 0;
+            for (int i = from; i < from + count; i++) {
+                long t = i * 20L * MS; // 50 Hz
+                // Ciclos de 30 s: 20 s de repeticiones a 1 Hz y giros, 10 s quieto y a oscuras
+                boolean active = i % 1500 < 1000;
+                values[0] = active ? (i % 50 < 25 ? 6f : -6f) : 0f;
+                values[1] = 0f;
+                values[2] = active ? 9.8f + 4f * (float) Math.sin(i * (2 * Math.PI / 50)) : 9.8f;
+                accel.add(t, values);
+                if (motion.onSample(t, values[0], values[1], values[2])) events++;
+                if (exercise.process(accel)) events++;
+                turn[2] = active && i % 25 < 5 ? 6f : 0.5f; // Un giro de 100 ms cada medio segundo
+                gyro.add(t, turn);
+                if (rotation.process(gyro)) {
+                    events++;
+                    rotation.reset();
+                }
+                values[0] = active ? 300f : 2f;
+                light.add(t, values);
+                if (lightLevel.process(light)) events++;
+            }
+            return events;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reproduce una traza (SensorTrace) contra un detector a toda velocidad de CPU.
+ *
+ * La traza se decodifica primero a arreglos, así el tiempo medido es solo el del
+ * detector. Las muestras pasan por un SensorRingBuffer como en los gestores.
+ * Cada detección se empareja con la primera marca pendiente de la etiqueta
+ * buscada que la precede por menos de la ventana: la diferencia es la latencia.
+ * Las detecciones sin marca son falsos positivos; las marcas sin detección,
+ * omisiones.
+ */
+final class SensorReplay {
+
+    /** Lo que hace el gestor con cada lote: true si hubo detección */
+    interface Probe {
+        boolean process(SensorRingBuffer samples);
+    }
+
+    /** Para TrackFilter y otros consumidores de ubicación */
+    interface LocationProbe {
+        boolean onFix(long timestampNs, double lat, double lng, float accuracyM);
+    }
+
+    /** Flujos de una traza decodificados a arreglos primitivos */
+    static final class Trace {
+        final long[][] timestamps = new long[SensorTrace.Stream.values().length][];
+        final float[][] values = new float[SensorTrace.Stream.values().length][];
+        final int[] counts = new int[SensorTrace.Stream.values().length];
+        double[] lat = new double[0];
+        double[] lng = new double[0];
+        final List<Long> markTimes = new ArrayList<>();
+        final List<String> markLabels = new ArrayList<>();
+
+        int count(SensorTrace.Stream stream) {
+            return counts[stream.ordinal()];
+        }
+
+        long[] marks(String label) {
+            long[] result = new long[markTimes.size()];
+            int n = 0;
+            for (int i = 0; i < markTimes.size(); i++) {
+                if (markLabels.get(i).equals(label)) result[n++] = markTimes.get(i);
+            }
+            return Arrays.copyOf(result, n);
+        }
+    }
+
+    static final class Report {
+        int samples;
+        long elapsedNs;
+        int detections;
+        int truePositives;
+        int falsePositives;
+        int missed;
+        long totalLatencyNs;
+        long maxLatencyNs;
+
+        double samplesPerSecond() {
+            return samples * 1e9 / Math.max(1, elapsedNs);
+        }
+
+        double meanLatencyMs() {
+            return truePositives == 0 ? 0 : totalLatencyNs / 1e6 / truePositives;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT,
+                    "%d muestras, %.0f muestras/s, %d detecciones (%d aciertos, %d falsos positivos, %d omisiones), latencia media %.0f ms, máx %.0f ms",
+                    samples, samplesPerSecond(), detections, truePositives, falsePositives, missed,
+                    meanLatencyMs(), maxLatencyNs / 1e6);
+        }
+    }
+
+    private SensorReplay() {
+    }
+
+    static Trace decode(byte[] bytes) throws IOException {
+        Trace trace = new Trace();
+        SensorTrace.Reader reader = new SensorTrace.Reader(new ByteArrayInputStream(bytes));
+        for (SensorTrace.Stream stream : SensorTrace.Stream.values()) {
+            trace.timestamps[stream.ordinal()] = new long[1024];
+            trace.values[stream.ordinal()] = new float[1024 * Math.max(1, stream.axes)];
+        }
+        while (reader.next()) {
+            SensorTrace.Stream stream = reader.getStream();
+            int s = stream.ordinal();
+            int i = trace.counts[s]++;
+            if (i == trace.timestamps[s].length) {
+                trace.timestamps[s] = Arrays.copyOf(trace.timestamps[s], i * 2);
+                trace.values[s] = Arrays.copyOf(trace.values[s], i * 2 * Math.max(1, stream.axes));
+            }
+            trace.timestamps[s][i] = reader.getTimestampNs();
+            if (stream == SensorTrace.Stream.MARK) {
+                trace.markTimes.add(reader.getTimestampNs());
+                trace.markLabels.add(reader.getLabel());
+            } else if (stream == SensorTrace.Stream.LOCATION) {
+                if (i == trace.lat.length) {
+                    trace.lat = Arrays.copyOf(trace.lat, Math.max(1024, i * 2));
+                    trace.lng = Arrays.copyOf(trace.lng, Math.max(1024, i * 2));
+                }
+                trace.lat[i] = reader.getLat();
+                trace.lng[i] = reader.getLng();
+                trace.values[s][i] = reader.getAccuracy();
+            } else {
+                for (int axis = 0; axis < stream.axes; axis++) {
+                    trace.values[s][i * stream.axes + axis] = reader.getValue(axis);
+                }
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Pasa el flujo por el detector en lotes de batchSize muestras (1 = en vivo)
+     *
+     * @param label etiqueta de las marcas que cuentan como verdad (null: sin verdad)
+     */
+    static Report run(Trace trace, SensorTrace.Stream stream, int ringCapacity, int batchSize,
+                      Probe probe, String label, long windowNs) {
+        int s = stream.ordinal();
+        int count = trace.counts[s];
+        long[] timestamps = trace.timestamps[s];
+        float[] values = trace.values[s];
+        SensorRingBuffer ring = new SensorRingBuffer(ringCapacity, stream.axes);
+        float[] sample = new float[stream.axes];
+        long[] detections = new long[16];
+        int detected = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(values, i * stream.axes, sample, 0, stream.axes);
+            ring.add(timestamps[i], sample);
+            if ((i + 1) % batchSize != 0 && i != count - 1) continue;
+            if (probe.process(ring)) {
+                if (detected == detections.length) detections = Arrays.copyOf(detections, detected * 2);
+                detections[detected++] = timestamps[i]; // Con lotes, la detección llega al entregarse el lote
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return score(count, elapsed, Arrays.copyOf(detections, detected), label == null ? null : trace.marks(label), windowNs);
+    }
+
+    static Report runLocations(Trace trace, LocationProbe probe, String label, long windowNs) {
+        int s = SensorTrace.Stream.LOCATION.ordinal();
+        int count = trace.counts[s];
+        long[] detections = new long[16];
+        int detected = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long t = trace.timestamps[s][i];
+            if (probe.onFix(t, trace.lat[i], trace.lng[i], trace.values[s][i])) {
+                if (detected == detections.length) detections = Arrays.copyOf(detections, detected * 2);
+                detections[detected++] = t;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return score(count, elapsed, Arrays.copyOf(detections, detected), label == null ? null : trace.marks(label), windowNs);
+    }
+
+    private static Report score(int samples, long elapsedNs, long[] detections, long[] marks, long windowNs) {
+        Report report = new Report();
+        report.samples = samples;
+        report.elapsedNs = elapsedNs;
+        report.detections = detections.length;
+        if (marks == null) return report;
+
+        boolean[] matched = new boolean[marks.length];
+        for (long detection : detections) {
+            int match = -1;
+            for (int m = 0; m < marks.length; m++) {
+                if (!matched[m] && marks[m] <= detection && detection - marks[m] <= windowNs) {
+                    match = m;
+                    break;
+                }
+            }
+            if (match < 0) {
+                report.falsePositives++;
+                continue;
+            }
+            matched[match] = true;
+            long latency = detection - marks[match];
+            report.truePositives++;
+            report.totalLatencyNs += latency;
+            report.maxLatencyNs = Math.max(report.maxLatencyNs, latency);
+        }
+        report.missed = marks.length - report.truePositives;
+        return report;
+    }
+}
@@ -0,0 +1,235 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Formato de SensorTrace y detectores reproducidos con SensorReplay sobre
+ * sesiones sintéticas con marcas de verdad, en los lotes que usan los gestores.
+ * Un cambio de umbral que agregue falsos positivos u omisiones rompe estos tests.
+ */
+public class SensorReplayTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long SECOND = 1000 * MS;
+    private static final double M_PER_DEG = 111_320;
+
+    @Test
+    public void trace_roundTripsInterleavedStreams() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SensorTrace.Writer writer = new SensorTrace.Writer(bytes);
+        writer.sample(SensorTrace.Stream.ACCEL, 1_000 * SECOND, new float[]{0.1f, -9.8f, 3e-7f});
+        writer.sample(SensorTrace.Stream.GYRO, 1_000 * SECOND - 3 * MS, new float[]{6f, 0f, -0f}); // Lote atrasado
+        writer.sample(SensorTrace.Stream.LIGHT, 1_000 * SECOND + 5, new float[]{120.5f});
+        writer.location(1_000 * SECOND + 7, 40.4168023, -3.7038021, 4.5f);
+        writer.mark(1_001 * SECOND, "focus ñ");
+        writer.flush();
+        assertEquals(bytes.size(), writer.getByteCount()); // Lo que usa el grabador para su límite
+
+        SensorTrace.Reader reader = new SensorTrace.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(reader.next());
+        assertEquals(SensorTrace.Stream.ACCEL, reader.getStream());
+        assertEquals(1_000 * SECOND, reader.getTimestampNs());
+        assertEquals(3e-7f, reader.getValue(2), 0);
+        assertTrue(reader.next());
+        assertEquals(SensorTrace.Stream.GYRO, reader.getStream());
+        assertEquals(1_000 * SECOND - 3 * MS, reader.getTimestampNs());
+        assertEquals(6f, reader.getValue(0), 0);
+        assertTrue(reader.next());
+        assertEquals(120.5f, reader.getValue(0), 0);
+        assertTrue(reader.next());
+        assertEquals(SensorTrace.Stream.LOCATION, reader.getStream());
+        assertEquals(40.4168023, reader.getLat(), 1e-7);
+        assertEquals(-3.7038021, reader.getLng(), 1e-7);
+        assertEquals(4.5f, reader.getAccuracy(), 0);
+        assertTrue(reader.next());
+        assertEquals("focus ñ", reader.getLabel());
+        assertEquals(1_001 * SECOND, reader.getTimestampNs());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void trace_isCompactAndToleratesTruncatedTail() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SensorTrace.Writer writer = new SensorTrace.Writer(bytes);
+        float[] values = new float[3];
+        for (int i = 0; i < 10_000; i++) {
+            values[0] = i * 0.01f;
+            writer.sample(SensorTrace.Stream.ACCEL, 5_000 * SECOND + i * 20 * MS, values);
+        }
+        writer.flush();
+        byte[] full = bytes.toByteArray();
+        assertTrue("bytes/muestra " + full.length / 10_000.0, full.length < 10_000 * 18);
+
+        SensorReplay.Trace cut = SensorReplay.decode(Arrays.copyOf(full, full.length - 5)); // Cierre a mitad de escritura
+        assertEquals(9_999, cut.count(SensorTrace.Stream.ACCEL));
+        assertEquals(9_998 * 0.01f, cut.values[SensorTrace.Stream.ACCEL.ordinal()][9_998 * 3], 0);
+    }
+
+    @Test
+    public void gyro_focusGesturesWithoutFalsePositives() throws IOException {
+        SensorReplay.Trace trace = SensorReplay.decode(focusSession());
+
+        RotationGestureDetector detector = new RotationGestureDetector();
+        // Lotes de 1 s a 200 Hz, como GyroSensorManager.DEFAULT_BATCHING
+        SensorReplay.Report report = SensorReplay.run(trace, SensorTrace.Stream.GYRO, 256, 200,
+                detector::process, "focus", 3 * SECOND);
+        assertEquals(report.toString(), 0, report.missed);
+        assertEquals(0, report.falsePositives);
+        assertTrue(report.meanLatencyMs() < 2500);
+
+        // El conteo por muestra que había antes, medido con la misma traza
+        int[] count = {0};
+        long[] last = {0};
+        long[] seen = {0};
+        SensorReplay.Report perSample = SensorReplay.run(trace, SensorTrace.Stream.GYRO, 256, 200, samples -> {
+            boolean found = false;
+            for (long seq = Math.max(seen[0], samples.startSeq()); seq < samples.endSeq(); seq++) {
+                float x = samples.getValue(seq, 0), y = samples.getValue(seq, 1), z = samples.getValue(seq, 2);
+                if (Math.sqrt(x * x + y * y + z * z) <= 4.5) continue;
+                long t = samples.getTimestamp(seq);
+                count[0] = count[0] == 0 || t - last[0] > 1200 * MS ? 1 : count[0] + 1;
+                last[0] = t;
+                if (count[0] >= 3) {
+                    count[0] = 0;
+                    found = true;
+                }
+            }
+            seen[0] = samples.endSeq();
+            return found;
+        }, "focus", 3 * SECOND);
+        assertTrue(perSample.toString(), perSample.falsePositives > 10);
+    }
+
+    @Test
+    public void accel_exerciseSetsWithoutFalsePositives() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SensorTrace.Writer writer = new SensorTrace.Writer(bytes);
+        Random random = new Random(5);
+        float[] values = new float[3];
+        long t0 = 100 * SECOND;
+        // 20 min a 50 Hz: 3 series de 30 s entre ratos quieto y 3 min de viaje con baches
+        for (int i = 0; i < 20 * 60 * 50; i++) {
+            double s = i / 50.0;
+            double a = 0;
+            for (double setStart : new double[]{120, 500, 900}) {
+                if (s >= setStart && s < setStart + 30) a = 4 * Math.sin(2 * Math.PI * (s - setStart) * 0.8);
+                if (i == (int) (setStart * 50)) writer.mark(t0 + i * 20 * MS, "exercise");
+            }
+            if (s >= 600 && s < 780) a = random.nextGaussian() * 1.5 + (random.nextInt(40) == 0 ? 8 : 0);
+            values[0] = (float) (0.05 * random.nextGaussian());
+            values[1] = (float) (0.05 * random.nextGaussian());
+            values[2] = (float) (9.8 + a + 0.05 * random.nextGaussian());
+            writer.sample(SensorTrace.Stream.ACCEL, t0 + i * 20 * MS, values);
+        }
+        SensorReplay.Trace trace = SensorReplay.decode(bytes.toByteArray());
+
+        RepetitionCounter counter = new RepetitionCounter();
+        // Lotes de 5 s, como AccelerometerSensorManager.DEFAULT_BATCHING
+        SensorReplay.Report report = SensorReplay.run(trace, SensorTrace.Stream.ACCEL, 512, 250,
+                counter::process, "exercise", 45 * SECOND);
+        assertEquals(report.toString(), 0, report.missed);
+        assertEquals(0, report.falsePositives);
+    }
+
+    @Test
+    public void light_darkRoomsDetected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SensorTrace.Writer writer = new SensorTrace.Writer(bytes);
+        Random random = new Random(9);
+        float[] lux = new float[1];
+        // 10 min a 5 Hz: dos ratos a oscuras entre luz que fluctúa
+        for (int i = 0; i < 10 * 60 * 5; i++) {
+            double s = i / 5.0;
+            boolean dark = (s >= 100 && s < 200) || (s >= 400 && s < 450);
+            if (i == 500 || i == 2000) writer.mark(i * 200 * MS, "dark");
+            lux[0] = dark ? 3f + (float) random.nextGaussian() : 250f + 60f * (float) random.nextGaussian();
+            writer.sample(SensorTrace.Stream.LIGHT, i * 200 * MS, lux);
+        }
+        SensorReplay.Trace trace = SensorReplay.decode(bytes.toByteArray());
+
+        LightLevelDetector detector = new LightLevelDetector();
+        SensorReplay.Report report = SensorReplay.run(trace, SensorTrace.Stream.LIGHT, 64, 15,
+                samples -> detector.process(samples) && detector.isLowLight(), "dark", 10 * SECOND);
+        assertEquals(report.toString(), 0, report.missed);
+        assertEquals(0, report.falsePositives);
+    }
+
+    @Test
+    public void location_trackFilterDistanceFromReplayedWalk() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SensorTrace.Writer writer = new SensorTrace.Writer(bytes);
+        Random random = new Random(4);
+        double lat0 = 40.4, lng0 = -3.7;
+        double mPerDegLng = M_PER_DEG * Math.cos(Math.toRadians(lat0));
+        for (int i = 0; i < 300; i++) { // 10 min a 1.4 m/s hacia el norte, fijaciones cada 2 s
+            double north = i * 2 * 1.4 + 5 * random.nextGaussian();
+            double east = 5 * random.nextGaussian();
+            writer.location(i * 2 * SECOND, lat0 + north / M_PER_DEG, lng0 + east / mPerDegLng, 5f);
+        }
+        SensorReplay.Trace trace = SensorReplay.decode(bytes.toByteArray());
+
+        TrackFilter filter = new TrackFilter(null);
+        SensorReplay.Report report = SensorReplay.runLocations(trace,
+                (t, lat, lng, accuracy) -> filter.onFix(t / MS, lat, lng, accuracy) == TrackFilter.Result.RESET,
+                null, 0);
+        assertEquals(report.toString(), 300, report.samples);
+        assertEquals(0, report.detections);
+        assertEquals(299 * 2 * 1.4, filter.getDistanceMeters(), 299 * 2 * 1.4 * 0.1);
+    }
+
+    /**
+     * 10 min de giroscopio a 200 Hz: 12 gestos de foco marcados y, como
+     * distractores, giros largos al levantar el teléfono, pares de giros y
+     * rotaciones sostenidas (girar en la silla)
+     */
+    private static byte[] focusSession() throws IOException {
+        int hz = 200;
+        float[] speed = new float[10 * 60 * hz];
+        long[] gestureStarts = new long[12];
+        for (int g = 0; g < 12; g++) {
+            int start = (10 + g * 45) * hz;
+            gestureStarts[g] = start;
+            for (int twist = 0; twist < 3; twist++) fill(speed, start + twist * 100, 30, 6f); // 150 ms cada 500 ms
+        }
+        for (int d = 0; d < 10; d++) fill(speed, (25 + d * 45) * hz, 100, 7f);   // Giro largo de 500 ms
+        for (int d = 0; d < 10; d++) {
+            int start = (35 + d * 45) * hz;
+            fill(speed, start, 30, 6f);                                            // Solo dos giros
+            fill(speed, start + 100, 30, 6f);
+        }
+        for (int d = 0; d < 6; d++) fill(speed, (40 + d * 90) * hz, 600, 5f);    // 3 s en la silla
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SensorTrace.Writer writer = new SensorTrace.Writer(bytes);
+        Random random = new Random(11);
+        float[] values = new float[3];
+        long t0 = 3_600 * SECOND;
+        int nextGesture = 0;
+        for (int i = 0; i < speed.length; i++) {
+            long t = t0 + i * (SECOND / hz);
+            if (nextGesture < gestureStarts.length && gestureStarts[nextGesture] == i) {
+                writer.mark(t, "focus");
+                nextGesture++;
+            }
+            values[0] = 0.1f * (float) random.nextGaussian();
+            values[1] = 0.1f * (float) random.nextGaussian();
+            values[2] = speed[i] + 0.1f * (float) random.nextGaussian();
+            writer.sample(SensorTrace.Stream.GYRO, t, values);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void fill(float[] speed, int from, int length, float value) {
+        Arrays.fill(speed, from, Math.min(speed.length, from + length), value);
+    }
+}
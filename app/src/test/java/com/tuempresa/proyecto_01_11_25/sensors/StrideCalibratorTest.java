@@ -0,0 +1,52 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Calibración de zancada con tramos entre fijaciones de GPS
+ */
+public class StrideCalibratorTest {
+
+    // Un grado de latitud son ~111.2 km
+    private static final double METERS_PER_DEGREE = StrideCalibrator.distanceMeters(0, 0, 1, 0);
+
+    @Test
+    public void straightSegments_convergeToRealStride() {
+        StrideCalibrator calibrator = new StrideCalibrator();
+        assertEquals(StrideCalibrator.DEFAULT_STRIDE_M, calibrator.getStrideMeters(), 0);
+        // Caminando hacia el norte con zancada de 0.8 m, fijación cada 300 pasos con 5 m de precisión
+        double lat = 40;
+        long steps = 0;
+        assertFalse(calibrator.onFix(steps, lat, -3.7, 5f));
+        for (int i = 0; i < 10; i++) {
+            steps += 300;
+            lat += 300 * 0.8 / METERS_PER_DEGREE;
+            assertTrue(calibrator.onFix(steps, lat, -3.7, 5f));
+        }
+        assertEquals(0.8, calibrator.getStrideMeters(), 0.01);
+        assertEquals(2000, calibrator.getWeightMeters(), 1e-6); // Con tope
+    }
+
+    @Test
+    public void impreciseOrLoopedSegments_areIgnored() {
+        StrideCalibrator calibrator = new StrideCalibrator(0.75, 500);
+        calibrator.onFix(0, 40, -3.7, 5f);
+        // Vuelta a la manzana: 300 pasos y se termina casi donde se empezó
+        assertFalse(calibrator.onFix(300, 40 + 20 / METERS_PER_DEGREE, -3.7, 5f));
+        // 240 m con una fijación de 60 m de precisión: demasiado error
+        assertFalse(calibrator.onFix(600, 40 + 260 / METERS_PER_DEGREE, -3.7, 60f));
+        // Pocos pasos: todavía no es un tramo
+        assertFalse(calibrator.onFix(650, 40 + 300 / METERS_PER_DEGREE, -3.7, 5f));
+        assertEquals(0.75, calibrator.getStrideMeters(), 0);
+        assertEquals(500, calibrator.getWeightMeters(), 0);
+    }
+
+    @Test
+    public void implausibleStoredStride_fallsBackToDefault() {
+        assertEquals(StrideCalibrator.DEFAULT_STRIDE_M, new StrideCalibrator(3.5, 100).getStrideMeters(), 0);
+    }
+}
@@ -0,0 +1,84 @@
+package com.tuempresa.proyecto_01_11_25.sensors;
+
+import com.tuempresa.proyecto_01_11_25.model.RoutePolyline;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TrackFilter con fijaciones sintéticas: ruido gaussiano más saltos de 80 m
+ * cada tanto, como el GPS entre edificios.
+ */
+public class TrackFilterTest {
+
+    private static final double LAT0 = 40.4;
+    private static final double LNG0 = -3.7;
+    private static final double M_PER_DEG = 111_320;
+    private static final double M_PER_DEG_LNG = M_PER_DEG * Math.cos(Math.toRadians(LAT0));
+
+    @Test
+    public void stationaryJitter_addsNoDistance() {
+        for (float noise : new float[]{3, 8, 15}) {
+            Random random = new Random(2);
+            RoutePolyline.Builder route = new RoutePolyline.Builder();
+            TrackFilter filter = new TrackFilter(route);
+            for (int i = 0; i < 300; i++) { // 10 min, una fijación cada 2 s
+                double x = noise * random.nextGaussian() + (random.nextInt(30) == 0 ? 80 : 0);
+                double y = noise * random.nextGaussian();
+                filter.onFix(i * 2000L, LAT0 + y / M_PER_DEG, LNG0 + x / M_PER_DEG_LNG, noise);
+            }
+            assertEquals("ruido " + noise, 0, filter.getDistanceMeters(), 5);
+            assertTrue(route.size() <= 2);
+        }
+    }
+
+    @Test
+    public void walking_measuresCloseToRealDistance() {
+        double real = 149 * 2 * 1.4;
+        for (float noise : new float[]{3, 8}) {
+            Random random = new Random(3);
+            RoutePolyline.Builder route = new RoutePolyline.Builder();
+            TrackFilter filter = new TrackFilter(route);
+            for (int i = 0; i < 150; i++) { // 1.4 m/s en L, 417 m
+                double d = i * 2 * 1.4;
+                double x = Math.min(d, 105) + noise * random.nextGaussian();
+                double y = Math.max(0, d - 105) + noise * random.nextGaussian() + (random.nextInt(30) == 0 ? 80 : 0);
+                filter.onFix(i * 2000L, LAT0 + y / M_PER_DEG, LNG0 + x / M_PER_DEG_LNG, noise);
+            }
+            assertEquals("ruido " + noise, real, filter.getDistanceMeters(), real * 0.15);
+            assertTrue(filter.getRejectedCount() > 0);
+
+            RoutePolyline polyline = route.build();
+            assertTrue(polyline.size() > 5);
+            assertTrue("bytes=" + polyline.sizeInBytes(), polyline.sizeInBytes() < polyline.size() * 5);
+        }
+    }
+
+    @Test
+    public void outliersAndImpreciseFixes_areRejected() {
+        TrackFilter filter = new TrackFilter(null);
+        assertEquals(TrackFilter.Result.ACCEPTED, filter.onFix(0, LAT0, LNG0, 5));
+        assertEquals(TrackFilter.Result.REJECTED_ACCURACY, filter.onFix(1000, LAT0, LNG0, 50));
+        // 500 m en un segundo
+        assertEquals(TrackFilter.Result.REJECTED_SPEED, filter.onFix(2000, LAT0 + 500 / M_PER_DEG, LNG0, 5));
+        assertEquals(TrackFilter.Result.ACCEPTED, filter.onFix(3000, LAT0, LNG0, 5));
+        assertEquals(0, filter.getDistanceMeters(), 0);
+    }
+
+    @Test
+    public void consistentJump_resetsWithoutAddingDistance() {
+        TrackFilter filter = new TrackFilter(null);
+        filter.onFix(0, LAT0, LNG0, 5);
+        TrackFilter.Result last = null;
+        for (int i = 1; i <= 4; i++) { // Vuelve a haber señal 2 km más allá
+            last = filter.onFix(i * 1000L, LAT0 + 2000 / M_PER_DEG, LNG0, 5);
+        }
+        assertEquals(TrackFilter.Result.RESET, last);
+        assertEquals(0, filter.getDistanceMeters(), 0);
+        assertEquals(LAT0 + 2000 / M_PER_DEG, filter.getLat(), 1e-6);
+    }
+}